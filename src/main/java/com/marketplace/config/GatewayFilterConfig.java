@@ -0,0 +1,59 @@
+package com.marketplace.config;
+
+import com.marketplace.gateway.ClientIpResolver;
+import com.marketplace.gateway.GatewayAccessFilter;
+import com.marketplace.gateway.GatewayResponseCacheFilter;
+import com.marketplace.gateway.RateLimitFilter;
+import com.marketplace.gateway.service.GatewayAccessPolicy;
+import com.marketplace.gateway.service.GatewayResponseCache;
+import com.marketplace.gateway.service.RateLimitService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the gateway servlet filters: the IP allow/deny lists and rate limiting ahead of Spring
+ * Security, the response cache right after it. Declared here rather than as filter components so that @WebMvcTest
+ * slices do not pick them up.
+ */
+@Configuration
+public class GatewayFilterConfig {
+
+    @Bean
+    public FilterRegistrationBean<GatewayAccessFilter> gatewayAccessFilter(GatewayAccessPolicy accessPolicy,
+                                                                           ClientIpResolver clientIpResolver) {
+        FilterRegistrationBean<GatewayAccessFilter> registration =
+                new FilterRegistrationBean<>(new GatewayAccessFilter(accessPolicy, clientIpResolver));
+        registration.addUrlPatterns("/gateway/api/*", "/gateway/admin/*");
+        // Denied clients must not reach the rate limiter or the response cache
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.rate-limit.filter.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitService rateLimitService,
+                                                                   ClientIpResolver clientIpResolver) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(rateLimitService, clientIpResolver));
+        registration.addUrlPatterns("/api/*", "/gateway/api/*", "/gateway/admin/*");
+        // Spring Security's filter chain runs at -100
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "gateway.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<GatewayResponseCacheFilter> gatewayResponseCacheFilter(GatewayResponseCache cache) {
+        FilterRegistrationBean<GatewayResponseCacheFilter> registration =
+                new FilterRegistrationBean<>(new GatewayResponseCacheFilter(cache));
+        registration.addUrlPatterns("/api/*", "/gateway/api/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registration;
+    }
+}
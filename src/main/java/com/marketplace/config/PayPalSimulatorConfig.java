@@ -0,0 +1,80 @@
+package com.marketplace.config;
+
+import com.marketplace.simulator.PayPalSimulator;
+import com.marketplace.simulator.PayPalSimulatorSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+/**
+ * Starts the local PayPal simulator when the {@code paypal-sim} profile is active. The profile
+ * also points {@code paypal.base-url} at it, so checkout never reaches the real sandbox.
+ */
+@Configuration
+@Profile("paypal-sim")
+public class PayPalSimulatorConfig {
+    
+    @Value("${paypal.simulator.port:8089}")
+    private int port;
+    
+    @Value("${paypal.simulator.threads:64}")
+    private int threads;
+    
+    @Value("${paypal.simulator.latency-median-ms:150}")
+    private long latencyMedianMs;
+    
+    @Value("${paypal.simulator.latency-p99-ms:800}")
+    private long latencyP99Ms;
+    
+    @Value("${paypal.simulator.error-rate:0}")
+    private double errorRate;
+    
+    @Value("${paypal.simulator.throttle-rate:0}")
+    private double throttleRate;
+    
+    @Value("${paypal.simulator.max-requests-per-second:0}")
+    private int maxRequestsPerSecond;
+    
+    @Value("${paypal.simulator.decline-rate:0}")
+    private double declineRate;
+    
+    @Value("${paypal.simulator.auto-approve:true}")
+    private boolean autoApprove;
+    
+    @Value("${paypal.simulator.webhook-url:}")
+    private String webhookUrl;
+    
+    @Value("${paypal.simulator.webhook-delay-ms:500}")
+    private long webhookDelayMs;
+    
+    @Value("${paypal.simulator.webhook-trust-all-certificates:false}")
+    private boolean webhookTrustAllCertificates;
+    
+    @Value("${paypal.simulator.webhook-id:SIMULATOR-WEBHOOK}")
+    private String webhookId;
+    
+    @Bean(destroyMethod = "stop")
+    public PayPalSimulator payPalSimulator() throws IOException {
+        PayPalSimulatorSettings settings = new PayPalSimulatorSettings();
+        settings.setPort(port);
+        settings.setThreads(threads);
+        settings.setLatencyMedianMs(latencyMedianMs);
+        settings.setLatencyP99Ms(latencyP99Ms);
+        settings.setErrorRate(errorRate);
+        settings.setThrottleRate(throttleRate);
+        settings.setMaxRequestsPerSecond(maxRequestsPerSecond);
+        settings.setDeclineRate(declineRate);
+        settings.setAutoApprove(autoApprove);
+        settings.setWebhookUrl(webhookUrl);
+        settings.setWebhookDelayMs(webhookDelayMs);
+        settings.setWebhookTrustAllCertificates(webhookTrustAllCertificates);
+        settings.setWebhookId(webhookId);
+        
+        PayPalSimulator simulator = new PayPalSimulator(settings);
+        simulator.start();
+        return simulator;
+    }
+}
@@ -4,6 +4,7 @@ import com.marketplace.service.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -44,12 +45,15 @@ public class SecurityConfig {
                 
                 // API endpoints (both direct and through gateway)
                 .requestMatchers("/api/products/**", "/gateway/api/products/**").permitAll()
+                // PayPal cannot log in; every stored event is signature-verified before it is handled
+                .requestMatchers(HttpMethod.POST, "/api/webhooks/paypal/events").permitAll()
                 .requestMatchers("/api/payments/**", "/gateway/api/payments/**").hasRole("USER")
                 .requestMatchers("/api/cart/**", "/gateway/api/cart/**").hasRole("USER")
                 .requestMatchers("/api/orders/**", "/gateway/api/orders/**").hasRole("USER")
                 
                 // Admin endpoints (both direct and through gateway)
                 .requestMatchers("/admin/**", "/gateway/admin/**").hasRole("ADMIN")
+                .requestMatchers("/api/analytics/**", "/gateway/api/analytics/**").hasRole("ADMIN")
                 
                 // User-specific pages
                 .requestMatchers("/cart/**", "/orders/**", "/profile/**").hasRole("USER")
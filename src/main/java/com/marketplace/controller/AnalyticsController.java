@@ -0,0 +1,42 @@
+package com.marketplace.controller;
+
+import com.marketplace.dto.SalesReportResponseDTO;
+import com.marketplace.dto.mapper.DTOMapper;
+import com.marketplace.model.SalesRollup;
+import com.marketplace.service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+    
+    @Autowired
+    private SalesRollupService salesRollupService;
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/sales")
+    public ResponseEntity<SalesReportResponseDTO> getSalesReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String productId) {
+        if (!from.isBefore(to)) {
+            SalesReportResponseDTO errorResponse = new SalesReportResponseDTO("error", "'from' must be before 'to'");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        
+        try {
+            List<SalesRollup> buckets = salesRollupService.getBuckets(from, to, productId);
+            return ResponseEntity.ok(DTOMapper.toSalesReportResponseDTO(from, to, productId, buckets));
+        } catch (Exception e) {
+            SalesReportResponseDTO errorResponse = new SalesReportResponseDTO("error", "Failed to generate sales report: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
+}
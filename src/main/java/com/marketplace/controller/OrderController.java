@@ -4,6 +4,7 @@ import com.marketplace.dto.*;
 import com.marketplace.dto.mapper.DTOMapper;
 import com.marketplace.model.Order;
 import com.marketplace.model.OrderStatus;
+import com.marketplace.model.OrderStatusUpdateResult;
 import com.marketplace.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -14,6 +15,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
 import java.util.Optional;
@@ -47,9 +49,10 @@ public class OrderController {
     }
     
     @PostMapping("/create")
-    public String createOrder(Model model) {
+    public String createOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                              Model model) {
         try {
-            Order order = orderService.createOrderFromCart();
+            Order order = orderService.createOrderFromCart(idempotencyKey);
             return "redirect:/orders/" + order.getId();
         } catch (RuntimeException e) {
             model.addAttribute("error", e.getMessage());
@@ -77,8 +80,14 @@ public class OrderController {
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/admin/{orderId}/status")
     public String updateOrderStatus(@PathVariable String orderId, 
-                                  @RequestParam OrderStatus status) {
-        orderService.updateOrderStatus(orderId, status);
+                                  @RequestParam OrderStatus status,
+                                  RedirectAttributes redirectAttributes) {
+        try {
+            orderService.updateOrderStatus(orderId, status);
+        } catch (IllegalStateException e) {
+            // Flash attributes survive the redirect; model attributes would be dropped
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+        }
         return "redirect:/orders/admin";
     }
 }
@@ -120,13 +129,21 @@ class OrderRestController {
     }
     
     @PostMapping
-    public ResponseEntity<OrderResponseDTO> createOrder() {
+    public ResponseEntity<OrderResponseDTO> createOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Order order = orderService.createOrderFromCart();
+            Order order = orderService.createOrderFromCart(idempotencyKey);
             OrderResponseDTO response = DTOMapper.toOrderResponseDTO(order);
             response.setStatus("success");
             response.setMessage("Order created successfully");
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            OrderResponseDTO errorResponse = new OrderResponseDTO("error", "Failed to create order: " + e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (IllegalStateException e) {
+            // Same Idempotency-Key is still being processed by another request
+            OrderResponseDTO errorResponse = new OrderResponseDTO("error", "Failed to create order: " + e.getMessage());
+            return ResponseEntity.status(409).body(errorResponse);
         } catch (Exception e) {
             OrderResponseDTO errorResponse = new OrderResponseDTO("error", "Failed to create order: " + e.getMessage());
             return ResponseEntity.status(500).body(errorResponse);
@@ -162,9 +179,32 @@ class OrderRestController {
             response.setStatus("success");
             response.setMessage("Order status updated successfully");
             return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            OrderResponseDTO errorResponse = new OrderResponseDTO("error", "Failed to update order status: " + e.getMessage());
+            return ResponseEntity.status(409).body(errorResponse);
         } catch (Exception e) {
             OrderResponseDTO errorResponse = new OrderResponseDTO("error", "Failed to update order status: " + e.getMessage());
             return ResponseEntity.status(500).body(errorResponse);
         }
     }
+    
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/admin/status")
+    public ResponseEntity<BulkOrderStatusResponseDTO> bulkUpdateOrderStatus(@RequestBody BulkOrderStatusRequestDTO request) {
+        if (request.getStatus() == null) {
+            BulkOrderStatusResponseDTO errorResponse = new BulkOrderStatusResponseDTO("error", "Missing required field: status");
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+        
+        try {
+            List<OrderStatusUpdateResult> results = orderService.bulkUpdateOrderStatus(request.getOrderIds(), request.getStatus());
+            return ResponseEntity.ok(DTOMapper.toBulkOrderStatusResponseDTO(request.getStatus(), results));
+        } catch (IllegalArgumentException e) {
+            BulkOrderStatusResponseDTO errorResponse = new BulkOrderStatusResponseDTO("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            BulkOrderStatusResponseDTO errorResponse = new BulkOrderStatusResponseDTO("error", "Failed to update order statuses: " + e.getMessage());
+            return ResponseEntity.status(500).body(errorResponse);
+        }
+    }
 }
\ No newline at end of file
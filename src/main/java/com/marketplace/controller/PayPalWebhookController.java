@@ -1,11 +1,22 @@
 package com.marketplace.controller;
 
+import com.marketplace.gateway.ClientIpResolver;
+import com.marketplace.gateway.service.CidrMatcher;
+import com.marketplace.service.PayPalWebhookService;
+import com.marketplace.service.PayPalWebhookVerifier;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -24,37 +35,55 @@ public class PayPalWebhookController {
         "91.243.72.0/23"
     };
     
+    @Autowired
+    private PayPalWebhookService payPalWebhookService;
+    
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+    
+    @Value("${paypal.webhook.ip-validation.enabled:false}")
+    private boolean ipValidationEnabled;
+    
+    // Extra sources besides PayPal, e.g. localhost for the PayPal simulator
+    @Value("${paypal.webhook.ip-validation.additional-ranges:}")
+    private List<String> additionalRanges = List.of();
+    
+    private CidrMatcher allowedSources;
+    
+    @PostConstruct
+    public void compileAllowedSources() {
+        List<String> ranges = new ArrayList<>(Arrays.asList(PAYPAL_IP_RANGES));
+        ranges.addAll(additionalRanges);
+        allowedSources = CidrMatcher.compile(ranges);
+    }
+    
+    /**
+     * Stores the event with its PayPal transmission headers and acknowledges it straight away;
+     * signature verification and processing happen asynchronously in {@link PayPalWebhookService}.
+     * Only a failure to store the event is reported as a server error, so PayPal redelivers
+     * exactly the events we could not persist.
+     */
     @PostMapping("/events")
     public ResponseEntity<Map<String, Object>> handleWebhook(
             @RequestBody Map<String, Object> webhookData,
+            @RequestHeader HttpHeaders headers,
             HttpServletRequest request) {
         
-        String clientIp = getClientIp(request);
-        logger.info("PayPal Webhook received from IP: {}", clientIp);
+        String clientIp = clientIpResolver.resolve(request);
+        logger.info("PayPal Webhook {} ({}) received from IP: {}",
+                webhookData.get("id"), webhookData.get("event_type"), clientIp);
+        logger.debug("Webhook Data: {}", webhookData);
         
-        // Log webhook data for debugging
-        logger.info("Webhook Event Type: {}", webhookData.get("event_type"));
-        logger.info("Webhook Data: {}", webhookData);
+        if (ipValidationEnabled && !allowedSources.matches(clientIp)) {
+            logger.warn("Rejecting PayPal webhook from unexpected IP: {}", clientIp);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("status", "error");
+            errorResponse.put("message", "Webhook source not allowed");
+            return ResponseEntity.status(403).body(errorResponse);
+        }
         
         try {
-            String eventType = (String) webhookData.get("event_type");
-            
-            switch (eventType) {
-                case "PAYMENT.CAPTURE.COMPLETED":
-                    handlePaymentCaptureCompleted(webhookData);
-                    break;
-                case "PAYMENT.CAPTURE.DENIED":
-                    handlePaymentCaptureDenied(webhookData);
-                    break;
-                case "CHECKOUT.ORDER.APPROVED":
-                    handleOrderApproved(webhookData);
-                    break;
-                case "CHECKOUT.ORDER.COMPLETED":
-                    handleOrderCompleted(webhookData);
-                    break;
-                default:
-                    logger.info("Unhandled webhook event type: {}", eventType);
-            }
+            payPalWebhookService.ingest(webhookData, PayPalWebhookVerifier.transmissionHeaders(headers));
             
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
@@ -63,7 +92,7 @@ public class PayPalWebhookController {
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
-            logger.error("Error processing PayPal webhook: {}", e.getMessage(), e);
+            logger.error("Error storing PayPal webhook: {}", e.getMessage(), e);
             
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
@@ -73,48 +102,6 @@ public class PayPalWebhookController {
         }
     }
     
-    private void handlePaymentCaptureCompleted(Map<String, Object> webhookData) {
-        logger.info("Payment capture completed webhook received");
-        // TODO: Update order status in database
-        // TODO: Send confirmation email to customer
-        // TODO: Update inventory if needed
-    }
-    
-    private void handlePaymentCaptureDenied(Map<String, Object> webhookData) {
-        logger.warn("Payment capture denied webhook received");
-        // TODO: Update order status to failed
-        // TODO: Send notification to customer
-        // TODO: Release reserved inventory
-    }
-    
-    private void handleOrderApproved(Map<String, Object> webhookData) {
-        logger.info("Order approved webhook received");
-        // TODO: Reserve inventory
-        // TODO: Prepare for fulfillment
-    }
-    
-    private void handleOrderCompleted(Map<String, Object> webhookData) {
-        logger.info("Order completed webhook received");
-        // TODO: Final order processing
-        // TODO: Generate receipt
-        // TODO: Update analytics
-    }
-    
-    private String getClientIp(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
-    
-    // Webhook verification method (simplified - should use PayPal SDK for production)
     @GetMapping("/verify")
     public ResponseEntity<Map<String, Object>> verifyWebhookEndpoint() {
         Map<String, Object> response = new HashMap<>();
@@ -126,7 +113,7 @@ public class PayPalWebhookController {
             "CHECKOUT.ORDER.APPROVED",
             "CHECKOUT.ORDER.COMPLETED"
         });
-        response.put("security", "IP whitelisting enabled for PayPal ranges");
+        response.put("security", "PayPal signature verification and IP whitelisting for PayPal ranges");
         
         return ResponseEntity.ok(response);
     }
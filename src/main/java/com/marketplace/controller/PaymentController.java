@@ -2,28 +2,42 @@ package com.marketplace.controller;
 
 import com.marketplace.dto.*;
 import com.marketplace.dto.mapper.DTOMapper;
+import com.marketplace.model.CaptureRetry;
 import com.marketplace.model.Product;
 import com.marketplace.model.Cart;
 import com.marketplace.repository.ProductRepository;
+import com.marketplace.service.CaptureRetryService;
+import com.marketplace.service.PayPalBulkhead;
 import com.marketplace.service.PayPalService;
 import com.marketplace.service.CartService;
 import com.marketplace.service.PayPalSellerService;
+import com.marketplace.service.UserService;
 import com.paypal.orders.Order;
 import com.paypal.orders.LinkDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/payments")
 @CrossOrigin(origins = "*")
 public class PaymentController {
     
+    private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
+    
     @Autowired
     private ProductRepository productRepository;
     
@@ -36,6 +50,18 @@ public class PaymentController {
     @Autowired
     private PayPalSellerService payPalSellerService;
     
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private CaptureRetryService captureRetryService;
+    
+    // PayPal futures complete on a bulkhead worker or, on timeout, on the JDK's single delayer
+    // thread; the callbacks below write to MongoDB and must not hold either
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor callbackExecutor;
+    
     @Value("${paypal.return.success.url:http://localhost:8081/payment-success}")
     private String successUrl;
     
@@ -45,75 +71,98 @@ public class PaymentController {
     @Value("${paypal.client.id:sb-demo-client-id}")
     private String paypalClientId;
     
+    private static final String GATEWAY_BUSY_MESSAGE = "Payment gateway is busy, please retry shortly";
+    private static final String CAPTURE_PENDING_MESSAGE = "Payment capture pending, it will be completed shortly";
+    private static final int MAX_CHECKOUT_TOKEN_LENGTH = 100;
+    
     @PostMapping("/paypal")
-    public ResponseEntity<PaymentResponseDTO> processPayPalPayment(@RequestBody Map<String, Object> paymentData) {
+    public CompletableFuture<ResponseEntity<PaymentResponseDTO>> processPayPalPayment(@RequestBody Map<String, Object> paymentData) {
         try {
             // Validate input data
             if (paymentData.get("productId") == null) {
                 PaymentResponseDTO errorResponse = new PaymentResponseDTO("error", "Missing required field: productId");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
             }
             
             String productId = paymentData.get("productId").toString();
             
+            // One token per checkout attempt: every submit carrying it gets the same PayPal order.
+            // Clients without a token get no deduplication rather than a guessed one.
+            String checkoutToken = paymentData.get("checkoutToken") != null
+                ? paymentData.get("checkoutToken").toString()
+                : UUID.randomUUID().toString();
+            if (checkoutToken.isBlank() || checkoutToken.length() > MAX_CHECKOUT_TOKEN_LENGTH) {
+                PaymentResponseDTO errorResponse = new PaymentResponseDTO("error", "Invalid checkoutToken");
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+            }
+            
             // PayPal Guidelines: Validate seller account before processing payment
             String sellerId = "default-seller"; // TODO: Get from user session or product
             if (!payPalSellerService.isSellerEligibleForCheckout(sellerId)) {
-                Map<String, Object> sellerValidation = payPalSellerService.validateSellerAccount(sellerId);
+                Map<String, Object> sellerValidation = payPalSellerService.getCachedSellerValidation(sellerId);
                 String warning = (String) sellerValidation.get("warning");
                 PaymentResponseDTO errorResponse = new PaymentResponseDTO("error", 
                     warning != null ? warning : "Seller account not eligible for payments");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
             }
             
             // Get product details from database
             Optional<Product> productOpt = productRepository.findById(productId);
             if (!productOpt.isPresent()) {
                 PaymentResponseDTO errorResponse = new PaymentResponseDTO("error", "Product not found");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
             }
             
             Product product = productOpt.get();
             
-            // Try PayPal SDK first, fall back to direct URL if needed
-            String paypalUrl = null;
-            String orderId = null;
-            
-            try {
-                Order order = payPalService.createOrder(product);
-                
-                // Find the approval URL from the order links
-                for (LinkDescription link : order.links()) {
-                    if ("approve".equals(link.rel())) {
-                        paypalUrl = link.href();
-                        orderId = order.id();
-                        break;
-                    }
+            // Try PayPal SDK first (off the request thread), fall back to direct URL if needed.
+            // An open circuit breaker fails fast, so the fallback is immediate while PayPal is down.
+            // Repeated submits of the same checkout get the same PayPal order.
+            return payPalService.createOrderAsync(product, userService.getCurrentUserId(), checkoutToken).handleAsync((order, error) -> {
+                if (PayPalBulkhead.isRejection(error)) {
+                    return gatewayBusy(new PaymentResponseDTO("error", GATEWAY_BUSY_MESSAGE));
                 }
                 
+                String paypalUrl = error == null ? findApprovalUrl(order) : null;
+                String orderId;
                 if (paypalUrl == null || paypalUrl.isEmpty()) {
-                    throw new Exception("No approval URL found in PayPal response");
+                    // Fallback to direct PayPal URL for development/demo purposes
+                    paypalUrl = buildDemoPayPalUrl(product);
+                    orderId = "demo-order-" + System.currentTimeMillis();
+                } else {
+                    orderId = order.id();
                 }
                 
-            } catch (Exception e) {
-                // Fallback to direct PayPal URL for development/demo purposes
-                paypalUrl = buildDemoPayPalUrl(product);
-                orderId = "demo-order-" + System.currentTimeMillis();
-            }
-            
-            PaymentResponseDTO response = DTOMapper.createPaymentResponseDTO(
-                "success", "Payment initiated", paypalUrl, 
-                orderId != null ? orderId : "demo-order", product
-            );
-            
-            return ResponseEntity.ok(response);
+                PaymentResponseDTO response = DTOMapper.createPaymentResponseDTO(
+                    "success", "Payment initiated", paypalUrl, 
+                    orderId != null ? orderId : "demo-order", product
+                );
+                
+                return ResponseEntity.ok(response);
+            }, callbackExecutor);
             
         } catch (Exception e) {
             PaymentResponseDTO errorResponse = new PaymentResponseDTO("error", "Payment processing failed: " + e.getMessage());
-            return ResponseEntity.status(500).body(errorResponse);
+            return CompletableFuture.completedFuture(ResponseEntity.status(500).body(errorResponse));
         }
     }
     
+    private static String findApprovalUrl(Order order) {
+        if (order == null || order.links() == null) {
+            return null;
+        }
+        for (LinkDescription link : order.links()) {
+            if ("approve".equals(link.rel())) {
+                return link.href();
+            }
+        }
+        return null;
+    }
+    
+    private static <T> ResponseEntity<T> gatewayBusy(T body) {
+        return ResponseEntity.status(503).header("Retry-After", "1").body(body);
+    }
+    
     private String buildDemoPayPalUrl(Product product) {
         // Working PayPal demo URL for development/testing
         StringBuilder url = new StringBuilder("https://www.sandbox.paypal.com/cgi-bin/webscr");
@@ -132,30 +181,63 @@ public class PaymentController {
     }
     
     @PostMapping("/paypal/capture/{orderId}")
-    public ResponseEntity<PaymentCaptureResponseDTO> capturePayPalOrder(@PathVariable String orderId) {
-        try {
-            Order order = payPalService.captureOrder(orderId);
-            
-            PaymentCaptureResponseDTO response = new PaymentCaptureResponseDTO(
-                "success", "Payment captured successfully", order.id(), order.status()
-            );
-            
-            return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<PaymentCaptureResponseDTO>> capturePayPalOrder(@PathVariable String orderId) {
+        // A capture already queued for retry is answered from the queue, never attempted twice
+        Optional<CaptureRetry> queued = captureRetryService.findRetry(orderId);
+        if (queued.isPresent()) {
+            CaptureRetry retry = queued.get();
+            if (retry.getState() == CaptureRetry.State.FAILED) {
+                // The buyer is trying again: hand the capture back to the queue rather than failing for good
+                CaptureRetry rearmed = captureRetryService.rearm(orderId);
+                retry = rearmed != null ? rearmed : retry;
+            }
+            return CompletableFuture.completedFuture(queuedCaptureResponse(retry));
+        }
+        
+        return payPalService.captureOrderAsync(orderId).handleAsync((order, error) -> {
+            if (error == null) {
+                PaymentCaptureResponseDTO response = new PaymentCaptureResponseDTO(
+                    "success", "Payment captured successfully", order.id(), order.status()
+                );
+                return ResponseEntity.ok(response);
+            }
+            if (CaptureRetryService.isRetryable(error)) {
+                // Transient failure: retried in the background instead of holding this request
+                try {
+                    return queuedCaptureResponse(captureRetryService.enqueue(orderId, error));
+                } catch (Exception e) {
+                    PaymentCaptureResponseDTO errorResponse = new PaymentCaptureResponseDTO("error", "Payment capture failed: " + e.getMessage());
+                    return ResponseEntity.status(500).body(errorResponse);
+                }
+            }
             
-        } catch (Exception e) {
-            PaymentCaptureResponseDTO errorResponse = new PaymentCaptureResponseDTO("error", "Payment capture failed: " + e.getMessage());
+            PaymentCaptureResponseDTO errorResponse = new PaymentCaptureResponseDTO("error", "Payment capture failed: " + rootCause(error).getMessage());
             return ResponseEntity.status(500).body(errorResponse);
+        }, callbackExecutor);
+    }
+    
+    private static ResponseEntity<PaymentCaptureResponseDTO> queuedCaptureResponse(CaptureRetry retry) {
+        switch (retry.getState()) {
+            case CAPTURED:
+                return ResponseEntity.ok(new PaymentCaptureResponseDTO(
+                    "success", "Payment captured successfully", retry.getId(), retry.getCaptureStatus()));
+            case FAILED:
+                return ResponseEntity.status(500).body(new PaymentCaptureResponseDTO(
+                    "error", "Payment capture failed: " + retry.getLastError()));
+            default:
+                return ResponseEntity.accepted().body(new PaymentCaptureResponseDTO(
+                    "pending", CAPTURE_PENDING_MESSAGE, retry.getId(), "PENDING"));
         }
     }
     
     @PostMapping("/paypal/cart")
-    public ResponseEntity<CartPaymentResponseDTO> processCartPayPalPayment() {
+    public CompletableFuture<ResponseEntity<CartPaymentResponseDTO>> processCartPayPalPayment() {
         try {
             // Get current user's cart
             Cart cart = cartService.getCurrentUserCart();
             if (cart.isEmpty()) {
                 CartPaymentResponseDTO errorResponse = new CartPaymentResponseDTO("error", "Cart is empty");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
             }
             
             // Calculate cart total with tax
@@ -163,43 +245,54 @@ public class PaymentController {
             BigDecimal tax = cartTotal.multiply(new BigDecimal("0.08"));
             BigDecimal finalTotal = cartTotal.add(tax);
             
-            // Try PayPal SDK first, fall back to direct URL if needed
-            String paypalUrl = null;
-            String orderId = null;
-            
-            try {
-                Order order = payPalService.createCartOrder(cart, finalTotal);
-                
-                // Find the approval URL from the order links
-                for (LinkDescription link : order.links()) {
-                    if ("approve".equals(link.rel())) {
-                        paypalUrl = link.href();
-                        orderId = order.id();
-                        break;
-                    }
+            // Try PayPal SDK first (off the request thread), fall back to direct URL if needed
+            return payPalService.createCartOrderAsync(cart, finalTotal).handleAsync((order, error) -> {
+                if (PayPalBulkhead.isRejection(error)) {
+                    return gatewayBusy(new CartPaymentResponseDTO("error", GATEWAY_BUSY_MESSAGE));
                 }
                 
+                String paypalUrl = error == null ? findApprovalUrl(order) : null;
+                String orderId;
                 if (paypalUrl == null || paypalUrl.isEmpty()) {
-                    throw new Exception("No approval URL found in PayPal response");
+                    // Fallback to direct PayPal URL for development/demo purposes (same as Buy Now)
+                    paypalUrl = buildDemoCartPayPalUrl(cart, finalTotal);
+                    orderId = "demo-cart-" + System.currentTimeMillis();
+                } else {
+                    orderId = order.id();
+                    linkPayPalOrder(cart, orderId, finalTotal);
                 }
                 
-            } catch (Exception e) {
-                // Fallback to direct PayPal URL for development/demo purposes (same as Buy Now)
-                paypalUrl = buildDemoCartPayPalUrl(cart, finalTotal);
-                orderId = "demo-cart-" + System.currentTimeMillis();
-            }
-            
-            CartPaymentResponseDTO response = DTOMapper.createCartPaymentResponseDTO(
-                "success", paypalUrl, cartTotal.toString(), tax.toString(),
-                finalTotal.toString(), cart.getTotalItems(), orderId
-            );
-            
-            return ResponseEntity.ok(response);
+                CartPaymentResponseDTO response = DTOMapper.createCartPaymentResponseDTO(
+                    "success", paypalUrl, cartTotal.toString(), tax.toString(),
+                    finalTotal.toString(), cart.getTotalItems(), orderId
+                );
+                
+                return ResponseEntity.ok(response);
+            }, callbackExecutor);
             
         } catch (Exception e) {
             CartPaymentResponseDTO errorResponse = new CartPaymentResponseDTO("error", "Cart payment failed: " + e.getMessage());
-            return ResponseEntity.status(500).body(errorResponse);
+            return CompletableFuture.completedFuture(ResponseEntity.status(500).body(errorResponse));
+        }
+    }
+    
+    // The order placed from this cart picks the PayPal order up server-side; webhooks then find it
+    private void linkPayPalOrder(Cart cart, String paypalOrderId, BigDecimal amount) {
+        try {
+            if (!cartService.linkPayPalOrder(cart, paypalOrderId, amount)) {
+                logger.info("Cart of user {} changed before PayPal order {} could be linked", cart.getUserId(), paypalOrderId);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not link PayPal order {} to the cart of user {}: {}", paypalOrderId, cart.getUserId(), e.getMessage());
+        }
+    }
+    
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause;
     }
     
     private String buildDemoCartPayPalUrl(Cart cart, BigDecimal finalTotal) {
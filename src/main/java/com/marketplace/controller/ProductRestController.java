@@ -4,6 +4,7 @@ import com.marketplace.dto.*;
 import com.marketplace.dto.mapper.DTOMapper;
 import com.marketplace.model.Product;
 import com.marketplace.repository.ProductRepository;
+import com.marketplace.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -21,6 +22,9 @@ public class ProductRestController {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ProductService productService;
+    
     @GetMapping
     public ResponseEntity<ProductListResponseDTO> getAllProducts() {
         try {
@@ -36,7 +40,7 @@ public class ProductRestController {
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponseDTO> getProductById(@PathVariable String id) {
         try {
-            Optional<Product> product = productRepository.findById(id);
+            Optional<Product> product = productService.getProduct(id);
             if (product.isPresent()) {
                 ProductResponseDTO response = DTOMapper.toProductResponseDTO(product.get());
                 return ResponseEntity.ok(response);
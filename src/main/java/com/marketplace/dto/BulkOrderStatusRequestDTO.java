@@ -0,0 +1,33 @@
+package com.marketplace.dto;
+
+import com.marketplace.model.OrderStatus;
+import java.util.List;
+
+public class BulkOrderStatusRequestDTO {
+    private List<String> orderIds;
+    private OrderStatus status;
+
+    public BulkOrderStatusRequestDTO() {}
+
+    public BulkOrderStatusRequestDTO(List<String> orderIds, OrderStatus status) {
+        this.orderIds = orderIds;
+        this.status = status;
+    }
+
+    // Getters and setters
+    public List<String> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<String> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,70 @@
+package com.marketplace.dto;
+
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.OrderStatusUpdateResult;
+import java.util.List;
+
+public class BulkOrderStatusResponseDTO {
+    private String status;
+    private String message;
+    private OrderStatus targetStatus;
+    private long updatedCount;
+    private long failedCount;
+    private List<OrderStatusUpdateResult> results;
+
+    public BulkOrderStatusResponseDTO() {}
+
+    public BulkOrderStatusResponseDTO(String status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters and setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    public long getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public void setUpdatedCount(long updatedCount) {
+        this.updatedCount = updatedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public List<OrderStatusUpdateResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<OrderStatusUpdateResult> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,141 @@
+package com.marketplace.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class SalesReportResponseDTO {
+    private String status;
+    private String message;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String productId;
+    private BigDecimal revenue;
+    private long orderCount;
+    private long unitsSold;
+    private long deliveredOrders;
+    private BigDecimal refunded;
+    private long refundedOrders;
+    private long refundedUnits;
+    private BigDecimal netRevenue;
+    private int bucketsScanned;
+
+    public SalesReportResponseDTO() {}
+
+    public SalesReportResponseDTO(String status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    // Getters and setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public long getDeliveredOrders() {
+        return deliveredOrders;
+    }
+
+    public void setDeliveredOrders(long deliveredOrders) {
+        this.deliveredOrders = deliveredOrders;
+    }
+
+    public BigDecimal getRefunded() {
+        return refunded;
+    }
+
+    public void setRefunded(BigDecimal refunded) {
+        this.refunded = refunded;
+    }
+
+    public long getRefundedOrders() {
+        return refundedOrders;
+    }
+
+    public void setRefundedOrders(long refundedOrders) {
+        this.refundedOrders = refundedOrders;
+    }
+
+    public long getRefundedUnits() {
+        return refundedUnits;
+    }
+
+    public void setRefundedUnits(long refundedUnits) {
+        this.refundedUnits = refundedUnits;
+    }
+
+    public BigDecimal getNetRevenue() {
+        return netRevenue;
+    }
+
+    public void setNetRevenue(BigDecimal netRevenue) {
+        this.netRevenue = netRevenue;
+    }
+
+    public int getBucketsScanned() {
+        return bucketsScanned;
+    }
+
+    public void setBucketsScanned(int bucketsScanned) {
+        this.bucketsScanned = bucketsScanned;
+    }
+}
@@ -2,6 +2,8 @@ package com.marketplace.dto.mapper;
 
 import com.marketplace.dto.*;
 import com.marketplace.model.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -90,6 +92,49 @@ public class DTOMapper {
         return new OrderListResponseDTO(orderDTOs);
     }
 
+    public static BulkOrderStatusResponseDTO toBulkOrderStatusResponseDTO(OrderStatus targetStatus,
+                                                                         List<OrderStatusUpdateResult> results) {
+        long updated = results.stream()
+                .filter(result -> result.getOutcome() == OrderStatusUpdateResult.Outcome.UPDATED
+                        || result.getOutcome() == OrderStatusUpdateResult.Outcome.UNCHANGED)
+                .count();
+        
+        BulkOrderStatusResponseDTO dto = new BulkOrderStatusResponseDTO(
+            updated == results.size() ? "success" : "partial",
+            "Updated " + updated + " of " + results.size() + " orders"
+        );
+        dto.setTargetStatus(targetStatus);
+        dto.setUpdatedCount(updated);
+        dto.setFailedCount(results.size() - updated);
+        dto.setResults(results);
+        return dto;
+    }
+
+    // Sales report mapping
+    public static SalesReportResponseDTO toSalesReportResponseDTO(LocalDateTime from, LocalDateTime to,
+                                                                 String productId, List<SalesRollup> buckets) {
+        long revenueCents = 0, refundedCents = 0;
+        SalesReportResponseDTO dto = new SalesReportResponseDTO("success", "Sales report generated");
+        for (SalesRollup bucket : buckets) {
+            revenueCents += bucket.getRevenueCents();
+            refundedCents += bucket.getRefundedCents();
+            dto.setOrderCount(dto.getOrderCount() + bucket.getOrderCount());
+            dto.setUnitsSold(dto.getUnitsSold() + bucket.getUnitsSold());
+            dto.setDeliveredOrders(dto.getDeliveredOrders() + bucket.getDeliveredOrders());
+            dto.setRefundedOrders(dto.getRefundedOrders() + bucket.getRefundedOrders());
+            dto.setRefundedUnits(dto.getRefundedUnits() + bucket.getRefundedUnits());
+        }
+        
+        dto.setFrom(from);
+        dto.setTo(to);
+        dto.setProductId(productId);
+        dto.setRevenue(BigDecimal.valueOf(revenueCents, 2));
+        dto.setRefunded(BigDecimal.valueOf(refundedCents, 2));
+        dto.setNetRevenue(BigDecimal.valueOf(revenueCents - refundedCents, 2));
+        dto.setBucketsScanned(buckets.size());
+        return dto;
+    }
+
     // Payment response mapping
     public static PaymentResponseDTO createPaymentResponseDTO(String status, String message, 
                                                              String paypalUrl, String orderId,
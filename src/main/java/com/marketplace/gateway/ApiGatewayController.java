@@ -1,6 +1,14 @@
 package com.marketplace.gateway;
 
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import com.marketplace.gateway.ratelimit.RateLimitPolicy;
+import com.marketplace.gateway.service.AdaptiveConcurrencyLimiter;
+import com.marketplace.gateway.service.GatewayAccessPolicy;
+import com.marketplace.gateway.service.GatewayConcurrencyLimits;
+import com.marketplace.gateway.service.GatewayResponseCache;
 import com.marketplace.gateway.service.RateLimitService;
+import com.marketplace.gateway.service.RedisHealthMonitor;
+import com.marketplace.service.PayPalCircuitBreaker;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
@@ -22,6 +30,24 @@ public class ApiGatewayController {
     @Autowired
     private RateLimitService rateLimitService;
 
+    @Autowired
+    private PayPalCircuitBreaker payPalCircuitBreaker;
+
+    @Autowired
+    private GatewayAccessPolicy accessPolicy;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    @Autowired
+    private GatewayResponseCache responseCache;
+
+    @Autowired
+    private GatewayConcurrencyLimits concurrencyLimits;
+
+    @Autowired
+    private RedisHealthMonitor redisHealth;
+
     @RequestMapping(value = "/api/**", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE})
     public ResponseEntity<?> proxyApiRequest(
             HttpServletRequest request,
@@ -34,19 +60,33 @@ public class ApiGatewayController {
         
         logger.info("Gateway API Request: {} {} from {}", method, path, clientIp);
 
-        // Rate limiting check
-        if (!rateLimitService.isAllowed(clientIp, "api")) {
-            logger.warn("Rate limit exceeded for IP: {}", clientIp);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "error");
-            errorResponse.put("message", "Rate limit exceeded. Please try again later.");
-            errorResponse.put("code", "RATE_LIMIT_EXCEEDED");
+        if (!accessPolicy.isAllowed(clientIp)) {
+            return accessDenied(clientIp);
+        }
+
+        // Rate limiting check (already done by RateLimitFilter when it is registered)
+        if (!rateLimitChecked(request)) {
+            RateLimitPolicy policy = rateLimitService.resolvePolicy(request, clientIp);
+            RateLimitDecision decision = rateLimitService.check(clientIp, policy);
+            RateLimitHeaders.apply(response, decision);
+            if (!decision.isAllowed()) {
+                logger.warn("Rate limit exceeded for IP: {}", clientIp);
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("status", "error");
+                errorResponse.put("message", "Rate limit exceeded. Please try again later.");
+                errorResponse.put("code", "RATE_LIMIT_EXCEEDED");
             
-            // Add rate limit headers
-            response.addHeader("X-Rate-Limit-Status", "exceeded");
-            response.addHeader("X-Rate-Limit-Service", "api");
+                // Add rate limit headers
+                response.addHeader("X-Rate-Limit-Status", "exceeded");
+                response.addHeader("X-Rate-Limit-Service", policy.getName());
             
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+            }
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimits.tryAcquire("api", request);
+        if (permit == null) {
+            return overloaded(response, "api");
         }
 
         // Add gateway headers
@@ -71,12 +111,15 @@ public class ApiGatewayController {
             return null;
             
         } catch (Exception e) {
+            permit.release(true);
             logger.error("Gateway error for {} {}: {}", method, path, e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
             errorResponse.put("message", "Gateway error: " + e.getMessage());
             errorResponse.put("code", "GATEWAY_ERROR");
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            concurrencyLimits.complete(permit, request, response);
         }
     }
 
@@ -92,18 +135,32 @@ public class ApiGatewayController {
         
         logger.info("Gateway Admin Request: {} {} from {}", method, path, clientIp);
 
-        // Stricter rate limiting for admin endpoints
-        if (!rateLimitService.isAllowed(clientIp, "admin")) {
-            logger.warn("Admin rate limit exceeded for IP: {}", clientIp);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("status", "error");
-            errorResponse.put("message", "Admin rate limit exceeded. Please try again later.");
-            errorResponse.put("code", "ADMIN_RATE_LIMIT_EXCEEDED");
+        if (!accessPolicy.isAllowed(clientIp)) {
+            return accessDenied(clientIp);
+        }
+
+        // Stricter rate limiting for admin endpoints (already done by RateLimitFilter when it is registered)
+        if (!rateLimitChecked(request)) {
+            RateLimitPolicy policy = rateLimitService.resolvePolicy(request, clientIp);
+            RateLimitDecision decision = rateLimitService.check(clientIp, policy);
+            RateLimitHeaders.apply(response, decision);
+            if (!decision.isAllowed()) {
+                logger.warn("Admin rate limit exceeded for IP: {}", clientIp);
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("status", "error");
+                errorResponse.put("message", "Admin rate limit exceeded. Please try again later.");
+                errorResponse.put("code", "ADMIN_RATE_LIMIT_EXCEEDED");
             
-            response.addHeader("X-Rate-Limit-Status", "exceeded");
-            response.addHeader("X-Rate-Limit-Service", "admin");
+                response.addHeader("X-Rate-Limit-Status", "exceeded");
+                response.addHeader("X-Rate-Limit-Service", policy.getName());
             
-            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(errorResponse);
+            }
+        }
+
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimits.tryAcquire("admin", request);
+        if (permit == null) {
+            return overloaded(response, "admin");
         }
 
         // Add gateway headers
@@ -122,14 +179,40 @@ public class ApiGatewayController {
             return null;
             
         } catch (Exception e) {
+            permit.release(true);
             logger.error("Gateway admin error: {}", e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("status", "error");
             errorResponse.put("message", "Admin gateway error: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        } finally {
+            concurrencyLimits.complete(permit, request, response);
         }
     }
 
+    private ResponseEntity<Map<String, Object>> overloaded(HttpServletResponse response, String route) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", "error");
+        errorResponse.put("message", "Service is busy. Please try again shortly.");
+        errorResponse.put("code", "GATEWAY_OVERLOADED");
+        response.addHeader(HttpHeaders.RETRY_AFTER, String.valueOf(concurrencyLimits.getRetryAfterSeconds()));
+        response.addHeader("X-Gateway-Route", route);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    private boolean rateLimitChecked(HttpServletRequest request) {
+        return request.getAttribute(RateLimitFilter.POLICY_ATTRIBUTE) != null;
+    }
+
+    private ResponseEntity<Map<String, Object>> accessDenied(String clientIp) {
+        logger.warn("Gateway access denied for IP: {}", clientIp);
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", "error");
+        errorResponse.put("message", "Access denied");
+        errorResponse.put("code", "IP_NOT_ALLOWED");
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+    }
+
     @GetMapping("/info")
     public ResponseEntity<Map<String, Object>> getGatewayInfo() {
         Map<String, Object> info = new HashMap<>();
@@ -143,7 +226,8 @@ public class ApiGatewayController {
             "CORS Support", 
             "Security Headers",
             "Request Logging",
-            "Internal Request Forwarding"
+            "Internal Request Forwarding",
+            "Response Caching"
         });
         info.put("endpoints", new String[]{
             "/gateway/api/** - API endpoints with rate limiting",
@@ -151,10 +235,11 @@ public class ApiGatewayController {
             "/gateway/info - Gateway information",
             "/gateway/health - Gateway health status"
         });
-        info.put("rate_limiting", Map.of(
-            "api_limit", "100 requests/minute",
-            "admin_limit", "20 requests/minute",
-            "payment_limit", "10 requests/minute"
+        info.put("rate_limiting", rateLimitService.describePolicies());
+        info.put("response_cache", responseCache.describe());
+        info.put("ip_policy", Map.of(
+            "allow_entries", accessPolicy.getAllowCount(),
+            "deny_entries", accessPolicy.getDenyCount()
         ));
         
         return ResponseEntity.ok(info);
@@ -168,21 +253,14 @@ public class ApiGatewayController {
         health.put("timestamp", System.currentTimeMillis());
         health.put("rate_limiting", rateLimitService.isHealthy());
         health.put("rate_limiting_status", rateLimitService.getStatus());
+        health.put("redis", redisHealth.describe());
+        health.put("paypal_circuit", payPalCircuitBreaker.getStatus());
+        health.put("concurrency_limits", concurrencyLimits.describe());
         
         return ResponseEntity.ok(health);
     }
 
     private String getClientIp(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
+        return clientIpResolver.resolve(request);
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.service.CidrMatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resolves the client address of a request. X-Forwarded-For and X-Real-IP are only honoured when
+ * the peer is one of the configured trusted proxies; otherwise anyone could pick their own address
+ * by sending the header. Behind trusted proxies the client is the nearest X-Forwarded-For hop that
+ * is not itself a trusted proxy.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientIpResolver.class);
+
+    // Load balancers and reverse proxies in front of the application (CIDR blocks)
+    @Value("${gateway.trusted-proxies:}")
+    private List<String> trustedProxyRanges = List.of();
+
+    private volatile CidrMatcher trustedProxies = CidrMatcher.empty();
+
+    @PostConstruct
+    public void compile() {
+        trustedProxies = CidrMatcher.compile(trustedProxyRanges);
+        logger.info("Client IP resolution trusts forwarding headers from {} proxy ranges", trustedProxies.size());
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!trustedProxies.matches(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+            // Each proxy appends the address it received the request from, so walk back from the
+            // nearest hop; entries left of the first untrusted one may have been made up by the client
+            String leftmost = null;
+            int end = xForwardedFor.length();
+            while (end > 0) {
+                int comma = xForwardedFor.lastIndexOf(',', end - 1);
+                String hop = xForwardedFor.substring(comma + 1, end).trim();
+                if (!hop.isEmpty()) {
+                    if (!trustedProxies.matches(hop)) {
+                        return hop;
+                    }
+                    leftmost = hop;
+                }
+                end = comma < 0 ? 0 : comma;
+            }
+            if (leftmost != null) {
+                return leftmost;
+            }
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty()) {
+            return xRealIp;
+        }
+
+        return remoteAddr;
+    }
+}
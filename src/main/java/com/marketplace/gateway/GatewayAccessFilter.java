@@ -0,0 +1,50 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.service.GatewayAccessPolicy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the gateway IP allow/deny lists ahead of every other gateway filter, so a denied client
+ * is rejected before {@link GatewayResponseCacheFilter} can answer it from the cache. Registered
+ * in {@link com.marketplace.config.GatewayFilterConfig}.
+ */
+public class GatewayAccessFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayAccessFilter.class);
+
+    private static final String ACCESS_DENIED_BODY =
+            "{\"status\":\"error\",\"message\":\"Access denied\",\"code\":\"IP_NOT_ALLOWED\"}";
+
+    private final GatewayAccessPolicy accessPolicy;
+    private final ClientIpResolver clientIpResolver;
+
+    public GatewayAccessFilter(GatewayAccessPolicy accessPolicy, ClientIpResolver clientIpResolver) {
+        this.accessPolicy = accessPolicy;
+        this.clientIpResolver = clientIpResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientIp = clientIpResolver.resolve(request);
+        if (!accessPolicy.isAllowed(clientIp)) {
+            logger.warn("Gateway access denied for IP: {}", clientIp);
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(ACCESS_DENIED_BODY);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,216 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.service.GatewayResponseCache;
+import com.marketplace.gateway.service.GatewayResponseCache.CachedResponse;
+import com.marketplace.gateway.service.GatewayResponseCache.Route;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves safe GET requests on cached gateway routes from {@link GatewayResponseCache}, so a hit
+ * never reaches the DispatcherServlet or the internal forward, and stores cacheable responses on
+ * a miss. Concurrent misses for the same key are coalesced into one forward. Adds a strong ETag and answers matching If-None-Match requests with 304. Runs after
+ * Spring Security and {@link GatewayAccessFilter}, so access rules and the IP lists still apply to
+ * cached routes. Hits take no gateway concurrency permit: they never reach the downstream.
+ */
+public class GatewayResponseCacheFilter extends OncePerRequestFilter {
+
+    // CORS response headers are stored too: entries are keyed on Origin, so they fit every hit.
+    // So are the gateway's route headers; X-Client-IP is per client and is not.
+    private static final String[] STORED_HEADERS = {
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.VARY,
+            HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS,
+            HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS,
+            "X-Gateway-Route", "X-Gateway-Response", "X-Gateway-Version"
+    };
+
+    private final GatewayResponseCache cache;
+
+    public GatewayResponseCacheFilter(GatewayResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // The body of an async response is only complete on the async dispatch
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Route route = cache.route(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            if (cache.isUnsafeWriteToCachedPath(request) && response.getStatus() < 400) {
+                // Product updates should not wait out the TTL
+                cache.invalidateAll();
+            }
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        String key = cache.key(route, request);
+        if (isAsyncDispatch(request)) {
+            ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+            filterChain.doFilter(request, response);
+            if (wrapper != null && !isAsyncStarted(request)) {
+                complete(route, key, request, wrapper, now);
+            }
+            return;
+        }
+
+        CachedResponse cached = noCache(request) ? null : cache.lookup(route, key, now);
+        if (cached != null) {
+            serve(cached, request, response, now);
+            return;
+        }
+
+        // Concurrent misses for the same key wait for one forward and share its response
+        boolean[] leader = {false};
+        CachedResponse shared = null;
+        try {
+            shared = cache.getMissLoads().execute(key, () -> {
+                leader[0] = true;
+                try {
+                    return forward(route, key, request, response, filterChain, now);
+                } catch (IOException | ServletException e) {
+                    throw new ForwardException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (leader[0]) {
+                throw rethrowable(e);
+            }
+            // The leader failed; this request tries on its own
+        }
+        if (leader[0]) {
+            return;
+        }
+        if (shared != null) {
+            serve(shared, request, response, now);
+            return;
+        }
+        forward(route, key, request, response, filterChain, now);
+    }
+
+    private CachedResponse forward(Route route, String key, HttpServletRequest request, HttpServletResponse response,
+                                   FilterChain filterChain, long now) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        // An async response is completed (and stored) on its async dispatch
+        return isAsyncStarted(request) ? null : complete(route, key, request, wrapper, now);
+    }
+
+    private CachedResponse complete(Route route, String key, HttpServletRequest request,
+                                    ContentCachingResponseWrapper wrapper, long now) throws IOException {
+        CachedResponse stored = null;
+        if (isStorable(wrapper)) {
+            byte[] body = wrapper.getContentAsByteArray();
+            String etag = wrapper.getHeader(HttpHeaders.ETAG);
+            if (etag == null) {
+                etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+                wrapper.setHeader(HttpHeaders.ETAG, etag);
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (String header : STORED_HEADERS) {
+                Collection<String> values = wrapper.getHeaders(header);
+                if (!values.isEmpty()) {
+                    headers.put(header, String.join(", ", values));
+                }
+            }
+            stored = new CachedResponse(wrapper.getStatus(), headers, body, etag, now, now + route.getTtlMillis());
+            cache.store(key, stored);
+            wrapper.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + route.getTtlMillis() / 1000);
+            wrapper.setHeader("X-Gateway-Cache", "MISS");
+
+            if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+                wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                wrapper.resetBuffer();
+            }
+        }
+        wrapper.copyBodyToResponse();
+        return stored;
+    }
+
+    private void serve(CachedResponse cached, HttpServletRequest request, HttpServletResponse response, long now)
+            throws IOException {
+        long ageSeconds = (now - cached.getStoredAt()) / 1000;
+        long maxAge = Math.max((cached.getExpiresAt() - now) / 1000, 0);
+        response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+        response.setHeader(HttpHeaders.AGE, String.valueOf(ageSeconds));
+        response.setHeader("X-Gateway-Cache", "HIT");
+
+        if (cached.getEtag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(cached.getStatus());
+        for (Map.Entry<String, String> header : cached.getHeaders().entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+        response.setContentLength(cached.getBody().length);
+        response.getOutputStream().write(cached.getBody());
+    }
+
+    /**
+     * Only complete, public 200 responses that do not set cookies or vary by user are stored.
+     */
+    private boolean isStorable(ContentCachingResponseWrapper response) {
+        if (response.getStatus() != HttpServletResponse.SC_OK
+                || response.getContentSize() > cache.getMaxEntryBytes()
+                || response.getHeader(HttpHeaders.SET_COOKIE) != null) {
+            return false;
+        }
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null && (cacheControl.contains("private") || cacheControl.contains("no-store"))) {
+            return false;
+        }
+        // Vary may be sent as several headers (CORS adds its own); any name the key does not cover
+        // would make it too coarse
+        for (String vary : response.getHeaders(HttpHeaders.VARY)) {
+            for (String header : vary.split(",")) {
+                String name = header.trim();
+                if (!name.isEmpty() && !cache.isKeyedOn(name)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean noCache(HttpServletRequest request) {
+        String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+        return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    private static RuntimeException rethrowable(RuntimeException e) throws IOException, ServletException {
+        if (e instanceof ForwardException) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw (ServletException) cause;
+        }
+        return e;
+    }
+
+    private static final class ForwardException extends RuntimeException {
+        private ForwardException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import com.marketplace.gateway.ratelimit.RateLimitPolicy;
+import com.marketplace.gateway.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the gateway rate limit policies before the security filter chain and MVC dispatch,
+ * so that requests over the limit are rejected without session, CSRF or handler work, whether
+ * they came through /gateway or straight to /api. Every response carries the client's remaining
+ * quota (see {@link RateLimitHeaders}). Registered in {@link com.marketplace.config.GatewayFilterConfig}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Request attribute holding the policy that was checked, so the gateway does not count the
+     * request a second time.
+     */
+    public static final String POLICY_ATTRIBUTE = RateLimitFilter.class.getName() + ".POLICY";
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String RATE_LIMIT_EXCEEDED_BODY =
+            "{\"status\":\"error\",\"message\":\"Rate limit exceeded. Please try again later.\",\"code\":\"RATE_LIMIT_EXCEEDED\"}";
+
+    private final RateLimitService rateLimitService;
+    private final ClientIpResolver clientIpResolver;
+
+    public RateLimitFilter(RateLimitService rateLimitService, ClientIpResolver clientIpResolver) {
+        this.rateLimitService = rateLimitService;
+        this.clientIpResolver = clientIpResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientIp = clientIpResolver.resolve(request);
+        RateLimitPolicy policy = rateLimitService.resolvePolicy(request, clientIp);
+        request.setAttribute(POLICY_ATTRIBUTE, policy);
+
+        RateLimitDecision decision = rateLimitService.check(clientIp, policy);
+        // Set before the chain runs so the headers survive the response being committed
+        RateLimitHeaders.apply(response, decision);
+
+        if (!decision.isAllowed()) {
+            logger.warn("Rate limit exceeded for IP: {} (policy: {})", clientIp, policy.getName());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.addHeader("X-Rate-Limit-Status", "exceeded");
+            response.addHeader("X-Rate-Limit-Service", policy.getName());
+            response.getWriter().write(RATE_LIMIT_EXCEEDED_BODY);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
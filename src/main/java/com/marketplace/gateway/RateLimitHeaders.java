@@ -0,0 +1,30 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Writes a rate limit decision as the RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset
+ * headers of the IETF RateLimit header fields draft, plus Retry-After on a rejection, so that
+ * clients can slow down before they are limited. RateLimit-Reset is in seconds from now, as the
+ * draft specifies, taken straight from the limiter's reply rather than from this node's clock.
+ */
+public final class RateLimitHeaders {
+
+    public static final String LIMIT = "RateLimit-Limit";
+    public static final String REMAINING = "RateLimit-Remaining";
+    public static final String RESET = "RateLimit-Reset";
+
+    private RateLimitHeaders() {
+    }
+
+    public static void apply(HttpServletResponse response, RateLimitDecision decision) {
+        response.setHeader(LIMIT, String.valueOf(decision.getLimit()));
+        response.setHeader(REMAINING, String.valueOf(decision.getRemaining()));
+        response.setHeader(RESET, String.valueOf(decision.getResetSeconds()));
+        if (!decision.isAllowed()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+        }
+    }
+}
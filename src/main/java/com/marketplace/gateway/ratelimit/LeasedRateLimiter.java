@@ -0,0 +1,194 @@
+package com.marketplace.gateway.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hybrid token bucket: the bucket lives in Redis, but a node leases a chunk of a client's tokens
+ * at a time and spends them locally with atomic counters, so most requests never reach Redis.
+ * Unused tokens are given back when the lease expires (with the next lease for the same client,
+ * or by {@link #returnExpiredLeases()} for clients that went quiet).
+ * <p>
+ * Leasing never admits more than the shared bucket allows, but a leased token can be spent up
+ * to one lease lifetime after it was taken and tokens held by other nodes are unavailable to
+ * this one. With N nodes a client may therefore be off by up to N chunks per window, and the
+ * chunk is capped at {@code maxErrorRatio} of the limit to bound that error.
+ * <p>
+ * Local decisions report the quota Redis had left when the lease was taken plus the lease's own
+ * unspent tokens, so their remaining count and reset time are approximate in the same way.
+ */
+public class LeasedRateLimiter implements RateLimiter {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<List<Long>> script = RedisRateLimiter.loadScript("token_bucket_lease");
+    private final int leaseSize;
+    private final double maxErrorRatio;
+    private final long leaseTtlMillis;
+    private final Cache<String, Lease> leases;
+    private final ConcurrentLinkedQueue<Map.Entry<String, Lease>> expired = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong redisCalls = new AtomicLong();
+    private final AtomicLong localDecisions = new AtomicLong();
+
+    public LeasedRateLimiter(StringRedisTemplate redisTemplate, int leaseSize, double maxErrorRatio,
+                             Duration leaseTtl, long maxKeys) {
+        this.redisTemplate = redisTemplate;
+        this.leaseSize = Math.max(leaseSize, 1);
+        this.maxErrorRatio = maxErrorRatio;
+        this.leaseTtlMillis = leaseTtl.toMillis();
+        this.leases = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(leaseTtl)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis) {
+        Lease lease = leases.getIfPresent(key);
+        if (lease != null && nowMillis < lease.expiresAt) {
+            long remaining = lease.remaining.decrementAndGet();
+            if (remaining >= 0) {
+                localDecisions.incrementAndGet();
+                return RateLimitDecision.allowed(limit, remaining + lease.grant.bucketRemaining, lease.resetAt - nowMillis);
+            }
+            if (lease.grant.granted == 0) {
+                // Redis had no tokens for this client; don't ask again until one can have refilled
+                localDecisions.incrementAndGet();
+                return RateLimitDecision.rejected(limit, lease.resetAt - nowMillis, lease.retryAt - nowMillis);
+            }
+        }
+
+        if (lease != null && !lease.refreshing.compareAndSet(false, true)) {
+            // Another request is renewing this lease; take a single token directly
+            return lease(key, limit, windowMillis, 1, 0).decision(limit);
+        }
+
+        long unused = lease == null ? 0 : Math.max(lease.remaining.getAndSet(0), 0);
+        Grant grant = lease(key, limit, windowMillis, chunkSize(limit), unused);
+        long lifetime = grant.granted > 0 ? leaseTtlMillis : Math.min(leaseTtlMillis, Math.max(windowMillis / Math.max(limit, 1), 1));
+        Lease fresh = new Lease(grant, nowMillis, nowMillis + lifetime, limit, windowMillis);
+        if (lease == null) {
+            Lease existing = leases.asMap().putIfAbsent(key, fresh);
+            if (existing != null && grant.granted > 1) {
+                // Lost the race to create the first lease; hand the extra tokens to the winner
+                existing.remaining.addAndGet(grant.granted - 1);
+            }
+        } else {
+            leases.asMap().replace(key, lease, fresh);
+        }
+        return grant.decision(limit);
+    }
+
+    /**
+     * Gives back the unused tokens of leases that expired. Expired leases are only collected
+     * during cache maintenance, so this also runs that maintenance.
+     */
+    public int returnExpiredLeases() {
+        leases.cleanUp();
+        int returned = 0;
+        Map.Entry<String, Lease> entry;
+        while ((entry = expired.poll()) != null) {
+            long unused = Math.max(entry.getValue().remaining.getAndSet(0), 0);
+            if (unused > 0) {
+                Lease lease = entry.getValue();
+                lease(entry.getKey(), lease.limit, lease.windowMillis, 0, unused);
+                returned++;
+            }
+        }
+        return returned;
+    }
+
+    /**
+     * Tokens leased per Redis round trip: {@code leaseSize}, but at most {@code maxErrorRatio}
+     * of the limit so that low limits (payments) stay close to exact.
+     */
+    int chunkSize(int limit) {
+        int bounded = (int) Math.floor(limit * maxErrorRatio);
+        return Math.max(1, Math.min(leaseSize, bounded));
+    }
+
+    public long getRedisCalls() {
+        return redisCalls.get();
+    }
+
+    public long getLocalDecisions() {
+        return localDecisions.get();
+    }
+
+    public void preload() {
+        RedisRateLimiter.preload(redisTemplate, script);
+    }
+
+    private Grant lease(String key, int limit, long windowMillis, int requested, long unused) {
+        redisCalls.incrementAndGet();
+        List<Long> result = redisTemplate.execute(script, Collections.singletonList(key),
+                String.valueOf(Math.max(limit, 1)), String.valueOf(windowMillis),
+                String.valueOf(requested), String.valueOf(unused));
+        return new Grant(result);
+    }
+
+    private void onRemoval(RemovalNotification<String, Lease> notification) {
+        if (notification.wasEvicted() && notification.getValue().remaining.get() > 0) {
+            expired.add(notification);
+        }
+    }
+
+    /**
+     * Reply of the lease script: tokens granted and the state of the shared bucket after the grant.
+     */
+    private static final class Grant {
+        private final long granted;
+        private final long bucketRemaining;
+        private final long resetAfter;
+        private final long retryAfter;
+
+        private Grant(List<Long> result) {
+            boolean complete = result != null && result.size() >= 4;
+            this.granted = complete ? result.get(0) : 0;
+            this.bucketRemaining = complete ? result.get(1) : 0;
+            this.resetAfter = complete ? result.get(2) : 0;
+            this.retryAfter = complete ? result.get(3) : 0;
+        }
+
+        private RateLimitDecision decision(int limit) {
+            return granted > 0
+                    ? RateLimitDecision.allowed(limit, granted - 1 + bucketRemaining, resetAfter)
+                    : RateLimitDecision.rejected(limit, resetAfter, retryAfter);
+        }
+    }
+
+    private static final class Lease {
+        private final Grant grant;
+        private final long expiresAt;
+        // Grant times converted to this node's clock when the lease was taken
+        private final long resetAt;
+        private final long retryAt;
+        private final AtomicLong remaining;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final int limit;
+        private final long windowMillis;
+
+        private Lease(Grant grant, long nowMillis, long expiresAt, int limit, long windowMillis) {
+            this.grant = grant;
+            this.expiresAt = expiresAt;
+            this.resetAt = nowMillis + grant.resetAfter;
+            this.retryAt = nowMillis + grant.retryAfter;
+            this.limit = limit;
+            this.windowMillis = windowMillis;
+            // The token for the request that took the lease is spent immediately
+            this.remaining = new AtomicLong(Math.max(grant.granted - 1, 0));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.marketplace.gateway.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory sliding window counter. Each key counts requests in the current and the previous
+ * fixed window; the sliding estimate is {@code previous * (1 - elapsed / window) + current}, which
+ * removes the 2x burst a fixed window allows across its boundary.
+ * <p>
+ * The window index (24 bits), current count (20 bits) and previous count (20 bits) are packed
+ * into one {@link AtomicLong} so that rotating windows and counting is a single compare-and-set.
+ */
+public class LocalSlidingWindowCounterLimiter implements RateLimiter {
+
+    static final int MAX_LIMIT = (1 << 20) - 1;
+
+    private static final long COUNT_MASK = (1L << 20) - 1;
+    private static final long WINDOW_MASK = (1L << 24) - 1;
+
+    private final Cache<String, AtomicLong> counters;
+
+    public LocalSlidingWindowCounterLimiter(long maxKeys, Duration idleExpiry) {
+        this.counters = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis) {
+        long cap = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        long window = nowMillis / windowMillis;
+        long elapsed = nowMillis - window * windowMillis;
+        long windowBits = window & WINDOW_MASK;
+        AtomicLong state = counter(key);
+
+        while (true) {
+            long packed = state.get();
+            long current = (packed >>> 20) & COUNT_MASK;
+            long previous = packed & COUNT_MASK;
+            long distance = (windowBits - (packed >>> 40)) & WINDOW_MASK;
+            if (distance == 1) {
+                previous = current;
+                current = 0;
+            } else if (distance != 0) {
+                previous = 0;
+                current = 0;
+            }
+
+            // previous * (window - elapsed) / window + current + 1 <= limit, without division
+            if (previous * (windowMillis - elapsed) + (current + 1) * windowMillis > cap * windowMillis) {
+                long resetAt = (window + (current > 0 ? 2 : 1)) * windowMillis;
+                return RateLimitDecision.rejected(limit, resetAt - nowMillis, retryAfter(cap, current, previous, windowMillis, elapsed));
+            }
+            long next = (windowBits << 40) | ((current + 1) << 20) | previous;
+            if (state.compareAndSet(packed, next)) {
+                long remaining = (cap * windowMillis - previous * (windowMillis - elapsed) - (current + 1) * windowMillis) / windowMillis;
+                // The current window's requests have fully decayed once the next window ends
+                return RateLimitDecision.allowed(limit, remaining, (window + 2) * windowMillis - nowMillis);
+            }
+        }
+    }
+
+    /**
+     * Time until the weighted count leaves room for one more request: later in this window if
+     * only the previous window's share has to decay, otherwise in the next window once the
+     * current count has decayed enough as the new previous count.
+     */
+    private static long retryAfter(long cap, long current, long previous, long windowMillis, long elapsed) {
+        if (current < cap) {
+            long allowedAt = windowMillis - (cap - current - 1) * windowMillis / previous;
+            return allowedAt - elapsed;
+        }
+        long allowedAt = windowMillis - (cap - 1) * windowMillis / current;
+        return windowMillis - elapsed + allowedAt;
+    }
+
+    private AtomicLong counter(String key) {
+        AtomicLong state = counters.getIfPresent(key);
+        if (state != null) {
+            return state;
+        }
+        try {
+            return counters.get(key, AtomicLong::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
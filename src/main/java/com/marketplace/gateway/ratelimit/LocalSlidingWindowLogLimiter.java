@@ -0,0 +1,113 @@
+package com.marketplace.gateway.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory sliding window log. Each key keeps the timestamps of its last {@code limit} allowed
+ * requests in a ring; a request is allowed if the oldest of them has left the window, and its
+ * timestamp then replaces the oldest one.
+ * <p>
+ * The ring is claimed slot by slot with compare-and-set on the slot itself, so the check and the
+ * update are one atomic step and concurrent requests never block. Each slot also records the lap
+ * it was written in, which tells a request that finds a fresh timestamp at the head whether the
+ * window is really full or another request has just not advanced the head yet. Memory per key is proportional
+ * to the limit, so this algorithm suits low limits such as payments.
+ */
+public class LocalSlidingWindowLogLimiter implements RateLimiter {
+
+    static final int MAX_LIMIT = 10_000;
+
+    // Each slot packs the request time (millis) with the lap of the ring it was written in
+    private static final int LAP_BITS = 20;
+    private static final long LAP_MASK = (1L << LAP_BITS) - 1;
+
+    private final Cache<String, Log> logs;
+
+    public LocalSlidingWindowLogLimiter(long maxKeys, Duration idleExpiry) {
+        this.logs = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis) {
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        Log log = log(key, size);
+
+        while (true) {
+            long position = log.head.get();
+            int slot = (int) (position % size);
+            long lap = lapOf(position, size);
+            long entry = log.entries.get(slot);
+            if ((entry & LAP_MASK) == lap) {
+                // Already written for this position by a request that has not advanced the head yet
+                log.head.compareAndSet(position, position + 1);
+                continue;
+            }
+            if (nowMillis - (entry >>> LAP_BITS) < windowMillis) {
+                // The limit-th most recent request is still inside the window
+                long newest = log.entries.get((int) ((position + size - 1) % size)) >>> LAP_BITS;
+                return RateLimitDecision.rejected(limit, newest + windowMillis - nowMillis, (entry >>> LAP_BITS) + windowMillis - nowMillis);
+            }
+            if (log.entries.compareAndSet(slot, entry, (nowMillis << LAP_BITS) | lap)) {
+                log.head.compareAndSet(position, position + 1);
+                return RateLimitDecision.allowed(limit, remaining(log, position, size, nowMillis, windowMillis),
+                        windowMillis);
+            }
+        }
+    }
+
+    /**
+     * Slots after {@code position} hold the older requests, oldest first; those that have left
+     * the window are the quota still available.
+     */
+    private static long remaining(Log log, long position, int size, long nowMillis, long windowMillis) {
+        int free = 0;
+        for (int i = 1; i < size; i++) {
+            long time = log.entries.get((int) ((position + i) % size)) >>> LAP_BITS;
+            if (nowMillis - time < windowMillis) {
+                break;
+            }
+            free++;
+        }
+        return free;
+    }
+
+    // Lap numbers start at 1 so that an empty slot never looks written for the current lap
+    private static long lapOf(long position, int size) {
+        return (position / size + 1) & LAP_MASK;
+    }
+
+    private Log log(String key, int size) {
+        Log log = logs.getIfPresent(key);
+        if (log == null) {
+            try {
+                log = logs.get(key, () -> new Log(size));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (log.entries.length() != size) {
+            // The limit changed; start a new log of the right size
+            Log resized = new Log(size);
+            log = logs.asMap().replace(key, log, resized) ? resized : log(key, size);
+        }
+        return log;
+    }
+
+    private static final class Log {
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLongArray entries;
+
+        private Log(int size) {
+            this.entries = new AtomicLongArray(size);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.marketplace.gateway.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token bucket implemented as GCRA: each key stores only its theoretical arrival time
+ * (TAT), the time at which the bucket will be full again. A request is allowed if, after adding
+ * one emission interval ({@code window / limit}), the TAT is at most one window ahead of now.
+ * <p>
+ * Times are kept in units of {@code 1/limit} milliseconds so the emission interval is exactly
+ * {@code windowMillis} and no fractions are needed. The state is a single {@link AtomicLong}
+ * updated by compare-and-set, so concurrent requests never block each other.
+ */
+public class LocalTokenBucketLimiter implements RateLimiter {
+
+    // Keeps now * limit well inside a long
+    static final int MAX_LIMIT = 1_000_000;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public LocalTokenBucketLimiter(long maxKeys, Duration idleExpiry) {
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleExpiry)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis) {
+        int capacity = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        long now = nowMillis * capacity;
+        long burst = windowMillis * capacity;
+        AtomicLong tat = bucket(key);
+
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            long next = base + windowMillis;
+            if (next - now > burst) {
+                // The next token arrives when the TAT is back within one window of now
+                return RateLimitDecision.rejected(limit, toMillis(base - now, capacity), toMillis(next - now - burst, capacity));
+            }
+            if (tat.compareAndSet(current, next)) {
+                // Each whole emission interval between the TAT and now + burst is a token left
+                return RateLimitDecision.allowed(limit, (now + burst - next) / windowMillis, toMillis(next - now, capacity));
+            }
+        }
+    }
+
+    private static long toMillis(long units, int capacity) {
+        return (units + capacity - 1) / capacity;
+    }
+
+    private AtomicLong bucket(String key) {
+        AtomicLong tat = buckets.getIfPresent(key);
+        if (tat != null) {
+            return tat;
+        }
+        try {
+            return buckets.get(key, AtomicLong::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.marketplace.gateway.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ant-style path pattern compiled once into segments: {@code *} matches within a segment and
+ * {@code **} matches any number of segments. Matching walks the request path in place and does
+ * not allocate.
+ */
+public final class PathPattern {
+
+    private static final String ANY_SEGMENTS = "**";
+
+    private final String pattern;
+    private final String[] segments;
+
+    private PathPattern(String pattern, String[] segments) {
+        this.pattern = pattern;
+        this.segments = segments;
+    }
+
+    public static PathPattern compile(String pattern) {
+        if (pattern == null || pattern.isBlank() || !pattern.trim().startsWith("/")) {
+            throw new IllegalArgumentException("Path pattern must start with '/': " + pattern);
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.trim().split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.contains(ANY_SEGMENTS) && !segment.equals(ANY_SEGMENTS)) {
+                throw new IllegalArgumentException("'**' must be a whole segment: " + pattern);
+            }
+            // Same instance for every '**' so matching can compare references
+            segments.add(segment.equals(ANY_SEGMENTS) ? ANY_SEGMENTS : segment);
+        }
+        return new PathPattern(pattern.trim(), segments.toArray(new String[0]));
+    }
+
+    public boolean matches(String path) {
+        return path != null && match(0, path, skipSlashes(path, 0));
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    private boolean match(int segment, String path, int position) {
+        if (segment == segments.length) {
+            return position >= path.length();
+        }
+        String expected = segments[segment];
+        if (expected == ANY_SEGMENTS) {
+            while (true) {
+                if (match(segment + 1, path, position)) {
+                    return true;
+                }
+                if (position >= path.length()) {
+                    return false;
+                }
+                position = skipSlashes(path, segmentEnd(path, position));
+            }
+        }
+        if (position >= path.length()) {
+            return false;
+        }
+        int end = segmentEnd(path, position);
+        return globMatches(expected, path, position, end) && match(segment + 1, path, skipSlashes(path, end));
+    }
+
+    /**
+     * Matches {@code glob} (only {@code *} is special) against {@code text[from, to)} with the
+     * usual single-backtrack algorithm.
+     */
+    private static boolean globMatches(String glob, String text, int from, int to) {
+        int g = 0;
+        int t = from;
+        int star = -1;
+        int starText = 0;
+        while (t < to) {
+            if (g < glob.length() && glob.charAt(g) != '*' && glob.charAt(g) == text.charAt(t)) {
+                g++;
+                t++;
+            } else if (g < glob.length() && glob.charAt(g) == '*') {
+                star = g++;
+                starText = t;
+            } else if (star >= 0) {
+                g = star + 1;
+                t = ++starText;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    private static int segmentEnd(String path, int position) {
+        int slash = path.indexOf('/', position);
+        return slash < 0 ? path.length() : slash;
+    }
+
+    private static int skipSlashes(String path, int position) {
+        while (position < path.length() && path.charAt(position) == '/') {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,25 @@
+package com.marketplace.gateway.ratelimit;
+
+/**
+ * Rate limiting algorithms a policy can use.
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * Bucket of {@code limit} tokens refilled evenly over the window; allows bursts up to the
+     * bucket size and then a steady rate. Implemented as GCRA (one timestamp per key).
+     */
+    TOKEN_BUCKET,
+
+    /**
+     * Exact: remembers the timestamp of each of the last {@code limit} requests. Memory grows
+     * with the limit.
+     */
+    SLIDING_WINDOW_LOG,
+
+    /**
+     * Approximation weighting the previous fixed window by its overlap with the sliding window.
+     * Two counters per key, no 2x burst at window edges.
+     */
+    SLIDING_WINDOW_COUNTER
+}
@@ -0,0 +1,83 @@
+package com.marketplace.gateway.ratelimit;
+
+/**
+ * Outcome of one rate limit check: whether the request was allowed, and the quota state right
+ * after it, as reported by the same operation that counted the request. Times are durations
+ * from the moment of the check, so a shared limiter on the Redis server clock can be reported
+ * without mixing in the gateway node's clock.
+ */
+public final class RateLimitDecision {
+
+    private final boolean allowed;
+    private final int limit;
+    private final long remaining;
+    private final long resetAfterMillis;
+    private final long retryAfterMillis;
+
+    /**
+     * @param remaining        requests the client can still make right now
+     * @param resetAfterMillis how long until the quota is back to the full limit, if the client
+     *                         makes no further requests
+     * @param retryAfterMillis for a rejected request, how long until the next one can be allowed
+     */
+    public RateLimitDecision(boolean allowed, int limit, long remaining, long resetAfterMillis, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.limit = limit;
+        this.remaining = Math.max(Math.min(remaining, limit), 0);
+        this.resetAfterMillis = Math.max(resetAfterMillis, 0);
+        this.retryAfterMillis = allowed ? 0 : Math.max(retryAfterMillis, 0);
+    }
+
+    public static RateLimitDecision allowed(int limit, long remaining, long resetAfterMillis) {
+        return new RateLimitDecision(true, limit, remaining, resetAfterMillis, 0);
+    }
+
+    public static RateLimitDecision rejected(int limit, long resetAfterMillis, long retryAfterMillis) {
+        return new RateLimitDecision(false, limit, 0, resetAfterMillis, retryAfterMillis);
+    }
+
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public long getResetAfterMillis() {
+        return resetAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Whole seconds until the quota is full again, as sent in the RateLimit-Reset header.
+     */
+    public long getResetSeconds() {
+        return ceilSeconds(resetAfterMillis);
+    }
+
+    /**
+     * Whole seconds to wait before retrying, as sent in the Retry-After header; at least one
+     * for a rejected request so that clients never retry immediately.
+     */
+    public long getRetryAfterSeconds() {
+        return allowed ? 0 : Math.max(ceilSeconds(retryAfterMillis), 1);
+    }
+
+    private static long ceilSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitDecision{allowed=" + allowed + ", limit=" + limit + ", remaining=" + remaining
+                + ", resetAfterMillis=" + resetAfterMillis + ", retryAfterMillis=" + retryAfterMillis + "}";
+    }
+}
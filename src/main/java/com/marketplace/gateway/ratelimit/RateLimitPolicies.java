@@ -0,0 +1,83 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable, ordered set of rate limit policies. The first policy that matches a request
+ * applies; requests no policy matches use the default policy.
+ */
+public final class RateLimitPolicies {
+
+    private final RateLimitPolicy[] policies;
+    private final RateLimitPolicy defaultPolicy;
+
+    private RateLimitPolicies(RateLimitPolicy[] policies, RateLimitPolicy defaultPolicy) {
+        this.policies = policies;
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public static RateLimitPolicies compile(List<RateLimitPolicyDefinition> definitions, RateLimitPolicyDefinition defaultDefinition) {
+        if (defaultDefinition == null) {
+            throw new IllegalArgumentException("A default rate limit policy is required");
+        }
+        List<RateLimitPolicy> compiled = new ArrayList<>();
+        for (RateLimitPolicyDefinition definition : definitions != null ? definitions : List.<RateLimitPolicyDefinition>of()) {
+            compiled.add(RateLimitPolicy.compile(definition));
+        }
+        return new RateLimitPolicies(compiled.toArray(new RateLimitPolicy[0]), RateLimitPolicy.compile(defaultDefinition));
+    }
+
+    /**
+     * Built-in policies used until a policy file has been loaded: the default API limit plus the
+     * stricter admin and payment limits.
+     */
+    public static RateLimitPolicies defaults() {
+        List<RateLimitPolicyDefinition> definitions = new ArrayList<>();
+        definitions.add(definition("payment", 10, RateLimitAlgorithm.TOKEN_BUCKET, "/api/payments/**", "/gateway/api/payments/**"));
+        definitions.add(definition("admin", 20, RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, "/api/admin/**", "/gateway/admin/**"));
+        return compile(definitions, definition("api", 100, RateLimitAlgorithm.SLIDING_WINDOW_COUNTER));
+    }
+
+    public RateLimitPolicy match(String method, String path, String user,
+                                 Collection<? extends GrantedAuthority> authorities, String clientIp) {
+        for (RateLimitPolicy policy : policies) {
+            if (policy.matches(method, path, user, authorities, clientIp)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    /**
+     * Returns the policy called {@code name}, or the default policy if there is none.
+     */
+    public RateLimitPolicy byName(String name) {
+        for (RateLimitPolicy policy : policies) {
+            if (policy.getName().equals(name)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+
+    public List<RateLimitPolicy> getPolicies() {
+        return List.of(policies);
+    }
+
+    public RateLimitPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    private static RateLimitPolicyDefinition definition(String name, int limit, RateLimitAlgorithm algorithm, String... paths) {
+        RateLimitPolicyDefinition definition = new RateLimitPolicyDefinition();
+        definition.setName(name);
+        definition.setLimit(limit);
+        definition.setAlgorithm(algorithm);
+        definition.setPaths(List.of(paths));
+        return definition;
+    }
+}
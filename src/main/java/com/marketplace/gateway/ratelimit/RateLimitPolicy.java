@@ -0,0 +1,162 @@
+package com.marketplace.gateway.ratelimit;
+
+import com.marketplace.gateway.service.CidrMatcher;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compiled, immutable rate limit policy. Path patterns, methods, roles, users and IP ranges
+ * are compiled up front so that {@link #matches} does not allocate on the request path.
+ */
+public final class RateLimitPolicy {
+
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+
+    private final String name;
+    private final int limit;
+    private final long windowMillis;
+    private final RateLimitAlgorithm algorithm;
+    private final PathPattern[] paths;
+    private final int methodMask;
+    private final Set<String> authorities;
+    private final Set<String> users;
+    private final CidrMatcher ips;
+    private final RateLimitPolicyDefinition definition;
+
+    private RateLimitPolicy(RateLimitPolicyDefinition definition) {
+        if (definition.getName() == null || definition.getName().isBlank()) {
+            throw new IllegalArgumentException("Rate limit policy without a name");
+        }
+        if (definition.getLimit() <= 0 || definition.getWindowSeconds() <= 0) {
+            throw new IllegalArgumentException("Rate limit policy " + definition.getName() + " needs a positive limit and window");
+        }
+        this.name = definition.getName();
+        this.limit = definition.getLimit();
+        this.windowMillis = definition.getWindowSeconds() * 1000;
+        this.algorithm = definition.getAlgorithm() != null ? definition.getAlgorithm() : RateLimitAlgorithm.SLIDING_WINDOW_COUNTER;
+        this.paths = nonNull(definition.getPaths()).stream().map(PathPattern::compile).toArray(PathPattern[]::new);
+        this.methodMask = methodMask(nonNull(definition.getMethods()));
+        this.authorities = new HashSet<>();
+        for (String role : nonNull(definition.getRoles())) {
+            authorities.add(role.startsWith("ROLE_") ? role : "ROLE_" + role);
+        }
+        this.users = new HashSet<>(nonNull(definition.getUsers()));
+        this.ips = CidrMatcher.compile(nonNull(definition.getIps()));
+        this.definition = definition;
+    }
+
+    public static RateLimitPolicy compile(RateLimitPolicyDefinition definition) {
+        return new RateLimitPolicy(definition);
+    }
+
+    /**
+     * Returns true if the request satisfies every condition of this policy. {@code user} and
+     * {@code grantedAuthorities} are null for anonymous requests.
+     */
+    public boolean matches(String method, String path, String user,
+                           Collection<? extends GrantedAuthority> grantedAuthorities, String clientIp) {
+        if (methodMask != 0 && (methodMask & methodBit(method)) == 0) {
+            return false;
+        }
+        if (paths.length > 0 && !matchesAnyPath(path)) {
+            return false;
+        }
+        if (!ips.isEmpty() && !ips.matches(clientIp)) {
+            return false;
+        }
+        if (!users.isEmpty() && (user == null || !users.contains(user))) {
+            return false;
+        }
+        return authorities.isEmpty() || hasAnyAuthority(grantedAuthorities);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public RateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", name);
+        description.put("limit", limit);
+        description.put("window_seconds", definition.getWindowSeconds());
+        description.put("algorithm", algorithm.name());
+        putIfNotEmpty(description, "paths", definition.getPaths());
+        putIfNotEmpty(description, "methods", definition.getMethods());
+        putIfNotEmpty(description, "roles", definition.getRoles());
+        putIfNotEmpty(description, "users", definition.getUsers());
+        putIfNotEmpty(description, "ips", definition.getIps());
+        return description;
+    }
+
+    private boolean matchesAnyPath(String path) {
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAnyAuthority(Collection<? extends GrantedAuthority> grantedAuthorities) {
+        if (grantedAuthorities == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : grantedAuthorities) {
+            if (authorities.contains(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int methodMask(List<String> methods) {
+        int mask = 0;
+        for (String method : methods) {
+            int bit = methodBit(method.trim().toUpperCase());
+            if (bit == 0) {
+                throw new IllegalArgumentException("Unknown HTTP method in rate limit policy: " + method);
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private static int methodBit(String method) {
+        if (method != null) {
+            for (int i = 0; i < METHODS.length; i++) {
+                if (METHODS[i].equals(method)) {
+                    return 1 << i;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static List<String> nonNull(List<String> values) {
+        return values != null ? values : List.of();
+    }
+
+    private static void putIfNotEmpty(Map<String, Object> description, String key, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            description.put(key, values);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.marketplace.gateway.ratelimit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rate limit policy as written in the policy file. Every condition that is set must match;
+ * empty conditions match everything.
+ */
+public class RateLimitPolicyDefinition {
+
+    private String name;
+    private List<String> paths = new ArrayList<>();
+    private List<String> methods = new ArrayList<>();
+    private List<String> roles = new ArrayList<>();
+    private List<String> users = new ArrayList<>();
+    private List<String> ips = new ArrayList<>();
+    private int limit;
+    private long windowSeconds = 60;
+    private RateLimitAlgorithm algorithm = RateLimitAlgorithm.SLIDING_WINDOW_COUNTER;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<String> methods) {
+        this.methods = methods;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+
+    public List<String> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<String> users) {
+        this.users = users;
+    }
+
+    public List<String> getIps() {
+        return ips;
+    }
+
+    public void setIps(List<String> ips) {
+        this.ips = ips;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public RateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(RateLimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+}
@@ -0,0 +1,16 @@
+package com.marketplace.gateway.ratelimit;
+
+/**
+ * A rate limiting algorithm over per-key state.
+ */
+public interface RateLimiter {
+
+    /**
+     * Records a request for {@code key} if it is within {@code limit} requests per
+     * {@code windowMillis} and returns whether it was allowed, together with the remaining
+     * quota and reset time computed in the same step. Rejected requests are not counted.
+     * {@code nowMillis} is the caller's clock; shared implementations may use their own clock
+     * instead so that all nodes agree.
+     */
+    RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis);
+}
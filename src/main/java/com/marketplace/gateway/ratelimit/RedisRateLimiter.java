@@ -0,0 +1,88 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis implementation of a {@link RateLimitAlgorithm}, shared by all gateway nodes. Each
+ * algorithm is a Lua script mirroring the in-memory implementation, so the check and the update
+ * run atomically on the server in a single round trip that also returns the remaining quota and
+ * the time until it resets. The scripts use the Redis server clock rather than {@code nowMillis}
+ * so that nodes with skewed clocks still agree, and return durations rather than instants so
+ * that the skew does not reach the response headers either.
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RateLimitAlgorithm algorithm;
+    private final RedisScript<List<Long>> script;
+
+    // Sliding window log members must be unique across nodes
+    private final String memberPrefix = UUID.randomUUID().toString().substring(0, 8) + ":";
+    private final AtomicLong memberSequence = new AtomicLong();
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, RateLimitAlgorithm algorithm) {
+        this.redisTemplate = redisTemplate;
+        this.algorithm = algorithm;
+        this.script = loadScript(algorithm);
+    }
+
+    @Override
+    public RateLimitDecision tryAcquire(String key, int limit, long windowMillis, long nowMillis) {
+        String limitArg = String.valueOf(Math.max(limit, 1));
+        String windowArg = String.valueOf(windowMillis);
+        List<Long> result = algorithm == RateLimitAlgorithm.SLIDING_WINDOW_LOG
+                ? redisTemplate.execute(script, Collections.singletonList(key), limitArg, windowArg,
+                        memberPrefix + memberSequence.incrementAndGet())
+                : redisTemplate.execute(script, Collections.singletonList(key), limitArg, windowArg);
+        if (result == null || result.size() < 4) {
+            return RateLimitDecision.rejected(limit, 0, 0);
+        }
+        return new RateLimitDecision(result.get(0) == 1L, limit, result.get(1), result.get(2), result.get(3));
+    }
+
+    /**
+     * Loads the script into the Redis script cache. Spring executes scripts with EVALSHA and only
+     * falls back to EVAL (a second round trip) on NOSCRIPT, so preloading keeps every request to
+     * exactly one round trip, including the first ones after startup.
+     */
+    public void preload() {
+        preload(redisTemplate, script);
+    }
+
+    public RateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    static RedisScript<List<Long>> loadScript(RateLimitAlgorithm algorithm) {
+        return loadScript(algorithm.name().toLowerCase());
+    }
+
+    /**
+     * Loads a limiter script; all of them reply with a list of integers.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static RedisScript<List<Long>> loadScript(String name) {
+        DefaultRedisScript script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/ratelimit/" + name + ".lua"));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    static void preload(StringRedisTemplate redisTemplate, RedisScript<?> script) {
+        byte[] body = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        String sha = redisTemplate.execute((RedisCallback<String>) connection -> connection.scriptingCommands().scriptLoad(body));
+        if (sha != null && !sha.equals(script.getSha1())) {
+            throw new IllegalStateException("Unexpected SHA for rate limiting script: " + sha);
+        }
+    }
+}
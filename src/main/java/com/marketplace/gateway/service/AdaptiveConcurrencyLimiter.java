@@ -0,0 +1,175 @@
+package com.marketplace.gateway.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AIMD concurrency limit for one gateway route. The limit grows by one for each request that
+ * completes quickly while the route is at least half busy, and shrinks by {@code backoffRatio}
+ * when a request is slow or fails, so the route settles just below the concurrency its
+ * downstream can serve. The limit shrinks at most once per window: requests admitted before the
+ * last decrease were admitted under the old limit, so their slow or failed samples say nothing
+ * about the new one. A limiter sharing its downstream with higher priority traffic can also be told
+ * to {@link #backOff()} while that traffic is under pressure.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Share of the limit in flight from which the limiter counts as under pressure
+    private static final double PRESSURE_SHARE = 0.8;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecreaseNanos;
+    private final AtomicLong lastDropNanos;
+    // Growth is suspended until then after a backOff(), so the limit does not climb straight back
+    private volatile long holdUntilNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, long latencyThresholdMillis) {
+        this.name = name;
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit)));
+        // As if the last decrease and the last slow request were one window ago
+        long now = System.nanoTime();
+        this.lastDecreaseNanos = new AtomicLong(now - latencyThresholdNanos);
+        this.lastDropNanos = new AtomicLong(now - latencyThresholdNanos);
+        this.holdUntilNanos = now;
+    }
+
+    /**
+     * Returns a permit if the route has capacity for the request, or null if it should be shed.
+     */
+    public Permit tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(System.nanoTime(), current + 1);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * True while the limiter is close to its limit, or has seen a slow or failed request within
+     * the last latency threshold.
+     */
+    public boolean isUnderPressure() {
+        return inFlight.get() >= getLimit() * PRESSURE_SHARE
+                || System.nanoTime() - lastDropNanos.get() < latencyThresholdNanos;
+    }
+
+    /**
+     * Shrinks the limit by {@code backoffRatio} and holds it for one latency threshold, to give
+     * way to higher priority traffic on the same downstream. Applied at most once per threshold,
+     * however often it is called.
+     */
+    public void backOff() {
+        long now = System.nanoTime();
+        long decreasedAt = lastDecreaseNanos.get();
+        if (now - decreasedAt < latencyThresholdNanos || !lastDecreaseNanos.compareAndSet(decreasedAt, now)) {
+            return;
+        }
+        holdUntilNanos = now + latencyThresholdNanos;
+        decrease();
+    }
+
+    private void decrease() {
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = Math.max(minLimit, limit * backoffRatio);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private void onSample(long startNanos, long latencyNanos, int inFlightAtStart, boolean failed) {
+        boolean drop = failed || latencyNanos > latencyThresholdNanos;
+        if (drop) {
+            dropped.increment();
+            lastDropNanos.set(startNanos + latencyNanos);
+            long decreasedAt = lastDecreaseNanos.get();
+            // One decrease per window: skip samples admitted before the last decrease, and let
+            // only one of several concurrent samples apply it
+            if (startNanos - decreasedAt >= 0
+                    && lastDecreaseNanos.compareAndSet(decreasedAt, startNanos + latencyNanos)) {
+                decrease();
+            }
+            return;
+        }
+        // Only grow while the limit is actually being used, and not while holding after a backOff()
+        if (startNanos + latencyNanos - holdUntilNanos < 0) {
+            return;
+        }
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            if (inFlightAtStart * 2 < limit) {
+                return;
+            }
+            double next = Math.min(maxLimit, limit + 1);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A slot in the route, released exactly once when the request completes.
+     */
+    public final class Permit {
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                onSample(startNanos, System.nanoTime() - startNanos, inFlightAtStart, failed);
+            }
+        }
+    }
+}
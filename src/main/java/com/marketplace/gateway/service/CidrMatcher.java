@@ -0,0 +1,395 @@
+package com.marketplace.gateway.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable IP allow/deny list compiled from CIDR notation (IPv4 and IPv6, plain addresses are
+ * treated as /32 or /128). Ranges are merged and kept in sorted primitive arrays, so
+ * {@link #matches(CharSequence)} parses the address and binary-searches without allocating.
+ * IPv4-mapped IPv6 addresses ({@code ::ffff:a.b.c.d}) are matched against the IPv4 ranges.
+ */
+public final class CidrMatcher {
+
+    private static final CidrMatcher EMPTY = new CidrMatcher(new long[0], new long[0],
+            new long[0], new long[0], new long[0], new long[0], 0);
+
+    private static final int HIGH = 0;
+    private static final int LOW = 1;
+    private static final int VALIDATE = 2;
+
+    // IPv4 ranges as unsigned 32-bit values, sorted by start and non-overlapping
+    private final long[] v4Starts;
+    private final long[] v4Ends;
+
+    // IPv6 ranges as unsigned 128-bit values split into high and low 64 bits
+    private final long[] v6StartHi;
+    private final long[] v6StartLo;
+    private final long[] v6EndHi;
+    private final long[] v6EndLo;
+
+    private final int entries;
+
+    private CidrMatcher(long[] v4Starts, long[] v4Ends, long[] v6StartHi, long[] v6StartLo,
+                        long[] v6EndHi, long[] v6EndLo, int entries) {
+        this.v4Starts = v4Starts;
+        this.v4Ends = v4Ends;
+        this.v6StartHi = v6StartHi;
+        this.v6StartLo = v6StartLo;
+        this.v6EndHi = v6EndHi;
+        this.v6EndLo = v6EndLo;
+        this.entries = entries;
+    }
+
+    public static CidrMatcher empty() {
+        return EMPTY;
+    }
+
+    public static CidrMatcher compile(String... cidrs) {
+        return compile(Arrays.asList(cidrs));
+    }
+
+    /**
+     * Compiles a list of CIDR blocks. Blank entries are skipped; malformed ones fail with an
+     * {@link IllegalArgumentException} naming the entry.
+     */
+    public static CidrMatcher compile(Collection<String> cidrs) {
+        List<long[]> v4 = new ArrayList<>();
+        List<long[]> v6 = new ArrayList<>();
+        int entries = 0;
+
+        for (String raw : cidrs) {
+            if (raw == null || raw.trim().isEmpty()) {
+                continue;
+            }
+            String cidr = raw.trim();
+            int slash = cidr.indexOf('/');
+            String address = slash < 0 ? cidr : cidr.substring(0, slash);
+
+            long v4Address = parseIpv4(address, 0, address.length());
+            if (v4Address >= 0) {
+                int prefix = parsePrefix(cidr, slash, 32);
+                long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+                long start = v4Address & mask;
+                v4.add(new long[]{start, start | (~mask & 0xFFFFFFFFL)});
+            } else if (parseIpv6(address, 0, address.length(), VALIDATE) == 1) {
+                int prefix = parsePrefix(cidr, slash, 128);
+                long hi = parseIpv6(address, 0, address.length(), HIGH);
+                long lo = parseIpv6(address, 0, address.length(), LOW);
+                long hiMask = prefix == 0 ? 0 : prefix >= 64 ? -1L : -1L << (64 - prefix);
+                long loMask = prefix <= 64 ? 0 : -1L << (128 - prefix);
+                v6.add(new long[]{hi & hiMask, lo & loMask, hi | ~hiMask, lo | ~loMask});
+            } else {
+                throw new IllegalArgumentException("Invalid IP range: " + raw);
+            }
+            entries++;
+        }
+
+        if (entries == 0) {
+            return EMPTY;
+        }
+
+        v4.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> mergedV4 = new ArrayList<>();
+        for (long[] range : v4) {
+            long[] last = mergedV4.isEmpty() ? null : mergedV4.get(mergedV4.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                mergedV4.add(range);
+            }
+        }
+
+        v6.sort((a, b) -> compareUnsigned128(a[0], a[1], b[0], b[1]));
+        List<long[]> mergedV6 = new ArrayList<>();
+        for (long[] range : v6) {
+            long[] last = mergedV6.isEmpty() ? null : mergedV6.get(mergedV6.size() - 1);
+            if (last != null && compareUnsigned128(range[0], range[1], last[2], last[3]) <= 0) {
+                if (compareUnsigned128(range[2], range[3], last[2], last[3]) > 0) {
+                    last[2] = range[2];
+                    last[3] = range[3];
+                }
+            } else {
+                mergedV6.add(range);
+            }
+        }
+
+        long[] v4Starts = new long[mergedV4.size()];
+        long[] v4Ends = new long[mergedV4.size()];
+        for (int i = 0; i < mergedV4.size(); i++) {
+            v4Starts[i] = mergedV4.get(i)[0];
+            v4Ends[i] = mergedV4.get(i)[1];
+        }
+        long[] v6StartHi = new long[mergedV6.size()];
+        long[] v6StartLo = new long[mergedV6.size()];
+        long[] v6EndHi = new long[mergedV6.size()];
+        long[] v6EndLo = new long[mergedV6.size()];
+        for (int i = 0; i < mergedV6.size(); i++) {
+            long[] range = mergedV6.get(i);
+            v6StartHi[i] = range[0];
+            v6StartLo[i] = range[1];
+            v6EndHi[i] = range[2];
+            v6EndLo[i] = range[3];
+        }
+        return new CidrMatcher(v4Starts, v4Ends, v6StartHi, v6StartLo, v6EndHi, v6EndLo, entries);
+    }
+
+    /**
+     * Returns true if {@code ip} lies in one of the ranges. Unparseable input never matches.
+     */
+    public boolean matches(CharSequence ip) {
+        if (ip == null || entries == 0) {
+            return false;
+        }
+        int from = 0;
+        int to = ip.length();
+        if (to > 1 && ip.charAt(0) == '[' && ip.charAt(to - 1) == ']') {
+            from++;
+            to--;
+        }
+
+        long v4Address = parseIpv4(ip, from, to);
+        if (v4Address >= 0) {
+            return matchesV4(v4Address);
+        }
+
+        // Zone ids (fe80::1%eth0) are not part of the address
+        for (int i = from; i < to; i++) {
+            if (ip.charAt(i) == '%') {
+                to = i;
+                break;
+            }
+        }
+        if (parseIpv6(ip, from, to, VALIDATE) != 1) {
+            return false;
+        }
+        long hi = parseIpv6(ip, from, to, HIGH);
+        long lo = parseIpv6(ip, from, to, LOW);
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL && matchesV4(lo & 0xFFFFFFFFL)) {
+            return true;
+        }
+        return matchesV6(hi, lo);
+    }
+
+    public boolean isEmpty() {
+        return entries == 0;
+    }
+
+    /**
+     * Number of CIDR entries the matcher was compiled from.
+     */
+    public int size() {
+        return entries;
+    }
+
+    private boolean matchesV4(long address) {
+        int low = 0;
+        int high = v4Starts.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (v4Starts[mid] <= address) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return candidate >= 0 && address <= v4Ends[candidate];
+    }
+
+    private boolean matchesV6(long hi, long lo) {
+        int low = 0;
+        int high = v6StartHi.length - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compareUnsigned128(v6StartHi[mid], v6StartLo[mid], hi, lo) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return candidate >= 0 && compareUnsigned128(hi, lo, v6EndHi[candidate], v6EndLo[candidate]) <= 0;
+    }
+
+    private static int compareUnsigned128(long aHi, long aLo, long bHi, long bLo) {
+        int result = Long.compareUnsigned(aHi, bHi);
+        return result != 0 ? result : Long.compareUnsigned(aLo, bLo);
+    }
+
+    private static int parsePrefix(String cidr, int slash, int max) {
+        if (slash < 0) {
+            return max;
+        }
+        try {
+            int prefix = Integer.parseInt(cidr.substring(slash + 1));
+            if (prefix < 0 || prefix > max) {
+                throw new IllegalArgumentException("Invalid prefix length in IP range: " + cidr);
+            }
+            return prefix;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length in IP range: " + cidr);
+        }
+    }
+
+    /**
+     * Parses dotted-quad IPv4 in {@code [from, to)} as an unsigned 32-bit value, or returns -1.
+     */
+    static long parseIpv4(CharSequence s, int from, int to) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                address = (address << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octets != 3 || value < 0) {
+            return -1;
+        }
+        return (address << 8) | value;
+    }
+
+    /**
+     * Parses IPv6 in {@code [from, to)}. Depending on {@code mode} returns the high or low 64 bits,
+     * or 1/0 for valid/invalid. Kept as one routine (run once per mode) so that parsing stays
+     * allocation-free without a holder object for the two halves.
+     */
+    static long parseIpv6(CharSequence s, int from, int to, int mode) {
+        int doubleColon = -1;
+        for (int i = from; i + 1 < to; i++) {
+            if (s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+                if (doubleColon >= 0) {
+                    return 0;
+                }
+                doubleColon = i;
+                i++;
+            }
+        }
+
+        int leftEnd = doubleColon < 0 ? to : doubleColon;
+        int rightStart = doubleColon < 0 ? to : doubleColon + 2;
+        int leftGroups = countGroups(s, from, leftEnd, doubleColon < 0);
+        int rightGroups = countGroups(s, rightStart, to, true);
+        boolean valid = leftGroups >= 0 && rightGroups >= 0
+                && (doubleColon < 0 ? leftGroups == 8 : leftGroups + rightGroups <= 7)
+                && to > from;
+
+        long hi = 0;
+        long lo = 0;
+        if (valid) {
+            for (int part = 0; part < 2 && valid; part++) {
+                int start = part == 0 ? from : rightStart;
+                int end = part == 0 ? leftEnd : to;
+                int position = part == 0 ? 0 : 8 - rightGroups;
+                int segmentStart = start;
+                for (int i = start; i <= end && start < end; i++) {
+                    if (i < end && s.charAt(i) != ':') {
+                        continue;
+                    }
+                    long value;
+                    int width;
+                    if (containsDot(s, segmentStart, i)) {
+                        value = parseIpv4(s, segmentStart, i);
+                        width = 2;
+                        if (value < 0) {
+                            valid = false;
+                            break;
+                        }
+                    } else {
+                        value = parseHexGroup(s, segmentStart, i);
+                        width = 1;
+                        if (value < 0) {
+                            valid = false;
+                            break;
+                        }
+                    }
+                    for (int w = width - 1; w >= 0; w--) {
+                        long group = (value >>> (16 * w)) & 0xFFFF;
+                        if (position < 4) {
+                            hi |= group << (16 * (3 - position));
+                        } else {
+                            lo |= group << (16 * (7 - position));
+                        }
+                        position++;
+                    }
+                    segmentStart = i + 1;
+                }
+            }
+        }
+
+        if (mode == VALIDATE) {
+            return valid ? 1 : 0;
+        }
+        if (!valid) {
+            return 0;
+        }
+        return mode == HIGH ? hi : lo;
+    }
+
+    // Number of 16-bit groups in a colon-separated run; an embedded IPv4 tail counts as two
+    private static int countGroups(CharSequence s, int from, int to, boolean allowIpv4Tail) {
+        if (from >= to) {
+            return 0;
+        }
+        int groups = 0;
+        int segmentStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && s.charAt(i) != ':') {
+                continue;
+            }
+            if (i == segmentStart) {
+                return -1;
+            }
+            if (containsDot(s, segmentStart, i)) {
+                if (i != to || !allowIpv4Tail) {
+                    return -1;
+                }
+                groups += 2;
+            } else {
+                groups++;
+            }
+            segmentStart = i + 1;
+        }
+        return groups;
+    }
+
+    private static boolean containsDot(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseHexGroup(CharSequence s, int from, int to) {
+        if (to - from < 1 || to - from > 4) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package com.marketplace.gateway.service;
+
+import com.marketplace.gateway.ratelimit.PathPattern;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Adaptive concurrency limits for the gateway routes. Requests beyond a route's current limit
+ * are shed with 503 instead of queueing behind a saturated downstream. Payment/checkout requests
+ * get a limiter of their own on each route, with a latency threshold that fits PayPal round trips,
+ * so browsing cannot take their capacity and slow PayPal calls do not shrink the browsing limit.
+ * Both share the downstream, so while the priority limiter is under pressure the browsing limiter
+ * backs off to leave room for checkout.
+ */
+@Service
+public class GatewayConcurrencyLimits {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayConcurrencyLimits.class);
+
+    private static final String PRIORITY_SUFFIX = ":priority";
+
+    @Value("${gateway.concurrency.initial-limit:50}")
+    private int initialLimit = 50;
+
+    @Value("${gateway.concurrency.min-limit:5}")
+    private int minLimit = 5;
+
+    @Value("${gateway.concurrency.max-limit:400}")
+    private int maxLimit = 400;
+
+    @Value("${gateway.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio = 0.9;
+
+    // Requests slower than this count as a sign of saturation
+    @Value("${gateway.concurrency.latency-threshold-ms:1000}")
+    private long latencyThresholdMs = 1000;
+
+    // Priority requests wait on PayPal, which routinely takes seconds
+    @Value("${gateway.concurrency.priority-latency-threshold-ms:10000}")
+    private long priorityLatencyThresholdMs = 10000;
+
+    // PayPal order creation, cart checkout and capture live under /api/payments, order placement
+    // is a POST to /api/orders; an entry may be prefixed with the one method it applies to
+    @Value("${gateway.concurrency.priority-paths:/gateway/api/payments/**,POST /gateway/api/orders/**}")
+    private List<String> priorityPaths = List.of("/gateway/api/payments/**", "POST /gateway/api/orders/**");
+
+    @Value("${gateway.concurrency.retry-after-seconds:1}")
+    private int retryAfterSeconds = 1;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private PathPattern[] priorityPatterns = new PathPattern[0];
+    // Method each priority pattern is limited to, or null for any method
+    private String[] priorityMethods = new String[0];
+
+    @PostConstruct
+    public void compile() {
+        List<String> entries = priorityPaths.stream()
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .collect(Collectors.toList());
+        PathPattern[] patterns = new PathPattern[entries.size()];
+        String[] methods = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i);
+            int space = entry.indexOf(' ');
+            methods[i] = space < 0 ? null : entry.substring(0, space).toUpperCase();
+            patterns[i] = PathPattern.compile(space < 0 ? entry : entry.substring(space + 1));
+        }
+        priorityPatterns = patterns;
+        priorityMethods = methods;
+        logger.info("Gateway concurrency limits: initial {}, range {}-{}, latency threshold {}ms ({}ms for priority paths)",
+                initialLimit, minLimit, maxLimit, latencyThresholdMs, priorityLatencyThresholdMs);
+    }
+
+    /**
+     * Returns a permit for {@code request} on {@code route}, or null if the request should be
+     * rejected with 503.
+     */
+    public AdaptiveConcurrencyLimiter.Permit tryAcquire(String route, HttpServletRequest request) {
+        boolean priority = isPriority(request);
+        AdaptiveConcurrencyLimiter limiter = limiters.computeIfAbsent(priority ? route + PRIORITY_SUFFIX : route,
+                name -> new AdaptiveConcurrencyLimiter(name, initialLimit, minLimit, maxLimit, backoffRatio,
+                        priority ? priorityLatencyThresholdMs : latencyThresholdMs));
+        if (!priority) {
+            AdaptiveConcurrencyLimiter checkout = limiters.get(route + PRIORITY_SUFFIX);
+            if (checkout != null && checkout.isUnderPressure()) {
+                limiter.backOff();
+            }
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            logger.warn("Gateway route {} at its concurrency limit ({}), shedding {} {}",
+                    limiter.getName(), limiter.getLimit(), request.getMethod(), request.getRequestURI());
+        }
+        return permit;
+    }
+
+    /**
+     * Releases {@code permit} once the response is complete: now for a synchronous response,
+     * or when the async request finishes.
+     */
+    public void complete(AdaptiveConcurrencyLimiter.Permit permit, HttpServletRequest request, HttpServletResponse response) {
+        if (!request.isAsyncStarted()) {
+            permit.release(response.getStatus() >= 500);
+            return;
+        }
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                permit.release(response.getStatus() >= 500);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                permit.release(true);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                permit.release(true);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                event.getAsyncContext().addListener(this);
+            }
+        });
+    }
+
+    public boolean isPriority(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (int i = 0; i < priorityPatterns.length; i++) {
+            if ((priorityMethods[i] == null || priorityMethods[i].equals(request.getMethod()))
+                    && priorityPatterns[i].matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        limiters.forEach((name, limiter) -> {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("limit", limiter.getLimit());
+            state.put("in_flight", limiter.getInFlight());
+            state.put("rejected", limiter.getRejected());
+            state.put("slow_or_failed", limiter.getDropped());
+            routes.put(name, state);
+        });
+        return routes;
+    }
+}
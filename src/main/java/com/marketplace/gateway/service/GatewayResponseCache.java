@@ -0,0 +1,282 @@
+package com.marketplace.gateway.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.marketplace.gateway.ratelimit.PathPattern;
+import com.marketplace.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared cache of gateway responses to safe GET requests on configured routes. Entries are keyed
+ * by route, path, query string, the configured subset of request headers (the Vary subset) and the
+ * CORS Origin, expire after the route's TTL and are evicted least recently used once the cache exceeds its
+ * byte budget. Routes must only serve public content: the cache key does not include the user.
+ */
+@Service
+public class GatewayResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayResponseCache.class);
+
+    // Spring's CORS handling adds these to the Vary header of every response from a @CrossOrigin
+    // handler. Origin is part of every key; the preflight headers only come with OPTIONS, which
+    // is never cached, so a GET does not vary on them.
+    private static final List<String> CORS_VARY_HEADERS = List.of(HttpHeaders.ORIGIN,
+            HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+    // pattern=ttlSeconds, first match wins
+    @Value("${gateway.cache.routes:}")
+    private List<String> routeDefinitions = List.of();
+
+    @Value("${gateway.cache.vary-headers:Accept,Accept-Language}")
+    private List<String> varyHeaders = List.of("Accept", "Accept-Language");
+
+    @Value("${gateway.cache.max-bytes:16777216}")
+    private long maxBytes = 16777216;
+
+    @Value("${gateway.cache.max-entry-bytes:1048576}")
+    private int maxEntryBytes = 1048576;
+
+    // How long a miss waits for a concurrent forward of the same key before forwarding itself
+    @Value("${gateway.cache.coalesce-max-wait-ms:1000}")
+    private long coalesceMaxWaitMs = 1000;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private SingleFlight<String, CachedResponse> missLoads;
+    private List<Route> routes = List.of();
+    private Cache<String, CachedResponse> entries;
+
+    @PostConstruct
+    public void configure() {
+        List<Route> compiled = new ArrayList<>();
+        for (String definition : routeDefinitions) {
+            if (definition.isBlank()) {
+                continue;
+            }
+            int separator = definition.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Cache route must be pattern=ttlSeconds: " + definition);
+            }
+            String pattern = definition.substring(0, separator).trim();
+            long ttlSeconds = Long.parseLong(definition.substring(separator + 1).trim());
+            compiled.add(new Route(pattern, PathPattern.compile(pattern), ttlSeconds * 1000));
+        }
+        routes = List.copyOf(compiled);
+        missLoads = new SingleFlight<>(Duration.ofMillis(coalesceMaxWaitMs));
+        entries = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> key.length() * 2 + response.getBody().length)
+                .build();
+        if (meterRegistry != null) {
+            missLoads.bindTo(meterRegistry, "gateway.cache.miss");
+        }
+        logger.info("Gateway response cache: {} routes, {} byte budget", routes.size(), maxBytes);
+    }
+
+    /**
+     * Returns the cache route for a safe request, or null if the request is not cacheable.
+     */
+    public Route route(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || routes.isEmpty()) {
+            return null;
+        }
+        String path = request.getRequestURI();
+        for (Route route : routes) {
+            if (route.pattern.matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true for a non-GET request on a cached route, after which cached entries may be stale.
+     */
+    public boolean isUnsafeWriteToCachedPath(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return false;
+        }
+        String path = request.getRequestURI();
+        for (Route route : routes) {
+            if (route.pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String key(Route route, HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(128).append(route.name).append('\n').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        for (String header : varyHeaders) {
+            String value = request.getHeader(header);
+            key.append('\n').append(value != null ? value : "");
+        }
+        String origin = request.getHeader(HttpHeaders.ORIGIN);
+        key.append('\n').append(origin != null ? origin : "");
+        return key.toString();
+    }
+
+    /**
+     * Returns true if responses may vary on {@code header} without making the cache key too coarse.
+     */
+    public boolean isKeyedOn(String header) {
+        return varyHeaders.stream().anyMatch(header::equalsIgnoreCase)
+                || CORS_VARY_HEADERS.stream().anyMatch(header::equalsIgnoreCase);
+    }
+
+    /**
+     * Returns the live entry for {@code key}, counting a hit or miss for the route.
+     */
+    public CachedResponse lookup(Route route, String key, long nowMillis) {
+        CachedResponse cached = entries.getIfPresent(key);
+        if (cached != null && cached.getExpiresAt() <= nowMillis) {
+            entries.asMap().remove(key, cached);
+            cached = null;
+        }
+        (cached != null ? route.hits : route.misses).increment();
+        return cached;
+    }
+
+    public boolean store(String key, CachedResponse response) {
+        if (response.getBody().length > maxEntryBytes) {
+            return false;
+        }
+        entries.put(key, response);
+        return true;
+    }
+
+    /**
+     * Coalesces concurrent misses for the same cache key into one forward.
+     */
+    public SingleFlight<String, CachedResponse> getMissLoads() {
+        return missLoads;
+    }
+
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public List<String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        List<Map<String, Object>> routeStats = new ArrayList<>();
+        for (Route route : routes) {
+            long hits = route.hits.sum();
+            long misses = route.misses.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("route", route.name);
+            stats.put("ttl_seconds", route.ttlMillis / 1000);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hit_ratio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            routeStats.add(stats);
+        }
+        long bytes = entries.asMap().entrySet().stream()
+                .mapToLong(entry -> entry.getKey().length() * 2L + entry.getValue().getBody().length)
+                .sum();
+        description.put("routes", routeStats);
+        description.put("entries", entries.size());
+        description.put("bytes", bytes);
+        description.put("max_bytes", maxBytes);
+        description.put("coalesced_misses", missLoads.getCoalesced());
+        description.put("vary_headers", varyHeaders);
+        return description;
+    }
+
+    /**
+     * A cacheable route: a path pattern with its TTL and hit statistics.
+     */
+    public static final class Route {
+        private final String name;
+        private final PathPattern pattern;
+        private final long ttlMillis;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private Route(String name, PathPattern pattern, long ttlMillis) {
+            this.name = name;
+            this.pattern = pattern;
+            this.ttlMillis = ttlMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getTtlMillis() {
+            return ttlMillis;
+        }
+    }
+
+    /**
+     * A stored response: status, content headers, body and the strong ETag of the body.
+     */
+    public static final class CachedResponse {
+        private final int status;
+        private final Map<String, String> headers;
+        private final byte[] body;
+        private final String etag;
+        private final long storedAt;
+        private final long expiresAt;
+
+        public CachedResponse(int status, Map<String, String> headers, byte[] body, String etag, long storedAt, long expiresAt) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+            this.etag = etag;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.marketplace.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marketplace.gateway.ratelimit.RateLimitPolicies;
+import com.marketplace.gateway.ratelimit.RateLimitPolicyDefinition;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the gateway rate limit policies from a JSON file and reloads them when the file
+ * changes. The file is looked up at {@code location} (by default {@code config/} next to the
+ * working directory) and, while it does not exist there, the copy shipped on the classpath is
+ * used instead; only the former can be edited without a redeploy. A file that fails to parse or
+ * validate is ignored and the previous policies stay in force, so a bad edit never takes rate
+ * limiting down.
+ */
+@Service
+public class RateLimitPolicyRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitPolicyRegistry.class);
+
+    @Value("${gateway.rate-limit.policies.location:file:config/rate-limit-policies.json}")
+    private Resource location = new FileSystemResource("config/rate-limit-policies.json");
+
+    @Value("${gateway.rate-limit.policies.fallback-location:classpath:rate-limit-policies.json}")
+    private Resource fallbackLocation = new ClassPathResource("rate-limit-policies.json");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile RateLimitPolicies policies = RateLimitPolicies.defaults();
+    private volatile String source = "built-in defaults";
+    private volatile LocalDateTime loadedAt = LocalDateTime.now();
+    // The file last read and its modification time, so a switch between files also reloads
+    private volatile Resource loadedFrom;
+    private volatile long lastModified = -1;
+
+    @PostConstruct
+    public void load() {
+        reloadIfChanged();
+        if (!isEditable(location)) {
+            logger.warn("Rate limit policy location {} is not a file, policy edits need a redeploy", location.getDescription());
+        } else if (!location.exists()) {
+            logger.info("Create {} to override the shipped rate limit policies without a redeploy", location.getDescription());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.policies.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        Resource resource = location.exists() ? location : fallbackLocation;
+        if (!resource.exists()) {
+            if (lastModified == -1) {
+                logger.warn("Rate limit policy file {} not found, using {}", location.getDescription(), source);
+                lastModified = 0;
+            }
+            return;
+        }
+
+        long modified = lastModified(resource);
+        if (resource.equals(loadedFrom) && modified == lastModified) {
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            PolicyFile file = objectMapper.readValue(in, PolicyFile.class);
+            policies = RateLimitPolicies.compile(file.getPolicies(), file.getDefaultPolicy());
+            source = resource.getDescription();
+            loadedAt = LocalDateTime.now();
+            logger.info("Loaded {} rate limit policies from {}", policies.getPolicies().size() + 1, source);
+        } catch (Exception e) {
+            logger.error("Invalid rate limit policy file {}, keeping current policies: {}", resource.getDescription(), e.getMessage());
+        }
+        loadedFrom = resource;
+        lastModified = modified;
+    }
+
+    public RateLimitPolicies getPolicies() {
+        return policies;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    private static boolean isEditable(Resource resource) {
+        if (resource instanceof ClassPathResource) {
+            return false;
+        }
+        try {
+            return ResourceUtils.isFileURL(resource.getURL());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (Exception e) {
+            // Resources inside a jar may not know; they cannot change without a restart anyway
+            return 0;
+        }
+    }
+
+    /**
+     * The policy file: policies in match order, then the policy for everything else.
+     */
+    public static class PolicyFile {
+        private List<RateLimitPolicyDefinition> policies = new ArrayList<>();
+        private RateLimitPolicyDefinition defaultPolicy;
+
+        public List<RateLimitPolicyDefinition> getPolicies() {
+            return policies;
+        }
+
+        public void setPolicies(List<RateLimitPolicyDefinition> policies) {
+            this.policies = policies;
+        }
+
+        public RateLimitPolicyDefinition getDefaultPolicy() {
+            return defaultPolicy;
+        }
+
+        public void setDefaultPolicy(RateLimitPolicyDefinition defaultPolicy) {
+            this.defaultPolicy = defaultPolicy;
+        }
+    }
+}
@@ -1,132 +1,238 @@
 package com.marketplace.gateway.service;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.marketplace.gateway.ratelimit.LeasedRateLimiter;
+import com.marketplace.gateway.ratelimit.LocalSlidingWindowCounterLimiter;
+import com.marketplace.gateway.ratelimit.LocalSlidingWindowLogLimiter;
+import com.marketplace.gateway.ratelimit.LocalTokenBucketLimiter;
+import com.marketplace.gateway.ratelimit.RateLimitAlgorithm;
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import com.marketplace.gateway.ratelimit.RateLimitPolicy;
+import com.marketplace.gateway.ratelimit.RateLimiter;
+import com.marketplace.gateway.ratelimit.RedisRateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class RateLimitService {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
 
-    // Rate limits per minute
-    private static final int API_RATE_LIMIT = 100;
-    private static final int ADMIN_RATE_LIMIT = 20;
-    private static final int PAYMENT_RATE_LIMIT = 10;
-
     @Autowired(required = false)
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate redisTemplate;
 
-    // Fallback in-memory cache if Redis is not available
-    private final Cache<String, AtomicInteger> inMemoryCache = CacheBuilder.newBuilder()
-            .maximumSize(10000)
-            .expireAfterWrite(1, TimeUnit.MINUTES)
-            .build();
+    @Autowired
+    private RateLimitPolicyRegistry policyRegistry;
 
-    private boolean redisAvailable = false;
+    @Autowired
+    private RedisHealthMonitor redisHealth;
 
-    public boolean isAllowed(String clientId, String serviceType) {
-        int limit = getRateLimit(serviceType);
-        String key = "rate_limit:" + serviceType + ":" + clientId;
+    @Value("${gateway.rate-limit.local.max-keys:100000}")
+    private long maxLocalKeys = 100000;
 
-        try {
-            if (redisTemplate != null && !redisAvailable) {
-                // Test Redis connectivity
-                redisTemplate.opsForValue().get("test");
-                redisAvailable = true;
-            }
+    // Must be at least the longest policy window, or idle clients would get a fresh allowance early
+    @Value("${gateway.rate-limit.local.idle-expiry-ms:600000}")
+    private long localIdleExpiryMs = 600000;
+
+    // Hybrid mode for TOKEN_BUCKET policies: spend leased chunks of the Redis bucket locally
+    @Value("${gateway.rate-limit.leasing.enabled:false}")
+    private boolean leasingEnabled = false;
+
+    @Value("${gateway.rate-limit.leasing.lease-size:10}")
+    private int leaseSize = 10;
+
+    // Upper bound on the chunk as a fraction of the limit (error per node per window)
+    @Value("${gateway.rate-limit.leasing.max-error-ratio:0.1}")
+    private double leaseMaxErrorRatio = 0.1;
 
-            if (redisAvailable && redisTemplate != null) {
-                return checkRateLimitWithRedis(key, limit);
-            } else {
-                return checkRateLimitInMemory(key, limit);
+    @Value("${gateway.rate-limit.leasing.lease-ttl-ms:1000}")
+    private long leaseTtlMs = 1000;
+
+    // Fallback in-memory limiters if Redis is not available
+    private final Map<RateLimitAlgorithm, RateLimiter> localLimiters = new EnumMap<>(RateLimitAlgorithm.class);
+    private final Map<RateLimitAlgorithm, RateLimiter> redisLimiters = new EnumMap<>(RateLimitAlgorithm.class);
+
+
+    @PostConstruct
+    public void createLimiters() {
+        Duration idleExpiry = Duration.ofMillis(localIdleExpiryMs);
+        localLimiters.put(RateLimitAlgorithm.TOKEN_BUCKET, new LocalTokenBucketLimiter(maxLocalKeys, idleExpiry));
+        localLimiters.put(RateLimitAlgorithm.SLIDING_WINDOW_LOG, new LocalSlidingWindowLogLimiter(maxLocalKeys, idleExpiry));
+        localLimiters.put(RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, new LocalSlidingWindowCounterLimiter(maxLocalKeys, idleExpiry));
+
+        if (redisTemplate != null) {
+            for (RateLimitAlgorithm algorithm : RateLimitAlgorithm.values()) {
+                redisLimiters.put(algorithm, new RedisRateLimiter(redisTemplate, algorithm));
             }
-        } catch (Exception e) {
-            logger.warn("Rate limiting error, falling back to in-memory: {}", e.getMessage());
-            redisAvailable = false;
-            return checkRateLimitInMemory(key, limit);
+            if (leasingEnabled) {
+                redisLimiters.put(RateLimitAlgorithm.TOKEN_BUCKET, new LeasedRateLimiter(redisTemplate, leaseSize,
+                        leaseMaxErrorRatio, Duration.ofMillis(leaseTtlMs), maxLocalKeys));
+            }
+            preloadScripts();
         }
     }
 
-    private boolean checkRateLimitWithRedis(String key, int limit) {
+    /**
+     * Loads the limiter scripts into the Redis script cache so that requests only send EVALSHA.
+     * If Redis is down at startup the scripts are loaded by the first EVAL after it comes back.
+     */
+    private void preloadScripts() {
         try {
-            Long currentCount = redisTemplate.opsForValue().increment(key);
-            
-            if (currentCount == 1) {
-                // First request in this window, set expiration
-                redisTemplate.expire(key, Duration.ofMinutes(1));
-            }
-
-            boolean allowed = currentCount <= limit;
-            
-            if (!allowed) {
-                logger.debug("Rate limit exceeded for key: {} (count: {}, limit: {})", key, currentCount, limit);
+            for (RateLimiter limiter : redisLimiters.values()) {
+                if (limiter instanceof LeasedRateLimiter) {
+                    ((LeasedRateLimiter) limiter).preload();
+                } else {
+                    ((RedisRateLimiter) limiter).preload();
+                }
             }
-            
-            return allowed;
         } catch (Exception e) {
-            logger.error("Redis rate limiting error: {}", e.getMessage());
-            redisAvailable = false;
-            throw e;
+            logger.warn("Could not preload rate limiting scripts into Redis: {}", e.getMessage());
         }
     }
 
-    private boolean checkRateLimitInMemory(String key, int limit) {
+    /**
+     * Gives unused tokens of expired leases back to Redis, so that a client whose requests moved
+     * to another node gets its full allowance there.
+     */
+    @Scheduled(fixedDelayString = "${gateway.rate-limit.leasing.return-interval-ms:1000}")
+    public void returnExpiredLeases() {
+        RateLimiter limiter = redisLimiters.get(RateLimitAlgorithm.TOKEN_BUCKET);
+        if (!(limiter instanceof LeasedRateLimiter) || !redisHealth.isAvailable()) {
+            return;
+        }
         try {
-            AtomicInteger counter = inMemoryCache.get(key, AtomicInteger::new);
-            int currentCount = counter.incrementAndGet();
-            
-            boolean allowed = currentCount <= limit;
-            
-            if (!allowed) {
-                logger.debug("In-memory rate limit exceeded for key: {} (count: {}, limit: {})", key, currentCount, limit);
-            }
-            
-            return allowed;
+            ((LeasedRateLimiter) limiter).returnExpiredLeases();
         } catch (Exception e) {
-            logger.error("In-memory rate limiting error: {}", e.getMessage());
-            // If all else fails, allow the request
-            return true;
+            logger.debug("Could not return expired rate limit leases: {}", e.getMessage());
         }
     }
 
-    private int getRateLimit(String serviceType) {
-        switch (serviceType.toLowerCase()) {
-            case "admin":
-                return ADMIN_RATE_LIMIT;
-            case "payment":
-            case "payments":
-                return PAYMENT_RATE_LIMIT;
-            case "api":
-            default:
-                return API_RATE_LIMIT;
+    /**
+     * Returns the policy that applies to {@code request}: the first configured policy matching
+     * its method, path, user, roles and client IP, or the default policy. Before the security
+     * filter chain has run, the user is taken from the HTTP session.
+     */
+    public RateLimitPolicy resolvePolicy(HttpServletRequest request, String clientIp) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            authentication = sessionAuthentication(request);
         }
+        boolean authenticated = authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+        return policyRegistry.getPolicies().match(
+                request.getMethod(),
+                request.getRequestURI(),
+                authenticated ? authentication.getName() : null,
+                authenticated ? authentication.getAuthorities() : null,
+                clientIp);
     }
 
-    public boolean isHealthy() {
+    private static Authentication sessionAuthentication(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return null;
+        }
+        Object context = session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+        return context instanceof SecurityContext ? ((SecurityContext) context).getAuthentication() : null;
+    }
+
+    /**
+     * Checks the policy called {@code policyName} (the default policy if there is none).
+     */
+    public boolean isAllowed(String clientId, String policyName) {
+        return isAllowed(clientId, policyRegistry.getPolicies().byName(policyName));
+    }
+
+    public boolean isAllowed(String clientId, RateLimitPolicy policy) {
+        return check(clientId, policy).isAllowed();
+    }
+
+    /**
+     * Counts a request against {@code policy} and returns the decision together with the quota
+     * left afterwards, both from the same limiter call.
+     */
+    public RateLimitDecision check(String clientId, RateLimitPolicy policy) {
+        String key = "rate_limit:" + policy.getName() + ":" + clientId;
+
+        // Reachability comes from the background monitor; requests never probe Redis themselves
+        if (redisTemplate != null && redisHealth.isAvailable()) {
+            try {
+                return checkRateLimitWithRedis(policy, key);
+            } catch (Exception e) {
+                logger.warn("Rate limiting error, falling back to in-memory: {}", e.getMessage());
+                redisHealth.reportFailure(e);
+            }
+        }
+        return checkRateLimitInMemory(policy, key);
+    }
+
+    private RateLimitDecision checkRateLimitWithRedis(RateLimitPolicy policy, String key) {
+        RateLimitDecision decision = redisLimiters.get(policy.getAlgorithm())
+                .tryAcquire(key, policy.getLimit(), policy.getWindowMillis(), System.currentTimeMillis());
+
+        if (!decision.isAllowed()) {
+            logger.debug("Rate limit exceeded for key: {} (policy: {}, limit: {})", key, policy.getName(), policy.getLimit());
+        }
+
+        return decision;
+    }
+
+    private RateLimitDecision checkRateLimitInMemory(RateLimitPolicy policy, String key) {
+        long now = System.currentTimeMillis();
         try {
-            if (redisTemplate != null) {
-                redisTemplate.opsForValue().get("health_check");
-                return true;
+            RateLimitDecision decision = localLimiters.get(policy.getAlgorithm())
+                    .tryAcquire(key, policy.getLimit(), policy.getWindowMillis(), now);
+
+            if (!decision.isAllowed()) {
+                logger.debug("In-memory rate limit exceeded for key: {} (policy: {}, limit: {})", key, policy.getName(), policy.getLimit());
             }
-            // In-memory cache is always healthy
-            return true;
+
+            return decision;
         } catch (Exception e) {
-            logger.debug("Rate limiting service health check failed: {}", e.getMessage());
-            return inMemoryCache != null; // Return true if in-memory cache is available
+            logger.error("In-memory rate limiting error: {}", e.getMessage());
+            // If all else fails, allow the request
+            return RateLimitDecision.allowed(policy.getLimit(), policy.getLimit(), 0);
         }
     }
 
+    public boolean isHealthy() {
+        // The in-memory limiters take over whenever Redis is down, so rate limiting stays healthy
+        return redisHealth.isAvailable() || !localLimiters.isEmpty();
+    }
+
+    public Map<String, Object> describePolicies() {
+        List<Map<String, Object>> policies = policyRegistry.getPolicies().getPolicies().stream()
+                .map(RateLimitPolicy::describe)
+                .collect(Collectors.toList());
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("policies", policies);
+        description.put("default_policy", policyRegistry.getPolicies().getDefaultPolicy().describe());
+        description.put("source", policyRegistry.getSource());
+        description.put("loaded_at", policyRegistry.getLoadedAt().toString());
+        return description;
+    }
+
     public String getStatus() {
-        if (redisAvailable && redisTemplate != null) {
+        if (redisTemplate != null && redisHealth.isAvailable()) {
             return "Redis-backed rate limiting active";
         } else {
             return "In-memory rate limiting active (Redis unavailable)";
@@ -0,0 +1,167 @@
+package com.marketplace.gateway.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks whether Redis is reachable from a background thread so that request threads only read
+ * a volatile flag and never wait on a connectivity probe. Redis is pinged every
+ * {@code interval-ms} while it is up; while it is down the pings back off exponentially from
+ * {@code min-backoff-ms} to {@code max-backoff-ms}. Request paths that see a Redis error report
+ * it, which marks Redis down immediately and brings the next ping forward to
+ * {@code min-backoff-ms} so a transient error does not wait out a full interval.
+ */
+@Service
+public class RedisHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisHealthMonitor.class);
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${gateway.redis-health.interval-ms:5000}")
+    private long intervalMs = 5000;
+
+    @Value("${gateway.redis-health.min-backoff-ms:1000}")
+    private long minBackoffMs = 1000;
+
+    @Value("${gateway.redis-health.max-backoff-ms:60000}")
+    private long maxBackoffMs = 60000;
+
+    private volatile boolean available = false;
+    private volatile long lastCheckedAt = 0;
+    private volatile String lastError;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private ScheduledExecutorService executor;
+
+    // The single pending ping; rescheduling replaces it so there is only ever one probe chain
+    private ScheduledFuture<?> nextProbe;
+
+    @PostConstruct
+    public void start() {
+        if (redisTemplate == null) {
+            logger.info("Redis not configured, rate limiting stays in memory");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleProbe(0);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Marks Redis down after a failed call on a request path and pings it again after
+     * {@code min-backoff-ms}; the background probe brings it back once Redis answers again.
+     */
+    public void reportFailure(Throwable error) {
+        lastError = error.getMessage();
+        if (available) {
+            available = false;
+            consecutiveFailures.incrementAndGet();
+            logger.warn("Redis marked unavailable after request failure: {}", error.getMessage());
+            scheduleProbe(minBackoffMs);
+        }
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("configured", redisTemplate != null);
+        description.put("available", available);
+        description.put("consecutive_failures", consecutiveFailures.get());
+        description.put("last_checked_at", lastCheckedAt);
+        if (lastError != null) {
+            description.put("last_error", lastError);
+        }
+        return description;
+    }
+
+    private void probeAndReschedule() {
+        long delay;
+        try {
+            delay = probe();
+        } catch (Throwable t) {
+            delay = maxBackoffMs;
+        }
+        scheduleProbe(delay);
+    }
+
+    private synchronized void scheduleProbe(long delay) {
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        if (nextProbe != null) {
+            nextProbe.cancel(false);
+        }
+        nextProbe = executor.schedule(this::probeAndReschedule, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pings Redis once, updates the state and returns the delay before the next ping.
+     */
+    long probe() {
+        lastCheckedAt = System.currentTimeMillis();
+        try {
+            redisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+            if (!available) {
+                logger.info("Redis reachable after {} failed checks", consecutiveFailures.get());
+            }
+            consecutiveFailures.set(0);
+            available = true;
+            return intervalMs;
+        } catch (Exception e) {
+            int failures = consecutiveFailures.incrementAndGet();
+            if (available || failures == 1) {
+                logger.warn("Redis unreachable: {}", e.getMessage());
+            }
+            available = false;
+            lastError = e.getMessage();
+            return backoffMillis(failures);
+        }
+    }
+
+    long backoffMillis(int failures) {
+        return Math.min(minBackoffMs << Math.min(failures - 1, 20), maxBackoffMs);
+    }
+}
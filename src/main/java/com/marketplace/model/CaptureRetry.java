@@ -0,0 +1,130 @@
+package com.marketplace.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A PayPal capture that failed and is retried in the background. The PayPal order id is the
+ * document id, so an order is queued at most once. {@code lockedBy}/{@code lockedUntil} form a
+ * lease: only the node holding an unexpired lease retries the capture.
+ */
+@Document(collection = "capture_retries")
+@CompoundIndex(name = "state_next_attempt_idx", def = "{'state': 1, 'nextAttemptAt': 1}")
+public class CaptureRetry {
+    
+    public enum State {
+        PENDING,
+        CAPTURED,
+        FAILED
+    }
+    
+    @Id
+    private String id;
+    
+    private State state = State.PENDING;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    
+    private String lockedBy;
+    private LocalDateTime lockedUntil;
+    
+    private String captureStatus;
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    // TTL index: MongoDB removes finished entries 7 days after they completed; pending ones have no completedAt
+    @Indexed(name = "completed_at_ttl_idx", expireAfterSeconds = 604800)
+    private LocalDateTime completedAt;
+    
+    public CaptureRetry() {}
+    
+    public CaptureRetry(String paypalOrderId, LocalDateTime nextAttemptAt, String lastError) {
+        this.id = paypalOrderId;
+        this.nextAttemptAt = nextAttemptAt;
+        this.lastError = lastError;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public void setState(State state) {
+        this.state = state;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public String getLockedBy() {
+        return lockedBy;
+    }
+    
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+    
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+    
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+    
+    public String getCaptureStatus() {
+        return captureStatus;
+    }
+    
+    public void setCaptureStatus(String captureStatus) {
+        this.captureStatus = captureStatus;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
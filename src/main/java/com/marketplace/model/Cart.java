@@ -19,6 +19,11 @@ public class Cart {
     private LocalDateTime createdAt = LocalDateTime.now();
     private LocalDateTime updatedAt = LocalDateTime.now();
     
+    // PayPal order created for the current contents; the order placed from this cart inherits it.
+    // Any change to the items drops the link, since the PayPal order no longer matches.
+    private String paypalOrderId;
+    private BigDecimal paypalAmount;
+    
     public Cart() {}
     
     public Cart(String userId) {
@@ -47,7 +52,7 @@ public class Cart {
     
     public void setItems(List<CartItem> items) {
         this.items = items;
-        this.updatedAt = LocalDateTime.now();
+        changed();
     }
     
     public LocalDateTime getCreatedAt() {
@@ -66,6 +71,22 @@ public class Cart {
         this.updatedAt = updatedAt;
     }
     
+    public String getPaypalOrderId() {
+        return paypalOrderId;
+    }
+    
+    public void setPaypalOrderId(String paypalOrderId) {
+        this.paypalOrderId = paypalOrderId;
+    }
+    
+    public BigDecimal getPaypalAmount() {
+        return paypalAmount;
+    }
+    
+    public void setPaypalAmount(BigDecimal paypalAmount) {
+        this.paypalAmount = paypalAmount;
+    }
+    
     public void addItem(CartItem item) {
         CartItem existingItem = findItemByProductId(item.getProductId());
         if (existingItem != null) {
@@ -73,12 +94,12 @@ public class Cart {
         } else {
             items.add(item);
         }
-        this.updatedAt = LocalDateTime.now();
+        changed();
     }
     
     public void removeItem(String productId) {
         items.removeIf(item -> item.getProductId().equals(productId));
-        this.updatedAt = LocalDateTime.now();
+        changed();
     }
     
     public void updateItemQuantity(String productId, int quantity) {
@@ -88,7 +109,7 @@ public class Cart {
                 removeItem(productId);
             } else {
                 item.setQuantity(quantity);
-                this.updatedAt = LocalDateTime.now();
+                changed();
             }
         }
     }
@@ -114,10 +135,16 @@ public class Cart {
     
     public void clear() {
         items.clear();
-        this.updatedAt = LocalDateTime.now();
+        changed();
     }
     
     public boolean isEmpty() {
         return items.isEmpty();
     }
-}
\ No newline at end of file
+    
+    private void changed() {
+        this.updatedAt = LocalDateTime.now();
+        this.paypalOrderId = null;
+        this.paypalAmount = null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.marketplace.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored event delivered by {@link com.marketplace.service.DurableEventDispatcher}. Events with
+ * the same dispatch key are delivered one at a time in {@link #precedes} order.
+ */
+public interface DispatchableEvent<E extends DispatchableEvent<E>> {
+
+    String getId();
+
+    String getDispatchKey();
+
+    /**
+     * Returns true if this event must be delivered before {@code other} (same dispatch key).
+     */
+    boolean precedes(E other);
+
+    Enum<?> getState();
+
+    int getAttempts();
+
+    void setAttempts(int attempts);
+
+    LocalDateTime getNextAttemptAt();
+
+    void setNextAttemptAt(LocalDateTime nextAttemptAt);
+
+    String getLastError();
+
+    void setLastError(String lastError);
+
+    /**
+     * Moves the event to its dead-letter state; it is not delivered again.
+     */
+    void markDead();
+}
@@ -0,0 +1,116 @@
+package com.marketplace.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "idempotency_keys")
+public class IdempotencyKey {
+    
+    public static final String STATE_IN_PROGRESS = "IN_PROGRESS";
+    public static final String STATE_COMPLETED = "COMPLETED";
+    
+    // Scoped as operation:userId:key, so the unique _id index enforces one execution per client key
+    @Id
+    private String id;
+    
+    private String operation;
+    private String userId;
+    private String state = STATE_IN_PROGRESS;
+    // Reserved when the key is claimed, so a request taking over an expired claim reuses the same id
+    private String resourceId;
+    
+    // Lease on an IN_PROGRESS claim; once it has passed, another request may take the claim over
+    private Date lockedUntil;
+    
+    // Set on the record returned to the request that holds the claim; never stored
+    @Transient
+    private boolean claimed;
+    
+    // TTL index: MongoDB removes keys 24 hours after they were first seen
+    @Indexed(expireAfterSeconds = 86400)
+    private Date createdAt = new Date();
+    
+    public IdempotencyKey() {}
+    
+    public IdempotencyKey(String operation, String userId, String key) {
+        this.id = scopedId(operation, userId, key);
+        this.operation = operation;
+        this.userId = userId;
+    }
+    
+    public static String scopedId(String operation, String userId, String key) {
+        return operation + ":" + userId + ":" + key;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public String getState() {
+        return state;
+    }
+    
+    public void setState(String state) {
+        this.state = state;
+    }
+    
+    public String getResourceId() {
+        return resourceId;
+    }
+    
+    public void setResourceId(String resourceId) {
+        this.resourceId = resourceId;
+    }
+    
+    public Date getLockedUntil() {
+        return lockedUntil;
+    }
+    
+    public void setLockedUntil(Date lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+    
+    public boolean isClaimed() {
+        return claimed;
+    }
+    
+    public void setClaimed(boolean claimed) {
+        this.claimed = claimed;
+    }
+    
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public boolean isCompleted() {
+        return STATE_COMPLETED.equals(state);
+    }
+}
@@ -3,15 +3,26 @@ package com.marketplace.model;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Document(collection = "orders")
+@CompoundIndex(name = "status_id_idx", def = "{'status': 1, '_id': 1}")
 public class Order {
     
+    // Currency of every PayPal order the marketplace creates
+    public static final String PAYMENT_CURRENCY = "USD";
+    
     @Id
     private String id;
     
@@ -36,9 +47,16 @@ public class Order {
     @NotNull
     private OrderStatus status = OrderStatus.PENDING;
     
+    // PayPal capture id and PayPal order id; sparse indexes resolve webhook events to their order
+    @Indexed(sparse = true)
     private String paypalTransactionId;
+    
+    @Indexed(sparse = true)
     private String paypalPaymentId;
     
+    // Amount the linked PayPal order was created for (the cart total plus tax); a capture must match it
+    private BigDecimal paymentAmount;
+    
     private LocalDateTime createdAt = LocalDateTime.now();
     private LocalDateTime updatedAt = LocalDateTime.now();
     private LocalDateTime shippedAt;
@@ -46,6 +64,26 @@ public class Order {
     
     private String notes;
     
+    // Transactional outbox: events are appended in the same single-document write as the change they describe
+    private List<OrderEvent> outbox = new ArrayList<>();
+    
+    // Only present while the outbox holds events, so the sparse index covers just the orders awaiting relay
+    @Indexed(sparse = true)
+    private Boolean outboxPending;
+    
+    // Rollup contributions claimed for this order with the time they are counted at (see SalesRollupService),
+    // so every delivery of the contribution's events counts it in the same buckets
+    private Map<String, LocalDateTime> rollupTimes = new HashMap<>();
+    
+    // Rollup contributions fully counted for this order, so redelivered events can skip the bucket writes
+    private Set<String> appliedRollups = new HashSet<>();
+    
+    // Last time PaymentReconciliationService compared this order with PayPal
+    private LocalDateTime reconciledAt;
+    
+    // Id of the bulk status update that last changed this order, so the update can tell which orders it changed
+    private String statusBatchId;
+    
     public Order() {}
     
     public Order(String userId, String userEmail, String customerName, List<CartItem> items, BigDecimal totalAmount) {
@@ -120,6 +158,30 @@ public class Order {
         this.totalAmount = totalAmount;
     }
     
+    public BigDecimal getPaymentAmount() {
+        return paymentAmount;
+    }
+    
+    public void setPaymentAmount(BigDecimal paymentAmount) {
+        this.paymentAmount = paymentAmount;
+    }
+    
+    /**
+     * Returns true if a PayPal amount pays exactly for this order: same currency and the amount
+     * the PayPal order was created for (the order total if no such amount was recorded).
+     */
+    public boolean matchesPayment(String currencyCode, String value) {
+        BigDecimal expected = paymentAmount != null ? paymentAmount : totalAmount;
+        if (expected == null || value == null || !PAYMENT_CURRENCY.equals(currencyCode)) {
+            return false;
+        }
+        try {
+            return expected.compareTo(new BigDecimal(value)) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
     public OrderStatus getStatus() {
         return status;
     }
@@ -191,6 +253,61 @@ public class Order {
         this.notes = notes;
     }
     
+    public List<OrderEvent> getOutbox() {
+        return outbox;
+    }
+    
+    public void setOutbox(List<OrderEvent> outbox) {
+        this.outbox = outbox;
+    }
+    
+    public Boolean getOutboxPending() {
+        return outboxPending;
+    }
+    
+    public void setOutboxPending(Boolean outboxPending) {
+        this.outboxPending = outboxPending;
+    }
+    
+    public Map<String, LocalDateTime> getRollupTimes() {
+        return rollupTimes;
+    }
+    
+    public void setRollupTimes(Map<String, LocalDateTime> rollupTimes) {
+        this.rollupTimes = rollupTimes;
+    }
+    
+    public Set<String> getAppliedRollups() {
+        return appliedRollups;
+    }
+    
+    public void setAppliedRollups(Set<String> appliedRollups) {
+        this.appliedRollups = appliedRollups;
+    }
+    
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+    
+    public void setReconciledAt(LocalDateTime reconciledAt) {
+        this.reconciledAt = reconciledAt;
+    }
+    
+    public String getStatusBatchId() {
+        return statusBatchId;
+    }
+    
+    public void setStatusBatchId(String statusBatchId) {
+        this.statusBatchId = statusBatchId;
+    }
+    
+    public OrderEvent recordEvent(OrderEventType type) {
+        OrderEvent event = new OrderEvent(id, userId, type, status);
+        outbox.add(event);
+        outboxPending = Boolean.TRUE;
+        return event;
+    }
+    
     public int getTotalItems() {
         return items.stream()
                 .mapToInt(CartItem::getQuantity)
@@ -0,0 +1,178 @@
+package com.marketplace.model;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A side effect of an order change. Events are first embedded in the order's outbox in the
+ * same write as the change itself, then relayed to this collection and dispatched to handlers.
+ */
+@Document(collection = "order_events")
+@CompoundIndex(name = "state_order_idx", def = "{'state': 1, 'orderId': 1, '_id': 1}")
+public class OrderEvent implements DispatchableEvent<OrderEvent> {
+    
+    public enum State {
+        PENDING,
+        DONE,
+        DEAD
+    }
+    
+    // ObjectId hex strings grow monotonically, so sorting by id gives per-order event order
+    @Id
+    private String id;
+    
+    private String orderId;
+    private String userId;
+    private OrderEventType type;
+    private OrderStatus status;
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    private State state = State.PENDING;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime processedAt;
+    private String lastError;
+    
+    // Lease held by the dispatcher node delivering the event; see DurableEventDispatcher
+    @Indexed(sparse = true)
+    private String lockedBy;
+    private LocalDateTime lockedUntil;
+    
+    public OrderEvent() {}
+    
+    public OrderEvent(String orderId, String userId, OrderEventType type, OrderStatus status) {
+        this.id = new ObjectId().toHexString();
+        this.orderId = orderId;
+        this.userId = userId;
+        this.type = type;
+        this.status = status;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public OrderEventType getType() {
+        return type;
+    }
+    
+    public void setType(OrderEventType type) {
+        this.type = type;
+    }
+    
+    public OrderStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public void setState(State state) {
+        this.state = state;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+    
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public String getLockedBy() {
+        return lockedBy;
+    }
+    
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+    
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+    
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+    
+    @Override
+    public String getDispatchKey() {
+        return orderId;
+    }
+    
+    @Override
+    public boolean precedes(OrderEvent other) {
+        return id.compareTo(other.getId()) < 0;
+    }
+    
+    @Override
+    public void markDead() {
+        state = State.DEAD;
+    }
+    
+    public boolean isDue(LocalDateTime now) {
+        return nextAttemptAt == null || !nextAttemptAt.isAfter(now);
+    }
+}
@@ -0,0 +1,7 @@
+package com.marketplace.model;
+
+public enum OrderEventType {
+    ORDER_CREATED,
+    STATUS_CHANGED,
+    PAYMENT_CONFIRMED
+}
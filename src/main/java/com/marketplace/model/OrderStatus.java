@@ -1,5 +1,11 @@
 package com.marketplace.model;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING("Pending"),
     CONFIRMED("Confirmed"),
@@ -8,14 +14,55 @@ public enum OrderStatus {
     DELIVERED("Delivered"),
     CANCELLED("Cancelled"),
     REFUNDED("Refunded");
-    
+
+    // Allowed transitions: current status -> statuses it may move to
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    // Reverse lookup used to build conditional updates: target status -> statuses it may be reached from
+    private static final Map<OrderStatus, Set<OrderStatus>> SOURCES = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(PENDING, EnumSet.of(CONFIRMED, CANCELLED));
+        TRANSITIONS.put(CONFIRMED, EnumSet.of(PROCESSING, SHIPPED, CANCELLED, REFUNDED));
+        TRANSITIONS.put(PROCESSING, EnumSet.of(SHIPPED, CANCELLED, REFUNDED));
+        TRANSITIONS.put(SHIPPED, EnumSet.of(DELIVERED, REFUNDED));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(REFUNDED));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(REFUNDED, EnumSet.noneOf(OrderStatus.class));
+
+        for (OrderStatus target : values()) {
+            SOURCES.put(target, EnumSet.noneOf(OrderStatus.class));
+        }
+        for (Map.Entry<OrderStatus, Set<OrderStatus>> entry : TRANSITIONS.entrySet()) {
+            for (OrderStatus target : entry.getValue()) {
+                SOURCES.get(target).add(entry.getKey());
+            }
+        }
+    }
+
     private final String displayName;
-    
+
     OrderStatus(String displayName) {
         this.displayName = displayName;
     }
-    
+
     public String getDisplayName() {
         return displayName;
     }
-}
\ No newline at end of file
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    public boolean isTerminal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+
+    public Set<OrderStatus> getAllowedTransitions() {
+        return Collections.unmodifiableSet(TRANSITIONS.get(this));
+    }
+
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        return Collections.unmodifiableSet(SOURCES.get(target));
+    }
+}
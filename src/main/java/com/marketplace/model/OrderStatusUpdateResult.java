@@ -0,0 +1,47 @@
+package com.marketplace.model;
+
+public class OrderStatusUpdateResult {
+    
+    public enum Outcome {
+        UPDATED,
+        UNCHANGED,
+        REJECTED,
+        NOT_FOUND
+    }
+    
+    private String orderId;
+    private Outcome outcome;
+    private OrderStatus currentStatus;
+    
+    public OrderStatusUpdateResult() {}
+    
+    public OrderStatusUpdateResult(String orderId, Outcome outcome, OrderStatus currentStatus) {
+        this.orderId = orderId;
+        this.outcome = outcome;
+        this.currentStatus = currentStatus;
+    }
+    
+    public String getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+    
+    public Outcome getOutcome() {
+        return outcome;
+    }
+    
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+    
+    public OrderStatus getCurrentStatus() {
+        return currentStatus;
+    }
+    
+    public void setCurrentStatus(OrderStatus currentStatus) {
+        this.currentStatus = currentStatus;
+    }
+}
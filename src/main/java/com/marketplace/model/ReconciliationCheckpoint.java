@@ -0,0 +1,108 @@
+package com.marketplace.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the payment reconciliation pass. Orders are scanned in id order; after every batch
+ * the last scanned id is saved, so a restarted node resumes where the previous one stopped.
+ */
+@Document(collection = "reconciliation_checkpoints")
+public class ReconciliationCheckpoint {
+    
+    public static final String PAYPAL_ORDERS = "paypal-orders";
+    
+    @Id
+    private String id;
+    
+    // Null at the start of a pass
+    private String lastOrderId;
+    private LocalDateTime passStartedAt;
+    private LocalDateTime lastPassCompletedAt;
+    private LocalDateTime updatedAt;
+    
+    private long checked;
+    private long updated;
+    
+    public ReconciliationCheckpoint() {}
+    
+    public ReconciliationCheckpoint(String id) {
+        this.id = id;
+    }
+    
+    public void advance(String lastOrderId, int checkedInBatch, int updatedInBatch, LocalDateTime now) {
+        if (this.lastOrderId == null) {
+            passStartedAt = now;
+            checked = 0;
+            updated = 0;
+        }
+        this.lastOrderId = lastOrderId;
+        this.checked += checkedInBatch;
+        this.updated += updatedInBatch;
+        this.updatedAt = now;
+    }
+    
+    public void completePass(LocalDateTime now) {
+        lastOrderId = null;
+        lastPassCompletedAt = now;
+        updatedAt = now;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getLastOrderId() {
+        return lastOrderId;
+    }
+    
+    public void setLastOrderId(String lastOrderId) {
+        this.lastOrderId = lastOrderId;
+    }
+    
+    public LocalDateTime getPassStartedAt() {
+        return passStartedAt;
+    }
+    
+    public void setPassStartedAt(LocalDateTime passStartedAt) {
+        this.passStartedAt = passStartedAt;
+    }
+    
+    public LocalDateTime getLastPassCompletedAt() {
+        return lastPassCompletedAt;
+    }
+    
+    public void setLastPassCompletedAt(LocalDateTime lastPassCompletedAt) {
+        this.lastPassCompletedAt = lastPassCompletedAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public long getChecked() {
+        return checked;
+    }
+    
+    public void setChecked(long checked) {
+        this.checked = checked;
+    }
+    
+    public long getUpdated() {
+        return updated;
+    }
+    
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+}
@@ -0,0 +1,62 @@
+package com.marketplace.model;
+
+/**
+ * Result of comparing one order with PayPal. A null target status means the order matches
+ * PayPal and only its reconciliation stamp is refreshed.
+ */
+public class ReconciliationUpdate {
+    
+    private String orderId;
+    private OrderStatus observedStatus;
+    private OrderStatus targetStatus;
+    private String captureId;
+    
+    public ReconciliationUpdate() {}
+    
+    public ReconciliationUpdate(String orderId, OrderStatus observedStatus, OrderStatus targetStatus, String captureId) {
+        this.orderId = orderId;
+        this.observedStatus = observedStatus;
+        this.targetStatus = targetStatus;
+        this.captureId = captureId;
+    }
+    
+    public static ReconciliationUpdate unchanged(Order order) {
+        return new ReconciliationUpdate(order.getId(), order.getStatus(), null, null);
+    }
+    
+    public String getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+    
+    public OrderStatus getObservedStatus() {
+        return observedStatus;
+    }
+    
+    public void setObservedStatus(OrderStatus observedStatus) {
+        this.observedStatus = observedStatus;
+    }
+    
+    public OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+    
+    public void setTargetStatus(OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+    
+    public String getCaptureId() {
+        return captureId;
+    }
+    
+    public void setCaptureId(String captureId) {
+        this.captureId = captureId;
+    }
+    
+    public boolean isChange() {
+        return targetStatus != null && targetStatus != observedStatus;
+    }
+}
@@ -0,0 +1,198 @@
+package com.marketplace.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Pre-aggregated sales figures for one time bucket, either for a single product or for all
+ * products ({@link #ALL_PRODUCTS}). Amounts are kept in cents so buckets can be updated with $inc.
+ */
+@Document(collection = "sales_rollups")
+@CompoundIndex(name = "granularity_product_bucket_idx", def = "{'granularity': 1, 'productId': 1, 'bucketStart': 1}")
+public class SalesRollup {
+    
+    public static final String ALL_PRODUCTS = "*";
+    
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+        
+        private final ChronoUnit unit;
+        
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+        
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+        
+        public LocalDateTime floor(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+        
+        public LocalDateTime ceil(LocalDateTime time) {
+            LocalDateTime floor = floor(time);
+            return floor.equals(time) ? time : floor.plus(1, unit);
+        }
+    }
+    
+    /**
+     * A half-open range [start, end) of buckets of one granularity.
+     */
+    public static class Range {
+        private final Granularity granularity;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        
+        public Range(Granularity granularity, LocalDateTime start, LocalDateTime end) {
+            this.granularity = granularity;
+            this.start = start;
+            this.end = end;
+        }
+        
+        public Granularity getGranularity() {
+            return granularity;
+        }
+        
+        public LocalDateTime getStart() {
+            return start;
+        }
+        
+        public LocalDateTime getEnd() {
+            return end;
+        }
+        
+        public boolean isEmpty() {
+            return !start.isBefore(end);
+        }
+    }
+    
+    // granularity:productId:bucketStart, so bucket updates are idempotent upserts by _id
+    @Id
+    private String id;
+    
+    private Granularity granularity;
+    private String productId;
+    private LocalDateTime bucketStart;
+    
+    private long revenueCents;
+    private long orderCount;
+    private long unitsSold;
+    private long deliveredOrders;
+    private long refundedCents;
+    private long refundedOrders;
+    private long refundedUnits;
+    
+    // orderId:contribution of every contribution counted in this bucket, so retried increments are skipped
+    private Set<String> appliedContributions = new HashSet<>();
+    
+    public SalesRollup() {}
+    
+    public static String bucketId(Granularity granularity, String productId, LocalDateTime bucketStart) {
+        return granularity + ":" + productId + ":" + bucketStart;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public Granularity getGranularity() {
+        return granularity;
+    }
+    
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+    
+    public String getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+    
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+    
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+    
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+    
+    public void setRevenueCents(long revenueCents) {
+        this.revenueCents = revenueCents;
+    }
+    
+    public long getOrderCount() {
+        return orderCount;
+    }
+    
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+    
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+    
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+    
+    public long getDeliveredOrders() {
+        return deliveredOrders;
+    }
+    
+    public void setDeliveredOrders(long deliveredOrders) {
+        this.deliveredOrders = deliveredOrders;
+    }
+    
+    public long getRefundedCents() {
+        return refundedCents;
+    }
+    
+    public void setRefundedCents(long refundedCents) {
+        this.refundedCents = refundedCents;
+    }
+    
+    public long getRefundedOrders() {
+        return refundedOrders;
+    }
+    
+    public void setRefundedOrders(long refundedOrders) {
+        this.refundedOrders = refundedOrders;
+    }
+    
+    public long getRefundedUnits() {
+        return refundedUnits;
+    }
+    
+    public void setRefundedUnits(long refundedUnits) {
+        this.refundedUnits = refundedUnits;
+    }
+    
+    public Set<String> getAppliedContributions() {
+        return appliedContributions;
+    }
+    
+    public void setAppliedContributions(Set<String> appliedContributions) {
+        this.appliedContributions = appliedContributions;
+    }
+}
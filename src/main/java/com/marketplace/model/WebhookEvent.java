@@ -0,0 +1,187 @@
+package com.marketplace.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * A PayPal webhook event as received. The PayPal event id is the document id, so a redelivered
+ * event collides with the stored one and is acknowledged without being processed twice.
+ */
+@Document(collection = "webhook_events")
+@CompoundIndex(name = "state_resource_idx", def = "{'state': 1, 'resourceKey': 1, 'receivedAt': 1}")
+public class WebhookEvent implements DispatchableEvent<WebhookEvent> {
+    
+    public enum State {
+        PENDING,
+        DONE,
+        DEAD
+    }
+    
+    @Id
+    private String id;
+    
+    private String eventType;
+    
+    // Events with the same key are processed in the order they were received
+    private String resourceKey;
+    
+    private Map<String, Object> payload;
+    
+    // PayPal transmission headers of the delivery, checked by the worker before the event is handled
+    private Map<String, String> transmission;
+    private LocalDateTime receivedAt = LocalDateTime.now();
+    
+    private State state = State.PENDING;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime processedAt;
+    private String lastError;
+    
+    // Lease held by the dispatcher node processing the event; see DurableEventDispatcher
+    @Indexed(sparse = true)
+    private String lockedBy;
+    private LocalDateTime lockedUntil;
+    
+    public WebhookEvent() {}
+    
+    public WebhookEvent(String id, String eventType, String resourceKey, Map<String, Object> payload) {
+        this.id = id;
+        this.eventType = eventType;
+        this.resourceKey = resourceKey;
+        this.payload = payload;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getEventType() {
+        return eventType;
+    }
+    
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+    
+    public String getResourceKey() {
+        return resourceKey;
+    }
+    
+    public void setResourceKey(String resourceKey) {
+        this.resourceKey = resourceKey;
+    }
+    
+    public Map<String, Object> getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(Map<String, Object> payload) {
+        this.payload = payload;
+    }
+    
+    public Map<String, String> getTransmission() {
+        return transmission;
+    }
+    
+    public void setTransmission(Map<String, String> transmission) {
+        this.transmission = transmission;
+    }
+    
+    public LocalDateTime getReceivedAt() {
+        return receivedAt;
+    }
+    
+    public void setReceivedAt(LocalDateTime receivedAt) {
+        this.receivedAt = receivedAt;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public void setState(State state) {
+        this.state = state;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+    
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public String getLockedBy() {
+        return lockedBy;
+    }
+    
+    public void setLockedBy(String lockedBy) {
+        this.lockedBy = lockedBy;
+    }
+    
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+    
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+    
+    @Override
+    public String getDispatchKey() {
+        return resourceKey;
+    }
+    
+    @Override
+    public boolean precedes(WebhookEvent other) {
+        int byReceipt = receivedAt.compareTo(other.getReceivedAt());
+        return byReceipt != 0 ? byReceipt < 0 : id.compareTo(other.getId()) < 0;
+    }
+    
+    @Override
+    public void markDead() {
+        state = State.DEAD;
+    }
+    
+    /**
+     * Returns the {@code resource} object of the payload, or an empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getResource() {
+        Object resource = payload != null ? payload.get("resource") : null;
+        return resource instanceof Map ? (Map<String, Object>) resource : Map.of();
+    }
+}
@@ -0,0 +1,11 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.CaptureRetry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CaptureRetryRepository extends MongoRepository<CaptureRetry, String>, CaptureRetryRepositoryCustom {
+    
+    long countByState(CaptureRetry.State state);
+}
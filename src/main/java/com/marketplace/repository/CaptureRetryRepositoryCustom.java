@@ -0,0 +1,31 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.CaptureRetry;
+
+import java.time.LocalDateTime;
+
+public interface CaptureRetryRepositoryCustom {
+
+    /**
+     * Queues a failed capture. Returns false if the PayPal order is already queued.
+     */
+    boolean insertIfAbsent(CaptureRetry retry);
+
+    /**
+     * Atomically takes the lease on the next due capture whose lease is free or expired and
+     * returns it, or returns null if nothing is due.
+     */
+    CaptureRetry claimNextDue(String nodeId, LocalDateTime now, LocalDateTime leaseUntil);
+
+    /**
+     * Puts a FAILED capture back in the queue with a fresh set of attempts, due at {@code now}.
+     * Returns the re-armed entry, or null if it was not FAILED (any more).
+     */
+    CaptureRetry rearmFailed(String paypalOrderId, LocalDateTime now);
+
+    /**
+     * Writes back the outcome of an attempt and frees the lease, provided {@code nodeId} still
+     * holds it. Returns false if the lease expired and was taken over by another node.
+     */
+    boolean release(CaptureRetry retry, String nodeId);
+}
@@ -0,0 +1,68 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.CaptureRetry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+public class CaptureRetryRepositoryImpl implements CaptureRetryRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean insertIfAbsent(CaptureRetry retry) {
+        try {
+            mongoTemplate.insert(retry);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public CaptureRetry claimNextDue(String nodeId, LocalDateTime now, LocalDateTime leaseUntil) {
+        Criteria leaseFree = new Criteria().orOperator(
+                Criteria.where("lockedUntil").is(null),
+                Criteria.where("lockedUntil").lt(now));
+        Query query = new Query(Criteria.where("state").is(CaptureRetry.State.PENDING)
+                .and("nextAttemptAt").lte(now)
+                .andOperator(leaseFree))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update().set("lockedBy", nodeId).set("lockedUntil", leaseUntil);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CaptureRetry.class);
+    }
+
+    @Override
+    public CaptureRetry rearmFailed(String paypalOrderId, LocalDateTime now) {
+        Query query = new Query(Criteria.where("id").is(paypalOrderId).and("state").is(CaptureRetry.State.FAILED));
+        Update update = new Update()
+                .set("state", CaptureRetry.State.PENDING)
+                .set("attempts", 0)
+                .set("nextAttemptAt", now)
+                .unset("completedAt");
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CaptureRetry.class);
+    }
+
+    @Override
+    public boolean release(CaptureRetry retry, String nodeId) {
+        Query query = new Query(Criteria.where("id").is(retry.getId()).and("lockedBy").is(nodeId));
+        Update update = new Update()
+                .set("state", retry.getState())
+                .set("attempts", retry.getAttempts())
+                .set("nextAttemptAt", retry.getNextAttemptAt())
+                .set("lastError", retry.getLastError())
+                .set("captureStatus", retry.getCaptureStatus())
+                .set("completedAt", retry.getCompletedAt())
+                .unset("lockedBy")
+                .unset("lockedUntil");
+        return mongoTemplate.updateFirst(query, update, CaptureRetry.class).getModifiedCount() > 0;
+    }
+}
@@ -2,8 +2,12 @@ package com.marketplace.repository;
 
 import com.marketplace.model.Cart;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,11 @@ public interface CartRepository extends MongoRepository<Cart, String> {
     Optional<Cart> findByUserId(String userId);
     
     void deleteByUserId(String userId);
+    
+    void deleteByUserIdAndUpdatedAtLessThanEqual(String userId, LocalDateTime updatedAt);
+    
+    // Matching on updatedAt links the PayPal order only to the cart version it was created for
+    @Query("{ 'userId': ?0, 'updatedAt': ?1 }")
+    @Update("{ '$set': { 'paypalOrderId': ?2, 'paypalAmount': ?3 } }")
+    long linkPayPalOrder(String userId, LocalDateTime updatedAt, String paypalOrderId, BigDecimal paypalAmount);
 }
\ No newline at end of file
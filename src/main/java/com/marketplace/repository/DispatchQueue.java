@@ -0,0 +1,43 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.DispatchableEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage operations used by {@link com.marketplace.service.DurableEventDispatcher}. Events are
+ * claimed with a lease ({@code lockedBy}/{@code lockedUntil}) so that several nodes can poll
+ * the same collection without delivering an event twice; an expired lease can be taken over.
+ */
+public interface DispatchQueue<E extends DispatchableEvent<E>> {
+
+    /**
+     * Leases up to {@code limit} pending, due events to {@code owner}, earliest first within each
+     * dispatch key.
+     */
+    List<E> claimDueBatch(String owner, LocalDateTime now, LocalDateTime leaseUntil, int limit);
+
+    /**
+     * Returns pending events of the given keys that are not leased to {@code owner} (backing off,
+     * or leased by another node), loading only the fields needed to order them.
+     */
+    List<E> findBlocking(Collection<String> keys, String owner);
+
+    /**
+     * Marks a batch of successfully handled events as done and frees their leases.
+     */
+    void markDone(Collection<String> eventIds);
+
+    /**
+     * Writes back the retry state of a failed event and frees its lease, provided {@code owner}
+     * still holds it. Returns false if the lease was lost.
+     */
+    boolean reschedule(E event, String owner);
+
+    /**
+     * Frees every lease still held by {@code owner}.
+     */
+    void releaseClaims(String owner);
+}
@@ -0,0 +1,9 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.IdempotencyKey;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IdempotencyKeyRepository extends MongoRepository<IdempotencyKey, String>, IdempotencyKeyRepositoryCustom {
+}
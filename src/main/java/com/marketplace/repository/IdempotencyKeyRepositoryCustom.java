@@ -0,0 +1,15 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.IdempotencyKey;
+
+import java.util.Date;
+
+public interface IdempotencyKeyRepositoryCustom {
+
+    /**
+     * Atomically takes over an IN_PROGRESS key whose lease has expired (or that has no lease),
+     * extending the lease to {@code lockedUntil}. Returns the updated record, or null if the key
+     * is completed, still leased or gone.
+     */
+    IdempotencyKey takeOverExpired(String id, Date now, Date lockedUntil);
+}
@@ -0,0 +1,29 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.IdempotencyKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+public class IdempotencyKeyRepositoryImpl implements IdempotencyKeyRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public IdempotencyKey takeOverExpired(String id, Date now, Date lockedUntil) {
+        Criteria leaseExpired = new Criteria().orOperator(
+                Criteria.where("lockedUntil").is(null),
+                Criteria.where("lockedUntil").lt(now));
+        Query query = new Query(Criteria.where("id").is(id)
+                .and("state").is(IdempotencyKey.STATE_IN_PROGRESS)
+                .andOperator(leaseExpired));
+        Update update = new Update().set("lockedUntil", lockedUntil);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), IdempotencyKey.class);
+    }
+}
@@ -0,0 +1,113 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.DispatchableEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DispatchQueue} over a Mongo collection whose documents carry {@code state},
+ * {@code nextAttemptAt}, {@code lockedBy} and {@code lockedUntil} fields. Subclasses name the
+ * dispatch key and sequence fields and the pending/done states of their event type.
+ */
+public abstract class MongoDispatchQueue<E extends DispatchableEvent<E>> implements DispatchQueue<E> {
+
+    @Autowired
+    protected MongoTemplate mongoTemplate;
+
+    private final Class<E> type;
+    private final String keyField;
+    private final Sort order;
+    private final Enum<?> pending;
+    private final Enum<?> done;
+
+    protected MongoDispatchQueue(Class<E> type, String keyField, Sort order, Enum<?> pending, Enum<?> done) {
+        this.type = type;
+        this.keyField = keyField;
+        this.order = order;
+        this.pending = pending;
+        this.done = done;
+    }
+
+    @Override
+    public List<E> claimDueBatch(String owner, LocalDateTime now, LocalDateTime leaseUntil, int limit) {
+        Query candidates = new Query(claimable(now)).with(order).limit(limit);
+        candidates.fields().include("id");
+        List<String> ids = mongoTemplate.find(candidates, type).stream()
+                .map(DispatchableEvent::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // One update for the whole batch; repeating the claim condition keeps two nodes from
+        // leasing the same event, and the read back only returns the events this update won
+        mongoTemplate.updateMulti(new Query(new Criteria().andOperator(Criteria.where("id").in(ids), claimable(now))),
+                new Update().set("lockedBy", owner).set("lockedUntil", leaseUntil), type);
+        Query claimed = new Query(Criteria.where("id").in(ids)
+                .and("lockedBy").is(owner)
+                .and("lockedUntil").is(leaseUntil)).with(order);
+        return mongoTemplate.find(claimed, type);
+    }
+
+    private Criteria claimable(LocalDateTime now) {
+        Criteria due = new Criteria().orOperator(
+                Criteria.where("nextAttemptAt").is(null),
+                Criteria.where("nextAttemptAt").lte(now));
+        Criteria leaseFree = new Criteria().orOperator(
+                Criteria.where("lockedUntil").is(null),
+                Criteria.where("lockedUntil").lt(now));
+        return Criteria.where("state").is(pending).andOperator(due, leaseFree);
+    }
+
+    @Override
+    public List<E> findBlocking(Collection<String> keys, String owner) {
+        Query query = new Query(Criteria.where("state").is(pending)
+                .and(keyField).in(keys)
+                .and("lockedBy").ne(owner));
+        query.fields().include("id").include(keyField);
+        order.forEach(sortOrder -> query.fields().include(sortOrder.getProperty()));
+        return mongoTemplate.find(query, type);
+    }
+
+    @Override
+    public void markDone(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+
+        mongoTemplate.updateMulti(new Query(Criteria.where("id").in(eventIds)),
+                new Update().set("state", done)
+                        .set("processedAt", LocalDateTime.now())
+                        .unset("lockedBy")
+                        .unset("lockedUntil"),
+                type);
+    }
+
+    @Override
+    public boolean reschedule(E event, String owner) {
+        Query query = new Query(Criteria.where("id").is(event.getId()).and("lockedBy").is(owner));
+        Update update = new Update()
+                .set("state", event.getState())
+                .set("attempts", event.getAttempts())
+                .set("nextAttemptAt", event.getNextAttemptAt())
+                .set("lastError", event.getLastError())
+                .unset("lockedBy")
+                .unset("lockedUntil");
+        return mongoTemplate.updateFirst(query, update, type).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void releaseClaims(String owner) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("lockedBy").is(owner)),
+                new Update().unset("lockedBy").unset("lockedUntil"), type);
+    }
+}
@@ -0,0 +1,11 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.OrderEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderEventRepository extends MongoRepository<OrderEvent, String>, OrderEventRepositoryCustom {
+    
+    long countByState(OrderEvent.State state);
+}
@@ -0,0 +1,14 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.OrderEvent;
+
+import java.util.List;
+
+public interface OrderEventRepositoryCustom extends DispatchQueue<OrderEvent> {
+
+    /**
+     * Inserts relayed outbox events in one unordered bulk write, skipping events that were
+     * already relayed so a repeated relay never resets an event's delivery state.
+     */
+    void insertIfAbsent(List<OrderEvent> events);
+}
@@ -0,0 +1,51 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.OrderEvent;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import java.util.List;
+
+public class OrderEventRepositoryImpl extends MongoDispatchQueue<OrderEvent> implements OrderEventRepositoryCustom {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    public OrderEventRepositoryImpl() {
+        super(OrderEvent.class, "orderId", Sort.by("orderId", "id"), OrderEvent.State.PENDING, OrderEvent.State.DONE);
+    }
+
+    @Override
+    public void insertIfAbsent(List<OrderEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderEvent.class)
+                    .insert(events)
+                    .execute();
+        } catch (DataAccessException e) {
+            if (!isOnlyDuplicates(e)) {
+                throw e;
+            }
+        }
+    }
+
+    // Depending on the driver error, bulk duplicates surface either as BulkOperationException or DuplicateKeyException
+    private boolean isOnlyDuplicates(DataAccessException e) {
+        List<BulkWriteError> errors;
+        if (e instanceof BulkOperationException bulkException) {
+            errors = bulkException.getErrors();
+        } else if (e.getCause() instanceof MongoBulkWriteException bulkException) {
+            errors = bulkException.getWriteErrors();
+        } else {
+            return e instanceof DuplicateKeyException;
+        }
+        return errors.stream().allMatch(error -> error.getCode() == DUPLICATE_KEY_ERROR);
+    }
+}
@@ -8,9 +8,10 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends MongoRepository<Order, String> {
+public interface OrderRepository extends MongoRepository<Order, String>, OrderRepositoryCustom {
     
     List<Order> findByUserIdOrderByCreatedAtDesc(String userId);
     
@@ -21,4 +22,10 @@ public interface OrderRepository extends MongoRepository<Order, String> {
     Page<Order> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
     long countByStatus(OrderStatus status);
+    
+    Optional<Order> findFirstByPaypalPaymentId(String paypalPaymentId);
+    
+    Optional<Order> findFirstByPaypalTransactionId(String paypalTransactionId);
+    
+    Optional<Order> findFirstByPaypalPaymentIdOrPaypalTransactionId(String paypalPaymentId, String paypalTransactionId);
 }
\ No newline at end of file
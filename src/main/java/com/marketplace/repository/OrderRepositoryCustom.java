@@ -0,0 +1,78 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.OrderStatusUpdateResult;
+import com.marketplace.model.ReconciliationUpdate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Atomic, single round-trip order updates that complement the derived queries
+ * in {@link OrderRepository}.
+ */
+public interface OrderRepositoryCustom {
+
+    /**
+     * Moves the order to {@code target} only if its current status is one that may legally
+     * transition to it, appending a status event to the order's outbox in the same write.
+     * Returns the updated document, or {@code null} if the order does not exist or its
+     * current status does not allow the transition.
+     */
+    Order transitionStatus(String orderId, OrderStatus target);
+
+    /**
+     * Applies the same conditional transition to many orders in one bulk write (one update per
+     * order, each guarded by the transition table) and reports the outcome for every id.
+     */
+    List<OrderStatusUpdateResult> bulkTransitionStatus(Collection<String> orderIds, OrderStatus target);
+
+    /**
+     * Records PayPal payment identifiers and confirms the order in one conditional update.
+     * Returns the updated document, or {@code null} if the order does not exist or can no
+     * longer be confirmed.
+     */
+    Order confirmPayment(String orderId, String paypalTransactionId, String paypalPaymentId);
+
+    /**
+     * Returns up to {@code limit} orders with unrelayed outbox events. Only the id,
+     * user id and outbox fields are loaded.
+     */
+    List<Order> findWithPendingOutbox(int limit);
+
+    /**
+     * Returns the next batch (by id, after {@code afterOrderId}) of PayPal-linked PENDING or
+     * CONFIRMED orders created after {@code createdAfter}, untouched since {@code staleBefore} and
+     * not reconciled since {@code recheckBefore}.
+     */
+    List<Order> findReconciliationBatch(String afterOrderId, LocalDateTime createdAfter, LocalDateTime staleBefore,
+                                        LocalDateTime recheckBefore, int limit);
+
+    /**
+     * Applies reconciliation results: status changes in one bulk write, each conditional on the
+     * status observed when PayPal was queried, then one update stamping reconciledAt on the
+     * unchanged orders. Returns the number of orders whose status changed.
+     */
+    int applyReconciliation(List<ReconciliationUpdate> updates, LocalDateTime now);
+
+    /**
+     * Removes relayed events from the order's outbox, clearing the pending marker once the
+     * outbox is empty.
+     */
+    void removeFromOutbox(String orderId, Collection<String> eventIds);
+
+    /**
+     * Claims the given rollup contribution for the order at {@code at} unless it was claimed
+     * before, and returns the order. A contribution keeps the time of its first claim, so retried
+     * and duplicate events count it in the same buckets. Returns {@code null} if the order does
+     * not exist.
+     */
+    Order claimRollup(String orderId, String contribution, LocalDateTime at);
+
+    /**
+     * Records that the given rollup contribution has been fully counted for the order.
+     */
+    void markRollupApplied(String orderId, String contribution);
+}
@@ -0,0 +1,196 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderEvent;
+import com.marketplace.model.OrderEventType;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.OrderStatusUpdateResult;
+import com.marketplace.model.ReconciliationUpdate;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Order transitionStatus(String orderId, OrderStatus target) {
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(target);
+        if (sources.isEmpty()) {
+            return null;
+        }
+
+        Update update = statusUpdate(orderId, target, OrderEventType.STATUS_CHANGED, LocalDateTime.now());
+        return mongoTemplate.findAndModify(conditionalQuery(orderId, sources), update, RETURN_NEW, Order.class);
+    }
+
+    @Override
+    public List<OrderStatusUpdateResult> bulkTransitionStatus(Collection<String> orderIds, OrderStatus target) {
+        // Bulk results only carry totals, so each write is stamped with an id unique to this call
+        // and the stamp read back identifies the orders this call changed
+        String batchId = new ObjectId().toHexString();
+        LocalDateTime now = LocalDateTime.now();
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(target);
+        if (!sources.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+            for (String orderId : orderIds) {
+                bulk.updateOne(conditionalQuery(orderId, sources),
+                        statusUpdate(orderId, target, OrderEventType.STATUS_CHANGED, now).set("statusBatchId", batchId));
+            }
+            bulk.execute();
+        }
+
+        Query query = new Query(Criteria.where("id").in(orderIds));
+        query.fields().include("id").include("status").include("statusBatchId");
+        Map<String, Order> current = new HashMap<>();
+        for (Order order : mongoTemplate.find(query, Order.class)) {
+            current.put(order.getId(), order);
+        }
+
+        List<OrderStatusUpdateResult> results = new ArrayList<>();
+        for (String orderId : orderIds) {
+            Order order = current.get(orderId);
+            OrderStatusUpdateResult.Outcome outcome;
+            if (order == null) {
+                outcome = OrderStatusUpdateResult.Outcome.NOT_FOUND;
+            } else if (order.getStatus() != target) {
+                outcome = OrderStatusUpdateResult.Outcome.REJECTED;
+            } else if (batchId.equals(order.getStatusBatchId())) {
+                outcome = OrderStatusUpdateResult.Outcome.UPDATED;
+            } else {
+                outcome = OrderStatusUpdateResult.Outcome.UNCHANGED;
+            }
+            results.add(new OrderStatusUpdateResult(orderId, outcome, order != null ? order.getStatus() : null));
+        }
+        return results;
+    }
+
+    @Override
+    public Order confirmPayment(String orderId, String paypalTransactionId, String paypalPaymentId) {
+        Update update = statusUpdate(orderId, OrderStatus.CONFIRMED, OrderEventType.PAYMENT_CONFIRMED, LocalDateTime.now())
+                .set("paypalTransactionId", paypalTransactionId)
+                .set("paypalPaymentId", paypalPaymentId);
+        return mongoTemplate.findAndModify(conditionalQuery(orderId, OrderStatus.sourcesOf(OrderStatus.CONFIRMED)),
+                update, RETURN_NEW, Order.class);
+    }
+
+    @Override
+    public List<Order> findWithPendingOutbox(int limit) {
+        Query query = new Query(Criteria.where("outboxPending").is(true)).limit(limit);
+        query.fields().include("id").include("userId").include("outbox");
+        return mongoTemplate.find(query, Order.class);
+    }
+
+    @Override
+    public List<Order> findReconciliationBatch(String afterOrderId, LocalDateTime createdAfter, LocalDateTime staleBefore,
+                                               LocalDateTime recheckBefore, int limit) {
+        Criteria criteria = Criteria.where("status").in(OrderStatus.PENDING, OrderStatus.CONFIRMED)
+                .and("paypalPaymentId").ne(null)
+                .and("createdAt").gte(createdAfter)
+                .and("updatedAt").lt(staleBefore)
+                .orOperator(Criteria.where("reconciledAt").is(null), Criteria.where("reconciledAt").lt(recheckBefore));
+        if (afterOrderId != null) {
+            criteria = criteria.and("id").gt(afterOrderId);
+        }
+
+        Query query = new Query(criteria).with(Sort.by("id")).limit(limit);
+        query.fields().include("id").include("status").include("paypalPaymentId")
+                .include("paypalTransactionId").include("createdAt").include("updatedAt");
+        return mongoTemplate.find(query, Order.class);
+    }
+
+    @Override
+    public int applyReconciliation(List<ReconciliationUpdate> updates, LocalDateTime now) {
+        int changed = 0;
+        List<ReconciliationUpdate> changes = updates.stream().filter(ReconciliationUpdate::isChange).collect(Collectors.toList());
+        if (!changes.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+            for (ReconciliationUpdate change : changes) {
+                OrderEventType eventType = change.getTargetStatus() == OrderStatus.CONFIRMED
+                        ? OrderEventType.PAYMENT_CONFIRMED : OrderEventType.STATUS_CHANGED;
+                Update update = statusUpdate(change.getOrderId(), change.getTargetStatus(), eventType, now)
+                        .set("reconciledAt", now);
+                if (change.getCaptureId() != null) {
+                    update.set("paypalTransactionId", change.getCaptureId());
+                }
+                // Conditional on the status PayPal was compared against, so a concurrent change wins
+                bulk.updateOne(new Query(Criteria.where("id").is(change.getOrderId()).and("status").is(change.getObservedStatus())), update);
+            }
+            BulkWriteResult result = bulk.execute();
+            changed = result.getModifiedCount();
+        }
+
+        List<String> unchanged = updates.stream().filter(update -> !update.isChange())
+                .map(ReconciliationUpdate::getOrderId).collect(Collectors.toList());
+        if (!unchanged.isEmpty()) {
+            mongoTemplate.updateMulti(new Query(Criteria.where("id").in(unchanged)),
+                    new Update().set("reconciledAt", now), Order.class);
+        }
+        return changed;
+    }
+
+    @Override
+    public void removeFromOutbox(String orderId, Collection<String> eventIds) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(orderId)),
+                new Update().pull("outbox", Query.query(Criteria.where("id").in(eventIds))), Order.class);
+        // Events appended after we read the outbox keep the marker set until the next relay pass
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(orderId).and("outbox").size(0)),
+                new Update().unset("outboxPending"), Order.class);
+    }
+
+    @Override
+    public Order claimRollup(String orderId, String contribution, LocalDateTime at) {
+        String timeField = "rollupTimes." + contribution;
+        Query query = new Query(Criteria.where("id").is(orderId).and(timeField).exists(false));
+        Order claimed = mongoTemplate.findAndModify(query, new Update().set(timeField, at), RETURN_NEW, Order.class);
+        // Claimed by an earlier delivery: it is re-applied at the time recorded then
+        return claimed != null ? claimed : mongoTemplate.findById(orderId, Order.class);
+    }
+
+    @Override
+    public void markRollupApplied(String orderId, String contribution) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(orderId)),
+                new Update().addToSet("appliedRollups", contribution), Order.class);
+    }
+
+    private Query conditionalQuery(String orderId, Set<OrderStatus> sources) {
+        return new Query(Criteria.where("id").is(orderId).and("status").in(sources));
+    }
+
+    // Mirrors Order.setStatus: SHIPPED and DELIVERED are only reachable once, so their
+    // timestamps can be stamped unconditionally. The event's userId is filled in from the
+    // order when the outbox is relayed, so these single-write updates need not read it.
+    private Update statusUpdate(String orderId, OrderStatus target, OrderEventType eventType, LocalDateTime now) {
+        Update update = new Update()
+                .set("status", target)
+                .set("updatedAt", now)
+                .push("outbox", new OrderEvent(orderId, null, eventType, target))
+                .set("outboxPending", true);
+        if (target == OrderStatus.SHIPPED) {
+            update.set("shippedAt", now);
+        } else if (target == OrderStatus.DELIVERED) {
+            update.set("deliveredAt", now);
+        }
+        return update;
+    }
+}
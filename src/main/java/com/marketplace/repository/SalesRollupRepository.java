@@ -0,0 +1,9 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.SalesRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SalesRollupRepository extends MongoRepository<SalesRollup, String>, SalesRollupRepositoryCustom {
+}
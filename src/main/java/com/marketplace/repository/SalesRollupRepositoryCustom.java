@@ -0,0 +1,24 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.SalesRollup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface SalesRollupRepositoryCustom {
+
+    /**
+     * Applies counter deltas (product id -> field -> delta) to the minute, hour and day
+     * buckets containing {@code time}, upserting missing buckets, in one bulk write. Each bucket
+     * records {@code contributionId} in the same update and skips it if already recorded, so the
+     * call can be retried after a partial failure without double counting.
+     */
+    void increment(LocalDateTime time, String contributionId, Map<String, Map<String, Long>> deltasByProduct);
+
+    /**
+     * Loads the buckets of one product (or {@link SalesRollup#ALL_PRODUCTS}) covering the
+     * given ranges in a single query.
+     */
+    List<SalesRollup> findInRanges(String productId, List<SalesRollup.Range> ranges);
+}
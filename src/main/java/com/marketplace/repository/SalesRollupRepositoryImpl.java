@@ -0,0 +1,74 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.SalesRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class SalesRollupRepositoryImpl implements SalesRollupRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void increment(LocalDateTime time, String contributionId, Map<String, Map<String, Long>> deltasByProduct) {
+        if (deltasByProduct.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+        for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+            LocalDateTime bucketStart = granularity.floor(time);
+            for (Map.Entry<String, Map<String, Long>> product : deltasByProduct.entrySet()) {
+                Update update = new Update()
+                        .setOnInsert("granularity", granularity)
+                        .setOnInsert("productId", product.getKey())
+                        .setOnInsert("bucketStart", bucketStart);
+                product.getValue().forEach(update::inc);
+                update.addToSet("appliedContributions", contributionId);
+
+                String id = SalesRollup.bucketId(granularity, product.getKey(), bucketStart);
+                bulk.upsert(new Query(Criteria.where("id").is(id).and("appliedContributions").ne(contributionId)), update);
+            }
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // A bucket that already holds the contribution does not match, so its upsert collides
+            // with the existing _id: that bucket was counted by an earlier attempt
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<SalesRollup> findInRanges(String productId, List<SalesRollup.Range> ranges) {
+        List<Criteria> rangeCriteria = ranges.stream()
+                .filter(range -> !range.isEmpty())
+                .map(range -> Criteria.where("granularity").is(range.getGranularity())
+                        .and("bucketStart").gte(range.getStart()).lt(range.getEnd()))
+                .collect(Collectors.toList());
+        if (rangeCriteria.isEmpty()) {
+            return List.of();
+        }
+
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("productId").is(productId),
+                new Criteria().orOperator(rangeCriteria)));
+        // Only needed for writes, and can hold thousands of ids on a busy day bucket
+        query.fields().exclude("appliedContributions");
+        return mongoTemplate.find(query, SalesRollup.class);
+    }
+}
@@ -0,0 +1,11 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.WebhookEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WebhookEventRepository extends MongoRepository<WebhookEvent, String>, WebhookEventRepositoryCustom {
+    
+    long countByState(WebhookEvent.State state);
+}
@@ -0,0 +1,12 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.WebhookEvent;
+
+public interface WebhookEventRepositoryCustom extends DispatchQueue<WebhookEvent> {
+
+    /**
+     * Stores a newly received event. Returns false if an event with the same PayPal id was
+     * already stored (a redelivery).
+     */
+    boolean insertIfAbsent(WebhookEvent event);
+}
@@ -0,0 +1,23 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.WebhookEvent;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+
+public class WebhookEventRepositoryImpl extends MongoDispatchQueue<WebhookEvent> implements WebhookEventRepositoryCustom {
+
+    public WebhookEventRepositoryImpl() {
+        super(WebhookEvent.class, "resourceKey", Sort.by("resourceKey", "receivedAt", "id"),
+                WebhookEvent.State.PENDING, WebhookEvent.State.DONE);
+    }
+
+    @Override
+    public boolean insertIfAbsent(WebhookEvent event) {
+        try {
+            mongoTemplate.insert(event);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
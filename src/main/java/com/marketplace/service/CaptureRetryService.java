@@ -0,0 +1,240 @@
+package com.marketplace.service;
+
+import com.marketplace.model.CaptureRetry;
+import com.marketplace.repository.CaptureRetryRepository;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable retry queue for PayPal captures that failed for a transient reason (PayPal 5xx or
+ * 429, timeouts, open circuit, full bulkhead). Failed captures are stored in capture_retries and
+ * retried by a background poller with exponential backoff and jitter. Every node polls, but a
+ * capture is only attempted by the node that holds its lease, so an order is never captured
+ * from two nodes at once. Attempts run on their own thread, not on the shared scheduler, since
+ * each one may wait up to the PayPal capture deadline.
+ */
+@Service
+public class CaptureRetryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureRetryService.class);
+
+    @Autowired
+    private CaptureRetryRepository captureRetryRepository;
+
+    @Autowired
+    private PayPalService payPalService;
+
+    @Value("${app.capture-retry.batch-size:20}")
+    private int batchSize = 20;
+
+    @Value("${app.capture-retry.max-attempts:12}")
+    private int maxAttempts = 12;
+
+    @Value("${app.capture-retry.base-backoff-ms:5000}")
+    private long baseBackoffMs = 5000;
+
+    @Value("${app.capture-retry.max-backoff-ms:900000}")
+    private long maxBackoffMs = 900000;
+
+    // Must comfortably exceed the PayPal capture deadline
+    @Value("${app.capture-retry.lease-ms:120000}")
+    private long leaseMs = 120000;
+
+    private final String nodeId = nodeName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("capture-retry-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Interrupted attempts keep their lease until it expires, then another node takes over
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a failed capture for background retry. Returns the queued entry, which is the
+     * existing one if the order was already queued.
+     */
+    public CaptureRetry enqueue(String paypalOrderId, Throwable error) {
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(backoffMillis(1) * 1_000_000);
+        CaptureRetry retry = new CaptureRetry(paypalOrderId, nextAttemptAt, rootCause(error).getMessage());
+
+        if (captureRetryRepository.insertIfAbsent(retry)) {
+            logger.warn("PayPal capture of order {} failed, queued for retry: {}", paypalOrderId, retry.getLastError());
+            return retry;
+        }
+        return captureRetryRepository.findById(paypalOrderId).orElse(retry);
+    }
+
+    public Optional<CaptureRetry> findRetry(String paypalOrderId) {
+        return captureRetryRepository.findById(paypalOrderId);
+    }
+
+    /**
+     * Gives a capture that was given up on another round of background attempts, e.g. because
+     * the buyer asked to capture again. Returns the entry as it is now stored.
+     */
+    public CaptureRetry rearm(String paypalOrderId) {
+        CaptureRetry rearmed = captureRetryRepository.rearmFailed(paypalOrderId, LocalDateTime.now());
+        if (rearmed != null) {
+            logger.info("PayPal capture of order {} re-armed for retry", paypalOrderId);
+            return rearmed;
+        }
+        // Re-armed or deleted concurrently
+        return captureRetryRepository.findById(paypalOrderId).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.capture-retry.poll-interval-ms:5000}")
+    public void poll() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    retryDue();
+                } catch (Exception e) {
+                    logger.error("Capture retry run failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Attempts up to {@code batchSize} due captures and returns how many were attempted.
+     */
+    public int retryDue() {
+        int attempted = 0;
+        while (attempted < batchSize && !Thread.currentThread().isInterrupted()) {
+            LocalDateTime now = LocalDateTime.now();
+            CaptureRetry retry = captureRetryRepository.claimNextDue(nodeId, now, now.plusNanos(leaseMs * 1_000_000));
+            if (retry == null) {
+                break;
+            }
+            attempt(retry);
+            attempted++;
+        }
+        return attempted;
+    }
+
+    private void attempt(CaptureRetry retry) {
+        int attempts = retry.getAttempts() + 1;
+        retry.setAttempts(attempts);
+
+        try {
+            Order order = payPalService.captureOrderAsync(retry.getId()).get();
+            markCaptured(retry, order.status());
+        } catch (InterruptedException e) {
+            // Shutting down; the lease expires and another node (or restart) picks the capture up
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = rootCause(e);
+            if (isAlreadyCaptured(cause)) {
+                markCaptured(retry, "COMPLETED");
+            } else if (!isRetryable(cause) || attempts >= maxAttempts) {
+                retry.setState(CaptureRetry.State.FAILED);
+                retry.setLastError(cause.getMessage());
+                retry.setCompletedAt(LocalDateTime.now());
+                logger.error("Giving up PayPal capture of order {} after {} attempts: {}",
+                        retry.getId(), attempts, cause.getMessage());
+            } else {
+                long backoff = backoffMillis(attempts + 1);
+                retry.setLastError(cause.getMessage());
+                retry.setNextAttemptAt(LocalDateTime.now().plusNanos(backoff * 1_000_000));
+                logger.warn("Retrying PayPal capture of order {} in {} ms (attempt {}): {}",
+                        retry.getId(), backoff, attempts, cause.getMessage());
+            }
+        }
+
+        if (!captureRetryRepository.release(retry, nodeId)) {
+            logger.warn("Lease on PayPal capture of order {} expired before the attempt finished", retry.getId());
+        }
+    }
+
+    private void markCaptured(CaptureRetry retry, String captureStatus) {
+        retry.setState(CaptureRetry.State.CAPTURED);
+        retry.setCaptureStatus(captureStatus);
+        retry.setCompletedAt(LocalDateTime.now());
+        // The local order is confirmed by the PAYMENT.CAPTURE.COMPLETED webhook (or reconciliation)
+        logger.info("PayPal capture of order {} succeeded after {} attempts", retry.getId(), retry.getAttempts());
+    }
+
+    /**
+     * Exponential backoff with equal jitter: the delay for attempt n lies between half and all of
+     * {@code min(base * 2^(n-1), max)}, which spreads retries of captures that failed together.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(baseBackoffMs << Math.min(attempt - 1, 20), maxBackoffMs);
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
+    /**
+     * Returns true if a capture that failed with {@code error} may succeed later. PayPal client
+     * errors other than throttling are final; everything else (5xx, 429, timeouts, I/O errors,
+     * open circuit, full bulkhead) is worth retrying.
+     */
+    public static boolean isRetryable(Throwable error) {
+        Throwable cause = rootCause(error);
+        if (cause instanceof HttpException) {
+            int statusCode = ((HttpException) cause).statusCode();
+            return statusCode >= 500 || statusCode == 429;
+        }
+        return true;
+    }
+
+    private static boolean isAlreadyCaptured(Throwable cause) {
+        return cause instanceof HttpException
+                && ((HttpException) cause).statusCode() == 422
+                && cause.getMessage() != null
+                && cause.getMessage().contains("ORDER_ALREADY_CAPTURED");
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String nodeName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.marketplace.service;
+
+import com.marketplace.model.OrderEvent;
+import com.marketplace.model.OrderEventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Guarantees the user's cart is emptied once their order exists, even if the inline clear
+ * in {@link OrderService} failed or the node stopped right after inserting the order.
+ */
+@Component
+public class CartClearingOrderEventHandler implements OrderEventHandler {
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Override
+    public boolean supports(OrderEvent event) {
+        return event.getType() == OrderEventType.ORDER_CREATED;
+    }
+    
+    @Override
+    public void handle(OrderEvent event) {
+        // Items added after checkout bump the cart's updatedAt and are left alone
+        cartService.clearCartIfUnchangedSince(event.getUserId(), event.getCreatedAt());
+    }
+}
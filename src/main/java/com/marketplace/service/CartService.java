@@ -8,6 +8,8 @@ import com.marketplace.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -99,6 +101,19 @@ public class CartService {
         cartRepository.deleteByUserId(userId);
     }
     
+    // Only removes the cart if the user has not modified it since the given time
+    public void clearCartIfUnchangedSince(String userId, LocalDateTime since) {
+        cartRepository.deleteByUserIdAndUpdatedAtLessThanEqual(userId, since);
+    }
+    
+    /**
+     * Records the PayPal order created for this version of the cart, so the order placed from it
+     * is linked server-side. Returns false if the cart changed in the meantime.
+     */
+    public boolean linkPayPalOrder(Cart cart, String paypalOrderId, BigDecimal amount) {
+        return cartRepository.linkPayPalOrder(cart.getUserId(), cart.getUpdatedAt(), paypalOrderId, amount) > 0;
+    }
+    
     public void clearCurrentUserCart() {
         String userId = userService.getCurrentUserId();
         if (userId != null) {
@@ -0,0 +1,160 @@
+package com.marketplace.service;
+
+import com.marketplace.model.DispatchableEvent;
+import com.marketplace.repository.DispatchQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers events stored in a {@link DispatchQueue}. Each pass leases a batch of due events to
+ * this node, delivers events with the same dispatch key strictly in order (different keys in
+ * parallel on the given executor), retries failures with exponential backoff and dead-letters
+ * an event after {@code maxAttempts}. Leases keep several nodes from delivering the same event;
+ * an event whose holder died becomes claimable again once its lease expires.
+ */
+public class DurableEventDispatcher<E extends DispatchableEvent<E>> {
+
+    @FunctionalInterface
+    public interface Delivery<E> {
+        void deliver(E event) throws Exception;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(DurableEventDispatcher.class);
+
+    private final String name;
+    private final DispatchQueue<E> queue;
+    private final Delivery<E> delivery;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    private final String nodeId = nodeName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong passes = new AtomicLong();
+
+    public DurableEventDispatcher(String name, DispatchQueue<E> queue, Delivery<E> delivery, ExecutorService executor,
+                                  int batchSize, int maxAttempts, Duration baseBackoff, Duration maxBackoff, Duration lease) {
+        this.name = name;
+        this.queue = queue;
+        this.delivery = delivery;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    /**
+     * Delivers one batch of due events and returns the number handled successfully.
+     */
+    public int dispatchPending() throws InterruptedException {
+        // A fresh owner per pass, so overlapping passes on this node never share leases
+        String owner = nodeId + ":" + passes.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        List<E> batch = queue.claimDueBatch(owner, now, now.plus(lease), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return deliver(batch, owner);
+        } finally {
+            // Events held back behind a blocker go back to the pool for the next pass
+            queue.releaseClaims(owner);
+        }
+    }
+
+    private int deliver(List<E> batch, String owner) throws InterruptedException {
+        Map<String, List<E>> byKey = batch.stream()
+                .collect(Collectors.groupingBy(DispatchableEvent::getDispatchKey, LinkedHashMap::new, Collectors.toList()));
+
+        // An earlier event that is backing off or leased elsewhere blocks everything after it for the same key
+        Map<String, E> blockedFrom = new HashMap<>();
+        for (E blocking : queue.findBlocking(byKey.keySet(), owner)) {
+            blockedFrom.merge(blocking.getDispatchKey(), blocking, (a, b) -> a.precedes(b) ? a : b);
+        }
+
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (Map.Entry<String, List<E>> entry : byKey.entrySet()) {
+            E blocking = blockedFrom.get(entry.getKey());
+            List<E> deliverable = entry.getValue().stream()
+                    .filter(event -> blocking == null || event.precedes(blocking))
+                    .collect(Collectors.toList());
+            if (!deliverable.isEmpty()) {
+                results.add(executor.submit(() -> deliverInOrder(deliverable, owner)));
+            }
+        }
+
+        List<String> handled = new ArrayList<>();
+        for (Future<List<String>> result : results) {
+            try {
+                handled.addAll(result.get());
+            } catch (ExecutionException e) {
+                logger.error("{} worker failed: {}", name, e.getCause().getMessage(), e.getCause());
+            }
+        }
+        queue.markDone(handled);
+        return handled.size();
+    }
+
+    private List<String> deliverInOrder(List<E> events, String owner) {
+        List<String> handled = new ArrayList<>();
+        for (E event : events) {
+            try {
+                delivery.deliver(event);
+                handled.add(event.getId());
+            } catch (Exception e) {
+                scheduleRetry(event, e, owner);
+                // Later events for this key wait until this one succeeds or is dead-lettered
+                break;
+            }
+        }
+        return handled;
+    }
+
+    private void scheduleRetry(E event, Exception error, String owner) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error.getMessage());
+
+        if (attempts >= maxAttempts) {
+            event.markDead();
+            logger.error("Dead-lettering {} {} (key {}) after {} attempts: {}",
+                    name, event.getId(), event.getDispatchKey(), attempts, error.getMessage());
+        } else {
+            long backoffMillis = Math.min(baseBackoff.toMillis() << Math.min(attempts - 1, 20), maxBackoff.toMillis());
+            event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMillis)));
+            logger.warn("Retrying {} {} (key {}) in {} ms (attempt {}): {}",
+                    name, event.getId(), event.getDispatchKey(), backoffMillis, attempts, error.getMessage());
+        }
+        if (!queue.reschedule(event, owner)) {
+            logger.warn("Lease on {} {} expired before its retry state was saved", name, event.getId());
+        }
+    }
+
+    private static String nodeName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.marketplace.service;
+
+import com.marketplace.model.IdempotencyKey;
+import com.marketplace.repository.IdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+@Service
+public class IdempotencyService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+    
+    // How long a claim stays IN_PROGRESS before another request may take it over
+    @Value("${idempotency.lease-ms:30000}")
+    private long leaseMs = 30000;
+    
+    /**
+     * Claims the key for this caller under a lease, reserving {@code resourceId} for the
+     * resource the operation creates. Returns a record with {@link IdempotencyKey#isClaimed()}
+     * set when this caller should run the operation: either a fresh claim, or an IN_PROGRESS
+     * claim whose lease expired because the request holding it died. A taken-over record keeps
+     * the resource id reserved by the earlier request, which may already have created it.
+     * Otherwise returns the record left by the earlier request (completed, or still leased).
+     */
+    public IdempotencyKey claim(String operation, String userId, String key, String resourceId) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        
+        Date now = new Date();
+        Date lockedUntil = new Date(now.getTime() + leaseMs);
+        IdempotencyKey record = new IdempotencyKey(operation, userId, key);
+        record.setResourceId(resourceId);
+        record.setLockedUntil(lockedUntil);
+        try {
+            idempotencyKeyRepository.insert(record);
+            record.setClaimed(true);
+            return record;
+        } catch (DuplicateKeyException e) {
+            String id = IdempotencyKey.scopedId(operation, userId, key);
+            IdempotencyKey takenOver = idempotencyKeyRepository.takeOverExpired(id, now, lockedUntil);
+            if (takenOver != null) {
+                logger.warn("Taking over expired idempotent {} for user {} with key {}", operation, userId, key);
+                takenOver.setClaimed(true);
+                return takenOver;
+            }
+            logger.debug("Replaying idempotent {} for user {} with key {}", operation, userId, key);
+            // The original request may have released the key in the meantime; report it as still in progress
+            return idempotencyKeyRepository.findById(id).orElseGet(() -> new IdempotencyKey(operation, userId, key));
+        }
+    }
+    
+    public void complete(String operation, String userId, String key, String resourceId) {
+        IdempotencyKey record = new IdempotencyKey(operation, userId, key);
+        record.setState(IdempotencyKey.STATE_COMPLETED);
+        record.setResourceId(resourceId);
+        idempotencyKeyRepository.save(record);
+    }
+    
+    // Frees the key after a failed attempt so that the client's retry can execute again.
+    // Only for attempts that created nothing; otherwise the retry would create a duplicate.
+    public void release(String operation, String userId, String key) {
+        idempotencyKeyRepository.deleteById(IdempotencyKey.scopedId(operation, userId, key));
+    }
+}
@@ -0,0 +1,128 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderEvent;
+import com.marketplace.repository.OrderEventRepository;
+import com.marketplace.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Moves order outbox events into the order_events collection and fans them out to the
+ * registered {@link OrderEventHandler}s through a {@link DurableEventDispatcher}. Events of the
+ * same order are delivered strictly in order; different orders are processed in parallel.
+ * Failed events are retried with exponential backoff and dead-lettered (state DEAD) after the
+ * configured number of attempts.
+ */
+@Service
+public class OrderEventDispatcher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventDispatcher.class);
+    
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(2);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(10);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+    
+    @Autowired(required = false)
+    private List<OrderEventHandler> handlers = new ArrayList<>();
+    
+    @Value("${app.orders.events.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${app.orders.events.max-attempts:8}")
+    private int maxAttempts;
+    
+    @Value("${app.orders.events.workers:4}")
+    private int workers;
+    
+    @Value("${app.orders.events.lease-ms:60000}")
+    private long leaseMs;
+    
+    private ExecutorService executor;
+    private DurableEventDispatcher<OrderEvent> dispatcher;
+    
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("order-events-"));
+        dispatcher = new DurableEventDispatcher<>("order event", orderEventRepository, this::deliver, executor,
+                batchSize, maxAttempts, BASE_BACKOFF, MAX_BACKOFF, Duration.ofMillis(leaseMs));
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.orders.events.poll-interval-ms:1000}")
+    public void poll() {
+        try {
+            relayOutbox();
+            dispatchPending();
+        } catch (Exception e) {
+            logger.error("Order event dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Copies outbox events embedded in orders into order_events with one bulk insert, then
+     * removes them from their orders. Returns the number of events relayed.
+     */
+    public int relayOutbox() {
+        List<Order> orders = orderRepository.findWithPendingOutbox(batchSize);
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        
+        List<OrderEvent> events = new ArrayList<>();
+        for (Order order : orders) {
+            for (OrderEvent event : order.getOutbox()) {
+                // Events appended by status updates are written without reading the order first
+                if (event.getUserId() == null) {
+                    event.setUserId(order.getUserId());
+                }
+                events.add(event);
+            }
+        }
+        orderEventRepository.insertIfAbsent(events);
+        
+        for (Order order : orders) {
+            List<String> eventIds = order.getOutbox().stream().map(OrderEvent::getId).collect(Collectors.toList());
+            orderRepository.removeFromOutbox(order.getId(), eventIds);
+        }
+        return events.size();
+    }
+    
+    /**
+     * Delivers one batch of due events and returns the number handled successfully.
+     */
+    public int dispatchPending() throws InterruptedException {
+        return dispatcher.dispatchPending();
+    }
+    
+    private void deliver(OrderEvent event) throws Exception {
+        for (OrderEventHandler handler : handlers) {
+            if (handler.supports(event)) {
+                handler.handle(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.marketplace.service;
+
+import com.marketplace.model.OrderEvent;
+
+/**
+ * In-process consumer of order outbox events. Delivery is at-least-once: a handler may see
+ * the same event again after a failure (its own or another handler's), so it must be idempotent.
+ */
+public interface OrderEventHandler {
+    
+    boolean supports(OrderEvent event);
+    
+    void handle(OrderEvent event) throws Exception;
+}
@@ -2,18 +2,29 @@ package com.marketplace.service;
 
 import com.marketplace.model.*;
 import com.marketplace.repository.OrderRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
     
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+    
+    private static final String CREATE_ORDER_OPERATION = "create-order";
+    
+    private static final int MAX_BULK_STATUS_UPDATE = 1000;
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -23,12 +34,78 @@ public class OrderService {
     @Autowired
     private CartService cartService;
     
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
     public Order createOrderFromCart() {
+        return createOrderFromCart(null);
+    }
+    
+    /**
+     * Creates an order from the current user's cart. When an idempotency key is supplied,
+     * a retry with the same key returns the order created by the first request instead of
+     * placing a new one.
+     */
+    public Order createOrderFromCart(String idempotencyKey) {
         User currentUser = userService.getCurrentUser();
         if (currentUser == null) {
             throw new RuntimeException("User must be logged in to place an order");
         }
         
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeOrder(currentUser, new ObjectId().toHexString());
+        }
+        
+        String userId = currentUser.getId();
+        String reservedId = new ObjectId().toHexString();
+        IdempotencyKey claim = idempotencyService.claim(CREATE_ORDER_OPERATION, userId, idempotencyKey, reservedId);
+        if (!claim.isClaimed()) {
+            return replayOrder(claim);
+        }
+        
+        String orderId = claim.getResourceId() != null ? claim.getResourceId() : reservedId;
+        if (!orderId.equals(reservedId)) {
+            // Taken over from a request that died; it may have saved the order before completing the key
+            Optional<Order> existing = orderRepository.findById(orderId);
+            if (existing.isPresent()) {
+                completeClaim(userId, idempotencyKey, orderId);
+                return existing.get();
+            }
+        }
+        
+        Order order;
+        try {
+            order = placeOrder(currentUser, orderId);
+        } catch (RuntimeException e) {
+            if (!orderPersisted(orderId)) {
+                idempotencyService.release(CREATE_ORDER_OPERATION, userId, idempotencyKey);
+            }
+            throw e;
+        }
+        completeClaim(userId, idempotencyKey, order.getId());
+        return order;
+    }
+    
+    // The order exists at this point, so the key is never released: a retry finds the order through the reserved id
+    private void completeClaim(String userId, String idempotencyKey, String orderId) {
+        try {
+            idempotencyService.complete(CREATE_ORDER_OPERATION, userId, idempotencyKey, orderId);
+        } catch (RuntimeException e) {
+            logger.warn("Could not complete idempotency key for order {}; a retry will pick it up after the lease: {}",
+                    orderId, e.getMessage());
+        }
+    }
+    
+    private boolean orderPersisted(String orderId) {
+        try {
+            return orderRepository.existsById(orderId);
+        } catch (RuntimeException e) {
+            // Unknown: keep the claim, its lease expires and the retry checks again
+            return true;
+        }
+    }
+    
+    private Order placeOrder(User currentUser, String orderId) {
         Cart cart = cartService.getCurrentUserCart();
         if (cart.isEmpty()) {
             throw new RuntimeException("Cart is empty");
@@ -44,36 +121,96 @@ public class OrderService {
         
         order.setShippingAddress(currentUser.getAddress());
         order.setPhoneNumber(currentUser.getPhoneNumber());
+        // Linked server-side when the PayPal order was created for this cart; webhooks resolve the order through it
+        order.setPaypalPaymentId(cart.getPaypalOrderId());
+        order.setPaymentAmount(cart.getPaypalAmount());
+        // Assign the id up front so the ORDER_CREATED outbox event is written in the same insert
+        order.setId(orderId);
+        order.recordEvent(OrderEventType.ORDER_CREATED);
         
         Order savedOrder = orderRepository.save(order);
         
-        cartService.clearCurrentUserCart();
+        // Clear inline so the user sees an empty cart right away; the ORDER_CREATED handler retries if this fails
+        try {
+            cartService.clearCurrentUserCart();
+        } catch (RuntimeException e) {
+            logger.warn("Inline cart clear failed for order {}, deferring to event handler: {}", savedOrder.getId(), e.getMessage());
+        }
         
         return savedOrder;
     }
     
+    private Order replayOrder(IdempotencyKey previous) {
+        if (!previous.isCompleted()) {
+            throw new IllegalStateException("A request with this Idempotency-Key is still being processed");
+        }
+        return orderRepository.findById(previous.getResourceId())
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+    
     public Order updateOrderStatus(String orderId, OrderStatus status) {
-        Optional<Order> orderOpt = orderRepository.findById(orderId);
-        if (!orderOpt.isPresent()) {
-            throw new RuntimeException("Order not found");
+        // Single conditional findAndModify: only succeeds if the current status may move to the target
+        Order updated = orderRepository.transitionStatus(orderId, status);
+        if (updated != null) {
+            return updated;
         }
-        
-        Order order = orderOpt.get();
-        order.setStatus(status);
-        return orderRepository.save(order);
+        return resolveRejectedTransition(orderId, status);
+    }
+    
+    /**
+     * Moves a fulfilment batch to {@code status} in one bulk write. Each order is checked against
+     * the transition table individually; the result reports what happened to every id.
+     */
+    public List<OrderStatusUpdateResult> bulkUpdateOrderStatus(List<String> orderIds, OrderStatus status) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one order id is required");
+        }
+        Set<String> uniqueIds = new LinkedHashSet<>(orderIds);
+        if (uniqueIds.size() > MAX_BULK_STATUS_UPDATE) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_STATUS_UPDATE + " orders can be updated at once");
+        }
+        return orderRepository.bulkTransitionStatus(uniqueIds, status);
     }
     
     public Order addPaymentInfo(String orderId, String paypalTransactionId, String paypalPaymentId) {
+        Order updated = orderRepository.confirmPayment(orderId, paypalTransactionId, paypalPaymentId);
+        if (updated != null) {
+            return updated;
+        }
+        return resolveRejectedTransition(orderId, OrderStatus.CONFIRMED);
+    }
+    
+    /**
+     * Resolves the local order for a PayPal webhook through the indexed PayPal order id or
+     * capture id.
+     */
+    public Optional<Order> findByPayPalIds(String paypalOrderId, String captureId) {
+        // A null criterion would match every order without that id, so query only the ids we have
+        if (paypalOrderId != null && captureId != null) {
+            return orderRepository.findFirstByPaypalPaymentIdOrPaypalTransactionId(paypalOrderId, captureId);
+        }
+        if (paypalOrderId != null) {
+            return orderRepository.findFirstByPaypalPaymentId(paypalOrderId);
+        }
+        if (captureId != null) {
+            return orderRepository.findFirstByPaypalTransactionId(captureId);
+        }
+        return Optional.empty();
+    }
+    
+    // Only reached when the conditional update matched nothing, to tell a missing order from an illegal transition
+    private Order resolveRejectedTransition(String orderId, OrderStatus target) {
         Optional<Order> orderOpt = orderRepository.findById(orderId);
         if (!orderOpt.isPresent()) {
             throw new RuntimeException("Order not found");
         }
         
         Order order = orderOpt.get();
-        order.setPaypalTransactionId(paypalTransactionId);
-        order.setPaypalPaymentId(paypalPaymentId);
-        order.setStatus(OrderStatus.CONFIRMED);
-        return orderRepository.save(order);
+        if (order.getStatus() == target) {
+            // Re-applying the current status (e.g. a repeated admin click) is a no-op
+            return order;
+        }
+        throw new IllegalStateException("Cannot change order status from " + order.getStatus() + " to " + target);
     }
     
     public List<Order> getCurrentUserOrders() {
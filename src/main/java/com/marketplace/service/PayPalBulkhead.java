@@ -0,0 +1,105 @@
+package com.marketplace.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Isolated, bounded executor for outbound PayPal calls. The blocking SDK runs on these threads
+ * instead of Tomcat request threads, so a slow PayPal can only exhaust this pool. When all
+ * threads are busy and the queue is full, calls fail immediately with a
+ * {@link RejectedExecutionException} instead of waiting.
+ */
+@Component
+public class PayPalBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayPalBulkhead.class);
+
+    @Value("${paypal.bulkhead.threads:16}")
+    private int threads;
+
+    @Value("${paypal.bulkhead.queue-capacity:32}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("paypal-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code call} on the bulkhead. The deadline covers time spent in the queue as well as
+     * the call itself; when it passes the future fails with a {@link TimeoutException} and the
+     * worker is interrupted.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Callable<T> call, long timeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("PayPal bulkhead full, rejecting {} (active={}, queued={})",
+                    operation, executor.getActiveCount(), executor.getQueue().size());
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((value, error) -> {
+                    if (error instanceof TimeoutException) {
+                        logger.warn("PayPal {} timed out after {} ms", operation, timeoutMs);
+                        task.cancel(true);
+                    }
+                });
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns true when {@code error}, possibly wrapped by a completion stage, is a bulkhead
+     * rejection.
+     */
+    public static boolean isRejection(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,165 @@
+package com.marketplace.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker in front of PayPal. Outcomes of the last {@code windowSize} calls are kept in
+ * a ring buffer; once at least {@code minimumCalls} are recorded and the failure rate reaches the
+ * threshold the circuit opens and calls fail fast. After {@code openDurationMs} a limited number
+ * of probe calls are let through (half-open): if they all succeed the circuit closes, a single
+ * failure opens it again.
+ */
+@Component
+public class PayPalCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayPalCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value("${paypal.circuit.window-size:20}")
+    private int windowSize = 20;
+
+    @Value("${paypal.circuit.minimum-calls:10}")
+    private int minimumCalls = 10;
+
+    @Value("${paypal.circuit.failure-rate-threshold:50}")
+    private int failureRateThreshold = 50;
+
+    @Value("${paypal.circuit.open-duration-ms:30000}")
+    private long openDurationMs = 30000;
+
+    @Value("${paypal.circuit.half-open-probes:3}")
+    private int halfOpenProbes = 3;
+
+    private State state = State.CLOSED;
+    private boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    /**
+     * Returns true if a call may go to PayPal. Every permitted call must be followed by exactly
+     * one of {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= halfOpenProbes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Gives back a permission whose call never reached PayPal (e.g. rejected by the bulkhead).
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            // Report the state the next call will see
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Failure rate of the sliding window in percent.
+     */
+    public synchronized float getFailureRate() {
+        return recorded == 0 ? 0f : failures * 100f / recorded;
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", getState().name());
+        status.put("failure_rate", getFailureRate());
+        status.put("recorded_calls", recorded);
+        status.put("window_size", windowSize);
+        status.put("failure_rate_threshold", failureRateThreshold);
+        if (state == State.OPEN) {
+            status.put("retry_after_ms", Math.max(0, openedAt + openDurationMs - System.currentTimeMillis()));
+        }
+        return status;
+    }
+
+    private void record(boolean failure) {
+        if (outcomes == null || outcomes.length != windowSize) {
+            outcomes = new boolean[windowSize];
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void transitionTo(State target) {
+        logger.warn("PayPal circuit breaker {} -> {} (failure rate {}%)", state, target, getFailureRate());
+        state = target;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        } else if (target == State.CLOSED) {
+            outcomes = null;
+            recorded = 0;
+            failures = 0;
+            next = 0;
+        }
+    }
+}
@@ -1,17 +1,83 @@
 package com.marketplace.service;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class PayPalSellerService {
     
     private static final Logger logger = LoggerFactory.getLogger(PayPalSellerService.class);
     
+    // Eligible sellers are re-validated in the background after this long, serving the cached result meanwhile
+    @Value("${paypal.seller.eligibility.refresh-after-ms:300000}")
+    private long refreshAfterMs = 300000;
+    
+    // Ineligible sellers are re-validated sooner so a fixed account is picked up quickly
+    @Value("${paypal.seller.eligibility.negative-refresh-after-ms:60000}")
+    private long negativeRefreshAfterMs = 60000;
+    
+    // Hard expiry: an entry this old is never served, the caller waits for a fresh validation
+    @Value("${paypal.seller.eligibility.expire-after-ms:1800000}")
+    private long expireAfterMs = 1800000;
+    
+    // Webhooks identify sellers by PayPal merchant id while the cache is keyed by our seller id,
+    // e.g. "MERCHANT123=default-seller,MERCHANT456=seller-2"
+    @Value("${paypal.seller.merchant-ids:}")
+    private String merchantIds = "";
+    
+    private Map<String, String> sellerIdsByMerchantId = Collections.emptyMap();
+    
+    private ExecutorService refreshExecutor;
+    
+    private LoadingCache<String, SellerEligibility> eligibilityCache;
+    
+    @PostConstruct
+    public void initEligibilityCache() {
+        sellerIdsByMerchantId = parseMerchantIds(merchantIds);
+        refreshExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("seller-eligibility-"));
+        eligibilityCache = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .refreshAfterWrite(Math.min(refreshAfterMs, negativeRefreshAfterMs), TimeUnit.MILLISECONDS)
+            .expireAfterWrite(expireAfterMs, TimeUnit.MILLISECONDS)
+            .build(CacheLoader.asyncReloading(new CacheLoader<String, SellerEligibility>() {
+                @Override
+                public SellerEligibility load(String sellerId) {
+                    return new SellerEligibility(validateSellerAccount(sellerId));
+                }
+                
+                @Override
+                public ListenableFuture<SellerEligibility> reload(String sellerId, SellerEligibility previous) throws Exception {
+                    // Eligible results have a longer refresh interval than the cache-wide one
+                    if (previous.isEligible() && previous.ageMs() < refreshAfterMs) {
+                        return Futures.immediateFuture(previous);
+                    }
+                    return super.reload(sellerId, previous);
+                }
+            }, refreshExecutor));
+    }
+    
+    @PreDestroy
+    public void shutdownEligibilityCache() {
+        refreshExecutor.shutdown();
+    }
+    
     public Map<String, Object> validateSellerAccount(String sellerId) {
         Map<String, Object> validationResult = new HashMap<>();
         
@@ -36,7 +102,7 @@ public class PayPalSellerService {
                 validationResult.put("warning", "You currently cannot receive payments");
             }
             
-            logger.info("Seller validation completed for: {} - Valid: {}", 
+            logger.debug("Seller validation completed for: {} - Valid: {}", 
                        sellerId, validationResult.get("isValid"));
             
         } catch (Exception e) {
@@ -85,8 +151,84 @@ public class PayPalSellerService {
         return capabilities;
     }
     
+    /**
+     * Cached eligibility check used on the checkout path. Results (including negative ones) are
+     * served from cache and refreshed in the background; see {@link #getCachedSellerValidation}.
+     */
     public boolean isSellerEligibleForCheckout(String sellerId) {
-        Map<String, Object> validation = validateSellerAccount(sellerId);
-        return (Boolean) validation.getOrDefault("isValid", false);
+        return eligibilityCache.getUnchecked(sellerId).isEligible();
+    }
+    
+    /**
+     * Returns the cached result of {@link #validateSellerAccount}, validating on first use.
+     */
+    public Map<String, Object> getCachedSellerValidation(String sellerId) {
+        return eligibilityCache.getUnchecked(sellerId).getValidation();
+    }
+    
+    /**
+     * Drops the cached eligibility of a seller, e.g. when PayPal reports an account status change.
+     */
+    public void invalidateSellerEligibility(String sellerId) {
+        logger.info("Invalidating cached eligibility for seller: {}", sellerId);
+        eligibilityCache.invalidate(sellerId);
+    }
+    
+    /**
+     * Drops the cached eligibility of the seller behind a PayPal merchant id. Without a configured
+     * mapping the seller cannot be identified, so every cached result is dropped instead.
+     */
+    public void invalidateMerchantEligibility(String merchantId) {
+        String sellerId = sellerIdsByMerchantId.get(merchantId);
+        if (sellerId != null) {
+            invalidateSellerEligibility(sellerId);
+        } else {
+            logger.info("No seller mapped to PayPal merchant {}", merchantId);
+            invalidateAllSellerEligibility();
+        }
+    }
+    
+    public void invalidateAllSellerEligibility() {
+        logger.info("Invalidating cached eligibility for all sellers");
+        eligibilityCache.invalidateAll();
+    }
+    
+    private static Map<String, String> parseMerchantIds(String mappings) {
+        Map<String, String> sellerIds = new HashMap<>();
+        if (mappings == null) {
+            return sellerIds;
+        }
+        for (String mapping : mappings.split(",")) {
+            String[] parts = mapping.split("=", 2);
+            if (parts.length == 2 && !parts[0].isBlank() && !parts[1].isBlank()) {
+                sellerIds.put(parts[0].trim(), parts[1].trim());
+            } else if (!mapping.isBlank()) {
+                throw new IllegalArgumentException("Invalid paypal.seller.merchant-ids entry: " + mapping);
+            }
+        }
+        return sellerIds;
+    }
+    
+    private static final class SellerEligibility {
+        private final Map<String, Object> validation;
+        private final boolean eligible;
+        private final long loadedAt = System.currentTimeMillis();
+        
+        SellerEligibility(Map<String, Object> validation) {
+            this.validation = Collections.unmodifiableMap(validation);
+            this.eligible = Boolean.TRUE.equals(validation.get("isValid"));
+        }
+        
+        Map<String, Object> getValidation() {
+            return validation;
+        }
+        
+        boolean isEligible() {
+            return eligible;
+        }
+        
+        long ageMs() {
+            return System.currentTimeMillis() - loadedAt;
+        }
     }
 }
\ No newline at end of file
@@ -3,17 +3,35 @@ package com.marketplace.service;
 import com.marketplace.model.Product;
 import com.marketplace.model.Cart;
 import com.marketplace.model.CartItem;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.paypal.core.PayPalEnvironment;
 import com.paypal.core.PayPalHttpClient;
+import com.paypal.http.HttpRequest;
+import com.paypal.http.exceptions.HttpException;
 import com.paypal.orders.*;
 import com.paypal.orders.AmountBreakdown;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,15 +56,67 @@ public class PayPalService {
     @Value("${paypal.return.cancel.url:http://localhost:8081/payment-cancelled}")
     private String cancelUrl;
     
+    // Socket timeouts of the SDK client; per-operation deadlines bound the whole call
+    @Value("${paypal.client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+    
+    // Raised to the longest operation deadline if lower, so a slow response is never cut off
+    // before its deadline while the socket still cannot hang a bulkhead thread forever
+    @Value("${paypal.client.read-timeout-ms:15000}")
+    private int readTimeoutMs;
+    
+    @Value("${paypal.client.create-timeout-ms:8000}")
+    private long createTimeoutMs;
+    
+    @Value("${paypal.client.capture-timeout-ms:15000}")
+    private long captureTimeoutMs;
+    
+    @Value("${paypal.client.get-timeout-ms:5000}")
+    private long getTimeoutMs;
+    
+    @Value("${paypal.client.verify-webhook-timeout-ms:5000}")
+    private long verifyWebhookTimeoutMs = 5000;
+    
+    // How long created PayPal orders are remembered so retries get the same approval URL
+    @Value("${paypal.idempotency.retention-ms:1800000}")
+    private long idempotencyRetentionMs = 1800000;
+    
+    @Value("${paypal.idempotency.max-entries:10000}")
+    private long idempotencyMaxEntries = 10000;
+    
+    // PayPal-Request-Id -> in-flight or completed creation
+    private Cache<String, CompletableFuture<Order>> orderCreations;
+    
+    // PayPal order id -> PayPal-Request-Id of the creation that returned it, so a capture can
+    // forget its creation without scanning the cache
+    private Cache<String, String> creationRequestIds;
+    
+    // "operation|outcome" -> latency timer, built once instead of on every call
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private PayPalBulkhead bulkhead;
+    
+    @Autowired
+    private PayPalCircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     public PayPalService(@Value("${paypal.client.id:sb-demo-client-id}") String clientId,
                          @Value("${paypal.client.secret:sb-demo-client-secret}") String clientSecret,
-                         @Value("${paypal.mode:sandbox}") String mode) {
+                         @Value("${paypal.mode:sandbox}") String mode,
+                         @Value("${paypal.base-url:}") String baseUrl) {
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.mode = mode;
         
         PayPalEnvironment environment;
-        if ("live".equals(mode)) {
+        if (baseUrl != null && !baseUrl.isEmpty()) {
+            // Alternative endpoint, e.g. the local PayPal simulator (paypal-sim profile)
+            logger.info("Using PayPal API at {}", baseUrl);
+            environment = new PayPalEnvironment(clientId, clientSecret, baseUrl, baseUrl);
+        } else if ("live".equals(mode)) {
             environment = new PayPalEnvironment.Live(clientId, clientSecret);
         } else {
             environment = new PayPalEnvironment.Sandbox(clientId, clientSecret);
@@ -54,7 +124,190 @@ public class PayPalService {
         this.payPalClient = new PayPalHttpClient(environment);
     }
     
-    public Order createOrder(Product product) throws IOException {
+    @PostConstruct
+    public void configureClient() {
+        payPalClient.setConnectTimeout(connectTimeoutMs);
+        payPalClient.setReadTimeout(readTimeout());
+        orderCreations = CacheBuilder.newBuilder()
+            .expireAfterWrite(idempotencyRetentionMs, TimeUnit.MILLISECONDS)
+            .maximumSize(idempotencyMaxEntries)
+            .build();
+        creationRequestIds = CacheBuilder.newBuilder()
+            .expireAfterWrite(idempotencyRetentionMs, TimeUnit.MILLISECONDS)
+            .maximumSize(idempotencyMaxEntries)
+            .build();
+        
+        Gauge.builder("paypal.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("PayPal circuit breaker state (0 closed, 1 open, 2 half-open)")
+            .register(meterRegistry);
+        Gauge.builder("paypal.circuit.failure.rate", circuitBreaker, PayPalCircuitBreaker::getFailureRate)
+            .register(meterRegistry);
+        Gauge.builder("paypal.bulkhead.active", bulkhead, PayPalBulkhead::getActiveCount)
+            .register(meterRegistry);
+        Gauge.builder("paypal.bulkhead.queued", bulkhead, PayPalBulkhead::getQueuedCount)
+            .register(meterRegistry);
+    }
+    
+    int readTimeout() {
+        long longestDeadline = Math.max(Math.max(createTimeoutMs, captureTimeoutMs), Math.max(getTimeoutMs, verifyWebhookTimeoutMs));
+        return (int) Math.min(Math.max(readTimeoutMs, longestDeadline), Integer.MAX_VALUE);
+    }
+    
+    // Asynchronous API: calls run on the PayPal bulkhead, never on the caller's thread.
+    // Futures fail with PayPalUnavailableException while the circuit breaker is open, with
+    // RejectedExecutionException when the bulkhead is full and with TimeoutException when
+    // the operation deadline passes.
+    
+    // Order creation is idempotent: duplicates of an in-flight creation share its result, and
+    // retries after it completed get the same PayPal order back without calling PayPal again.
+    
+    public CompletableFuture<Order> createOrderAsync(Product product, String userId, String checkoutToken) {
+        String requestId = productRequestId(userId, product, checkoutToken);
+        return createOnce(requestId, "createOrder", () -> createOrder(product, requestId));
+    }
+    
+    public CompletableFuture<Order> createCartOrderAsync(Cart cart, BigDecimal finalTotal) {
+        String requestId = cartRequestId(cart, finalTotal);
+        return createOnce(requestId, "createCartOrder", () -> createCartOrder(cart, finalTotal, requestId));
+    }
+    
+    public CompletableFuture<Order> captureOrderAsync(String orderId) {
+        return call("captureOrder", () -> captureOrder(orderId), captureTimeoutMs)
+            .whenComplete((order, error) -> {
+                if (error == null) {
+                    // A captured order cannot be approved again; the next checkout needs a new one
+                    forgetOrderCreation(orderId);
+                }
+            });
+    }
+    
+    public CompletableFuture<Order> getOrderAsync(String orderId) {
+        return call("getOrder", () -> getOrder(orderId), getTimeoutMs);
+    }
+    
+    /**
+     * Asks PayPal whether a webhook delivery is genuine (verify-webhook-signature). The request
+     * carries the transmission headers, our webhook id and the event as received.
+     */
+    public CompletableFuture<Boolean> verifyWebhookSignatureAsync(Map<String, Object> verification) {
+        return call("verifyWebhookSignature", () -> verifyWebhookSignature(verification), verifyWebhookTimeoutMs);
+    }
+    
+    private CompletableFuture<Order> createOnce(String requestId, String operation, Callable<Order> create) {
+        CompletableFuture<Order> creation = new CompletableFuture<>();
+        CompletableFuture<Order> existing = orderCreations.asMap().putIfAbsent(requestId, creation);
+        if (existing != null) {
+            logger.debug("Reusing PayPal order creation {}", requestId);
+            meterRegistry.counter("paypal.order.creations", "result", "shared").increment();
+            return existing;
+        }
+        
+        meterRegistry.counter("paypal.order.creations", "result", "upstream").increment();
+        call(operation, create, createTimeoutMs).whenComplete((order, error) -> {
+            if (error != null) {
+                // Failures are not remembered so that a retry goes to PayPal again
+                orderCreations.asMap().remove(requestId, creation);
+                creation.completeExceptionally(error);
+            } else {
+                creationRequestIds.put(order.id(), requestId);
+                creation.complete(order);
+            }
+        });
+        return creation;
+    }
+    
+    private void forgetOrderCreation(String paypalOrderId) {
+        String requestId = creationRequestIds.asMap().remove(paypalOrderId);
+        if (requestId == null) {
+            return;
+        }
+        // The request id may have been evicted and reused by a newer creation; only drop our own
+        CompletableFuture<Order> creation = orderCreations.getIfPresent(requestId);
+        if (creation != null && creation.isDone() && !creation.isCompletedExceptionally()
+                && paypalOrderId.equals(creation.join().id())) {
+            orderCreations.asMap().remove(requestId, creation);
+        }
+    }
+    
+    /**
+     * PayPal-Request-Id for a Buy Now checkout. Buy Now has no cart version, so the client sends a
+     * checkout token that stays the same for every submit of one checkout attempt; a new attempt
+     * brings a new token and therefore a new PayPal order.
+     */
+    static String productRequestId(String userId, Product product, String checkoutToken) {
+        return requestId("product", userId, product.getId(), product.getPrice().toPlainString(), checkoutToken);
+    }
+    
+    /**
+     * PayPal-Request-Id for a cart checkout. Any cart change bumps {@code updatedAt}, so a
+     * modified cart gets a new PayPal order while an unchanged one keeps its current order.
+     */
+    static String cartRequestId(Cart cart, BigDecimal amount) {
+        // Mongo stores milliseconds; truncate so the id is stable across reloads of the cart
+        String version = cart.getUpdatedAt() != null
+            ? cart.getUpdatedAt().truncatedTo(ChronoUnit.MILLIS).toString()
+            : "";
+        return requestId("cart", cart.getUserId(), version, amount.toPlainString());
+    }
+    
+    private static String requestId(String... parts) {
+        String key = String.join("|", nullsToEmpty(parts));
+        return "mp-" + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] nullsToEmpty(String[] parts) {
+        String[] result = new String[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = parts[i] != null ? parts[i] : "";
+        }
+        return result;
+    }
+    
+    private <T> CompletableFuture<T> call(String operation, Callable<T> call, long timeoutMs) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            meterRegistry.counter("paypal.circuit.rejected", "operation", operation).increment();
+            return CompletableFuture.failedFuture(new PayPalUnavailableException("PayPal circuit breaker is open"));
+        }
+        
+        long start = System.nanoTime();
+        return bulkhead.submit(operation, call, timeoutMs).whenComplete((result, error) -> {
+            if (PayPalBulkhead.isRejection(error)) {
+                circuitBreaker.release();
+                return;
+            }
+            if (error != null && isPayPalFailure(error)) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            requestTimer(operation, error == null ? "success" : "error")
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+    
+    private Timer requestTimer(String operation, String outcome) {
+        return requestTimers.computeIfAbsent(operation + "|" + outcome, key -> Timer.builder("paypal.client.requests")
+            .description("Latency of PayPal Orders API calls")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+    }
+    
+    // Client errors (bad request, unknown order, ...) say nothing about PayPal's health
+    private static boolean isPayPalFailure(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof HttpException) {
+            int statusCode = ((HttpException) cause).statusCode();
+            return statusCode >= 500 || statusCode == 429;
+        }
+        return true;
+    }
+    
+    public Order createOrder(Product product, String requestId) throws IOException {
         logger.info("Creating PayPal order for product: {} with client ID: {}", product.getName(), clientId.substring(0, 10) + "...");
         OrderRequest orderRequest = new OrderRequest();
         orderRequest.checkoutPaymentIntent("CAPTURE");
@@ -79,6 +332,7 @@ public class PayPalService {
         
         OrdersCreateRequest request = new OrdersCreateRequest();
         request.header("prefer", "return=representation");
+        request.header("PayPal-Request-Id", requestId);
         request.requestBody(orderRequest);
         
         logger.info("Sending PayPal order creation request...");
@@ -104,7 +358,16 @@ public class PayPalService {
         return payPalClient.execute(request).result();
     }
     
-    public Order createCartOrder(Cart cart, BigDecimal finalTotal) throws IOException {
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public boolean verifyWebhookSignature(Map<String, Object> verification) throws IOException {
+        HttpRequest<Map> request = new HttpRequest<>("/v1/notifications/verify-webhook-signature", "POST", Map.class);
+        request.header("Content-Type", "application/json");
+        request.requestBody(verification);
+        Map<String, Object> result = payPalClient.execute(request).result();
+        return result != null && "SUCCESS".equals(result.get("verification_status"));
+    }
+    
+    public Order createCartOrder(Cart cart, BigDecimal finalTotal, String requestId) throws IOException {
         logger.info("Creating PayPal cart order for {} items, total: {}", cart.getItems().size(), finalTotal);
         OrderRequest orderRequest = new OrderRequest();
         orderRequest.checkoutPaymentIntent("CAPTURE");
@@ -130,7 +393,7 @@ public class PayPalService {
         purchaseUnits.add(new PurchaseUnitRequest()
             .referenceId("CART")
             .description(description.toString())
-            .customId("cart-" + System.currentTimeMillis())
+            .customId(requestId)
             .softDescriptor("TechMarket Pro")
             .amountWithBreakdown(new AmountWithBreakdown()
                 .currencyCode("USD")
@@ -141,6 +404,7 @@ public class PayPalService {
         
         OrdersCreateRequest request = new OrdersCreateRequest();
         request.header("prefer", "return=representation");
+        request.header("PayPal-Request-Id", requestId);
         request.requestBody(orderRequest);
         
         logger.info("Sending PayPal cart order creation request...");
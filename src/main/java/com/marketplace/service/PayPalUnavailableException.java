@@ -0,0 +1,12 @@
+package com.marketplace.service;
+
+/**
+ * Thrown (as the failure of an asynchronous PayPal call) when the call was not attempted because
+ * the PayPal circuit breaker is open.
+ */
+public class PayPalUnavailableException extends RuntimeException {
+
+    public PayPalUnavailableException(String message) {
+        super(message);
+    }
+}
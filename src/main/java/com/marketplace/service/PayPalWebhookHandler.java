@@ -0,0 +1,203 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.WebhookEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Applies stored PayPal webhook events. Events are delivered at least once, so every handler
+ * must tolerate seeing the same event again. Throwing schedules a retry.
+ */
+@Component
+public class PayPalWebhookHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PayPalWebhookHandler.class);
+    
+    @Autowired
+    private PayPalSellerService payPalSellerService;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    public void handle(WebhookEvent event) throws Exception {
+        String eventType = event.getEventType();
+        if (eventType == null) {
+            logger.info("Ignoring webhook event {} without event type", event.getId());
+            return;
+        }
+        
+        switch (eventType) {
+            case "PAYMENT.CAPTURE.COMPLETED":
+                handlePaymentCaptureCompleted(event);
+                break;
+            case "PAYMENT.CAPTURE.DENIED":
+                handlePaymentCaptureDenied(event);
+                break;
+            case "CHECKOUT.ORDER.APPROVED":
+                handleOrderApproved(event);
+                break;
+            case "CHECKOUT.ORDER.COMPLETED":
+                handleOrderCompleted(event);
+                break;
+            case "MERCHANT.ONBOARDING.COMPLETED":
+            case "MERCHANT.PARTNER-CONSENT.REVOKED":
+            case "CUSTOMER.MERCHANT-INTEGRATION.CAPABILITY-UPDATED":
+            case "CUSTOMER.MERCHANT-INTEGRATION.PRODUCT-SUBSCRIPTION-UPDATED":
+            case "CUSTOMER.MERCHANT-INTEGRATION.SELLER-EMAIL-CONFIRMED":
+                handleSellerAccountStatusChanged(event);
+                break;
+            default:
+                logger.info("Unhandled webhook event type: {}", eventType);
+        }
+    }
+    
+    private void handlePaymentCaptureCompleted(WebhookEvent event) {
+        Map<String, Object> resource = event.getResource();
+        String captureId = asString(resource.get("id"));
+        String paypalOrderId = relatedOrderId(resource);
+        
+        Optional<Order> orderOpt = orderService.findByPayPalIds(paypalOrderId, captureId);
+        if (!orderOpt.isPresent()) {
+            logger.info("No order for captured PayPal order {} (capture {})", paypalOrderId, captureId);
+            return;
+        }
+        
+        Order order = orderOpt.get();
+        confirm(order, captureId, paypalOrderId != null ? paypalOrderId : order.getPaypalPaymentId(), resource.get("amount"));
+    }
+    
+    private void handlePaymentCaptureDenied(WebhookEvent event) {
+        Map<String, Object> resource = event.getResource();
+        String captureId = asString(resource.get("id"));
+        String paypalOrderId = relatedOrderId(resource);
+        
+        Optional<Order> orderOpt = orderService.findByPayPalIds(paypalOrderId, captureId);
+        if (!orderOpt.isPresent()) {
+            logger.info("No order for denied PayPal order {} (capture {})", paypalOrderId, captureId);
+            return;
+        }
+        
+        Order order = orderOpt.get();
+        // Only an unpaid order, or one confirmed by this very capture, is cancelled by the denial
+        boolean confirmedByThisCapture = order.getStatus() == OrderStatus.CONFIRMED
+                && captureId != null && captureId.equals(order.getPaypalTransactionId());
+        if (order.getStatus() != OrderStatus.PENDING && !confirmedByThisCapture) {
+            logger.info("Ignoring denied capture {} for order {} in status {}", captureId, order.getId(), order.getStatus());
+            return;
+        }
+        
+        logger.warn("Payment capture {} denied, cancelling order {}", captureId, order.getId());
+        applyTransition(order, OrderStatus.CANCELLED);
+    }
+    
+    private void handleOrderApproved(WebhookEvent event) {
+        String paypalOrderId = asString(event.getResource().get("id"));
+        Optional<Order> orderOpt = orderService.findByPayPalIds(paypalOrderId, null);
+        // Approval alone does not move the order; the capture (or order completion) confirms it
+        logger.info("PayPal order {} approved, awaiting capture (local order: {})",
+                paypalOrderId, orderOpt.map(Order::getId).orElse("none"));
+    }
+    
+    private void handleOrderCompleted(WebhookEvent event) {
+        Map<String, Object> resource = event.getResource();
+        String paypalOrderId = asString(resource.get("id"));
+        Map<?, ?> capture = firstCapture(resource);
+        String captureId = capture != null ? asString(capture.get("id")) : null;
+        
+        Optional<Order> orderOpt = orderService.findByPayPalIds(paypalOrderId, captureId);
+        if (!orderOpt.isPresent()) {
+            logger.info("No order for completed PayPal order {}", paypalOrderId);
+            return;
+        }
+        
+        Order order = orderOpt.get();
+        confirm(order, captureId != null ? captureId : order.getPaypalTransactionId(), paypalOrderId,
+                capture != null ? capture.get("amount") : null);
+    }
+    
+    // Conditional PENDING -> CONFIRMED; a redelivered or late event finds the order already moved on.
+    // A capture that does not pay the order's amount in its currency never confirms it.
+    private void confirm(Order order, String captureId, String paypalOrderId, Object amount) {
+        String currency = amount instanceof Map ? asString(((Map<?, ?>) amount).get("currency_code")) : null;
+        String value = amount instanceof Map ? asString(((Map<?, ?>) amount).get("value")) : null;
+        if (!order.matchesPayment(currency, value)) {
+            logger.error("Not confirming order {}: PayPal capture {} is for {} {}, expected {} {}", order.getId(), captureId,
+                    value, currency, order.getPaymentAmount() != null ? order.getPaymentAmount() : order.getTotalAmount(),
+                    Order.PAYMENT_CURRENCY);
+            return;
+        }
+        try {
+            orderService.addPaymentInfo(order.getId(), captureId, paypalOrderId);
+            logger.info("Order {} confirmed by PayPal capture {}", order.getId(), captureId);
+        } catch (IllegalStateException e) {
+            logger.info("Not confirming order {}: {}", order.getId(), e.getMessage());
+        }
+    }
+    
+    private void applyTransition(Order order, OrderStatus target) {
+        try {
+            orderService.updateOrderStatus(order.getId(), target);
+        } catch (IllegalStateException e) {
+            logger.info("Not moving order {} to {}: {}", order.getId(), target, e.getMessage());
+        }
+    }
+    
+    private void handleSellerAccountStatusChanged(WebhookEvent event) {
+        logger.info("Seller account status changed webhook received");
+        Object merchantId = event.getResource().get("merchant_id");
+        if (merchantId != null) {
+            payPalSellerService.invalidateMerchantEligibility(merchantId.toString());
+        } else {
+            payPalSellerService.invalidateAllSellerEligibility();
+        }
+    }
+    
+    private static String relatedOrderId(Map<String, Object> resource) {
+        Object supplementary = resource.get("supplementary_data");
+        if (supplementary instanceof Map) {
+            Object relatedIds = ((Map<?, ?>) supplementary).get("related_ids");
+            if (relatedIds instanceof Map) {
+                return asString(((Map<?, ?>) relatedIds).get("order_id"));
+            }
+        }
+        return null;
+    }
+    
+    // purchase_units[0].payments.captures[0] of a completed Orders v2 resource
+    private static Map<?, ?> firstCapture(Map<String, Object> resource) {
+        Object units = resource.get("purchase_units");
+        if (!(units instanceof List) || ((List<?>) units).isEmpty() || !(((List<?>) units).get(0) instanceof Map)) {
+            return null;
+        }
+        Object payments = ((Map<?, ?>) ((List<?>) units).get(0)).get("payments");
+        if (!(payments instanceof Map)) {
+            return null;
+        }
+        Object captures = ((Map<?, ?>) payments).get("captures");
+        if (!(captures instanceof List) || ((List<?>) captures).isEmpty() || !(((List<?>) captures).get(0) instanceof Map)) {
+            return null;
+        }
+        return (Map<?, ?>) ((List<?>) captures).get(0);
+    }
+    
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    /**
+     * Key that orders events touching the same PayPal order: captures carry their order id in
+     * {@code supplementary_data.related_ids}, other resources are keyed by their own id.
+     */
+    static String resourceKey(Map<String, Object> resource) {
+        String orderId = relatedOrderId(resource);
+        return orderId != null ? orderId : asString(resource.get("id"));
+    }
+}
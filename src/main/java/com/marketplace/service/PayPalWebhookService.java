@@ -0,0 +1,149 @@
+package com.marketplace.service;
+
+import com.marketplace.model.WebhookEvent;
+import com.marketplace.repository.WebhookEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable PayPal webhook ingestion. {@link #ingest} only stores the raw event with its
+ * transmission headers (deduplicated on the PayPal event id) so the webhook can be acknowledged
+ * immediately; a worker pool then verifies the signature of each stored event with PayPal and
+ * hands it to {@link PayPalWebhookHandler} through a {@link DurableEventDispatcher}. Events
+ * of the same resource are processed in the order they were received, failures are retried with
+ * exponential backoff and dead-lettered (state DEAD) after the configured number of attempts.
+ */
+@Service
+public class PayPalWebhookService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PayPalWebhookService.class);
+    
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(5);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+    
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+    
+    @Autowired
+    private PayPalWebhookHandler webhookHandler;
+    
+    @Autowired
+    private PayPalWebhookVerifier webhookVerifier;
+    
+    @Value("${app.webhooks.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${app.webhooks.max-attempts:10}")
+    private int maxAttempts;
+    
+    @Value("${app.webhooks.workers:4}")
+    private int workers;
+    
+    @Value("${app.webhooks.lease-ms:120000}")
+    private long leaseMs;
+    
+    private ExecutorService coordinator;
+    private ExecutorService executor;
+    private DurableEventDispatcher<WebhookEvent> dispatcher;
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+    
+    @PostConstruct
+    public void start() {
+        coordinator = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("webhook-dispatch-"));
+        executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("webhook-events-"));
+        dispatcher = new DurableEventDispatcher<>("PayPal webhook", webhookEventRepository, this::process, executor,
+                batchSize, maxAttempts, BASE_BACKOFF, MAX_BACKOFF, Duration.ofMillis(leaseMs));
+    }
+    
+    @PreDestroy
+    public void stop() {
+        coordinator.shutdown();
+        executor.shutdown();
+    }
+    
+    /**
+     * Stores a received webhook with the PayPal transmission headers it came with and wakes up
+     * the workers. Returns false if the event was a redelivery of one already stored.
+     */
+    public boolean ingest(Map<String, Object> payload, Map<String, String> transmission) {
+        Object eventId = payload.get("id");
+        Object eventType = payload.get("event_type");
+        
+        WebhookEvent event = new WebhookEvent(
+                eventId != null ? eventId.toString() : new ObjectId().toHexString(),
+                eventType != null ? eventType.toString() : null,
+                null,
+                payload);
+        event.setTransmission(transmission);
+        String resourceKey = PayPalWebhookHandler.resourceKey(event.getResource());
+        event.setResourceKey(resourceKey != null ? resourceKey : event.getId());
+        
+        boolean stored = webhookEventRepository.insertIfAbsent(event);
+        if (stored) {
+            requestDispatch();
+        } else {
+            logger.info("Ignoring redelivered PayPal webhook {}", event.getId());
+        }
+        return stored;
+    }
+    
+    /**
+     * Verifies a stored event with PayPal and handles it. An event PayPal does not confirm is
+     * dropped; it is deleted rather than kept, so its id stays free for a genuine delivery. If
+     * PayPal cannot be asked the event is retried like any other failure.
+     */
+    void process(WebhookEvent event) throws Exception {
+        if (!webhookVerifier.verify(event.getTransmission(), event.getPayload())) {
+            logger.warn("Dropping PayPal webhook {} ({}): signature verification failed", event.getId(), event.getEventType());
+            webhookEventRepository.deleteById(event.getId());
+            return;
+        }
+        webhookHandler.handle(event);
+    }
+    
+    // Safety net for events whose wake-up was lost (restart) or that are due for a retry
+    @Scheduled(fixedDelayString = "${app.webhooks.poll-interval-ms:5000}")
+    public void poll() {
+        requestDispatch();
+    }
+    
+    /**
+     * Runs a dispatch round on the coordinator thread unless one is already queued. Rounds on
+     * other nodes are kept apart by the leases taken in {@link DurableEventDispatcher}.
+     */
+    public void requestDispatch() {
+        if (dispatchRequested.compareAndSet(false, true)) {
+            coordinator.execute(() -> {
+                dispatchRequested.set(false);
+                try {
+                    while (dispatchPending() > 0) {
+                        // Keep draining while batches make progress
+                    }
+                } catch (Exception e) {
+                    logger.error("Webhook dispatch failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Processes one batch of due events and returns the number handled successfully.
+     */
+    public int dispatchPending() throws InterruptedException {
+        return dispatcher.dispatchPending();
+    }
+}
@@ -0,0 +1,90 @@
+package com.marketplace.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Checks that a webhook delivery really comes from PayPal, using PayPal's verify-webhook-signature
+ * API with the transmission headers of the delivery and the id of our registered webhook. Called
+ * by the webhook workers, so a slow PayPal never holds up acknowledging a delivery.
+ */
+@Service
+public class PayPalWebhookVerifier {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PayPalWebhookVerifier.class);
+    
+    static final String AUTH_ALGO = "PAYPAL-AUTH-ALGO";
+    static final String CERT_URL = "PAYPAL-CERT-URL";
+    static final String TRANSMISSION_ID = "PAYPAL-TRANSMISSION-ID";
+    static final String TRANSMISSION_SIG = "PAYPAL-TRANSMISSION-SIG";
+    static final String TRANSMISSION_TIME = "PAYPAL-TRANSMISSION-TIME";
+    
+    private static final List<String> REQUIRED_HEADERS =
+            List.of(AUTH_ALGO, CERT_URL, TRANSMISSION_ID, TRANSMISSION_SIG, TRANSMISSION_TIME);
+    
+    @Autowired
+    private PayPalService payPalService;
+    
+    @Value("${paypal.webhook.id:}")
+    private String webhookId = "";
+    
+    /**
+     * Returns the PayPal transmission headers of a delivery, to be stored with the event until
+     * it is verified.
+     */
+    public static Map<String, String> transmissionHeaders(HttpHeaders headers) {
+        Map<String, String> transmission = new HashMap<>();
+        for (String header : REQUIRED_HEADERS) {
+            String value = headers.getFirst(header);
+            if (value != null) {
+                transmission.put(header, value);
+            }
+        }
+        return transmission;
+    }
+    
+    /**
+     * Returns true if PayPal confirms the signature of the delivery. Returns false for a missing
+     * header, an unset webhook id or a failed verification; throws if PayPal could not be asked,
+     * so the event is retried later.
+     */
+    public boolean verify(Map<String, String> transmission, Map<String, Object> event) {
+        if (webhookId == null || webhookId.isBlank()) {
+            logger.error("paypal.webhook.id is not set; PayPal webhooks cannot be verified");
+            return false;
+        }
+        
+        Map<String, Object> verification = new HashMap<>();
+        for (String header : REQUIRED_HEADERS) {
+            String value = transmission != null ? transmission.get(header) : null;
+            if (value == null || value.isBlank()) {
+                logger.warn("PayPal webhook {} is missing header {}", event.get("id"), header);
+                return false;
+            }
+            verification.put(header.substring("PAYPAL-".length()).toLowerCase().replace('-', '_'), value);
+        }
+        verification.put("webhook_id", webhookId);
+        verification.put("webhook_event", event);
+        
+        try {
+            return payPalService.verifyWebhookSignatureAsync(verification).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying PayPal webhook", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            throw new IllegalStateException("PayPal webhook verification failed: " + cause.getMessage(), cause);
+        }
+    }
+}
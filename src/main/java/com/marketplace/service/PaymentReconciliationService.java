@@ -0,0 +1,294 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.ReconciliationCheckpoint;
+import com.marketplace.model.ReconciliationUpdate;
+import com.marketplace.repository.OrderRepository;
+import com.marketplace.repository.ReconciliationCheckpointRepository;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Capture;
+import com.paypal.orders.Money;
+import com.paypal.orders.PaymentCollection;
+import com.paypal.orders.PurchaseUnit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares stale PayPal-linked orders with PayPal and fixes their status: PENDING orders whose
+ * browser never came back are confirmed or cancelled, CONFIRMED orders that were refunded or
+ * declined on PayPal's side follow suit. Orders are checked in parallel on a small pool, paced by
+ * a token bucket to stay within PayPal's quota; results are written back per batch and progress
+ * is checkpointed. Lookups go through {@link PayPalService#getOrderAsync}, so they share the
+ * bulkhead, deadlines and circuit breaker with checkout; while the breaker is open a run stops
+ * without advancing the checkpoint. Runs are expected on one node at a time and execute on their
+ * own thread rather than the shared scheduler.
+ */
+@Service
+public class PaymentReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final long THROTTLE_PAUSE_MS = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PayPalService payPalService;
+
+    @Value("${app.reconciliation.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${app.reconciliation.concurrency:8}")
+    private int concurrency = 8;
+
+    @Value("${app.reconciliation.requests-per-second:100}")
+    private double requestsPerSecond = 100;
+
+    // An order untouched for this long is considered stale
+    @Value("${app.reconciliation.stale-after-minutes:30}")
+    private long staleAfterMinutes = 30;
+
+    // How often an order that still matches PayPal is checked again
+    @Value("${app.reconciliation.recheck-after-minutes:360}")
+    private long recheckAfterMinutes = 360;
+
+    // PENDING orders never captured within this window are cancelled (PayPal orders expire)
+    @Value("${app.reconciliation.abandon-after-hours:72}")
+    private long abandonAfterHours = 72;
+
+    @Value("${app.reconciliation.lookback-days:30}")
+    private long lookbackDays = 30;
+
+    @Value("${app.reconciliation.max-batches-per-run:50}")
+    private int maxBatchesPerRun = 50;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ExecutorService executor;
+    private ExecutorService runner;
+    private TokenBucket rateLimiter;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("reconciliation-"));
+        runner = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("reconciliation-run-"));
+        rateLimiter = new TokenBucket(requestsPerSecond, Math.max(1, (int) requestsPerSecond));
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    // A run can take minutes; it is handed off so the scheduler thread stays free for other jobs
+    @Scheduled(fixedDelayString = "${app.reconciliation.interval-ms:60000}")
+    public void scheduledRun() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(() -> {
+                try {
+                    reconcile();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (PayPalUnavailableException e) {
+                    logger.warn("Payment reconciliation paused: {}", e.getMessage());
+                } catch (Exception e) {
+                    logger.error("Payment reconciliation failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Processes up to {@code maxBatchesPerRun} batches, resuming from the stored checkpoint.
+     *
+     * @throws PayPalUnavailableException if the PayPal circuit breaker opened during a batch;
+     *         that batch is neither applied nor checkpointed
+     */
+    public ReconciliationCheckpoint reconcile() throws InterruptedException {
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(ReconciliationCheckpoint.PAYPAL_ORDERS)
+                .orElseGet(() -> new ReconciliationCheckpoint(ReconciliationCheckpoint.PAYPAL_ORDERS));
+
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            LocalDateTime now = LocalDateTime.now();
+            List<Order> batch = orderRepository.findReconciliationBatch(
+                    checkpoint.getLastOrderId(),
+                    now.minusDays(lookbackDays),
+                    now.minusMinutes(staleAfterMinutes),
+                    now.minusMinutes(recheckAfterMinutes),
+                    batchSize);
+
+            if (batch.isEmpty()) {
+                if (checkpoint.getLastOrderId() != null) {
+                    logger.info("Payment reconciliation pass complete: {} orders checked, {} updated",
+                            checkpoint.getChecked(), checkpoint.getUpdated());
+                    checkpoint.completePass(now);
+                    checkpointRepository.save(checkpoint);
+                }
+                break;
+            }
+
+            List<ReconciliationUpdate> updates = checkBatch(batch, now);
+            int changed = orderRepository.applyReconciliation(updates, now);
+
+            checkpoint.advance(batch.get(batch.size() - 1).getId(), updates.size(), changed, now);
+            checkpointRepository.save(checkpoint);
+        }
+        return checkpoint;
+    }
+
+    private List<ReconciliationUpdate> checkBatch(List<Order> batch, LocalDateTime now) throws InterruptedException {
+        List<Future<ReconciliationUpdate>> futures = new ArrayList<>();
+        for (Order order : batch) {
+            futures.add(executor.submit(() -> check(order, now)));
+        }
+
+        List<ReconciliationUpdate> updates = new ArrayList<>();
+        PayPalUnavailableException unavailable = null;
+        for (Future<ReconciliationUpdate> future : futures) {
+            try {
+                ReconciliationUpdate update = future.get();
+                if (update != null) {
+                    updates.add(update);
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PayPalUnavailableException) {
+                    unavailable = (PayPalUnavailableException) e.getCause();
+                } else {
+                    logger.warn("Reconciliation check failed: {}", e.getCause().getMessage());
+                }
+            }
+        }
+        if (unavailable != null) {
+            throw unavailable;
+        }
+        return updates;
+    }
+
+    // Returns null when PayPal could not tell us anything; the order is then retried next pass
+    private ReconciliationUpdate check(Order order, LocalDateTime now) throws InterruptedException {
+        rateLimiter.acquire();
+        com.paypal.orders.Order paypalOrder;
+        try {
+            paypalOrder = payPalService.getOrderAsync(order.getPaypalPaymentId()).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PayPalUnavailableException) {
+                throw (PayPalUnavailableException) cause;
+            }
+            if (cause instanceof HttpException) {
+                int statusCode = ((HttpException) cause).statusCode();
+                if (statusCode == 429) {
+                    rateLimiter.pause(THROTTLE_PAUSE_MS);
+                    return null;
+                }
+                if (statusCode == 404) {
+                    return decide(order, null, null, now);
+                }
+                logger.warn("PayPal lookup of order {} failed with {}", order.getId(), statusCode);
+                return null;
+            }
+            if (PayPalBulkhead.isRejection(cause)) {
+                // Checkout has the bulkhead busy; back off like on a 429
+                rateLimiter.pause(THROTTLE_PAUSE_MS);
+                return null;
+            }
+            logger.warn("PayPal lookup of order {} failed: {}", order.getId(), cause.getMessage());
+            return null;
+        }
+
+        Capture capture = firstCapture(paypalOrder);
+        return decide(order, paypalOrder.status(), capture, now);
+    }
+
+    /**
+     * Maps the PayPal view of an order to a local status change. A null PayPal status means the
+     * PayPal order no longer exists.
+     */
+    ReconciliationUpdate decide(Order order, String paypalStatus, Capture capture, LocalDateTime now) {
+        OrderStatus target = null;
+        String captureId = null;
+        String captureStatus = capture != null ? capture.status() : null;
+
+        if ("COMPLETED".equals(paypalStatus) && capture != null) {
+            if ("COMPLETED".equals(captureStatus) || "PENDING".equals(captureStatus)) {
+                target = OrderStatus.CONFIRMED;
+                captureId = capture.id();
+                if (order.getStatus() != OrderStatus.CONFIRMED && !matchesPayment(order, capture)) {
+                    logger.error("Not confirming order {}: PayPal capture {} is for {}, expected {} {}",
+                            order.getId(), capture.id(), describe(capture.amount()),
+                            order.getPaymentAmount() != null ? order.getPaymentAmount() : order.getTotalAmount(),
+                            Order.PAYMENT_CURRENCY);
+                    return ReconciliationUpdate.unchanged(order);
+                }
+            } else if ("REFUNDED".equals(captureStatus)) {
+                target = order.getStatus() == OrderStatus.PENDING ? OrderStatus.CANCELLED : OrderStatus.REFUNDED;
+            } else if ("DECLINED".equals(captureStatus)) {
+                target = OrderStatus.CANCELLED;
+            }
+        } else if ("VOIDED".equals(paypalStatus)) {
+            target = OrderStatus.CANCELLED;
+        } else if (order.getStatus() == OrderStatus.PENDING
+                && order.getCreatedAt() != null
+                && order.getCreatedAt().isBefore(now.minus(Duration.ofHours(abandonAfterHours)))) {
+            // Never captured (or expired on PayPal's side) long after checkout
+            target = OrderStatus.CANCELLED;
+        }
+
+        if (target == null || target == order.getStatus() || !order.getStatus().canTransitionTo(target)) {
+            return ReconciliationUpdate.unchanged(order);
+        }
+        return new ReconciliationUpdate(order.getId(), order.getStatus(), target, captureId);
+    }
+
+    private static boolean matchesPayment(Order order, Capture capture) {
+        Money amount = capture.amount();
+        return amount != null && order.matchesPayment(amount.currencyCode(), amount.value());
+    }
+
+    private static String describe(Money amount) {
+        return amount == null ? "no amount" : amount.value() + " " + amount.currencyCode();
+    }
+
+    private static Capture firstCapture(com.paypal.orders.Order paypalOrder) {
+        if (paypalOrder.purchaseUnits() == null || paypalOrder.purchaseUnits().isEmpty()) {
+            return null;
+        }
+        PurchaseUnit unit = paypalOrder.purchaseUnits().get(0);
+        PaymentCollection payments = unit.payments();
+        if (payments == null || payments.captures() == null || payments.captures().isEmpty()) {
+            return null;
+        }
+        return payments.captures().get(0);
+    }
+}
@@ -5,10 +5,14 @@ import com.marketplace.model.Product;
 import com.marketplace.model.ProductMongo;
 import com.marketplace.repository.ProductRepository;
 import com.marketplace.repository.ProductMongoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -25,6 +29,27 @@ public class ProductService {
     @Autowired(required = false)
     private ProductMongoRepository productMongoRepository;
     
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    
+    // How long a lookup waits for a concurrent read of the same product before reading itself
+    @Value("${app.products.lookup-max-wait-ms:250}")
+    private long lookupMaxWaitMs = 250;
+    
+    // Concurrent lookups of the same product share one database read
+    private SingleFlight<String, Optional<Product>> productLoads;
+    private SingleFlight<String, Optional<ProductMongo>> mongoProductLoads;
+    
+    @PostConstruct
+    public void start() {
+        productLoads = new SingleFlight<>(Duration.ofMillis(lookupMaxWaitMs));
+        mongoProductLoads = new SingleFlight<>(Duration.ofMillis(lookupMaxWaitMs));
+        if (meterRegistry != null) {
+            productLoads.bindTo(meterRegistry, "product.findById");
+            mongoProductLoads.bindTo(meterRegistry, "product.findById.mongo");
+        }
+    }
+    
     public List<ProductDto> findAll() {
         if (databaseConfig.isMongoEnabled() && productMongoRepository != null) {
             return productMongoRepository.findAll().stream()
@@ -37,12 +62,20 @@ public class ProductService {
         }
     }
     
+    /**
+     * Reads a product for the storefront and REST API. Concurrent reads of the same id share one
+     * repository call, so the returned product must not be modified.
+     */
+    public Optional<Product> getProduct(String id) {
+        return productLoads.execute(id, () -> productRepository.findById(id));
+    }
+    
     public Optional<ProductDto> findById(String id) {
         if (databaseConfig.isMongoEnabled() && productMongoRepository != null) {
-            return productMongoRepository.findById(id).map(this::convertToDto);
+            return mongoProductLoads.execute(id, () -> productMongoRepository.findById(id)).map(this::convertToDto);
         } else {
             try {
-                return productRepository.findById(id).map(this::convertToDto);
+                return getProduct(id).map(this::convertToDto);
             } catch (NumberFormatException e) {
                 return Optional.empty();
             }
@@ -0,0 +1,26 @@
+package com.marketplace.service;
+
+import com.marketplace.model.OrderEvent;
+import com.marketplace.model.OrderEventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds status changes from the order outbox into the sales rollups.
+ */
+@Component
+public class SalesRollupOrderEventHandler implements OrderEventHandler {
+    
+    @Autowired
+    private SalesRollupService salesRollupService;
+    
+    @Override
+    public boolean supports(OrderEvent event) {
+        return event.getType() == OrderEventType.STATUS_CHANGED || event.getType() == OrderEventType.PAYMENT_CONFIRMED;
+    }
+    
+    @Override
+    public void handle(OrderEvent event) {
+        salesRollupService.recordStatusChange(event.getOrderId(), event.getStatus(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,183 @@
+package com.marketplace.service;
+
+import com.marketplace.model.CartItem;
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.SalesRollup;
+import com.marketplace.model.SalesRollup.Granularity;
+import com.marketplace.repository.OrderRepository;
+import com.marketplace.repository.SalesRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains minute, hour and day sales buckets incrementally as orders are confirmed,
+ * delivered and refunded, and answers date-range reports from those buckets.
+ */
+@Service
+public class SalesRollupService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+    
+    static final String SALE = "SALE";
+    static final String DELIVERY = "DELIVERY";
+    static final String REVERSAL = "REVERSAL";
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+    
+    /**
+     * Applies the rollup contribution of an order reaching {@code status} at {@code at}. A
+     * contribution is first claimed on the order with the time it is counted at, then added to
+     * the buckets, then marked applied. Every step can be repeated: a redelivered event re-applies
+     * a claimed contribution at its claimed time, and buckets skip contributions they already hold,
+     * so an event that failed anywhere along the way is counted exactly once when it is retried.
+     */
+    public void recordStatusChange(String orderId, OrderStatus status, LocalDateTime at) {
+        switch (status) {
+            case CONFIRMED:
+                recordSale(orderId, at);
+                break;
+            case DELIVERED:
+                recordDelivery(orderId, at);
+                break;
+            case REFUNDED:
+            case CANCELLED:
+                recordReversal(orderId, at);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void recordSale(String orderId, LocalDateTime at) {
+        Order order = claim(orderId, SALE, at);
+        if (order == null) {
+            return;
+        }
+        apply(order, SALE, deltas(order, "revenueCents", "orderCount", "unitsSold"));
+    }
+    
+    private void recordDelivery(String orderId, LocalDateTime at) {
+        Order order = claim(orderId, DELIVERY, at);
+        if (order == null) {
+            return;
+        }
+        
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        for (CartItem item : order.getItems()) {
+            deltas.computeIfAbsent(item.getProductId(), id -> new HashMap<>()).put("deliveredOrders", 1L);
+        }
+        deltas.put(SalesRollup.ALL_PRODUCTS, new HashMap<>(Map.of("deliveredOrders", 1L)));
+        apply(order, DELIVERY, deltas);
+    }
+    
+    private void recordReversal(String orderId, LocalDateTime at) {
+        Order order = claim(orderId, REVERSAL, at);
+        if (order == null) {
+            return;
+        }
+        if (!order.getRollupTimes().containsKey(SALE)) {
+            // Cancelled before payment was confirmed: nothing was counted, so nothing to reverse
+            logger.debug("Order {} reversed without a recorded sale, skipping rollup", orderId);
+            orderRepository.markRollupApplied(orderId, REVERSAL);
+            return;
+        }
+        apply(order, REVERSAL, deltas(order, "refundedCents", "refundedOrders", "refundedUnits"));
+    }
+    
+    /**
+     * Returns the order if the contribution still has to be counted, or null if it already was.
+     */
+    private Order claim(String orderId, String contribution, LocalDateTime at) {
+        Order order = orderRepository.claimRollup(orderId, contribution, at);
+        if (order == null || order.getAppliedRollups().contains(contribution)) {
+            return null;
+        }
+        return order;
+    }
+    
+    private void apply(Order order, String contribution, Map<String, Map<String, Long>> deltas) {
+        LocalDateTime at = order.getRollupTimes().get(contribution);
+        salesRollupRepository.increment(at, order.getId() + ":" + contribution, deltas);
+        orderRepository.markRollupApplied(order.getId(), contribution);
+    }
+    
+    private Map<String, Map<String, Long>> deltas(Order order, String amountField, String orderField, String unitsField) {
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        for (CartItem item : order.getItems()) {
+            Map<String, Long> product = deltas.computeIfAbsent(item.getProductId(), id -> new HashMap<>());
+            product.merge(amountField, toCents(item.getSubtotal()), Long::sum);
+            product.put(orderField, 1L);
+            product.merge(unitsField, (long) item.getQuantity(), Long::sum);
+        }
+        
+        Map<String, Long> total = new HashMap<>();
+        total.put(amountField, toCents(order.getTotalAmount()));
+        total.put(orderField, 1L);
+        total.put(unitsField, (long) order.getTotalItems());
+        deltas.put(SalesRollup.ALL_PRODUCTS, total);
+        return deltas;
+    }
+    
+    private long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    /**
+     * Returns the buckets covering [from, to) at minute resolution for one product, or for all
+     * products when {@code productId} is null.
+     */
+    public List<SalesRollup> getBuckets(LocalDateTime from, LocalDateTime to, String productId) {
+        String key = productId != null ? productId : SalesRollup.ALL_PRODUCTS;
+        return salesRollupRepository.findInRanges(key, planRanges(from, to));
+    }
+    
+    /**
+     * Splits [from, to) into the coarsest buckets that tile it exactly: minutes up to the first
+     * whole hour, hours up to the first whole day, whole days, then hours and minutes again at
+     * the tail. Any range needs at most a few hundred buckets plus one per day.
+     */
+    static List<SalesRollup.Range> planRanges(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = Granularity.MINUTE.floor(from);
+        LocalDateTime end = Granularity.MINUTE.ceil(to);
+        List<SalesRollup.Range> ranges = new ArrayList<>();
+        
+        LocalDateTime hourStart = Granularity.HOUR.ceil(start);
+        LocalDateTime hourEnd = Granularity.HOUR.floor(end);
+        if (!hourStart.isBefore(hourEnd)) {
+            ranges.add(new SalesRollup.Range(Granularity.MINUTE, start, end));
+            ranges.removeIf(SalesRollup.Range::isEmpty);
+            return ranges;
+        }
+        
+        ranges.add(new SalesRollup.Range(Granularity.MINUTE, start, hourStart));
+        
+        LocalDateTime dayStart = Granularity.DAY.ceil(hourStart);
+        LocalDateTime dayEnd = Granularity.DAY.floor(hourEnd);
+        if (!dayStart.isBefore(dayEnd)) {
+            ranges.add(new SalesRollup.Range(Granularity.HOUR, hourStart, hourEnd));
+        } else {
+            ranges.add(new SalesRollup.Range(Granularity.HOUR, hourStart, dayStart));
+            ranges.add(new SalesRollup.Range(Granularity.DAY, dayStart, dayEnd));
+            ranges.add(new SalesRollup.Range(Granularity.HOUR, dayEnd, hourEnd));
+        }
+        
+        ranges.add(new SalesRollup.Range(Granularity.MINUTE, hourEnd, end));
+        ranges.removeIf(SalesRollup.Range::isEmpty);
+        return ranges;
+    }
+}
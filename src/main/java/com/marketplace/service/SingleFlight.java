@@ -0,0 +1,132 @@
+package com.marketplace.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the call and callers that
+ * arrive while it is in flight wait for and share its result (or exception) instead of running
+ * it again. Nothing is cached once the call completes. Useful in front of hot reads such as a
+ * popular product, where a burst of identical lookups would otherwise each hit the database.
+ * <p>
+ * Waiting is bounded by {@code maxWait}: a caller whose call is still in flight after that runs
+ * the call itself, so one stuck call cannot hold every request for the same key.
+ * <p>
+ * Shared results must not be mutated by callers.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder waitTimeouts = new LongAdder();
+    private final long maxWaitNanos;
+
+    public SingleFlight(Duration maxWait) {
+        if (maxWait.isNegative() || maxWait.isZero()) {
+            throw new IllegalArgumentException("maxWait must be positive: " + maxWait);
+        }
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return await(existing, maxWaitNanos);
+            } catch (TimeoutException e) {
+                // Not shared with later callers: they keep waiting for the original call
+                waitTimeouts.increment();
+                executed.increment();
+                return call.get();
+            }
+        }
+
+        executed.increment();
+        try {
+            V value = call.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Calls that actually ran.
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * Calls that waited for a call already in flight, including those that stopped waiting.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Calls that gave up waiting after {@code maxWait} and ran on their own.
+     */
+    public long getWaitTimeouts() {
+        return waitTimeouts.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Publishes {@code singleflight.calls{name, result=executed|coalesced|wait_timeout}}.
+     */
+    public SingleFlight<K, V> bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("singleflight.calls", executed, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "executed")
+                .register(registry);
+        FunctionCounter.builder("singleflight.calls", coalesced, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("singleflight.calls", waitTimeouts, LongAdder::sum)
+                .tag("name", name)
+                .tag("result", "wait_timeout")
+                .register(registry);
+        return this;
+    }
+
+    private static <V> V await(CompletableFuture<V> call, long maxWaitNanos) throws TimeoutException {
+        try {
+            return call.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.marketplace.service;
+
+/**
+ * Blocking token bucket for pacing calls to a rate-limited upstream. Tokens refill continuously
+ * at {@code permitsPerSecond} up to {@code capacity}; {@link #acquire()} waits for a token.
+ */
+public class TokenBucket {
+    
+    private final double permitsPerNano;
+    private final double capacity;
+    
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    
+    public TokenBucket(double permitsPerSecond, int capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+    
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryReserve()) > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+    
+    /**
+     * Stops handing out tokens for {@code millis}, e.g. after the upstream answered 429, and
+     * drops the tokens saved up meanwhile.
+     */
+    public synchronized void pause(long millis) {
+        long until = System.nanoTime() + millis * 1_000_000;
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+        tokens = 0;
+    }
+    
+    // Takes a token and returns 0, or returns how long to wait before trying again
+    private synchronized long tryReserve() {
+        long now = System.nanoTime();
+        if (now - pausedUntil < 0) {
+            return pausedUntil - now;
+        }
+        long refillFrom = lastRefill - pausedUntil < 0 ? pausedUntil : lastRefill;
+        tokens = Math.min(capacity, tokens + (now - refillFrom) * permitsPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / permitsPerNano);
+    }
+}
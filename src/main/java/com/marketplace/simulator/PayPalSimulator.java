@@ -0,0 +1,573 @@
+package com.marketplace.simulator;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the PayPal Orders v2 API, used for load and failure testing without
+ * the sandbox. Implements the OAuth token endpoint, create, get and capture, a buyer approval
+ * page ({@code /checkoutnow}) and webhook emission for approvals and captures. Webhooks are
+ * signed with a per-instance secret and checked by its {@code verify-webhook-signature} endpoint.
+ * <p>
+ * Orders API calls are delayed by a log-normal latency and can be throttled (429) or failed
+ * (500) at configurable rates, so checkout throughput and resilience can be measured on an
+ * isolated machine. State lives in memory only.
+ */
+public class PayPalSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayPalSimulator.class);
+
+    private static final String ORDERS_PATH = "/v2/checkout/orders";
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final PayPalSimulatorSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Map<String, Object>> orders = new ConcurrentHashMap<>();
+    private final Map<String, String> orderIdsByRequestId = new ConcurrentHashMap<>();
+    private final byte[] webhookSecret = new byte[32];
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong ordersCreated = new AtomicLong();
+    private final AtomicLong captures = new AtomicLong();
+    private final AtomicLong webhooksSent = new AtomicLong();
+    private final AtomicLong webhooksFailed = new AtomicLong();
+
+    private long rateWindowStart;
+    private int rateWindowCount;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ScheduledExecutorService webhookSender;
+
+    public PayPalSimulator(PayPalSimulatorSettings settings) {
+        this.settings = settings;
+        new SecureRandom().nextBytes(webhookSecret);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        handlers = Executors.newFixedThreadPool(settings.getThreads(), new CustomizableThreadFactory("paypal-sim-"));
+        webhookSender = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("paypal-sim-webhooks-"));
+
+        server = HttpServer.create(new InetSocketAddress("localhost", settings.getPort()), 512);
+        server.createContext("/v1/oauth2/token", this::handleToken);
+        server.createContext(ORDERS_PATH, this::handleOrders);
+        server.createContext("/checkoutnow", this::handleApproval);
+        server.createContext("/v1/notifications/verify-webhook-signature", this::handleVerifyWebhookSignature);
+        server.setExecutor(handlers);
+        server.start();
+        logger.info("PayPal simulator listening on {}", getBaseUrl());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        handlers.shutdownNow();
+        webhookSender.shutdownNow();
+        server = null;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("throttled", throttled.get());
+        stats.put("errors", errors.get());
+        stats.put("orders_created", ordersCreated.get());
+        stats.put("captures", captures.get());
+        stats.put("webhooks_sent", webhooksSent.get());
+        stats.put("webhooks_failed", webhooksFailed.get());
+        return stats;
+    }
+
+    /**
+     * Returns a copy of the simulated order, or null if it does not exist.
+     */
+    public Map<String, Object> getOrder(String orderId) {
+        Map<String, Object> order = orders.get(orderId);
+        if (order == null) {
+            return null;
+        }
+        synchronized (order) {
+            return new LinkedHashMap<>(order);
+        }
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        try {
+            drain(exchange);
+            Map<String, Object> token = new LinkedHashMap<>();
+            token.put("scope", "https://uri.paypal.com/services/payments/payment");
+            token.put("access_token", "SIM-" + UUID.randomUUID());
+            token.put("token_type", "Bearer");
+            token.put("app_id", "APP-SIMULATOR");
+            token.put("expires_in", 32400);
+            token.put("nonce", UUID.randomUUID().toString());
+            respond(exchange, 200, token);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleOrders(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            if (injectFault(exchange)) {
+                return;
+            }
+
+            String rest = exchange.getRequestURI().getPath().substring(ORDERS_PATH.length());
+            String method = exchange.getRequestMethod();
+            // path[0] is the empty segment before the order id
+            String[] path = rest.split("/");
+            if ((rest.isEmpty() || "/".equals(rest)) && "POST".equals(method)) {
+                createOrder(exchange);
+            } else if (path.length == 2 && "GET".equals(method)) {
+                getOrder(exchange, path[1]);
+            } else if (path.length == 3 && "capture".equals(path[2]) && "POST".equals(method)) {
+                captureOrder(exchange, path[1]);
+            } else {
+                respondError(exchange, 404, "RESOURCE_NOT_FOUND", "The specified resource does not exist.");
+            }
+        } catch (Exception e) {
+            logger.warn("PayPal simulator failed to handle {}: {}", exchange.getRequestURI(), e.getMessage());
+            respondError(exchange, 500, "INTERNAL_SERVER_ERROR", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Throttling is decided before the latency so that 429s are as cheap as PayPal's
+    private boolean injectFault(HttpExchange exchange) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (overRateLimit() || random.nextDouble() < settings.getThrottleRate()) {
+            throttled.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respondError(exchange, 429, "RATE_LIMIT_REACHED", "Too many requests. Blocked due to rate limiting.");
+            return true;
+        }
+
+        long latency = sampleLatencyMs(random);
+        if (latency > 0) {
+            Thread.sleep(latency);
+        }
+
+        if (random.nextDouble() < settings.getErrorRate()) {
+            errors.incrementAndGet();
+            respondError(exchange, 500, "INTERNAL_SERVER_ERROR", "An internal server error has occurred.");
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized boolean overRateLimit() {
+        if (settings.getMaxRequestsPerSecond() <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - rateWindowStart >= 1000) {
+            rateWindowStart = now;
+            rateWindowCount = 0;
+        }
+        return ++rateWindowCount > settings.getMaxRequestsPerSecond();
+    }
+
+    long sampleLatencyMs(ThreadLocalRandom random) {
+        long median = settings.getLatencyMedianMs();
+        if (median <= 0) {
+            return 0;
+        }
+        long p99 = Math.max(median, settings.getLatencyP99Ms());
+        double sigma = Math.log((double) p99 / median) / Z_99;
+        double latency = median * Math.exp(sigma * random.nextGaussian());
+        // Cut off the far tail so a single sample cannot stall a handler thread for minutes
+        return (long) Math.min(latency, p99 * 10d);
+    }
+
+    private void createOrder(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = readJson(exchange);
+
+        String requestId = exchange.getRequestHeaders().getFirst("PayPal-Request-Id");
+        if (requestId != null) {
+            String existingId = orderIdsByRequestId.get(requestId);
+            if (existingId != null && orders.containsKey(existingId)) {
+                // Same PayPal-Request-Id: PayPal returns the order created by the first request
+                getOrder(exchange, existingId);
+                return;
+            }
+        }
+
+        String orderId = newId();
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("id", orderId);
+        order.put("intent", request.getOrDefault("intent", "CAPTURE"));
+        order.put("status", settings.isAutoApprove() ? "APPROVED" : "CREATED");
+        order.put("purchase_units", request.getOrDefault("purchase_units", new ArrayList<>()));
+        order.put("create_time", Instant.now().toString());
+        order.put("links", orderLinks(orderId));
+
+        Object context = request.get("application_context");
+        if (context instanceof Map) {
+            order.put("return_url", ((Map<?, ?>) context).get("return_url"));
+        }
+
+        orders.put(orderId, order);
+        if (requestId != null) {
+            String winner = orderIdsByRequestId.putIfAbsent(requestId, orderId);
+            if (winner != null) {
+                // A concurrent request with the same id won the race
+                orders.remove(orderId);
+                getOrder(exchange, winner);
+                return;
+            }
+        }
+        ordersCreated.incrementAndGet();
+        respondOrder(exchange, 201, order);
+    }
+
+    private void getOrder(HttpExchange exchange, String orderId) throws IOException {
+        Map<String, Object> order = orders.get(orderId);
+        if (order == null) {
+            respondError(exchange, 404, "RESOURCE_NOT_FOUND", "The specified resource does not exist.");
+            return;
+        }
+        respondOrder(exchange, 200, order);
+    }
+
+    private void captureOrder(HttpExchange exchange, String orderId) throws IOException {
+        drain(exchange);
+        Map<String, Object> order = orders.get(orderId);
+        if (order == null) {
+            respondError(exchange, 404, "RESOURCE_NOT_FOUND", "The specified resource does not exist.");
+            return;
+        }
+
+        Map<String, Object> capture;
+        synchronized (order) {
+            Object status = order.get("status");
+            if ("COMPLETED".equals(status)) {
+                respondError(exchange, 422, "UNPROCESSABLE_ENTITY", "ORDER_ALREADY_CAPTURED");
+                return;
+            }
+            if (!"APPROVED".equals(status)) {
+                respondError(exchange, 422, "UNPROCESSABLE_ENTITY", "ORDER_NOT_APPROVED");
+                return;
+            }
+
+            Map<String, Object> unit = firstPurchaseUnit(order);
+            boolean declined = ThreadLocalRandom.current().nextDouble() < settings.getDeclineRate();
+            capture = new LinkedHashMap<>();
+            capture.put("id", newId());
+            capture.put("status", declined ? "DECLINED" : "COMPLETED");
+            capture.put("amount", unit.get("amount"));
+            capture.put("custom_id", unit.get("custom_id"));
+            capture.put("final_capture", true);
+            capture.put("create_time", Instant.now().toString());
+
+            List<Map<String, Object>> captureList = new ArrayList<>();
+            captureList.add(capture);
+            Map<String, Object> payments = new LinkedHashMap<>();
+            payments.put("captures", captureList);
+            unit.put("payments", payments);
+            order.put("status", "COMPLETED");
+            captures.incrementAndGet();
+            respondOrder(exchange, 201, order);
+        }
+
+        Map<String, Object> resource = new LinkedHashMap<>(capture);
+        resource.put("supplementary_data", Map.of("related_ids", Map.of("order_id", orderId)));
+        emitWebhook("COMPLETED".equals(capture.get("status")) ? "PAYMENT.CAPTURE.COMPLETED" : "PAYMENT.CAPTURE.DENIED",
+                "capture", resource);
+    }
+
+    // Buyer approval: marks the order APPROVED and sends the browser back to the shop
+    private void handleApproval(HttpExchange exchange) throws IOException {
+        try {
+            String orderId = queryParameter(exchange, "token");
+            Map<String, Object> order = orderId != null ? orders.get(orderId) : null;
+            if (order == null) {
+                respondError(exchange, 404, "RESOURCE_NOT_FOUND", "Unknown checkout token.");
+                return;
+            }
+
+            Map<String, Object> approved;
+            synchronized (order) {
+                if ("CREATED".equals(order.get("status"))) {
+                    order.put("status", "APPROVED");
+                }
+                approved = publicView(order);
+            }
+            emitWebhook("CHECKOUT.ORDER.APPROVED", "checkout-order", approved);
+
+            Object returnUrl = order.get("return_url");
+            if (returnUrl == null) {
+                respond(exchange, 200, approved);
+                return;
+            }
+            String separator = returnUrl.toString().contains("?") ? "&" : "?";
+            exchange.getResponseHeaders().add("Location", returnUrl + separator + "token=" + orderId + "&PayerID=SIMBUYER");
+            exchange.sendResponseHeaders(302, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void emitWebhook(String eventType, String resourceType, Map<String, Object> resource) {
+        String webhookUrl = settings.getWebhookUrl();
+        if (webhookUrl == null || webhookUrl.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", "WH-" + newId());
+        event.put("event_version", "1.0");
+        event.put("create_time", Instant.now().toString());
+        event.put("resource_type", resourceType);
+        event.put("event_type", eventType);
+        event.put("summary", "Simulated " + eventType);
+        event.put("resource", resource);
+
+        webhookSender.schedule(() -> sendWebhook(webhookUrl, event), settings.getWebhookDelayMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void sendWebhook(String webhookUrl, Map<String, Object> event) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(event);
+            HttpURLConnection connection = (HttpURLConnection) new URL(webhookUrl).openConnection();
+            if (connection instanceof HttpsURLConnection && settings.isWebhookTrustAllCertificates()) {
+                trustAll((HttpsURLConnection) connection);
+            }
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(2000);
+            connection.setReadTimeout(5000);
+            connection.setRequestProperty("Content-Type", "application/json");
+            String transmissionId = UUID.randomUUID().toString();
+            String transmissionTime = Instant.now().toString();
+            connection.setRequestProperty("PAYPAL-TRANSMISSION-ID", transmissionId);
+            connection.setRequestProperty("PAYPAL-TRANSMISSION-TIME", transmissionTime);
+            connection.setRequestProperty("PAYPAL-TRANSMISSION-SIG",
+                    sign(transmissionId, transmissionTime, settings.getWebhookId(), (String) event.get("id")));
+            connection.setRequestProperty("PAYPAL-AUTH-ALGO", "SHA256withRSA");
+            connection.setRequestProperty("PAYPAL-CERT-URL", getBaseUrl() + "/v1/notifications/certs/SIMULATOR");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            connection.disconnect();
+            if (status >= 200 && status < 300) {
+                webhooksSent.incrementAndGet();
+            } else {
+                webhooksFailed.incrementAndGet();
+                logger.warn("Simulated webhook {} rejected with {}", event.get("event_type"), status);
+            }
+        } catch (Exception e) {
+            webhooksFailed.incrementAndGet();
+            logger.warn("Simulated webhook {} failed: {}", event.get("event_type"), e.getMessage());
+        }
+    }
+
+    private void handleVerifyWebhookSignature(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                drain(exchange);
+                respondError(exchange, 405, "METHOD_NOT_SUPPORTED", "The method is not supported.");
+                return;
+            }
+            Map<String, Object> verification = readJson(exchange);
+            Object event = verification.get("webhook_event");
+            Object eventId = event instanceof Map ? ((Map<?, ?>) event).get("id") : null;
+            Object signature = verification.get("transmission_sig");
+
+            boolean valid = settings.getWebhookId().equals(verification.get("webhook_id"))
+                    && eventId instanceof String
+                    && signature instanceof String
+                    && MessageDigest.isEqual(
+                            sign(String.valueOf(verification.get("transmission_id")),
+                                    String.valueOf(verification.get("transmission_time")),
+                                    settings.getWebhookId(), (String) eventId).getBytes(StandardCharsets.UTF_8),
+                            ((String) signature).getBytes(StandardCharsets.UTF_8));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("verification_status", valid ? "SUCCESS" : "FAILURE");
+            respond(exchange, 200, result);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Signs the fields a webhook delivery is verified on. PayPal uses an RSA certificate chain;
+     * the simulator only needs signatures that cannot be produced without its secret.
+     */
+    String sign(String transmissionId, String transmissionTime, String webhookId, String eventId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret, "HmacSHA256"));
+            String payload = transmissionId + "|" + transmissionTime + "|" + webhookId + "|" + eventId;
+            return Base64.getEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static void trustAll(HttpsURLConnection connection) throws Exception {
+        TrustManager[] trustAll = { new X509TrustManager() {
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        } };
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustAll, null);
+        connection.setSSLSocketFactory(context.getSocketFactory());
+        connection.setHostnameVerifier((host, session) -> true);
+    }
+
+    private List<Map<String, Object>> orderLinks(String orderId) {
+        String self = getBaseUrl() + ORDERS_PATH + "/" + orderId;
+        List<Map<String, Object>> links = new ArrayList<>();
+        links.add(link(self, "self", "GET"));
+        links.add(link(getBaseUrl() + "/checkoutnow?token=" + orderId, "approve", "GET"));
+        links.add(link(self + "/capture", "capture", "POST"));
+        return links;
+    }
+
+    private static Map<String, Object> link(String href, String rel, String method) {
+        Map<String, Object> link = new LinkedHashMap<>();
+        link.put("href", href);
+        link.put("rel", rel);
+        link.put("method", method);
+        return link;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> firstPurchaseUnit(Map<String, Object> order) {
+        List<Map<String, Object>> units = (List<Map<String, Object>>) order.get("purchase_units");
+        if (units.isEmpty()) {
+            units.add(new LinkedHashMap<>());
+        }
+        return units.get(0);
+    }
+
+    // Internal bookkeeping fields are not part of the PayPal representation
+    private static Map<String, Object> publicView(Map<String, Object> order) {
+        Map<String, Object> view = new LinkedHashMap<>(order);
+        view.remove("return_url");
+        return view;
+    }
+
+    private void respondOrder(HttpExchange exchange, int status, Map<String, Object> order) throws IOException {
+        Map<String, Object> view;
+        synchronized (order) {
+            view = publicView(order);
+        }
+        respond(exchange, status, view);
+    }
+
+    private void respondError(HttpExchange exchange, int status, String name, String message) throws IOException {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("name", name);
+        error.put("message", message);
+        error.put("debug_id", "sim" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        respond(exchange, status, error);
+    }
+
+    private void respond(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Map<String, Object> readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length == 0) {
+                return new HashMap<>();
+            }
+            return objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return java.net.URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 17).toUpperCase();
+    }
+}
@@ -0,0 +1,144 @@
+package com.marketplace.simulator;
+
+/**
+ * Behaviour of the {@link PayPalSimulator}. Latency follows a log-normal distribution defined by
+ * its median and 99th percentile; rates are fractions between 0 and 1.
+ */
+public class PayPalSimulatorSettings {
+
+    // 0 picks a free port
+    private int port = 8089;
+    private int threads = 64;
+
+    private long latencyMedianMs = 150;
+    private long latencyP99Ms = 800;
+
+    // Share of Orders API calls answered with 500 INTERNAL_SERVER_ERROR
+    private double errorRate = 0;
+
+    // Share of Orders API calls answered with 429 RATE_LIMIT_REACHED
+    private double throttleRate = 0;
+
+    // Calls beyond this rate are answered with 429; 0 disables the limit
+    private int maxRequestsPerSecond = 0;
+
+    // Share of captures that come back DECLINED
+    private double declineRate = 0;
+
+    // Orders are created APPROVED so they can be captured without a browser
+    private boolean autoApprove = true;
+
+    // Webhooks are only emitted when a URL is set
+    private String webhookUrl = "";
+    private long webhookDelayMs = 500;
+
+    // Accept the self-signed certificate of a local HTTPS webhook endpoint
+    private boolean webhookTrustAllCertificates = false;
+
+    // Webhook id the simulator signs for; verify-webhook-signature fails for any other id
+    private String webhookId = "SIMULATOR-WEBHOOK";
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getLatencyMedianMs() {
+        return latencyMedianMs;
+    }
+
+    public void setLatencyMedianMs(long latencyMedianMs) {
+        this.latencyMedianMs = latencyMedianMs;
+    }
+
+    public long getLatencyP99Ms() {
+        return latencyP99Ms;
+    }
+
+    public void setLatencyP99Ms(long latencyP99Ms) {
+        this.latencyP99Ms = latencyP99Ms;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public int getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+    }
+
+    public double getDeclineRate() {
+        return declineRate;
+    }
+
+    public void setDeclineRate(double declineRate) {
+        this.declineRate = declineRate;
+    }
+
+    public boolean isAutoApprove() {
+        return autoApprove;
+    }
+
+    public void setAutoApprove(boolean autoApprove) {
+        this.autoApprove = autoApprove;
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+
+    public long getWebhookDelayMs() {
+        return webhookDelayMs;
+    }
+
+    public void setWebhookDelayMs(long webhookDelayMs) {
+        this.webhookDelayMs = webhookDelayMs;
+    }
+
+    public boolean isWebhookTrustAllCertificates() {
+        return webhookTrustAllCertificates;
+    }
+
+    public void setWebhookTrustAllCertificates(boolean webhookTrustAllCertificates) {
+        this.webhookTrustAllCertificates = webhookTrustAllCertificates;
+    }
+
+    public String getWebhookId() {
+        return webhookId;
+    }
+
+    public void setWebhookId(String webhookId) {
+        this.webhookId = webhookId;
+    }
+}
@@ -0,0 +1,46 @@
+-- Sliding window counter; same algorithm as LocalSlidingWindowCounterLimiter.
+-- KEYS[1] hash with fields w (window index), c (current count), p (previous count),
+-- ARGV[1] limit, ARGV[2] window in milliseconds
+-- Returns {allowed (1 or 0), remaining requests, millis until the count has fully decayed,
+-- millis until the next request can be allowed for a rejected request}.
+if redis.replicate_commands then redis.replicate_commands() end
+
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local index = math.floor(now / window)
+local elapsed = now - index * window
+
+local state = redis.call('HMGET', KEYS[1], 'w', 'c', 'p')
+local current = tonumber(state[2] or '0')
+local previous = tonumber(state[3] or '0')
+local distance = index - tonumber(state[1] or '-2')
+if distance == 1 then
+  previous = current
+  current = 0
+elseif distance ~= 0 then
+  previous = 0
+  current = 0
+end
+
+if previous * (window - elapsed) + (current + 1) * window > limit * window then
+  local retry
+  if current < limit then
+    -- Room appears later in this window as the previous window's share decays
+    retry = window - math.floor((limit - current - 1) * window / previous) - elapsed
+  else
+    -- Room appears in the next window as this window's count decays
+    retry = 2 * window - math.floor((limit - 1) * window / current) - elapsed
+  end
+  local reset = index + 1
+  if current > 0 then
+    reset = index + 2
+  end
+  return {0, 0, reset * window - now, retry}
+end
+
+redis.call('HSET', KEYS[1], 'w', index, 'c', current + 1, 'p', previous)
+redis.call('PEXPIRE', KEYS[1], 2 * window)
+local remaining = math.floor((limit * window - previous * (window - elapsed) - (current + 1) * window) / window)
+return {1, remaining, (index + 2) * window - now, 0}
@@ -0,0 +1,24 @@
+-- Sliding window log; same algorithm as LocalSlidingWindowLogLimiter.
+-- KEYS[1] sorted set of request times, ARGV[1] limit, ARGV[2] window in milliseconds,
+-- ARGV[3] unique member for this request
+-- Returns {allowed (1 or 0), remaining requests, millis until the newest request leaves the
+-- window, millis until the next request can be allowed for a rejected request}.
+if redis.replicate_commands then redis.replicate_commands() end
+
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+if count >= limit then
+  -- A request is allowed once all but limit - 1 of the logged ones have left the window
+  local oldest = redis.call('ZRANGE', KEYS[1], count - limit, count - limit, 'WITHSCORES')
+  local newest = redis.call('ZRANGE', KEYS[1], -1, -1, 'WITHSCORES')
+  return {0, 0, tonumber(newest[2]) + window - now, tonumber(oldest[2]) + window - now}
+end
+
+redis.call('ZADD', KEYS[1], now, ARGV[3])
+redis.call('PEXPIRE', KEYS[1], window)
+return {1, limit - count - 1, window, 0}
@@ -0,0 +1,23 @@
+-- Token bucket as GCRA; same algorithm as LocalTokenBucketLimiter.
+-- KEYS[1] bucket key, ARGV[1] limit, ARGV[2] window in milliseconds
+-- Returns {allowed (1 or 0), remaining tokens, millis until the bucket is full again,
+-- millis until the next token for a rejected request}.
+if redis.replicate_commands then redis.replicate_commands() end
+
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local interval = window / limit
+
+local tat = tonumber(redis.call('GET', KEYS[1]) or '0')
+if tat < now then
+  tat = now
+end
+local next_tat = tat + interval
+if next_tat - now > window then
+  return {0, 0, math.ceil(tat - now), math.ceil(next_tat - now - window)}
+end
+
+redis.call('SET', KEYS[1], string.format('%.3f', next_tat), 'PX', math.ceil(next_tat - now))
+return {1, math.floor((now + window - next_tat) / interval + 1e-9), math.ceil(next_tat - now), 0}
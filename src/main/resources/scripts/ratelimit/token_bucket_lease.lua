@@ -0,0 +1,39 @@
+-- Leases up to ARGV[3] tokens at once from the GCRA token bucket used by token_bucket.lua,
+-- after giving back ARGV[4] unused tokens from the node's previous lease.
+-- KEYS[1] bucket key, ARGV[1] limit, ARGV[2] window in milliseconds
+-- Returns {tokens granted (0 if the bucket is empty), tokens left in the bucket, millis until
+-- the bucket is full again, millis until the next token if none was granted}.
+if redis.replicate_commands then redis.replicate_commands() end
+
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local returned = tonumber(ARGV[4])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local interval = window / limit
+
+local tat = tonumber(redis.call('GET', KEYS[1]) or '0')
+if returned > 0 then
+  tat = tat - returned * interval
+end
+if tat < now then
+  tat = now
+end
+
+-- Tokens left in the bucket: each one moves the TAT one interval further ahead of now
+local available = math.floor((now + window - tat) / interval + 1e-9)
+local granted = math.max(0, math.min(requested, available))
+tat = tat + granted * interval
+
+if tat > now then
+  redis.call('SET', KEYS[1], string.format('%.3f', tat), 'PX', math.ceil(tat - now))
+else
+  redis.call('DEL', KEYS[1])
+end
+
+local retry = 0
+if granted == 0 then
+  retry = math.ceil(tat + interval - now - window)
+end
+return {granted, math.max(0, available - granted), math.ceil(tat - now), retry}
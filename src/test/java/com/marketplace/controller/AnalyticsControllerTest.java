@@ -0,0 +1,71 @@
+package com.marketplace.controller;
+
+import com.marketplace.model.SalesRollup;
+import com.marketplace.service.SalesRollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AnalyticsController.class)
+@ActiveProfiles("test")
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SalesRollupService salesRollupService;
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getSalesReport_shouldSumBuckets() throws Exception {
+        SalesRollup day = new SalesRollup();
+        day.setRevenueCents(150000);
+        day.setOrderCount(10);
+        day.setUnitsSold(14);
+        SalesRollup hour = new SalesRollup();
+        hour.setRevenueCents(2599);
+        hour.setOrderCount(1);
+        hour.setUnitsSold(1);
+        hour.setRefundedCents(2599);
+        hour.setRefundedOrders(1);
+        when(salesRollupService.getBuckets(any(LocalDateTime.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(Arrays.asList(day, hour));
+
+        mockMvc.perform(get("/api/analytics/sales")
+                .param("from", "2026-10-01T00:00:00")
+                .param("to", "2026-10-02T01:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.revenue").value(1525.99))
+                .andExpect(jsonPath("$.orderCount").value(11))
+                .andExpect(jsonPath("$.unitsSold").value(15))
+                .andExpect(jsonPath("$.refundedOrders").value(1))
+                .andExpect(jsonPath("$.netRevenue").value(1500.00))
+                .andExpect(jsonPath("$.bucketsScanned").value(2));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getSalesReport_withInvertedRange_shouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/analytics/sales")
+                .param("from", "2026-10-02T00:00:00")
+                .param("to", "2026-10-01T00:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("error"));
+
+        verifyNoInteractions(salesRollupService);
+    }
+}
@@ -119,27 +119,41 @@ class OrderControllerTest {
     @Test
     @WithMockUser
     void createOrder_shouldRedirectToOrderDetails() throws Exception {
-        when(orderService.createOrderFromCart()).thenReturn(testOrder);
+        when(orderService.createOrderFromCart(isNull())).thenReturn(testOrder);
 
         mockMvc.perform(post("/orders/create")
                 .with(csrf()))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/orders/order-123"));
 
-        verify(orderService).createOrderFromCart();
+        verify(orderService).createOrderFromCart(isNull());
+    }
+
+    @Test
+    @WithMockUser
+    void createOrder_withIdempotencyKey_shouldPassKeyToService() throws Exception {
+        when(orderService.createOrderFromCart("checkout-abc")).thenReturn(testOrder);
+
+        mockMvc.perform(post("/orders/create")
+                .header("Idempotency-Key", "checkout-abc")
+                .with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/orders/order-123"));
+
+        verify(orderService).createOrderFromCart("checkout-abc");
     }
 
     @Test
     @WithMockUser
     void createOrder_whenServiceThrowsException_shouldRedirectToCart() throws Exception {
-        when(orderService.createOrderFromCart()).thenThrow(new RuntimeException("Cart is empty"));
+        when(orderService.createOrderFromCart(isNull())).thenThrow(new RuntimeException("Cart is empty"));
 
         mockMvc.perform(post("/orders/create")
                 .with(csrf()))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/cart"));
 
-        verify(orderService).createOrderFromCart();
+        verify(orderService).createOrderFromCart(isNull());
     }
 
     @Test
@@ -178,6 +192,20 @@ class OrderControllerTest {
         verify(orderService).updateOrderStatus("order-123", OrderStatus.CONFIRMED);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateOrderStatus_whenTransitionRejected_shouldFlashErrorToAdminOrders() throws Exception {
+        when(orderService.updateOrderStatus("order-123", OrderStatus.PENDING))
+                .thenThrow(new IllegalStateException("Cannot change order status from SHIPPED to PENDING"));
+
+        mockMvc.perform(post("/orders/admin/order-123/status")
+                .param("status", "PENDING")
+                .with(csrf()))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/orders/admin"))
+                .andExpect(flash().attribute("error", "Cannot change order status from SHIPPED to PENDING"));
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void adminOrders_withoutAdminRole_shouldBeForbidden() throws Exception {
@@ -1,25 +1,124 @@
 package com.marketplace.controller;
 
+import com.marketplace.gateway.ClientIpResolver;
+import com.marketplace.service.PayPalWebhookService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PayPalWebhookController.class)
+@Import(ClientIpResolver.class)
 @ActiveProfiles("test")
 class PayPalWebhookControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @MockBean
+    private PayPalWebhookService payPalWebhookService;
+
+    @Autowired
+    private PayPalWebhookController webhookController;
+
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(webhookController, "ipValidationEnabled", false);
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxyRanges", List.of());
+        clientIpResolver.compile();
+    }
+
+    @Test
+    void handleWebhook_withIpValidationAndUnknownSource_shouldReturnForbidden() throws Exception {
+        ReflectionTestUtils.setField(webhookController, "ipValidationEnabled", true);
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .with(request -> {
+                    request.setRemoteAddr("10.1.2.3");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"event_type\": \"PAYMENT.CAPTURE.COMPLETED\", \"id\": \"WH-IP-1\"}"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status").value("error"));
+
+        verify(payPalWebhookService, never()).ingest(any(), any());
+    }
+
+    @Test
+    void handleWebhook_withIpValidationAndPayPalSource_shouldReturnSuccess() throws Exception {
+        ReflectionTestUtils.setField(webhookController, "ipValidationEnabled", true);
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .with(request -> {
+                    request.setRemoteAddr("173.0.82.126");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"event_type\": \"PAYMENT.CAPTURE.COMPLETED\", \"id\": \"WH-IP-2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+    }
+
+    @Test
+    void handleWebhook_withIpValidationAndSpoofedForwardedFor_shouldReturnForbidden() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webhookController, "ipValidationEnabled", true);
+
+        // When / Then: the peer is not a trusted proxy, so its X-Forwarded-For is ignored
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .with(request -> {
+                    request.setRemoteAddr("10.1.2.3");
+                    return request;
+                })
+                .header("X-Forwarded-For", "173.0.82.126")
+                .header("X-Real-IP", "173.0.82.126")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"event_type\": \"PAYMENT.CAPTURE.COMPLETED\", \"id\": \"WH-IP-3\"}"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.status").value("error"));
+
+        verify(payPalWebhookService, never()).ingest(any(), any());
+    }
+
+    @Test
+    void handleWebhook_withIpValidationAndPayPalSourceBehindTrustedProxy_shouldReturnSuccess() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(webhookController, "ipValidationEnabled", true);
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxyRanges", List.of("10.0.0.0/8"));
+        clientIpResolver.compile();
+
+        // When / Then: a client-supplied hop left of PayPal's address does not matter
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .with(request -> {
+                    request.setRemoteAddr("10.1.2.3");
+                    return request;
+                })
+                .header("X-Forwarded-For", "198.51.100.9, 173.0.82.126, 10.0.0.7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"event_type\": \"PAYMENT.CAPTURE.COMPLETED\", \"id\": \"WH-IP-4\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+    }
+
     @Test
     void handleWebhook_withPaymentCaptureCompleted_shouldReturnSuccess() throws Exception {
         Map<String, Object> webhookData = new HashMap<>();
@@ -162,6 +261,82 @@ class PayPalWebhookControllerTest {
                 .andExpect(jsonPath("$.status").value("success"));
     }
 
+    @Test
+    void handleWebhook_shouldStoreEventBeforeAcknowledging() throws Exception {
+        when(payPalWebhookService.ingest(anyMap(), anyMap())).thenReturn(true);
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                        "id": "WH-12353",
+                        "resource": {
+                            "id": "capture-42"
+                        }
+                    }
+                    """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+
+        verify(payPalWebhookService).ingest(argThat((Map<String, Object> payload) -> "WH-12353".equals(payload.get("id"))), anyMap());
+    }
+
+    @Test
+    void handleWebhook_withRedeliveredEvent_shouldStillAcknowledge() throws Exception {
+        when(payPalWebhookService.ingest(anyMap(), anyMap())).thenReturn(false);
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                        "id": "WH-12345"
+                    }
+                    """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+    }
+
+    @Test
+    void handleWebhook_whenEventCannotBeStored_shouldReturnError() throws Exception {
+        when(payPalWebhookService.ingest(anyMap(), anyMap())).thenThrow(new RuntimeException("Database unavailable"));
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                        "id": "WH-12346"
+                    }
+                    """))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value("error"));
+    }
+
+    @Test
+    void handleWebhook_shouldStoreTransmissionHeadersAndAcknowledgeWithoutVerifying() throws Exception {
+        when(payPalWebhookService.ingest(anyMap(), anyMap())).thenReturn(true);
+
+        mockMvc.perform(post("/api/webhooks/paypal/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("PAYPAL-TRANSMISSION-ID", "transmission-1")
+                .header("PAYPAL-TRANSMISSION-SIG", "signature")
+                .header("X-Unrelated", "ignored")
+                .content("""
+                    {
+                        "event_type": "PAYMENT.CAPTURE.COMPLETED",
+                        "id": "WH-12360"
+                    }
+                    """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+
+        verify(payPalWebhookService).ingest(anyMap(), eq(Map.of(
+                "PAYPAL-TRANSMISSION-ID", "transmission-1",
+                "PAYPAL-TRANSMISSION-SIG", "signature")));
+    }
+
     @Test
     void verifyWebhookEndpoint_shouldReturnEndpointInfo() throws Exception {
         mockMvc.perform(get("/api/webhooks/paypal/verify"))
@@ -173,7 +348,7 @@ class PayPalWebhookControllerTest {
                 .andExpect(jsonPath("$.supported_events[1]").value("PAYMENT.CAPTURE.DENIED"))
                 .andExpect(jsonPath("$.supported_events[2]").value("CHECKOUT.ORDER.APPROVED"))
                 .andExpect(jsonPath("$.supported_events[3]").value("CHECKOUT.ORDER.COMPLETED"))
-                .andExpect(jsonPath("$.security").value("IP whitelisting enabled for PayPal ranges"));
+                .andExpect(jsonPath("$.security").value("PayPal signature verification and IP whitelisting for PayPal ranges"));
     }
 
     @Test
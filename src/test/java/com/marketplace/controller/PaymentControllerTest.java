@@ -1,12 +1,18 @@
 package com.marketplace.controller;
 
 import com.marketplace.model.Cart;
+import com.marketplace.model.CaptureRetry;
 import com.marketplace.model.CartItem;
 import com.marketplace.model.Product;
 import com.marketplace.repository.ProductRepository;
+import com.marketplace.service.CaptureRetryService;
 import com.marketplace.service.CartService;
 import com.marketplace.service.PayPalSellerService;
 import com.marketplace.service.PayPalService;
+import com.marketplace.service.PayPalUnavailableException;
+import com.marketplace.service.UserService;
+import com.paypal.http.Headers;
+import com.paypal.http.exceptions.HttpException;
 import com.paypal.orders.LinkDescription;
 import com.paypal.orders.Order;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,13 +23,21 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -48,6 +62,12 @@ class PaymentControllerTest {
     @MockBean
     private PayPalSellerService payPalSellerService;
 
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private CaptureRetryService captureRetryService;
+
     private Product testProduct;
     private Cart testCart;
     private Order mockOrder;
@@ -76,13 +96,20 @@ class PaymentControllerTest {
         when(mockOrder.links()).thenReturn(Arrays.asList(approveLink));
     }
 
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
     @Test
     void processPayPalPayment_withValidProduct_shouldReturnPaymentUrl() throws Exception {
         when(productRepository.findById("1")).thenReturn(Optional.of(testProduct));
         when(payPalSellerService.isSellerEligibleForCheckout("default-seller")).thenReturn(true);
-        when(payPalService.createOrder(testProduct)).thenReturn(mockOrder);
+        when(payPalService.createOrderAsync(eq(testProduct), any(), any())).thenReturn(CompletableFuture.completedFuture(mockOrder));
 
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"productId\": \"1\"}"))
                 .andExpect(status().isOk())
@@ -92,12 +119,38 @@ class PaymentControllerTest {
                 .andExpect(jsonPath("$.orderId").value("paypal-order-123"));
 
         verify(productRepository).findById("1");
-        verify(payPalService).createOrder(testProduct);
+        verify(payPalService).createOrderAsync(eq(testProduct), any(), any());
+    }
+
+    @Test
+    void processPayPalPayment_withCheckoutToken_shouldPassItToPayPalService() throws Exception {
+        when(productRepository.findById("1")).thenReturn(Optional.of(testProduct));
+        when(payPalSellerService.isSellerEligibleForCheckout("default-seller")).thenReturn(true);
+        when(payPalService.createOrderAsync(eq(testProduct), any(), eq("attempt-1"))).thenReturn(CompletableFuture.completedFuture(mockOrder));
+
+        performAsync(post("/api/payments/paypal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\": \"1\", \"checkoutToken\": \"attempt-1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderId").value("paypal-order-123"));
+
+        verify(payPalService).createOrderAsync(eq(testProduct), any(), eq("attempt-1"));
+    }
+
+    @Test
+    void processPayPalPayment_withBlankCheckoutToken_shouldReturnBadRequest() throws Exception {
+        performAsync(post("/api/payments/paypal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\": \"1\", \"checkoutToken\": \" \"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid checkoutToken"));
+
+        verify(payPalService, never()).createOrderAsync(any(), any(), any());
     }
 
     @Test
     void processPayPalPayment_withMissingProductId_shouldReturnBadRequest() throws Exception {
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{}"))
                 .andExpect(status().isBadRequest())
@@ -111,7 +164,7 @@ class PaymentControllerTest {
     void processPayPalPayment_withInvalidProduct_shouldReturnBadRequest() throws Exception {
         when(productRepository.findById("999")).thenReturn(Optional.empty());
 
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"productId\": \"999\"}"))
                 .andExpect(status().isBadRequest())
@@ -129,9 +182,9 @@ class PaymentControllerTest {
         
         Map<String, Object> sellerValidation = new HashMap<>();
         sellerValidation.put("warning", "Seller account not verified");
-        when(payPalSellerService.validateSellerAccount("default-seller")).thenReturn(sellerValidation);
+        when(payPalSellerService.getCachedSellerValidation("default-seller")).thenReturn(sellerValidation);
 
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"productId\": \"1\"}"))
                 .andExpect(status().isBadRequest())
@@ -147,9 +200,10 @@ class PaymentControllerTest {
     void processPayPalPayment_withPayPalServiceFailure_shouldFallbackToDemoUrl() throws Exception {
         when(productRepository.findById("1")).thenReturn(Optional.of(testProduct));
         when(payPalSellerService.isSellerEligibleForCheckout("default-seller")).thenReturn(true);
-        when(payPalService.createOrder(testProduct)).thenThrow(new RuntimeException("PayPal service unavailable"));
+        when(payPalService.createOrderAsync(eq(testProduct), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("PayPal service unavailable")));
 
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"productId\": \"1\"}"))
                 .andExpect(status().isOk())
@@ -158,40 +212,153 @@ class PaymentControllerTest {
                 .andExpect(jsonPath("$.paypalUrl").value(org.hamcrest.Matchers.containsString("sandbox.paypal.com")))
                 .andExpect(jsonPath("$.orderId").value(org.hamcrest.Matchers.startsWith("demo-order-")));
 
-        verify(payPalService).createOrder(testProduct);
+        verify(payPalService).createOrderAsync(eq(testProduct), any(), any());
+    }
+
+    @Test
+    void processPayPalPayment_whenBulkheadFull_shouldReturnServiceUnavailable() throws Exception {
+        when(productRepository.findById("1")).thenReturn(Optional.of(testProduct));
+        when(payPalSellerService.isSellerEligibleForCheckout("default-seller")).thenReturn(true);
+        when(payPalService.createOrderAsync(eq(testProduct), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("bulkhead full")));
+
+        performAsync(post("/api/payments/paypal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\": \"1\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.status").value("error"));
     }
 
     @Test
     void capturePayPalOrder_withValidOrderId_shouldReturnSuccess() throws Exception {
         when(mockOrder.status()).thenReturn("COMPLETED");
-        when(payPalService.captureOrder("paypal-order-123")).thenReturn(mockOrder);
+        when(payPalService.captureOrderAsync("paypal-order-123")).thenReturn(CompletableFuture.completedFuture(mockOrder));
 
-        mockMvc.perform(post("/api/payments/paypal/capture/paypal-order-123"))
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("success"))
                 .andExpect(jsonPath("$.message").value("Payment captured successfully"))
                 .andExpect(jsonPath("$.orderId").value("paypal-order-123"))
                 .andExpect(jsonPath("$.orderStatus").value("COMPLETED"));
 
-        verify(payPalService).captureOrder("paypal-order-123");
+        verify(payPalService).captureOrderAsync("paypal-order-123");
     }
 
     @Test
     void capturePayPalOrder_withServiceFailure_shouldReturnError() throws Exception {
-        when(payPalService.captureOrder("invalid-order")).thenThrow(new RuntimeException("Order not found"));
+        when(payPalService.captureOrderAsync("invalid-order"))
+                .thenReturn(CompletableFuture.failedFuture(new HttpException("Order not found", 404, new Headers())));
 
-        mockMvc.perform(post("/api/payments/paypal/capture/invalid-order"))
+        performAsync(post("/api/payments/paypal/capture/invalid-order"))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.status").value("error"))
                 .andExpect(jsonPath("$.message").value("Payment capture failed: Order not found"));
+
+        verify(captureRetryService, never()).enqueue(anyString(), any());
+    }
+
+    @Test
+    void capturePayPalOrder_withTransientFailure_shouldQueueRetryAndReturnPending() throws Exception {
+        RuntimeException failure = new RuntimeException("Connection reset");
+        when(payPalService.captureOrderAsync("paypal-order-123"))
+                .thenReturn(CompletableFuture.failedFuture(failure));
+        when(captureRetryService.enqueue(eq("paypal-order-123"), any()))
+                .thenReturn(new CaptureRetry("paypal-order-123", null, "Connection reset"));
+
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("pending"))
+                .andExpect(jsonPath("$.orderId").value("paypal-order-123"))
+                .andExpect(jsonPath("$.orderStatus").value("PENDING"));
+
+        verify(captureRetryService).enqueue(eq("paypal-order-123"), any());
+    }
+
+    @Test
+    void capturePayPalOrder_whenPayPalTimesOut_shouldQueueRetryOffTheCompletingThread() throws Exception {
+        CompletableFuture<Order> capture = new CompletableFuture<>();
+        when(payPalService.captureOrderAsync("paypal-order-123")).thenReturn(capture);
+        AtomicReference<String> enqueuedOn = new AtomicReference<>();
+        when(captureRetryService.enqueue(eq("paypal-order-123"), any())).thenAnswer(invocation -> {
+            enqueuedOn.set(Thread.currentThread().getName());
+            return new CaptureRetry("paypal-order-123", null, "timed out");
+        });
+
+        MvcResult result = mockMvc.perform(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Thread delayer = new Thread(() -> capture.completeExceptionally(new TimeoutException()), "paypal-timeout");
+        delayer.start();
+        delayer.join();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isAccepted());
+
+        assertNotNull(enqueuedOn.get());
+        assertNotEquals("paypal-timeout", enqueuedOn.get());
+    }
+
+    @Test
+    void capturePayPalOrder_whenBulkheadFull_shouldQueueRetry() throws Exception {
+        when(payPalService.captureOrderAsync("paypal-order-123"))
+                .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("bulkhead full")));
+        when(captureRetryService.enqueue(eq("paypal-order-123"), any()))
+                .thenReturn(new CaptureRetry("paypal-order-123", null, "bulkhead full"));
+
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("pending"));
+    }
+
+    @Test
+    void capturePayPalOrder_whenCircuitOpen_shouldQueueRetry() throws Exception {
+        when(payPalService.captureOrderAsync("paypal-order-123"))
+                .thenReturn(CompletableFuture.failedFuture(new PayPalUnavailableException("PayPal circuit breaker is open")));
+        when(captureRetryService.enqueue(eq("paypal-order-123"), any()))
+                .thenReturn(new CaptureRetry("paypal-order-123", null, "PayPal circuit breaker is open"));
+
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("pending"));
+    }
+
+    @Test
+    void capturePayPalOrder_whenAlreadyQueued_shouldNotCallPayPal() throws Exception {
+        CaptureRetry retry = new CaptureRetry("paypal-order-123", null, "Connection reset");
+        retry.setState(CaptureRetry.State.CAPTURED);
+        retry.setCaptureStatus("COMPLETED");
+        when(captureRetryService.findRetry("paypal-order-123")).thenReturn(Optional.of(retry));
+
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.orderStatus").value("COMPLETED"));
+
+        verify(payPalService, never()).captureOrderAsync(anyString());
+    }
+
+    @Test
+    void capturePayPalOrder_whenQueuedCaptureFailed_shouldRearmIt() throws Exception {
+        CaptureRetry failed = new CaptureRetry("paypal-order-123", null, "PayPal returned 503");
+        failed.setState(CaptureRetry.State.FAILED);
+        when(captureRetryService.findRetry("paypal-order-123")).thenReturn(Optional.of(failed));
+        when(captureRetryService.rearm("paypal-order-123"))
+                .thenReturn(new CaptureRetry("paypal-order-123", null, "PayPal returned 503"));
+
+        performAsync(post("/api/payments/paypal/capture/paypal-order-123"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("pending"));
+
+        verify(captureRetryService).rearm("paypal-order-123");
+        verify(payPalService, never()).captureOrderAsync(anyString());
     }
 
     @Test
     void processCartPayPalPayment_withValidCart_shouldReturnPaymentUrl() throws Exception {
         when(cartService.getCurrentUserCart()).thenReturn(testCart);
-        when(payPalService.createCartOrder(eq(testCart), any(BigDecimal.class))).thenReturn(mockOrder);
+        when(payPalService.createCartOrderAsync(eq(testCart), any(BigDecimal.class))).thenReturn(CompletableFuture.completedFuture(mockOrder));
 
-        mockMvc.perform(post("/api/payments/paypal/cart"))
+        performAsync(post("/api/payments/paypal/cart"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("success"))
                 .andExpect(jsonPath("$.paypalUrl").value("https://www.sandbox.paypal.com/checkoutnow?token=ABC123"))
@@ -202,7 +369,8 @@ class PaymentControllerTest {
                 .andExpect(jsonPath("$.orderId").value("paypal-order-123"));
 
         verify(cartService).getCurrentUserCart();
-        verify(payPalService).createCartOrder(eq(testCart), any(BigDecimal.class));
+        verify(payPalService).createCartOrderAsync(eq(testCart), any(BigDecimal.class));
+        verify(cartService).linkPayPalOrder(eq(testCart), eq("paypal-order-123"), any(BigDecimal.class));
     }
 
     @Test
@@ -210,7 +378,7 @@ class PaymentControllerTest {
         Cart emptyCart = new Cart("user-123");
         when(cartService.getCurrentUserCart()).thenReturn(emptyCart);
 
-        mockMvc.perform(post("/api/payments/paypal/cart"))
+        performAsync(post("/api/payments/paypal/cart"))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.status").value("error"))
                 .andExpect(jsonPath("$.message").value("Cart is empty"));
@@ -222,17 +390,17 @@ class PaymentControllerTest {
     @Test
     void processCartPayPalPayment_withPayPalServiceFailure_shouldFallbackToDemoUrl() throws Exception {
         when(cartService.getCurrentUserCart()).thenReturn(testCart);
-        when(payPalService.createCartOrder(eq(testCart), any(BigDecimal.class)))
-                .thenThrow(new RuntimeException("PayPal service unavailable"));
+        when(payPalService.createCartOrderAsync(eq(testCart), any(BigDecimal.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("PayPal service unavailable")));
 
-        mockMvc.perform(post("/api/payments/paypal/cart"))
+        performAsync(post("/api/payments/paypal/cart"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value("success"))
                 .andExpect(jsonPath("$.paypalUrl").value(org.hamcrest.Matchers.containsString("sandbox.paypal.com")))
                 .andExpect(jsonPath("$.orderId").value(org.hamcrest.Matchers.startsWith("demo-cart-")));
 
         verify(cartService).getCurrentUserCart();
-        verify(payPalService).createCartOrder(eq(testCart), any(BigDecimal.class));
+        verify(payPalService).createCartOrderAsync(eq(testCart), any(BigDecimal.class));
     }
 
     @Test
@@ -259,7 +427,7 @@ class PaymentControllerTest {
     void processPayPalPayment_withGeneralException_shouldReturnInternalServerError() throws Exception {
         when(productRepository.findById("1")).thenThrow(new RuntimeException("Database connection failed"));
 
-        mockMvc.perform(post("/api/payments/paypal")
+        performAsync(post("/api/payments/paypal")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"productId\": \"1\"}"))
                 .andExpect(status().isInternalServerError())
@@ -271,7 +439,7 @@ class PaymentControllerTest {
     void processCartPayPalPayment_withGeneralException_shouldReturnInternalServerError() throws Exception {
         when(cartService.getCurrentUserCart()).thenThrow(new RuntimeException("Cart service unavailable"));
 
-        mockMvc.perform(post("/api/payments/paypal/cart"))
+        performAsync(post("/api/payments/paypal/cart"))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.status").value("error"))
                 .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.startsWith("Cart payment failed:")));
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.marketplace.model.Product;
 import com.marketplace.repository.ProductRepository;
 import com.marketplace.dto.mapper.DTOMapper;
+import com.marketplace.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,9 @@ class ProductRestControllerTest {
     @MockBean
     private ProductRepository productRepository;
 
+    @MockBean
+    private ProductService productService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -77,10 +81,24 @@ class ProductRestControllerTest {
     }
 
 
+    @Test
+    void getProductById_shouldReadThroughProductService() throws Exception {
+        // Given
+        when(productService.getProduct("1")).thenReturn(Optional.of(testProduct));
+
+        // When & Then
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Product"));
+
+        verify(productService).getProduct("1");
+        verify(productRepository, never()).findById(anyString());
+    }
+
     @Test
     void getProductById_withInvalidId_shouldReturnNotFound() throws Exception {
         // Given
-        when(productRepository.findById("999")).thenReturn(Optional.empty());
+        when(productService.getProduct("999")).thenReturn(Optional.empty());
 
         // When & Then
         mockMvc.perform(get("/api/products/999"))
@@ -92,7 +110,7 @@ class ProductRestControllerTest {
     @Test
     void getProductById_whenExceptionThrown_shouldReturnError() throws Exception {
         // Given
-        when(productRepository.findById("1")).thenThrow(new RuntimeException("Database error"));
+        when(productService.getProduct("1")).thenThrow(new RuntimeException("Database error"));
 
         // When & Then
         mockMvc.perform(get("/api/products/1"))
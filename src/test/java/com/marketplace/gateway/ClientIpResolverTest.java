@@ -0,0 +1,92 @@
+package com.marketplace.gateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpResolverTest {
+
+    private ClientIpResolver resolver;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxyRanges", List.of("10.0.0.0/8"));
+        resolver.compile();
+        request = new MockHttpServletRequest("GET", "/api/products");
+    }
+
+    @Test
+    void resolve_fromUntrustedPeer_shouldIgnoreSpoofedForwardingHeaders() {
+        // Given
+        request.setRemoteAddr("198.51.100.20");
+        request.addHeader("X-Forwarded-For", "173.0.82.126");
+        request.addHeader("X-Real-IP", "173.0.82.126");
+
+        // When
+        String clientIp = resolver.resolve(request);
+
+        // Then
+        assertEquals("198.51.100.20", clientIp);
+    }
+
+    @Test
+    void resolve_behindTrustedProxies_shouldReturnNearestUntrustedHop() {
+        // Given
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("X-Forwarded-For", "1.2.3.4, 203.0.113.7 , 10.0.0.9");
+
+        // When
+        String clientIp = resolver.resolve(request);
+
+        // Then: 1.2.3.4 was sent by the client and is not believed
+        assertEquals("203.0.113.7", clientIp);
+    }
+
+    @Test
+    void resolve_whenEveryHopIsTrusted_shouldReturnLeftmostHop() {
+        // Given
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("X-Forwarded-For", "10.1.1.1, 10.0.0.9");
+
+        // When
+        String clientIp = resolver.resolve(request);
+
+        // Then
+        assertEquals("10.1.1.1", clientIp);
+    }
+
+    @Test
+    void resolve_fromTrustedProxyWithoutForwardedFor_shouldUseRealIp() {
+        // Given
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("X-Real-IP", "203.0.113.8");
+
+        // When
+        String clientIp = resolver.resolve(request);
+
+        // Then
+        assertEquals("203.0.113.8", clientIp);
+    }
+
+    @Test
+    void resolve_withoutTrustedProxies_shouldUseRemoteAddress() {
+        // Given
+        ReflectionTestUtils.setField(resolver, "trustedProxyRanges", List.of());
+        resolver.compile();
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("X-Forwarded-For", "203.0.113.7");
+
+        // When
+        String clientIp = resolver.resolve(request);
+
+        // Then
+        assertEquals("10.0.0.2", clientIp);
+    }
+}
@@ -0,0 +1,163 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.service.GatewayAccessPolicy;
+import com.marketplace.gateway.service.GatewayResponseCache;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayResponseCacheFilterTest {
+
+    private GatewayResponseCache cache;
+    private GatewayResponseCacheFilter filter;
+    private final AtomicInteger dispatched = new AtomicInteger();
+    private boolean setCookie;
+
+    @BeforeEach
+    void setUp() {
+        cache = new GatewayResponseCache();
+        ReflectionTestUtils.setField(cache, "routeDefinitions", List.of("/gateway/api/products/**=30"));
+        cache.configure();
+        filter = new GatewayResponseCacheFilter(cache);
+    }
+
+    @Test
+    void doFilter_secondGet_shouldBeServedFromCache() throws Exception {
+        // When
+        MockHttpServletResponse first = get("/gateway/api/products", null);
+        MockHttpServletResponse second = get("/gateway/api/products", null);
+
+        // Then
+        assertEquals(1, dispatched.get());
+        assertEquals("MISS", first.getHeader("X-Gateway-Cache"));
+        assertEquals("HIT", second.getHeader("X-Gateway-Cache"));
+        assertEquals("[{\"id\":\"1\"}]", second.getContentAsString());
+        assertEquals("application/json", second.getContentType());
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+        assertTrue(second.getHeader("Cache-Control").startsWith("public, max-age="));
+    }
+
+    @Test
+    void doFilter_withMatchingIfNoneMatch_shouldReturnNotModified() throws Exception {
+        // Given
+        String etag = get("/gateway/api/products", null).getHeader("ETag");
+
+        // When
+        MockHttpServletResponse response = get("/gateway/api/products", etag);
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void doFilter_shouldKeyOnQueryString() throws Exception {
+        // When
+        get("/gateway/api/products", null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/gateway/api/products");
+        request.setQueryString("category=books");
+        filter.doFilter(request, new MockHttpServletResponse(), chain());
+
+        // Then
+        assertEquals(2, dispatched.get());
+    }
+
+    @Test
+    void doFilter_whenResponseSetsCookie_shouldNotStore() throws Exception {
+        // Given
+        setCookie = true;
+
+        // When
+        get("/gateway/api/products", null);
+        get("/gateway/api/products", null);
+
+        // Then
+        assertEquals(2, dispatched.get());
+    }
+
+    @Test
+    void doFilter_uncachedRoute_shouldPassThrough() throws Exception {
+        // When
+        MockHttpServletResponse response = get("/gateway/api/cart", null);
+        get("/gateway/api/cart", null);
+
+        // Then
+        assertEquals(2, dispatched.get());
+        assertNull(response.getHeader("X-Gateway-Cache"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void describe_shouldReportHitRatioPerRoute() throws Exception {
+        // When
+        get("/gateway/api/products", null);
+        get("/gateway/api/products", null);
+        get("/gateway/api/products", null);
+
+        // Then
+        Map<String, Object> route = ((List<Map<String, Object>>) cache.describe().get("routes")).get(0);
+        assertEquals(2L, route.get("hits"));
+        assertEquals(1L, route.get("misses"));
+    }
+
+    @Test
+    void doFilter_deniedClientOnWarmEntry_shouldBeRejectedBeforeCache() throws Exception {
+        // Given
+        GatewayAccessPolicy accessPolicy = new GatewayAccessPolicy();
+        ReflectionTestUtils.setField(accessPolicy, "denyRanges", List.of("203.0.113.0/24"));
+        accessPolicy.compile();
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        clientIpResolver.compile();
+        GatewayAccessFilter accessFilter = new GatewayAccessFilter(accessPolicy, clientIpResolver);
+        get("/gateway/api/products", null);
+
+        // When
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/gateway/api/products");
+        request.setRemoteAddr("203.0.113.7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        accessFilter.doFilter(request, response, (req, res) -> filter.doFilter(req, res, chain()));
+
+        // Then
+        assertEquals(403, response.getStatus());
+        assertNull(response.getHeader("X-Gateway-Cache"));
+        assertTrue(response.getContentAsString().contains("IP_NOT_ALLOWED"));
+        assertEquals(1, dispatched.get());
+    }
+
+    private MockHttpServletResponse get(String path, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain());
+        return response;
+    }
+
+    private MockFilterChain chain() {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                dispatched.incrementAndGet();
+                response.setContentType("application/json");
+                if (setCookie) {
+                    response.addHeader("Set-Cookie", "JSESSIONID=abc");
+                }
+                response.getWriter().write("[{\"id\":\"1\"}]");
+            }
+        });
+    }
+}
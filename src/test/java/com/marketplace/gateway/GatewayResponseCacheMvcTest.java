@@ -0,0 +1,91 @@
+package com.marketplace.gateway;
+
+import com.marketplace.controller.ProductRestController;
+import com.marketplace.gateway.service.GatewayResponseCache;
+import com.marketplace.model.Product;
+import com.marketplace.repository.ProductRepository;
+import com.marketplace.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs the response cache in front of the real product controller, whose @CrossOrigin makes
+ * Spring add CORS names to every Vary header.
+ */
+@WebMvcTest(ProductRestController.class)
+@ActiveProfiles("test")
+class GatewayResponseCacheMvcTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @MockBean
+    private ProductRepository productRepository;
+
+    @MockBean
+    private ProductService productService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        GatewayResponseCache cache = new GatewayResponseCache();
+        ReflectionTestUtils.setField(cache, "routeDefinitions", List.of("/api/products/**=30"));
+        cache.configure();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(new GatewayResponseCacheFilter(cache))
+                .build();
+
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Test Product");
+        product.setPrice(new BigDecimal("99.99"));
+        when(productService.getProduct("1")).thenReturn(Optional.of(product));
+    }
+
+    @Test
+    void getProduct_secondGet_shouldBeServedFromCache() throws Exception {
+        // When / Then
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Gateway-Cache", "MISS"));
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Gateway-Cache", "HIT"))
+                .andExpect(jsonPath("$.name").value("Test Product"));
+
+        verify(productService, times(1)).getProduct("1");
+    }
+
+    @Test
+    void getProduct_crossOrigin_shouldBeCachedPerOriginWithCorsHeaders() throws Exception {
+        // When / Then
+        mockMvc.perform(get("/api/products/1").header("Origin", "https://partner.example"))
+                .andExpect(header().string("X-Gateway-Cache", "MISS"))
+                .andExpect(header().string("Access-Control-Allow-Origin", "*"));
+        mockMvc.perform(get("/api/products/1").header("Origin", "https://partner.example"))
+                .andExpect(header().string("X-Gateway-Cache", "HIT"))
+                .andExpect(header().string("Access-Control-Allow-Origin", "*"));
+        mockMvc.perform(get("/api/products/1"))
+                .andExpect(header().string("X-Gateway-Cache", "MISS"))
+                .andExpect(header().doesNotExist("Access-Control-Allow-Origin"));
+
+        verify(productService, times(2)).getProduct("1");
+    }
+}
@@ -0,0 +1,84 @@
+package com.marketplace.gateway;
+
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import com.marketplace.gateway.ratelimit.RateLimitPolicies;
+import com.marketplace.gateway.ratelimit.RateLimitPolicy;
+import com.marketplace.gateway.service.RateLimitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitFilterTest {
+
+    @Mock
+    private RateLimitService rateLimitService;
+
+    private RateLimitFilter filter;
+    private RateLimitPolicy policy;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        ClientIpResolver clientIpResolver = new ClientIpResolver();
+        ReflectionTestUtils.setField(clientIpResolver, "trustedProxyRanges", List.of("127.0.0.1/32", "10.0.0.0/8"));
+        clientIpResolver.compile();
+        filter = new RateLimitFilter(rateLimitService, clientIpResolver);
+        policy = RateLimitPolicies.defaults().byName("payment");
+        request = new MockHttpServletRequest("POST", "/api/payments/create-order");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+        response = new MockHttpServletResponse();
+        chain = new MockFilterChain();
+        when(rateLimitService.resolvePolicy(any(), eq("203.0.113.7"))).thenReturn(policy);
+    }
+
+    @Test
+    void doFilter_whenAllowed_shouldContinueAndReportRemainingQuota() throws Exception {
+        // Given
+        when(rateLimitService.check("203.0.113.7", policy)).thenReturn(RateLimitDecision.allowed(10, 7, 29_500));
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertSame(request, chain.getRequest());
+        assertSame(policy, request.getAttribute(RateLimitFilter.POLICY_ATTRIBUTE));
+        assertEquals(200, response.getStatus());
+        assertEquals("10", response.getHeader("RateLimit-Limit"));
+        assertEquals("7", response.getHeader("RateLimit-Remaining"));
+        assertEquals("30", response.getHeader("RateLimit-Reset"));
+        assertNull(response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_whenLimited_shouldRejectWithoutDispatching() throws Exception {
+        // Given
+        when(rateLimitService.check("203.0.113.7", policy))
+                .thenReturn(RateLimitDecision.rejected(10, 60_000, 5_500));
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertNull(chain.getRequest());
+        assertEquals(429, response.getStatus());
+        assertEquals("payment", response.getHeader("X-Rate-Limit-Service"));
+        assertEquals("0", response.getHeader("RateLimit-Remaining"));
+        assertEquals("6", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("RATE_LIMIT_EXCEEDED"));
+    }
+}
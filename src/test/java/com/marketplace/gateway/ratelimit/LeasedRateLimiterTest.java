@@ -0,0 +1,96 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class LeasedRateLimiterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private LeasedRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LeasedRateLimiter(redisTemplate, 10, 0.1, Duration.ofMinutes(1), 1000);
+    }
+
+    @Test
+    void tryAcquire_shouldSpendLeasedTokensLocally() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(10L, 80L, 12_000L, 0L));
+
+        // When
+        RateLimitDecision last = null;
+        for (int i = 0; i < 10; i++) {
+            last = limiter.tryAcquire("client", 100, 60_000, NOW);
+            assertTrue(last.isAllowed());
+        }
+
+        // Then (the bucket's remaining tokens plus the lease's unspent ones)
+        assertEquals(80, last.getRemaining());
+        assertEquals(12_000, last.getResetAfterMillis());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), eq("100"), eq("60000"), eq("10"), eq("0"));
+        assertEquals(9, limiter.getLocalDecisions());
+    }
+
+    @Test
+    void tryAcquire_whenBucketEmpty_shouldDenyLocallyUntilTokenCanRefill() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(0L, 0L, 60_000L, 600L));
+
+        // When
+        RateLimitDecision first = limiter.tryAcquire("client", 100, 60_000, NOW);
+        RateLimitDecision second = limiter.tryAcquire("client", 100, 60_000, NOW + 599);
+        boolean afterInterval = limiter.tryAcquire("client", 100, 60_000, NOW + 600).isAllowed();
+
+        // Then
+        assertFalse(first.isAllowed());
+        assertEquals(600, first.getRetryAfterMillis());
+        assertFalse(second.isAllowed());
+        assertEquals(1, second.getRetryAfterMillis());
+        assertFalse(afterInterval);
+        assertEquals(2, limiter.getRedisCalls());
+    }
+
+    @Test
+    void tryAcquire_afterLeaseExpired_shouldReturnUnusedTokensWithNextLease() {
+        // Given
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(List.of(10L, 80L, 12_000L, 0L));
+        limiter.tryAcquire("client", 100, 60_000, NOW);
+        limiter.tryAcquire("client", 100, 60_000, NOW);
+
+        // When (the lease lifetime is one minute)
+        limiter.tryAcquire("client", 100, 60_000, NOW + 60_000);
+
+        // Then
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq("100"), eq("60000"), eq("10"), eq("8"));
+    }
+
+    @Test
+    void chunkSize_shouldBeBoundedByErrorRatio() {
+        assertEquals(10, limiter.chunkSize(1000));
+        assertEquals(2, limiter.chunkSize(20));
+        assertEquals(1, limiter.chunkSize(10));
+        assertEquals(1, limiter.chunkSize(1));
+    }
+}
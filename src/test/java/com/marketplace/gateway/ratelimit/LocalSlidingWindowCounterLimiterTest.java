@@ -0,0 +1,104 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSlidingWindowCounterLimiterTest {
+
+    private static final long WINDOW_START = 1_700_000_040_000L; // a multiple of 60s
+
+    private final LocalSlidingWindowCounterLimiter limiter = new LocalSlidingWindowCounterLimiter(1000, Duration.ofMinutes(10));
+
+    @Test
+    void tryAcquire_shouldAllowLimitWithinWindow() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + i).isAllowed());
+        }
+        assertFalse(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 100).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_shouldWeightPreviousWindowAfterBoundary() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 59_000).isAllowed());
+        }
+
+        // Right after the boundary almost all of the previous window still counts
+        assertFalse(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 60_001).isAllowed());
+
+        // Half way through the next window half of the previous window counts
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 90_000).isAllowed()) {
+                allowed++;
+            }
+        }
+        assertEquals(50, allowed);
+    }
+
+    @Test
+    void tryAcquire_afterIdleWindows_shouldReset() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("client", 10, 60_000, WINDOW_START);
+        }
+        assertFalse(limiter.tryAcquire("client", 10, 60_000, WINDOW_START).isAllowed());
+
+        assertTrue(limiter.tryAcquire("client", 10, 60_000, WINDOW_START + 120_000).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_fromManyThreads_shouldNeverExceedLimit() throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("client", 500, 60_000, WINDOW_START).isAllowed()) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(500, allowed.get());
+    }
+
+    @Test
+    void tryAcquire_shouldReportRemainingQuotaAndRetryTime() {
+        RateLimitDecision first = limiter.tryAcquire("client", 100, 60_000, WINDOW_START);
+        assertEquals(99, first.getRemaining());
+        assertEquals(120_000, first.getResetAfterMillis());
+
+        for (int i = 1; i < 100; i++) {
+            limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 59_000);
+        }
+
+        // Room for one request once the previous window's weight has dropped by one request
+        RateLimitDecision rejected = limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 60_001);
+        assertFalse(rejected.isAllowed());
+        assertEquals(599, rejected.getRetryAfterMillis());
+        assertFalse(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 60_599).isAllowed());
+        assertTrue(limiter.tryAcquire("client", 100, 60_000, WINDOW_START + 60_600).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_whenCurrentWindowIsFull_shouldRetryInNextWindow() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("client", 10, 60_000, WINDOW_START);
+        }
+
+        RateLimitDecision rejected = limiter.tryAcquire("client", 10, 60_000, WINDOW_START + 30_000);
+
+        // 30s to the boundary, then 6s until the previous window weighs 9 requests
+        assertEquals(36_000, rejected.getRetryAfterMillis());
+        assertTrue(limiter.tryAcquire("client", 10, 60_000, WINDOW_START + 66_000).isAllowed());
+    }
+}
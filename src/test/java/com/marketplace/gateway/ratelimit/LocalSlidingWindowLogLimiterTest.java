@@ -0,0 +1,76 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSlidingWindowLogLimiterTest {
+
+    private final LocalSlidingWindowLogLimiter limiter = new LocalSlidingWindowLogLimiter(1000, Duration.ofMinutes(10));
+
+    @Test
+    void tryAcquire_shouldAllowOnceOldestRequestLeavesWindow() {
+        long now = 1_700_000_000_000L;
+
+        assertTrue(limiter.tryAcquire("client", 3, 60_000, now).isAllowed());
+        assertTrue(limiter.tryAcquire("client", 3, 60_000, now + 10_000).isAllowed());
+        assertTrue(limiter.tryAcquire("client", 3, 60_000, now + 20_000).isAllowed());
+        assertFalse(limiter.tryAcquire("client", 3, 60_000, now + 59_999).isAllowed());
+
+        assertTrue(limiter.tryAcquire("client", 3, 60_000, now + 60_000).isAllowed());
+        assertFalse(limiter.tryAcquire("client", 3, 60_000, now + 69_999).isAllowed());
+        assertTrue(limiter.tryAcquire("client", 3, 60_000, now + 70_000).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_whenLimitChanges_shouldUseNewLimit() {
+        long now = 1_700_000_000_000L;
+
+        assertTrue(limiter.tryAcquire("client", 1, 60_000, now).isAllowed());
+        assertFalse(limiter.tryAcquire("client", 1, 60_000, now).isAllowed());
+
+        assertTrue(limiter.tryAcquire("client", 2, 60_000, now).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_fromManyThreads_shouldNeverExceedLimit() throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("client", 100, 60_000, 1_700_000_000_000L).isAllowed()) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, allowed.get());
+    }
+
+    @Test
+    void tryAcquire_shouldReportRemainingQuotaAndWhenOldestRequestLeaves() {
+        long now = 1_700_000_000_000L;
+
+        RateLimitDecision first = limiter.tryAcquire("client", 3, 60_000, now);
+        RateLimitDecision second = limiter.tryAcquire("client", 3, 60_000, now + 10_000);
+        RateLimitDecision third = limiter.tryAcquire("client", 3, 60_000, now + 20_000);
+        RateLimitDecision rejected = limiter.tryAcquire("client", 3, 60_000, now + 50_000);
+
+        assertEquals(2, first.getRemaining());
+        assertEquals(1, second.getRemaining());
+        assertEquals(0, third.getRemaining());
+        assertEquals(60_000, third.getResetAfterMillis());
+        assertFalse(rejected.isAllowed());
+        assertEquals(10_000, rejected.getRetryAfterMillis());
+        assertEquals(30_000, rejected.getResetAfterMillis());
+    }
+}
@@ -0,0 +1,75 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalTokenBucketLimiterTest {
+
+    private final LocalTokenBucketLimiter limiter = new LocalTokenBucketLimiter(1000, Duration.ofMinutes(10));
+
+    @Test
+    void tryAcquire_shouldAllowBurstUpToLimitThenRefillEvenly() {
+        long now = 1_700_000_000_000L;
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("client", 10, 60_000, now).isAllowed());
+        }
+        assertFalse(limiter.tryAcquire("client", 10, 60_000, now).isAllowed());
+
+        // One token every 6 seconds
+        assertFalse(limiter.tryAcquire("client", 10, 60_000, now + 5_999).isAllowed());
+        assertTrue(limiter.tryAcquire("client", 10, 60_000, now + 6_000).isAllowed());
+        assertFalse(limiter.tryAcquire("client", 10, 60_000, now + 6_000).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_shouldNotAllowDoubleBurstAcrossMinuteBoundary() {
+        long endOfMinute = 1_700_000_039_999L;
+        int allowed = 0;
+
+        for (int i = 0; i < 20; i++) {
+            if (limiter.tryAcquire("client", 10, 60_000, endOfMinute).isAllowed()) {
+                allowed++;
+            }
+            if (limiter.tryAcquire("client", 10, 60_000, endOfMinute + 1).isAllowed()) {
+                allowed++;
+            }
+        }
+
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void tryAcquire_shouldKeepKeysIndependent() {
+        long now = 1_700_000_000_000L;
+
+        assertTrue(limiter.tryAcquire("a", 1, 60_000, now).isAllowed());
+        assertFalse(limiter.tryAcquire("a", 1, 60_000, now).isAllowed());
+        assertTrue(limiter.tryAcquire("b", 1, 60_000, now).isAllowed());
+    }
+
+    @Test
+    void tryAcquire_shouldReportRemainingTokensAndNextTokenTime() {
+        long now = 1_700_000_000_000L;
+
+        RateLimitDecision first = limiter.tryAcquire("client", 10, 60_000, now);
+        assertEquals(9, first.getRemaining());
+        assertEquals(6_000, first.getResetAfterMillis());
+
+        RateLimitDecision last = null;
+        for (int i = 0; i < 9; i++) {
+            last = limiter.tryAcquire("client", 10, 60_000, now);
+        }
+        assertEquals(0, last.getRemaining());
+        assertEquals(60_000, last.getResetAfterMillis());
+
+        RateLimitDecision rejected = limiter.tryAcquire("client", 10, 60_000, now);
+        assertFalse(rejected.isAllowed());
+        assertEquals(10, rejected.getLimit());
+        assertEquals(6_000, rejected.getRetryAfterMillis());
+        assertEquals(6, rejected.getRetryAfterSeconds());
+    }
+}
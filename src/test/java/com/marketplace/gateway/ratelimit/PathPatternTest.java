@@ -0,0 +1,43 @@
+package com.marketplace.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPatternTest {
+
+    @Test
+    void matches_withExactPattern_shouldIgnoreTrailingSlash() {
+        PathPattern pattern = PathPattern.compile("/api/products");
+
+        assertTrue(pattern.matches("/api/products"));
+        assertTrue(pattern.matches("/api/products/"));
+        assertFalse(pattern.matches("/api/products/1"));
+        assertFalse(pattern.matches("/api/product"));
+    }
+
+    @Test
+    void matches_withDoubleWildcard_shouldMatchAnyDepth() {
+        PathPattern pattern = PathPattern.compile("/api/payments/**");
+
+        assertTrue(pattern.matches("/api/payments"));
+        assertTrue(pattern.matches("/api/payments/capture/ORDER-1"));
+        assertFalse(pattern.matches("/api/paymentsx"));
+        assertFalse(pattern.matches("/gateway/api/payments/capture"));
+    }
+
+    @Test
+    void matches_withWildcardsInTheMiddle_shouldBacktrack() {
+        assertTrue(PathPattern.compile("/**/payments/*").matches("/gateway/api/payments/create-order"));
+        assertTrue(PathPattern.compile("/api/*/reviews").matches("/api/42/reviews"));
+        assertFalse(PathPattern.compile("/api/*/reviews").matches("/api/42/43/reviews"));
+        assertTrue(PathPattern.compile("/api/products/*.json").matches("/api/products/list.json"));
+        assertFalse(PathPattern.compile("/api/products/*.json").matches("/api/products/list.xml"));
+    }
+
+    @Test
+    void compile_withInvalidPattern_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("api/products"));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("/api/**.json"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.marketplace.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void tryAcquire_atLimit_shouldReject() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 3, 1, 100, 0.9, 1000);
+
+        // When
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+
+        // Then
+        assertEquals(3, permits.size());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void release_whenConcurrentRequestsFail_shouldShrinkOncePerWindow() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 40, 1, 100, 0.5, 1000);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        // When
+        permits.forEach(p -> p.release(true));
+        int afterBurst = limiter.getLimit();
+        limiter.tryAcquire().release(true);
+
+        // Then
+        assertEquals(20, afterBurst);
+        assertEquals(10, limiter.getLimit());
+        assertEquals(11, limiter.getDropped());
+    }
+
+    @Test
+    void release_whenFastAndBusy_shouldGrowLimit() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 4, 1, 100, 0.9, 1000);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        // When
+        permits.forEach(p -> p.release(false));
+
+        // Then
+        assertTrue(limiter.getLimit() > 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void release_whenIdle_shouldKeepLimit() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 20, 1, 100, 0.9, 1000);
+
+        // When
+        limiter.tryAcquire().release(false);
+
+        // Then
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void release_whenFailed_shouldShrinkLimitDownToMinimum() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 20, 5, 100, 0.5, 1000);
+
+        // When
+        limiter.tryAcquire().release(true);
+        int afterOne = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire().release(true);
+        }
+
+        // Then
+        assertEquals(10, afterOne);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(11, limiter.getDropped());
+    }
+
+    @Test
+    void release_twice_shouldOnlyCountOnce() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 20, 5, 100, 0.5, 1000);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        // When
+        permit.release(true);
+        permit.release(true);
+
+        // Then
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void backOff_shouldShrinkOncePerWindowAndHoldGrowth() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("api", 4, 1, 100, 0.5, 60_000);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        // When
+        limiter.backOff();
+        limiter.backOff();
+        permits.forEach(p -> p.release(false));
+
+        // Then
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void isUnderPressure_nearLimitOrAfterSlowRequest_shouldBeTrue() {
+        // Given
+        AdaptiveConcurrencyLimiter busy = new AdaptiveConcurrencyLimiter("api:priority", 5, 1, 100, 0.9, 60_000);
+        AdaptiveConcurrencyLimiter failing = new AdaptiveConcurrencyLimiter("api:priority", 5, 1, 100, 0.9, 60_000);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            busy.tryAcquire();
+        }
+        failing.tryAcquire().release(true);
+
+        // Then
+        assertTrue(busy.isUnderPressure());
+        assertTrue(failing.isUnderPressure());
+        assertFalse(new AdaptiveConcurrencyLimiter("api", 5, 1, 100, 0.9, 60_000).isUnderPressure());
+    }
+}
@@ -0,0 +1,86 @@
+package com.marketplace.gateway.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of {@link CidrMatcher}. Not part of the unit test run; start with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.marketplace.gateway.service.CidrMatcherBenchmark} or from the IDE, and
+ * add {@code -prof gc} to confirm lookups do not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CidrMatcherBenchmark {
+
+    private CidrMatcher paypalRanges;
+    private CidrMatcher largeList;
+
+    // Non-final so the JIT cannot constant-fold the lookups
+    private String paypalIp = "173.0.82.126";
+    private String otherIp = "203.0.113.7";
+    private String largeListIpv4 = "38.12.200.1";
+    private String largeListIpv6 = "2001:db8:3e7::1";
+
+    @Setup
+    public void setUp() {
+        paypalRanges = CidrMatcher.compile(
+                "173.0.80.0/20", "64.4.240.0/21", "64.4.248.0/22", "66.211.168.0/22", "91.243.72.0/23");
+
+        // Deny-list sized input: 10k IPv4 blocks plus 1k IPv6 blocks
+        List<String> ranges = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ranges.add((i >> 8 & 0xFF) + "." + (i & 0xFF) + ".0.0/16");
+        }
+        for (int i = 0; i < 1_000; i++) {
+            ranges.add("2001:db8:" + Integer.toHexString(i) + "::/48");
+        }
+        largeList = CidrMatcher.compile(ranges);
+    }
+
+    @Benchmark
+    public boolean paypalRangesIpv4Hit() {
+        return paypalRanges.matches(paypalIp);
+    }
+
+    @Benchmark
+    public boolean paypalRangesIpv4Miss() {
+        return paypalRanges.matches(otherIp);
+    }
+
+    @Benchmark
+    public boolean largeListIpv4Lookup() {
+        return largeList.matches(largeListIpv4);
+    }
+
+    @Benchmark
+    public boolean largeListIpv6Lookup() {
+        return largeList.matches(largeListIpv6);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CidrMatcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.marketplace.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrMatcherTest {
+
+    private final CidrMatcher paypalRanges = CidrMatcher.compile(
+            "173.0.80.0/20", "64.4.240.0/21", "64.4.248.0/22", "66.211.168.0/22", "91.243.72.0/23");
+
+    @Test
+    void matches_withIpv4Ranges_shouldRespectPrefixBoundaries() {
+        assertTrue(paypalRanges.matches("173.0.80.0"));
+        assertTrue(paypalRanges.matches("173.0.95.255"));
+        assertFalse(paypalRanges.matches("173.0.96.0"));
+        assertFalse(paypalRanges.matches("173.0.79.255"));
+        assertTrue(paypalRanges.matches("64.4.251.7"));
+        assertFalse(paypalRanges.matches("10.0.0.1"));
+    }
+
+    @Test
+    void matches_withAdjacentRanges_shouldMergeThem() {
+        // 64.4.240.0/21 and 64.4.248.0/22 are contiguous
+        assertTrue(paypalRanges.matches("64.4.247.255"));
+        assertTrue(paypalRanges.matches("64.4.248.0"));
+        assertEquals(5, paypalRanges.size());
+    }
+
+    @Test
+    void matches_withIpv6Ranges_shouldMatchCompressedAndFullForms() {
+        CidrMatcher matcher = CidrMatcher.compile("2001:db8::/32", "::1");
+
+        assertTrue(matcher.matches("2001:db8::1"));
+        assertTrue(matcher.matches("2001:0db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertTrue(matcher.matches("[2001:db8:0:0:0:0:0:42]"));
+        assertTrue(matcher.matches("::1"));
+        assertTrue(matcher.matches("0:0:0:0:0:0:0:1"));
+        assertFalse(matcher.matches("2001:db9::1"));
+        assertFalse(matcher.matches("::2"));
+    }
+
+    @Test
+    void matches_withIpv4MappedIpv6Address_shouldUseIpv4Ranges() {
+        assertTrue(paypalRanges.matches("::ffff:173.0.81.10"));
+        assertFalse(paypalRanges.matches("::ffff:10.0.0.1"));
+    }
+
+    @Test
+    void matches_withZeroPrefix_shouldMatchEverything() {
+        CidrMatcher all = CidrMatcher.compile("0.0.0.0/0", "::/0");
+
+        assertTrue(all.matches("255.255.255.255"));
+        assertTrue(all.matches("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+    }
+
+    @Test
+    void matches_withMalformedInput_shouldNotMatch() {
+        CidrMatcher all = CidrMatcher.compile("0.0.0.0/0", "::/0");
+
+        assertFalse(all.matches(null));
+        assertFalse(all.matches(""));
+        assertFalse(all.matches("256.1.1.1"));
+        assertFalse(all.matches("1.2.3"));
+        assertFalse(all.matches("1::2::3"));
+        assertFalse(all.matches("12345::1"));
+        assertFalse(all.matches("not-an-ip"));
+    }
+
+    @Test
+    void compile_withInvalidEntry_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> CidrMatcher.compile("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> CidrMatcher.compile("example.com"));
+    }
+
+    @Test
+    void empty_shouldMatchNothing() {
+        assertTrue(CidrMatcher.compile("", " ").isEmpty());
+        assertFalse(CidrMatcher.empty().matches("127.0.0.1"));
+    }
+}
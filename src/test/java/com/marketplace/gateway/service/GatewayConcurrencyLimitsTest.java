@@ -0,0 +1,103 @@
+package com.marketplace.gateway.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayConcurrencyLimitsTest {
+
+    private GatewayConcurrencyLimits limits;
+
+    @BeforeEach
+    void setUp() {
+        limits = new GatewayConcurrencyLimits();
+        ReflectionTestUtils.setField(limits, "initialLimit", 20);
+        ReflectionTestUtils.setField(limits, "minLimit", 1);
+        ReflectionTestUtils.setField(limits, "backoffRatio", 0.5);
+        limits.compile();
+    }
+
+    @Test
+    void tryAcquire_whenPaymentsFail_shouldShrinkBrowsingLimitOnlyOnce() {
+        // Given
+        MockHttpServletRequest payment = new MockHttpServletRequest("POST", "/gateway/api/payments/paypal/capture");
+        MockHttpServletRequest browse = new MockHttpServletRequest("GET", "/gateway/api/products");
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        failed.setStatus(502);
+        limits.tryAcquire("api", browse).release(false);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            limits.complete(limits.tryAcquire("api", payment), payment, failed);
+            limits.tryAcquire("api", browse).release(false);
+        }
+
+        // Then
+        Map<String, Object> state = limits.describe();
+        assertTrue((Integer) ((Map<?, ?>) state.get("api:priority")).get("limit") < 20);
+        // Browsing yields once per window instead of collapsing with every failed payment
+        assertEquals(10, ((Map<?, ?>) state.get("api")).get("limit"));
+        assertEquals(0L, ((Map<?, ?>) state.get("api")).get("slow_or_failed"));
+    }
+
+    @Test
+    void tryAcquire_whenBrowsingSaturated_shouldStillAdmitPayments() {
+        // Given
+        ReflectionTestUtils.setField(limits, "initialLimit", 2);
+        MockHttpServletRequest payment = new MockHttpServletRequest("POST", "/gateway/api/payments/paypal/create-order");
+        MockHttpServletRequest browse = new MockHttpServletRequest("GET", "/gateway/api/products");
+        limits.tryAcquire("api", browse);
+        limits.tryAcquire("api", browse);
+
+        // When
+        AdaptiveConcurrencyLimiter.Permit browsePermit = limits.tryAcquire("api", browse);
+        AdaptiveConcurrencyLimiter.Permit paymentPermit = limits.tryAcquire("api", payment);
+
+        // Then
+        assertNull(browsePermit);
+        assertNotNull(paymentPermit);
+    }
+
+    @Test
+    void tryAcquire_whenBrowsingSaturated_shouldStillAdmitCheckout() {
+        // Given
+        ReflectionTestUtils.setField(limits, "initialLimit", 2);
+        MockHttpServletRequest checkout = new MockHttpServletRequest("POST", "/gateway/api/orders");
+        MockHttpServletRequest browse = new MockHttpServletRequest("GET", "/gateway/api/products");
+        limits.tryAcquire("api", browse);
+        limits.tryAcquire("api", browse);
+
+        // When
+        AdaptiveConcurrencyLimiter.Permit checkoutPermit = limits.tryAcquire("api", checkout);
+
+        // Then
+        assertTrue(limits.isPriority(checkout));
+        assertFalse(limits.isPriority(new MockHttpServletRequest("GET", "/gateway/api/orders")));
+        assertNotNull(checkoutPermit);
+        assertNull(limits.tryAcquire("api", browse));
+    }
+
+    @Test
+    void tryAcquire_whenCheckoutNearItsLimit_shouldShrinkBrowsingLimit() {
+        // Given
+        MockHttpServletRequest checkout = new MockHttpServletRequest("POST", "/gateway/api/orders");
+        MockHttpServletRequest browse = new MockHttpServletRequest("GET", "/gateway/api/products");
+        limits.tryAcquire("api", browse).release(false);
+        for (int i = 0; i < 16; i++) {
+            limits.tryAcquire("api", checkout);
+        }
+
+        // When
+        limits.tryAcquire("api", browse);
+        limits.tryAcquire("api", browse);
+
+        // Then
+        assertEquals(10, ((Map<?, ?>) limits.describe().get("api")).get("limit"));
+    }
+}
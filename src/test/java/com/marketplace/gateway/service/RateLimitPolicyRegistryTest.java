@@ -0,0 +1,111 @@
+package com.marketplace.gateway.service;
+
+import com.marketplace.gateway.ratelimit.RateLimitAlgorithm;
+import com.marketplace.gateway.ratelimit.RateLimitPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitPolicyRegistryTest {
+
+    private static final String POLICIES = "{"
+            + "\"policies\": ["
+            + "  {\"name\": \"partners\", \"ips\": [\"203.0.113.0/24\"], \"limit\": 1000, \"algorithm\": \"TOKEN_BUCKET\"},"
+            + "  {\"name\": \"admin-writes\", \"paths\": [\"/api/admin/**\"], \"methods\": [\"POST\", \"PUT\", \"DELETE\"], \"roles\": [\"ADMIN\"], \"limit\": 5},"
+            + "  {\"name\": \"alice\", \"users\": [\"alice@example.com\"], \"limit\": 50, \"windowSeconds\": 10}"
+            + "],"
+            + "\"defaultPolicy\": {\"name\": \"api\", \"limit\": 100}"
+            + "}";
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private RateLimitPolicyRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = tempDir.resolve("rate-limit-policies.json");
+        Files.writeString(file, POLICIES);
+        registry = new RateLimitPolicyRegistry();
+        ReflectionTestUtils.setField(registry, "location", new FileSystemResource(file));
+        registry.load();
+    }
+
+    @Test
+    void load_shouldMatchOnIpMethodRoleAndUser() {
+        List<SimpleGrantedAuthority> admin = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+        assertEquals("partners", match("GET", "/api/products", null, null, "203.0.113.9").getName());
+        assertEquals("admin-writes", match("POST", "/api/admin/products", "root", admin, "10.0.0.1").getName());
+        assertEquals("api", match("GET", "/api/admin/products", "root", admin, "10.0.0.1").getName());
+        assertEquals("api", match("POST", "/api/admin/products", "bob", List.of(), "10.0.0.1").getName());
+
+        RateLimitPolicy alice = match("GET", "/api/cart", "alice@example.com", List.of(), "10.0.0.1");
+        assertEquals("alice", alice.getName());
+        assertEquals(10_000, alice.getWindowMillis());
+        assertEquals(RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, alice.getAlgorithm());
+    }
+
+    @Test
+    void reloadIfChanged_shouldPickUpEditedFile() throws Exception {
+        // Given
+        Files.writeString(file, "{\"defaultPolicy\": {\"name\": \"api\", \"limit\": 7}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        // When
+        registry.reloadIfChanged();
+
+        // Then
+        assertEquals(7, registry.getPolicies().getDefaultPolicy().getLimit());
+        assertTrue(registry.getPolicies().getPolicies().isEmpty());
+    }
+
+    @Test
+    void reloadIfChanged_withInvalidFile_shouldKeepCurrentPolicies() throws Exception {
+        // Given
+        Files.writeString(file, "{\"policies\": [{\"name\": \"broken\", \"limit\": 0}], \"defaultPolicy\": {\"name\": \"api\", \"limit\": 1}}");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        // When
+        registry.reloadIfChanged();
+
+        // Then
+        assertEquals(100, registry.getPolicies().getDefaultPolicy().getLimit());
+        assertEquals(3, registry.getPolicies().getPolicies().size());
+    }
+
+    @Test
+    void reloadIfChanged_shouldUseFallbackUntilFileLocationExists() throws Exception {
+        // Given
+        Path missing = tempDir.resolve("config/rate-limit-policies.json");
+        RateLimitPolicyRegistry fallingBack = new RateLimitPolicyRegistry();
+        ReflectionTestUtils.setField(fallingBack, "location", new FileSystemResource(missing));
+        ReflectionTestUtils.setField(fallingBack, "fallbackLocation", new FileSystemResource(file));
+        fallingBack.load();
+        assertEquals(100, fallingBack.getPolicies().getDefaultPolicy().getLimit());
+
+        // When
+        Files.createDirectories(missing.getParent());
+        Files.writeString(missing, "{\"defaultPolicy\": {\"name\": \"api\", \"limit\": 7}}");
+        fallingBack.reloadIfChanged();
+
+        // Then
+        assertEquals(7, fallingBack.getPolicies().getDefaultPolicy().getLimit());
+        assertTrue(fallingBack.getSource().contains("config"));
+    }
+
+    private RateLimitPolicy match(String method, String path, String user, List<SimpleGrantedAuthority> authorities, String ip) {
+        return registry.getPolicies().match(method, path, user, authorities, ip);
+    }
+}
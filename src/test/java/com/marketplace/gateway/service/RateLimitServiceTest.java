@@ -0,0 +1,122 @@
+package com.marketplace.gateway.service;
+
+import com.marketplace.gateway.ratelimit.RateLimitDecision;
+import com.marketplace.gateway.ratelimit.RateLimitPolicies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisHealthMonitor redisHealth;
+
+    @Spy
+    private RateLimitPolicyRegistry policyRegistry = new RateLimitPolicyRegistry();
+
+    @InjectMocks
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitService.createLimiters();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void check_withRedis_shouldReturnQuotaFromOneScriptCallAndNoProbe() {
+        // Given
+        when(redisHealth.isAvailable()).thenReturn(true);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+                .thenReturn(List.of(1L, 99L, 120_000L, 0L));
+
+        // When
+        RateLimitDecision decision = rateLimitService.check("10.0.0.1", RateLimitPolicies.defaults().byName("api"));
+
+        // Then
+        assertTrue(decision.isAllowed());
+        assertEquals(100, decision.getLimit());
+        assertEquals(99, decision.getRemaining());
+        assertEquals(120_000, decision.getResetAfterMillis());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+        verify(redisTemplate, never()).opsForValue();
+        assertEquals("Redis-backed rate limiting active", rateLimitService.getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void isAllowed_whenRedisDenies_shouldReject() {
+        // Given
+        when(redisHealth.isAvailable()).thenReturn(true);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+                .thenReturn(List.of(0L, 0L, 1_700_000_060_000L, 6_000L));
+
+        // When / Then
+        assertFalse(rateLimitService.isAllowed("10.0.0.1", "payment"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void isAllowed_whenRedisFails_shouldReportFailureAndFallBackToMemory() {
+        // Given
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("Connection refused");
+        when(redisHealth.isAvailable()).thenReturn(true, false);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString())).thenThrow(failure);
+
+        // When
+        boolean first = rateLimitService.isAllowed("10.0.0.1", "api");
+        boolean second = rateLimitService.isAllowed("10.0.0.1", "api");
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        verify(redisHealth).reportFailure(failure);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+        assertEquals("In-memory rate limiting active (Redis unavailable)", rateLimitService.getStatus());
+    }
+
+    @Test
+    void isAllowed_whenMonitorReportsRedisDown_shouldNotTouchRedis() {
+        // Given
+        when(redisHealth.isAvailable()).thenReturn(false);
+        // Ignore the script preloading done while the limiters were created
+        clearInvocations(redisTemplate);
+
+        // When
+        boolean allowed = rateLimitService.isAllowed("10.0.0.1", "api");
+
+        // Then
+        assertTrue(allowed);
+        verifyNoInteractions(redisTemplate);
+        assertTrue(rateLimitService.isHealthy());
+    }
+
+    @Test
+    void resolvePolicy_shouldPickFirstMatchingPolicyOrDefault() {
+        MockHttpServletRequest payment = new MockHttpServletRequest("POST", "/gateway/api/payments/create-order");
+        MockHttpServletRequest admin = new MockHttpServletRequest("GET", "/gateway/admin/users");
+        MockHttpServletRequest products = new MockHttpServletRequest("GET", "/gateway/api/products");
+
+        assertEquals("payment", rateLimitService.resolvePolicy(payment, "10.0.0.1").getName());
+        assertEquals("admin", rateLimitService.resolvePolicy(admin, "10.0.0.1").getName());
+        assertEquals("api", rateLimitService.resolvePolicy(products, "10.0.0.1").getName());
+    }
+}
@@ -0,0 +1,100 @@
+package com.marketplace.gateway.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisHealthMonitorTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private RedisHealthMonitor monitor;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void probe_whenRedisAnswers_shouldMarkAvailableAndUseRegularInterval() {
+        // Given
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn("PONG");
+
+        // When
+        long delay = monitor.probe();
+
+        // Then
+        assertTrue(monitor.isAvailable());
+        assertEquals(0, monitor.getConsecutiveFailures());
+        assertEquals(5000, delay);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void probe_whenRedisIsDown_shouldBackOffExponentiallyUpToMax() {
+        // Given
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // When
+        long first = monitor.probe();
+        long second = monitor.probe();
+        long third = monitor.probe();
+
+        // Then
+        assertFalse(monitor.isAvailable());
+        assertEquals(1000, first);
+        assertEquals(2000, second);
+        assertEquals(4000, third);
+        assertEquals(60000, monitor.backoffMillis(7));
+        assertEquals(60000, monitor.backoffMillis(100));
+        assertEquals("Connection refused", monitor.getLastError());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportFailure_shouldMarkUnavailableUntilNextSuccessfulProbe() {
+        // Given
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn("PONG");
+        monitor.probe();
+
+        // When
+        monitor.reportFailure(new RedisConnectionFailureException("Read timed out"));
+
+        // Then
+        assertFalse(monitor.isAvailable());
+        assertEquals(1, monitor.getConsecutiveFailures());
+        monitor.probe();
+        assertTrue(monitor.isAvailable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportFailure_shouldProbeAgainAfterMinBackoffInsteadOfFullInterval() {
+        // Given
+        ReflectionTestUtils.setField(monitor, "intervalMs", 60000L);
+        ReflectionTestUtils.setField(monitor, "minBackoffMs", 10L);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn("PONG");
+        monitor.start();
+        verify(redisTemplate, timeout(1000)).execute(any(RedisCallback.class));
+
+        try {
+            // When
+            monitor.reportFailure(new RedisConnectionFailureException("Read timed out"));
+
+            // Then
+            verify(redisTemplate, timeout(1000).times(2)).execute(any(RedisCallback.class));
+        } finally {
+            monitor.stop();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.WebhookEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoDispatchQueueTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private WebhookEventRepositoryImpl queue;
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 19, 14, 0);
+    private final LocalDateTime leaseUntil = now.plusMinutes(2);
+
+    @Test
+    void claimDueBatch_shouldLeaseTheBatchInOneUpdate() {
+        // Given
+        WebhookEvent first = event("WH-1");
+        WebhookEvent second = event("WH-2");
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class)))
+            .thenReturn(List.of(first, second))
+            .thenReturn(List.of(first, second));
+
+        // When
+        List<WebhookEvent> claimed = queue.claimDueBatch("node-1", now, leaseUntil, 200);
+
+        // Then
+        assertEquals(List.of(first, second), claimed);
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(WebhookEvent.class));
+        assertEquals(200, queries.getAllValues().get(0).getLimit());
+        assertEquals("node-1", queries.getAllValues().get(1).getQueryObject().get("lockedBy"));
+
+        ArgumentCaptor<Query> claim = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(claim.capture(), update.capture(), eq(WebhookEvent.class));
+        // The claim repeats the lease condition, so an event leased meanwhile by another node is skipped
+        assertTrue(claim.getValue().getQueryObject().toString().contains("lockedUntil"));
+        assertEquals(Map.of("lockedBy", "node-1", "lockedUntil", leaseUntil),
+            ((Document) update.getValue().getUpdateObject().get("$set")));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(), eq(WebhookEvent.class));
+    }
+
+    @Test
+    void claimDueBatch_whenNothingDue_shouldNotUpdate() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(WebhookEvent.class))).thenReturn(List.of());
+
+        // When
+        List<WebhookEvent> claimed = queue.claimDueBatch("node-1", now, leaseUntil, 200);
+
+        // Then
+        assertTrue(claimed.isEmpty());
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(WebhookEvent.class));
+    }
+
+    private WebhookEvent event(String id) {
+        WebhookEvent event = new WebhookEvent();
+        event.setId(id);
+        return event;
+    }
+}
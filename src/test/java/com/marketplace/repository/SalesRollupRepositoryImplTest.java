@@ -0,0 +1,95 @@
+package com.marketplace.repository;
+
+import com.marketplace.model.SalesRollup;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupRepositoryImplTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private SalesRollupRepositoryImpl repository;
+
+    private final LocalDateTime at = LocalDateTime.of(2026, 10, 19, 14, 37, 12);
+    private final Map<String, Map<String, Long>> deltas = Map.of(SalesRollup.ALL_PRODUCTS, Map.of("orderCount", 1L));
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class)).thenReturn(bulk);
+    }
+
+    @Test
+    void increment_shouldSkipBucketsThatHoldTheContribution() {
+        // When
+        repository.increment(at, "order-123:SALE", deltas);
+
+        // Then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(3)).upsert(query.capture(), update.capture());
+        assertEquals("order-123:SALE",
+            ((Document) query.getValue().getQueryObject().get("appliedContributions")).get("$ne"));
+        assertEquals("order-123:SALE",
+            ((Document) update.getValue().getUpdateObject().get("$addToSet")).get("appliedContributions"));
+    }
+
+    @Test
+    void increment_retriedAfterPartialFailure_shouldTolerateBucketsAlreadyCounted() {
+        // Given
+        when(bulk.execute()).thenThrow(bulkFailure(11000, 11000));
+
+        // When / Then
+        assertDoesNotThrow(() -> repository.increment(at, "order-123:SALE", deltas));
+    }
+
+    @Test
+    void increment_withOtherWriteErrors_shouldRethrow() {
+        // Given
+        when(bulk.execute()).thenThrow(bulkFailure(11000, 50));
+
+        // When / Then
+        assertThrows(BulkOperationException.class, () -> repository.increment(at, "order-123:SALE", deltas));
+    }
+
+    private BulkOperationException bulkFailure(int... codes) {
+        List<BulkWriteError> errors = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            errors.add(new BulkWriteError(codes[i], "write error", new BsonDocument(), i));
+        }
+        MongoBulkWriteException source = new MongoBulkWriteException(
+            BulkWriteResult.unacknowledged(), errors, null, new ServerAddress(), Set.of());
+        return new BulkOperationException("bulk write failed", source);
+    }
+}
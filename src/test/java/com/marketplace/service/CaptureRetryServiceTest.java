@@ -0,0 +1,236 @@
+package com.marketplace.service;
+
+import com.marketplace.model.CaptureRetry;
+import com.marketplace.repository.CaptureRetryRepository;
+import com.paypal.http.Headers;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CaptureRetryServiceTest {
+
+    @Mock
+    private CaptureRetryRepository captureRetryRepository;
+
+    @Mock
+    private PayPalService payPalService;
+
+    @InjectMocks
+    private CaptureRetryService captureRetryService;
+
+    private CaptureRetry retry;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(captureRetryService, "maxAttempts", 3);
+        retry = new CaptureRetry("paypal-order-1", LocalDateTime.now(), "Connection reset");
+    }
+
+    @Test
+    void enqueue_shouldStoreRetryDueInTheFuture() {
+        // Given
+        when(captureRetryRepository.insertIfAbsent(any(CaptureRetry.class))).thenReturn(true);
+
+        // When
+        CaptureRetry queued = captureRetryService.enqueue("paypal-order-1", new IOException("Connection reset"));
+
+        // Then
+        assertEquals("paypal-order-1", queued.getId());
+        assertEquals(CaptureRetry.State.PENDING, queued.getState());
+        assertEquals("Connection reset", queued.getLastError());
+        assertTrue(queued.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void enqueue_whenAlreadyQueued_shouldReturnExistingRetry() {
+        // Given
+        when(captureRetryRepository.insertIfAbsent(any(CaptureRetry.class))).thenReturn(false);
+        when(captureRetryRepository.findById("paypal-order-1")).thenReturn(Optional.of(retry));
+
+        // When
+        CaptureRetry queued = captureRetryService.enqueue("paypal-order-1", new IOException("timeout"));
+
+        // Then
+        assertSame(retry, queued);
+    }
+
+    @Test
+    void retryDue_whenCaptureSucceeds_shouldMarkCaptured() {
+        // Given
+        Order order = mock(Order.class);
+        when(order.status()).thenReturn("COMPLETED");
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenReturn(retry, (CaptureRetry) null);
+        when(payPalService.captureOrderAsync("paypal-order-1")).thenReturn(CompletableFuture.completedFuture(order));
+        when(captureRetryRepository.release(any(CaptureRetry.class), anyString())).thenReturn(true);
+
+        // When
+        int attempted = captureRetryService.retryDue();
+
+        // Then
+        assertEquals(1, attempted);
+        CaptureRetry released = captureReleased();
+        assertEquals(CaptureRetry.State.CAPTURED, released.getState());
+        assertEquals("COMPLETED", released.getCaptureStatus());
+        assertEquals(1, released.getAttempts());
+    }
+
+    @Test
+    void retryDue_whenPayPalFailsTransiently_shouldBackOff() {
+        // Given
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenReturn(retry, (CaptureRetry) null);
+        when(payPalService.captureOrderAsync("paypal-order-1"))
+                .thenReturn(CompletableFuture.failedFuture(new HttpException("Service unavailable", 503, new Headers())));
+        when(captureRetryRepository.release(any(CaptureRetry.class), anyString())).thenReturn(true);
+
+        // When
+        captureRetryService.retryDue();
+
+        // Then
+        CaptureRetry released = captureReleased();
+        assertEquals(CaptureRetry.State.PENDING, released.getState());
+        assertEquals(1, released.getAttempts());
+        assertTrue(released.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void retryDue_whenPayPalRejectsCapture_shouldGiveUp() {
+        // Given
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenReturn(retry, (CaptureRetry) null);
+        when(payPalService.captureOrderAsync("paypal-order-1"))
+                .thenReturn(CompletableFuture.failedFuture(new HttpException("ORDER_NOT_APPROVED", 422, new Headers())));
+        when(captureRetryRepository.release(any(CaptureRetry.class), anyString())).thenReturn(true);
+
+        // When
+        captureRetryService.retryDue();
+
+        // Then
+        assertEquals(CaptureRetry.State.FAILED, captureReleased().getState());
+    }
+
+    @Test
+    void retryDue_whenAlreadyCaptured_shouldMarkCaptured() {
+        // Given
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenReturn(retry, (CaptureRetry) null);
+        when(payPalService.captureOrderAsync("paypal-order-1"))
+                .thenReturn(CompletableFuture.failedFuture(new HttpException("{\"details\":[{\"issue\":\"ORDER_ALREADY_CAPTURED\"}]}", 422, new Headers())));
+        when(captureRetryRepository.release(any(CaptureRetry.class), anyString())).thenReturn(true);
+
+        // When
+        captureRetryService.retryDue();
+
+        // Then
+        assertEquals(CaptureRetry.State.CAPTURED, captureReleased().getState());
+    }
+
+    @Test
+    void retryDue_afterMaxAttempts_shouldGiveUp() {
+        // Given
+        retry.setAttempts(2);
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenReturn(retry, (CaptureRetry) null);
+        when(payPalService.captureOrderAsync("paypal-order-1"))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+        when(captureRetryRepository.release(any(CaptureRetry.class), anyString())).thenReturn(true);
+
+        // When
+        captureRetryService.retryDue();
+
+        // Then
+        CaptureRetry released = captureReleased();
+        assertEquals(CaptureRetry.State.FAILED, released.getState());
+        assertEquals(3, released.getAttempts());
+    }
+
+    @Test
+    void backoffMillis_shouldGrowExponentiallyWithJitterUpToMaximum() {
+        for (int i = 0; i < 100; i++) {
+            long first = captureRetryService.backoffMillis(1);
+            long fourth = captureRetryService.backoffMillis(4);
+            long capped = captureRetryService.backoffMillis(30);
+
+            assertTrue(first >= 2500 && first <= 5000);
+            assertTrue(fourth >= 20000 && fourth <= 40000);
+            assertTrue(capped >= 450000 && capped <= 900000);
+        }
+    }
+
+    @Test
+    void isRetryable_shouldOnlyRejectPayPalClientErrors() {
+        assertTrue(CaptureRetryService.isRetryable(new IOException("timeout")));
+        assertTrue(CaptureRetryService.isRetryable(new HttpException("throttled", 429, new Headers())));
+        assertTrue(CaptureRetryService.isRetryable(new HttpException("unavailable", 503, new Headers())));
+        assertFalse(CaptureRetryService.isRetryable(new HttpException("not found", 404, new Headers())));
+    }
+
+    private CaptureRetry captureReleased() {
+        ArgumentCaptor<CaptureRetry> captor = ArgumentCaptor.forClass(CaptureRetry.class);
+        verify(captureRetryRepository).release(captor.capture(), anyString());
+        return captor.getValue();
+    }
+
+    @Test
+    void rearm_withFailedCapture_shouldReturnRearmedEntry() {
+        // Given
+        when(captureRetryRepository.rearmFailed(eq("paypal-order-1"), any(LocalDateTime.class))).thenReturn(retry);
+
+        // When
+        CaptureRetry rearmed = captureRetryService.rearm("paypal-order-1");
+
+        // Then
+        assertSame(retry, rearmed);
+        verify(captureRetryRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void rearm_whenNoLongerFailed_shouldReturnStoredEntry() {
+        // Given
+        when(captureRetryRepository.rearmFailed(eq("paypal-order-1"), any(LocalDateTime.class))).thenReturn(null);
+        when(captureRetryRepository.findById("paypal-order-1")).thenReturn(Optional.of(retry));
+
+        // When
+        CaptureRetry current = captureRetryService.rearm("paypal-order-1");
+
+        // Then
+        assertSame(retry, current);
+    }
+
+    @Test
+    void poll_shouldAttemptCapturesOffTheSchedulerThread() throws Exception {
+        // Given
+        captureRetryService.start();
+        CompletableFuture<Thread> attemptThread = new CompletableFuture<>();
+        when(captureRetryRepository.claimNextDue(anyString(), any(), any())).thenAnswer(invocation -> {
+            attemptThread.complete(Thread.currentThread());
+            return null;
+        });
+
+        try {
+            // When
+            captureRetryService.poll();
+
+            // Then
+            Thread thread = attemptThread.get(5, TimeUnit.SECONDS);
+            assertNotSame(Thread.currentThread(), thread);
+            assertTrue(thread.getName().startsWith("capture-retry-"));
+        } finally {
+            captureRetryService.stop();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderEvent;
+import com.marketplace.model.OrderEventType;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.repository.OrderEventRepository;
+import com.marketplace.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderEventDispatcherTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderEventRepository orderEventRepository;
+
+    @Mock
+    private OrderEventHandler handler;
+
+    @InjectMocks
+    private OrderEventDispatcher dispatcher;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> done;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "handlers", List.of(handler));
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "workers", 2);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 60000L);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    void relayOutbox_shouldInsertEventsAndRemoveThemFromOrders() {
+        // Given
+        Order order = new Order();
+        order.setId("order-1");
+        OrderEvent event = order.recordEvent(OrderEventType.ORDER_CREATED);
+        when(orderRepository.findWithPendingOutbox(100)).thenReturn(List.of(order));
+
+        // When
+        int relayed = dispatcher.relayOutbox();
+
+        // Then
+        assertEquals(1, relayed);
+        verify(orderEventRepository).insertIfAbsent(List.of(event));
+        verify(orderRepository).removeFromOutbox("order-1", List.of(event.getId()));
+    }
+
+    @Test
+    void relayOutbox_shouldFillMissingUserIdFromOrder() {
+        // Given
+        Order order = new Order();
+        order.setId("order-1");
+        order.setUserId("user-1");
+        OrderEvent statusEvent = new OrderEvent("order-1", null, OrderEventType.STATUS_CHANGED, OrderStatus.SHIPPED);
+        order.getOutbox().add(statusEvent);
+        when(orderRepository.findWithPendingOutbox(100)).thenReturn(List.of(order));
+
+        // When
+        dispatcher.relayOutbox();
+
+        // Then
+        assertEquals("user-1", statusEvent.getUserId());
+        verify(orderEventRepository).insertIfAbsent(List.of(statusEvent));
+    }
+
+    @Test
+    void dispatchPending_shouldDeliverEventsOfAnOrderInSequence() throws Exception {
+        // Given
+        OrderEvent created = new OrderEvent("order-1", "user-1", OrderEventType.ORDER_CREATED, OrderStatus.PENDING);
+        OrderEvent confirmed = new OrderEvent("order-1", null, OrderEventType.PAYMENT_CONFIRMED, OrderStatus.CONFIRMED);
+        when(orderEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(Arrays.asList(created, confirmed));
+        when(orderEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(handler.supports(any())).thenReturn(true);
+
+        // When
+        int handled = dispatcher.dispatchPending();
+
+        // Then
+        assertEquals(2, handled);
+        InOrder inOrder = inOrder(handler);
+        inOrder.verify(handler).handle(created);
+        inOrder.verify(handler).handle(confirmed);
+        verify(orderEventRepository).markDone(List.of(created.getId(), confirmed.getId()));
+    }
+
+    @Test
+    void dispatchPending_shouldDeliverOnlyLeasedEventsAndReleaseTheRest() throws Exception {
+        // Given
+        OrderEvent created = new OrderEvent("order-1", "user-1", OrderEventType.ORDER_CREATED, OrderStatus.PENDING);
+        ArgumentCaptor<String> owner = ArgumentCaptor.forClass(String.class);
+        when(orderEventRepository.claimDueBatch(owner.capture(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100)))
+                .thenReturn(List.of(created));
+        when(orderEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(handler.supports(any())).thenReturn(true);
+
+        // When
+        dispatcher.dispatchPending();
+
+        // Then
+        verify(handler).handle(created);
+        verify(orderEventRepository).findBlocking(anyCollection(), eq(owner.getValue()));
+        verify(orderEventRepository).releaseClaims(owner.getValue());
+    }
+
+    @Test
+    void dispatchPending_whenHandlerFails_shouldScheduleRetryAndHoldLaterEvents() throws Exception {
+        // Given
+        OrderEvent created = new OrderEvent("order-1", "user-1", OrderEventType.ORDER_CREATED, OrderStatus.PENDING);
+        OrderEvent confirmed = new OrderEvent("order-1", null, OrderEventType.PAYMENT_CONFIRMED, OrderStatus.CONFIRMED);
+        when(orderEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(Arrays.asList(created, confirmed));
+        when(orderEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(handler.supports(any())).thenReturn(true);
+        doThrow(new RuntimeException("cart service down")).when(handler).handle(created);
+
+        // When
+        int handled = dispatcher.dispatchPending();
+
+        // Then
+        assertEquals(0, handled);
+        verify(handler, never()).handle(confirmed);
+        ArgumentCaptor<OrderEvent> saved = ArgumentCaptor.forClass(OrderEvent.class);
+        verify(orderEventRepository).reschedule(saved.capture(), anyString());
+        assertEquals(1, saved.getValue().getAttempts());
+        assertEquals(OrderEvent.State.PENDING, saved.getValue().getState());
+        assertNotNull(saved.getValue().getNextAttemptAt());
+        assertEquals("cart service down", saved.getValue().getLastError());
+    }
+
+    @Test
+    void dispatchPending_afterMaxAttempts_shouldDeadLetterEvent() throws Exception {
+        // Given
+        OrderEvent created = new OrderEvent("order-1", "user-1", OrderEventType.ORDER_CREATED, OrderStatus.PENDING);
+        created.setAttempts(2);
+        when(orderEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(created));
+        when(orderEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(handler.supports(any())).thenReturn(true);
+        doThrow(new RuntimeException("still failing")).when(handler).handle(created);
+
+        // When
+        dispatcher.dispatchPending();
+
+        // Then
+        verify(orderEventRepository).reschedule(argThat((OrderEvent event) -> event.getState() == OrderEvent.State.DEAD), anyString());
+    }
+
+    @Test
+    void dispatchPending_withEarlierEventBackingOff_shouldNotDeliverLaterEvents() throws Exception {
+        // Given
+        OrderEvent waiting = new OrderEvent("order-1", "user-1", OrderEventType.ORDER_CREATED, OrderStatus.PENDING);
+        OrderEvent later = new OrderEvent("order-1", null, OrderEventType.STATUS_CHANGED, OrderStatus.CANCELLED);
+        when(orderEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(later));
+        when(orderEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(List.of(waiting));
+
+        // When
+        int handled = dispatcher.dispatchPending();
+
+        // Then
+        assertEquals(0, handled);
+        verifyNoInteractions(handler);
+        verify(orderEventRepository).markDone(done.capture());
+        assertTrue(done.getValue().isEmpty());
+    }
+}
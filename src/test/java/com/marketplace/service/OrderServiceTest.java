@@ -35,6 +35,9 @@ class OrderServiceTest {
     @Mock
     private CartService cartService;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -93,6 +96,154 @@ class OrderServiceTest {
         verify(cartService).clearCurrentUserCart();
     }
 
+    @Test
+    void createOrderFromCart_shouldWriteOrderCreatedEventWithOrder() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(cartService.getCurrentUserCart()).thenReturn(testCart);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+
+        // When
+        orderService.createOrderFromCart();
+
+        // Then
+        verify(orderRepository).save(argThat((Order order) -> order.getId() != null
+            && Boolean.TRUE.equals(order.getOutboxPending())
+            && order.getOutbox().size() == 1
+            && order.getOutbox().get(0).getType() == OrderEventType.ORDER_CREATED
+            && order.getId().equals(order.getOutbox().get(0).getOrderId())));
+    }
+
+    @Test
+    void createOrderFromCart_withPayPalOrderLinkedToCart_shouldLinkOrderServerSide() {
+        // Given
+        testCart.setPaypalOrderId("paypal-order-1");
+        testCart.setPaypalAmount(new BigDecimal("215.98"));
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(cartService.getCurrentUserCart()).thenReturn(testCart);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+
+        // When
+        orderService.createOrderFromCart();
+
+        // Then
+        verify(orderRepository).save(argThat((Order order) -> "paypal-order-1".equals(order.getPaypalPaymentId())
+            && new BigDecimal("215.98").equals(order.getPaymentAmount())));
+    }
+
+    @Test
+    void createOrderFromCart_whenInlineCartClearFails_shouldStillReturnOrder() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(cartService.getCurrentUserCart()).thenReturn(testCart);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        doThrow(new RuntimeException("Mongo timeout")).when(cartService).clearCurrentUserCart();
+
+        // When
+        Order result = orderService.createOrderFromCart();
+
+        // Then
+        assertEquals("order-123", result.getId());
+    }
+
+    @Test
+    void createOrderFromCart_withNewIdempotencyKey_shouldCreateOrderAndCompleteKey() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString()))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(3)));
+        when(cartService.getCurrentUserCart()).thenReturn(testCart);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+
+        // When
+        Order result = orderService.createOrderFromCart("key-1");
+
+        // Then
+        assertEquals("order-123", result.getId());
+        verify(idempotencyService).complete("create-order", "user-123", "key-1", "order-123");
+        verify(orderRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void createOrderFromCart_withExpiredClaimWhoseOrderWasSaved_shouldReturnThatOrder() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString()))
+                .thenReturn(claimed("order-123"));
+        when(orderRepository.findById("order-123")).thenReturn(Optional.of(testOrder));
+
+        // When
+        Order result = orderService.createOrderFromCart("key-1");
+
+        // Then
+        assertEquals("order-123", result.getId());
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(idempotencyService).complete("create-order", "user-123", "key-1", "order-123");
+    }
+
+    @Test
+    void createOrderFromCart_whenCompletingKeyFails_shouldKeepKeyAndReturnOrder() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString()))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(3)));
+        when(cartService.getCurrentUserCart()).thenReturn(testCart);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        doThrow(new RuntimeException("Mongo unavailable"))
+                .when(idempotencyService).complete("create-order", "user-123", "key-1", "order-123");
+
+        // When
+        Order result = orderService.createOrderFromCart("key-1");
+
+        // Then
+        assertEquals("order-123", result.getId());
+        verify(idempotencyService, never()).release(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void createOrderFromCart_withCompletedIdempotencyKey_shouldReturnOriginalOrder() {
+        // Given
+        IdempotencyKey previous = new IdempotencyKey("create-order", "user-123", "key-1");
+        previous.setState(IdempotencyKey.STATE_COMPLETED);
+        previous.setResourceId("order-123");
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString())).thenReturn(previous);
+        when(orderRepository.findById("order-123")).thenReturn(Optional.of(testOrder));
+
+        // When
+        Order result = orderService.createOrderFromCart("key-1");
+
+        // Then
+        assertEquals("order-123", result.getId());
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(cartService);
+    }
+
+    @Test
+    void createOrderFromCart_withInProgressIdempotencyKey_shouldThrowIllegalStateException() {
+        // Given
+        IdempotencyKey previous = new IdempotencyKey("create-order", "user-123", "key-1");
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString())).thenReturn(previous);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> orderService.createOrderFromCart("key-1"));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void createOrderFromCart_withIdempotencyKeyAndEmptyCart_shouldReleaseKey() {
+        // Given
+        when(userService.getCurrentUser()).thenReturn(testUser);
+        when(idempotencyService.claim(eq("create-order"), eq("user-123"), eq("key-1"), anyString()))
+                .thenAnswer(invocation -> claimed(invocation.getArgument(3)));
+        when(cartService.getCurrentUserCart()).thenReturn(new Cart("user-123"));
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> orderService.createOrderFromCart("key-1"));
+        verify(idempotencyService).release("create-order", "user-123", "key-1");
+    }
+
     @Test
     void createOrderFromCart_withNoUser_shouldThrowException() {
         // Given
@@ -120,20 +271,24 @@ class OrderServiceTest {
     @Test
     void updateOrderStatus_withValidOrder_shouldUpdateStatus() {
         // Given
-        when(orderRepository.findById("order-123")).thenReturn(Optional.of(testOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        testOrder.setStatus(OrderStatus.SHIPPED);
+        when(orderRepository.transitionStatus("order-123", OrderStatus.SHIPPED)).thenReturn(testOrder);
 
         // When
         Order result = orderService.updateOrderStatus("order-123", OrderStatus.SHIPPED);
 
         // Then
         assertNotNull(result);
-        verify(orderRepository).save(any(Order.class));
+        assertEquals(OrderStatus.SHIPPED, result.getStatus());
+        verify(orderRepository).transitionStatus("order-123", OrderStatus.SHIPPED);
+        verify(orderRepository, never()).findById(anyString());
+        verify(orderRepository, never()).save(any(Order.class));
     }
 
     @Test
     void updateOrderStatus_withInvalidOrder_shouldThrowException() {
         // Given
+        when(orderRepository.transitionStatus("invalid", OrderStatus.SHIPPED)).thenReturn(null);
         when(orderRepository.findById("invalid")).thenReturn(Optional.empty());
 
         // When & Then
@@ -143,22 +298,102 @@ class OrderServiceTest {
     }
 
     @Test
-    void addPaymentInfo_withValidOrder_shouldAddPaymentInfo() {
+    void updateOrderStatus_withIllegalTransition_shouldThrowIllegalStateException() {
         // Given
+        testOrder.setStatus(OrderStatus.CANCELLED);
+        when(orderRepository.transitionStatus("order-123", OrderStatus.SHIPPED)).thenReturn(null);
+        when(orderRepository.findById("order-123")).thenReturn(Optional.of(testOrder));
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, 
+            () -> orderService.updateOrderStatus("order-123", OrderStatus.SHIPPED));
+        assertEquals("Cannot change order status from CANCELLED to SHIPPED", exception.getMessage());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void updateOrderStatus_withSameStatus_shouldReturnOrderUnchanged() {
+        // Given
+        testOrder.setStatus(OrderStatus.CONFIRMED);
+        when(orderRepository.transitionStatus("order-123", OrderStatus.CONFIRMED)).thenReturn(null);
         when(orderRepository.findById("order-123")).thenReturn(Optional.of(testOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+
+        // When
+        Order result = orderService.updateOrderStatus("order-123", OrderStatus.CONFIRMED);
+
+        // Then
+        assertEquals(OrderStatus.CONFIRMED, result.getStatus());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void orderStatus_transitionTable_shouldAllowOnlyForwardMoves() {
+        assertTrue(OrderStatus.PENDING.canTransitionTo(OrderStatus.CONFIRMED));
+        assertTrue(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.DELIVERED));
+        assertFalse(OrderStatus.DELIVERED.canTransitionTo(OrderStatus.PENDING));
+        assertFalse(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.CONFIRMED));
+        assertTrue(OrderStatus.REFUNDED.isTerminal());
+        assertTrue(OrderStatus.sourcesOf(OrderStatus.PENDING).isEmpty());
+        assertTrue(OrderStatus.sourcesOf(OrderStatus.DELIVERED).contains(OrderStatus.SHIPPED));
+    }
+
+    @Test
+    void bulkUpdateOrderStatus_shouldDeduplicateIdsAndReturnPerOrderResults() {
+        // Given
+        List<OrderStatusUpdateResult> results = Arrays.asList(
+                new OrderStatusUpdateResult("order-1", OrderStatusUpdateResult.Outcome.UPDATED, OrderStatus.SHIPPED),
+                new OrderStatusUpdateResult("order-2", OrderStatusUpdateResult.Outcome.REJECTED, OrderStatus.CANCELLED));
+        when(orderRepository.bulkTransitionStatus(anyCollection(), eq(OrderStatus.SHIPPED))).thenReturn(results);
+
+        // When
+        List<OrderStatusUpdateResult> result = orderService.bulkUpdateOrderStatus(
+                Arrays.asList("order-1", "order-2", "order-1"), OrderStatus.SHIPPED);
+
+        // Then
+        assertEquals(2, result.size());
+        verify(orderRepository).bulkTransitionStatus(argThat((java.util.Collection<String> ids) ->
+                ids.size() == 2 && ids.contains("order-1") && ids.contains("order-2")), eq(OrderStatus.SHIPPED));
+    }
+
+    @Test
+    void bulkUpdateOrderStatus_withNoIds_shouldThrowIllegalArgumentException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.bulkUpdateOrderStatus(List.of(), OrderStatus.SHIPPED));
+        verify(orderRepository, never()).bulkTransitionStatus(anyCollection(), any(OrderStatus.class));
+    }
+
+    @Test
+    void addPaymentInfo_withValidOrder_shouldAddPaymentInfo() {
+        // Given
+        when(orderRepository.confirmPayment("order-123", "txn-123", "payment-123")).thenReturn(testOrder);
 
         // When
         Order result = orderService.addPaymentInfo("order-123", "txn-123", "payment-123");
 
         // Then
         assertNotNull(result);
-        verify(orderRepository).save(any(Order.class));
+        verify(orderRepository).confirmPayment("order-123", "txn-123", "payment-123");
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void findByPayPalIds_withOnlyPayPalOrderId_shouldNotQueryOnMissingCaptureId() {
+        // Given
+        when(orderRepository.findFirstByPaypalPaymentId("paypal-order-1")).thenReturn(Optional.of(testOrder));
+
+        // When
+        Optional<Order> result = orderService.findByPayPalIds("paypal-order-1", null);
+
+        // Then
+        assertTrue(result.isPresent());
+        verify(orderRepository, never()).findFirstByPaypalPaymentIdOrPaypalTransactionId(any(), any());
     }
 
     @Test
     void addPaymentInfo_withInvalidOrder_shouldThrowException() {
         // Given
+        when(orderRepository.confirmPayment("invalid", "txn-123", "payment-123")).thenReturn(null);
         when(orderRepository.findById("invalid")).thenReturn(Optional.empty());
 
         // When & Then
@@ -307,4 +542,11 @@ class OrderServiceTest {
         assertNotNull(result);
         verify(orderRepository).save(testOrder);
     }
-}
\ No newline at end of file
+
+    private static IdempotencyKey claimed(String resourceId) {
+        IdempotencyKey claim = new IdempotencyKey("create-order", "user-123", "key-1");
+        claim.setResourceId(resourceId);
+        claim.setClaimed(true);
+        return claim;
+    }
+}
@@ -0,0 +1,75 @@
+package com.marketplace.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayPalBulkheadTest {
+
+    private PayPalBulkhead bulkhead;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = new PayPalBulkhead();
+        ReflectionTestUtils.setField(bulkhead, "threads", 1);
+        ReflectionTestUtils.setField(bulkhead, "queueCapacity", 1);
+        bulkhead.start();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        bulkhead.stop();
+    }
+
+    @Test
+    void submit_shouldCompleteWithCallResult() throws Exception {
+        // When
+        CompletableFuture<String> result = bulkhead.submit("getOrder", () -> "ok", 1000);
+
+        // Then
+        assertEquals("ok", result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_whenThreadsAndQueueAreFull_shouldRejectImmediately() {
+        // Given
+        bulkhead.submit("captureOrder", this::blockUntilReleased, 5000);
+        bulkhead.submit("captureOrder", this::blockUntilReleased, 5000);
+
+        // When
+        CompletableFuture<String> rejected = bulkhead.submit("captureOrder", () -> "never", 5000);
+
+        // Then
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(PayPalBulkhead.isRejection(error));
+    }
+
+    @Test
+    void submit_whenDeadlinePasses_shouldFailWithTimeout() {
+        // When
+        CompletableFuture<String> result = bulkhead.submit("createOrder", this::blockUntilReleased, 50);
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertFalse(PayPalBulkhead.isRejection(error));
+    }
+
+    private String blockUntilReleased() throws InterruptedException {
+        release.await();
+        return "released";
+    }
+}
@@ -0,0 +1,102 @@
+package com.marketplace.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayPalCircuitBreakerTest {
+
+    private PayPalCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = new PayPalCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "windowSize", 4);
+        ReflectionTestUtils.setField(circuitBreaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(circuitBreaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(circuitBreaker, "halfOpenProbes", 1);
+    }
+
+    @Test
+    void onFailure_belowMinimumCalls_shouldStayClosed() {
+        // When
+        recordFailures(3);
+
+        // Then
+        assertEquals(PayPalCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onFailure_atFailureRateThreshold_shouldOpenAndFailFast() {
+        // Given
+        recordSuccesses(2);
+
+        // When
+        recordFailures(2);
+
+        // Then
+        assertEquals(PayPalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void slidingWindow_shouldForgetOldFailures() {
+        // Given
+        recordFailures(1);
+
+        // When
+        recordSuccesses(4);
+
+        // Then
+        assertEquals(0f, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void halfOpen_withSuccessfulProbe_shouldClose() {
+        // Given
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMs", 0L);
+        recordFailures(4);
+
+        // When
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+
+        // Then
+        assertEquals(PayPalCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0f, circuitBreaker.getFailureRate());
+    }
+
+    @Test
+    void halfOpen_withFailedProbe_shouldReopen() {
+        // Given
+        recordFailures(4);
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMs", 0L);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMs", 60000L);
+
+        // When
+        circuitBreaker.onFailure();
+
+        // Then
+        assertEquals(PayPalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void recordFailures(int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+    }
+
+    private void recordSuccesses(int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onSuccess();
+        }
+    }
+}
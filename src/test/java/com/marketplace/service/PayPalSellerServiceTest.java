@@ -0,0 +1,101 @@
+package com.marketplace.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PayPalSellerServiceTest {
+
+    private PayPalSellerService sellerService;
+
+    @BeforeEach
+    void setUp() {
+        sellerService = spy(new PayPalSellerService());
+        sellerService.initEligibilityCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sellerService.shutdownEligibilityCache();
+    }
+
+    @Test
+    void isSellerEligibleForCheckout_shouldValidateOncePerSeller() {
+        // When
+        assertTrue(sellerService.isSellerEligibleForCheckout("seller-1"));
+        assertTrue(sellerService.isSellerEligibleForCheckout("seller-1"));
+
+        // Then
+        verify(sellerService, times(1)).validateSellerAccount("seller-1");
+    }
+
+    @Test
+    void isSellerEligibleForCheckout_withIneligibleSeller_shouldCacheNegativeResult() {
+        // Given
+        Map<String, Object> invalid = new HashMap<>();
+        invalid.put("isValid", false);
+        invalid.put("warning", "You currently cannot receive payments");
+        doReturn(invalid).when(sellerService).validateSellerAccount("seller-2");
+
+        // When
+        boolean first = sellerService.isSellerEligibleForCheckout("seller-2");
+        Map<String, Object> validation = sellerService.getCachedSellerValidation("seller-2");
+
+        // Then
+        assertFalse(first);
+        assertEquals("You currently cannot receive payments", validation.get("warning"));
+        verify(sellerService, times(1)).validateSellerAccount("seller-2");
+    }
+
+    @Test
+    void invalidateSellerEligibility_shouldRevalidateOnNextCheck() {
+        // Given
+        sellerService.isSellerEligibleForCheckout("seller-3");
+
+        // When
+        sellerService.invalidateSellerEligibility("seller-3");
+        sellerService.isSellerEligibleForCheckout("seller-3");
+
+        // Then
+        verify(sellerService, times(2)).validateSellerAccount("seller-3");
+    }
+
+    @Test
+    void invalidateMerchantEligibility_withMappedMerchant_shouldRevalidateOnlyThatSeller() {
+        // Given
+        sellerService.shutdownEligibilityCache();
+        ReflectionTestUtils.setField(sellerService, "merchantIds", "MERCHANT-4=seller-4");
+        sellerService.initEligibilityCache();
+        sellerService.isSellerEligibleForCheckout("seller-4");
+        sellerService.isSellerEligibleForCheckout("seller-5");
+
+        // When
+        sellerService.invalidateMerchantEligibility("MERCHANT-4");
+        sellerService.isSellerEligibleForCheckout("seller-4");
+        sellerService.isSellerEligibleForCheckout("seller-5");
+
+        // Then
+        verify(sellerService, times(2)).validateSellerAccount("seller-4");
+        verify(sellerService, times(1)).validateSellerAccount("seller-5");
+    }
+
+    @Test
+    void invalidateMerchantEligibility_withUnknownMerchant_shouldRevalidateAllSellers() {
+        // Given
+        sellerService.isSellerEligibleForCheckout("default-seller");
+
+        // When
+        sellerService.invalidateMerchantEligibility("MERCHANT-UNKNOWN");
+        sellerService.isSellerEligibleForCheckout("default-seller");
+
+        // Then
+        verify(sellerService, times(2)).validateSellerAccount("default-seller");
+    }
+}
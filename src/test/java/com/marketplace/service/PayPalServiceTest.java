@@ -0,0 +1,193 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Cart;
+import com.marketplace.model.CartItem;
+import com.marketplace.model.Product;
+import com.paypal.orders.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PayPalServiceTest {
+
+    private static final BigDecimal TOTAL = new BigDecimal("215.98");
+
+    private PayPalService payPalService;
+    private PayPalBulkhead bulkhead;
+    private Cart cart;
+    private Order paypalOrder;
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = new PayPalBulkhead();
+        ReflectionTestUtils.setField(bulkhead, "threads", 2);
+        ReflectionTestUtils.setField(bulkhead, "queueCapacity", 4);
+        bulkhead.start();
+
+        PayPalService service = new PayPalService("sb-test-client-id", "sb-test-secret", "sandbox", "");
+        ReflectionTestUtils.setField(service, "bulkhead", bulkhead);
+        ReflectionTestUtils.setField(service, "circuitBreaker", new PayPalCircuitBreaker());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "createTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(service, "captureTimeoutMs", 5000L);
+        service.configureClient();
+        payPalService = spy(service);
+
+        cart = new Cart("user-123");
+        cart.addItem(new CartItem("1", "Test Product", new BigDecimal("99.99"), "image.jpg", 2));
+
+        paypalOrder = mock(Order.class);
+        when(paypalOrder.id()).thenReturn("paypal-order-123");
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.stop();
+    }
+
+    @Test
+    void createCartOrderAsync_withConcurrentDuplicates_shouldCallPayPalOnce() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return paypalOrder;
+        }).when(payPalService).createCartOrder(eq(cart), eq(TOTAL), anyString());
+
+        // When
+        CompletableFuture<Order> first = payPalService.createCartOrderAsync(cart, TOTAL);
+        CompletableFuture<Order> second = payPalService.createCartOrderAsync(cart, TOTAL);
+        release.countDown();
+
+        // Then
+        assertSame(paypalOrder, first.get(1, TimeUnit.SECONDS));
+        assertSame(paypalOrder, second.get(1, TimeUnit.SECONDS));
+        verify(payPalService, times(1)).createCartOrder(eq(cart), eq(TOTAL), anyString());
+    }
+
+    @Test
+    void createCartOrderAsync_afterCompletion_shouldReturnCachedOrder() throws Exception {
+        // Given
+        doReturn(paypalOrder).when(payPalService).createCartOrder(eq(cart), eq(TOTAL), anyString());
+        payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // When
+        Order retried = payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertSame(paypalOrder, retried);
+        verify(payPalService, times(1)).createCartOrder(eq(cart), eq(TOTAL), anyString());
+    }
+
+    @Test
+    void createCartOrderAsync_afterFailure_shouldCallPayPalAgain() throws Exception {
+        // Given
+        doThrow(new IOException("connection reset"))
+            .doReturn(paypalOrder)
+            .when(payPalService).createCartOrder(eq(cart), eq(TOTAL), anyString());
+        CompletableFuture<Order> failed = payPalService.createCartOrderAsync(cart, TOTAL);
+        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+
+        // When
+        Order retried = payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertSame(paypalOrder, retried);
+        verify(payPalService, times(2)).createCartOrder(eq(cart), eq(TOTAL), anyString());
+    }
+
+    @Test
+    void captureOrderAsync_shouldForgetCreatedOrder() throws Exception {
+        // Given
+        doReturn(paypalOrder).when(payPalService).createCartOrder(eq(cart), eq(TOTAL), anyString());
+        doReturn(paypalOrder).when(payPalService).captureOrder("paypal-order-123");
+        payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // When
+        payPalService.captureOrderAsync("paypal-order-123").get(1, TimeUnit.SECONDS);
+        payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // Then
+        verify(payPalService, times(2)).createCartOrder(eq(cart), eq(TOTAL), anyString());
+    }
+
+    @Test
+    void captureOrderAsync_forAnotherOrder_shouldKeepCreatedOrder() throws Exception {
+        // Given
+        doReturn(paypalOrder).when(payPalService).createCartOrder(eq(cart), eq(TOTAL), anyString());
+        doReturn(paypalOrder).when(payPalService).captureOrder("paypal-order-999");
+        payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // When
+        payPalService.captureOrderAsync("paypal-order-999").get(1, TimeUnit.SECONDS);
+        payPalService.createCartOrderAsync(cart, TOTAL).get(1, TimeUnit.SECONDS);
+
+        // Then
+        verify(payPalService, times(1)).createCartOrder(eq(cart), eq(TOTAL), anyString());
+    }
+
+    @Test
+    void readTimeout_shouldNotBeShorterThanLongestOperationDeadline() {
+        // Given
+        ReflectionTestUtils.setField(payPalService, "readTimeoutMs", 1000);
+        ReflectionTestUtils.setField(payPalService, "captureTimeoutMs", 15000L);
+
+        // When
+        int readTimeout = payPalService.readTimeout();
+
+        // Then
+        assertEquals(15000, readTimeout);
+    }
+
+    @Test
+    void cartRequestId_shouldDependOnUserCartVersionAndAmount() {
+        // Given
+        String requestId = PayPalService.cartRequestId(cart, TOTAL);
+
+        // When
+        Cart otherUser = new Cart("user-456");
+        otherUser.setItems(cart.getItems());
+        otherUser.setUpdatedAt(cart.getUpdatedAt());
+
+        // Then
+        assertEquals(requestId, PayPalService.cartRequestId(cart, TOTAL));
+        assertNotEquals(requestId, PayPalService.cartRequestId(otherUser, TOTAL));
+        assertNotEquals(requestId, PayPalService.cartRequestId(cart, new BigDecimal("100.00")));
+
+        cart.setUpdatedAt(cart.getUpdatedAt().plusSeconds(1));
+        assertNotEquals(requestId, PayPalService.cartRequestId(cart, TOTAL));
+    }
+
+    @Test
+    void productRequestId_shouldDependOnUserProductPriceAndCheckoutToken() {
+        // Given
+        Product product = new Product();
+        product.setId("product-1");
+        product.setPrice(new BigDecimal("49.99"));
+        String requestId = PayPalService.productRequestId("user-123", product, "attempt-1");
+
+        // When
+        Product repriced = new Product();
+        repriced.setId("product-1");
+        repriced.setPrice(new BigDecimal("39.99"));
+
+        // Then
+        assertEquals(requestId, PayPalService.productRequestId("user-123", product, "attempt-1"));
+        assertNotEquals(requestId, PayPalService.productRequestId("user-123", product, "attempt-2"));
+        assertNotEquals(requestId, PayPalService.productRequestId("user-456", product, "attempt-1"));
+        assertNotEquals(requestId, PayPalService.productRequestId("user-123", repriced, "attempt-1"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.WebhookEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayPalWebhookHandlerTest {
+
+    @Mock
+    private PayPalSellerService payPalSellerService;
+
+    @Mock
+    private OrderService orderService;
+
+    @InjectMocks
+    private PayPalWebhookHandler webhookHandler;
+
+    // Cart total 100.00 plus 8% tax, as the PayPal order was created
+    private static final Map<String, Object> PAID = Map.of("currency_code", "USD", "value", "108.00");
+
+    @Test
+    void handle_withCaptureCompleted_shouldConfirmOrderFoundByPayPalOrderId() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.PENDING);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.COMPLETED", captureResource("capture-1", "paypal-order-1")));
+
+        // Then
+        verify(orderService).addPaymentInfo("order-1", "capture-1", "paypal-order-1");
+    }
+
+    @Test
+    void handle_withRedeliveredCaptureCompleted_shouldNotFail() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.SHIPPED);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+        when(orderService.addPaymentInfo("order-1", "capture-1", "paypal-order-1"))
+                .thenThrow(new IllegalStateException("Cannot change order status from SHIPPED to CONFIRMED"));
+
+        // When & Then
+        assertDoesNotThrow(() -> webhookHandler.handle(event("PAYMENT.CAPTURE.COMPLETED", captureResource("capture-1", "paypal-order-1"))));
+    }
+
+    @Test
+    void handle_withCaptureForDifferentAmount_shouldNotConfirmOrder() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.PENDING);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+        Map<String, Object> underpaid = Map.of("currency_code", "USD", "value", "1.00");
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.COMPLETED", captureResource("capture-1", "paypal-order-1", underpaid)));
+
+        // Then
+        verify(orderService, never()).addPaymentInfo(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void handle_withCaptureInDifferentCurrency_shouldNotConfirmOrder() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.PENDING);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+        Map<String, Object> otherCurrency = Map.of("currency_code", "JPY", "value", "108.00");
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.COMPLETED", captureResource("capture-1", "paypal-order-1", otherCurrency)));
+
+        // Then
+        verify(orderService, never()).addPaymentInfo(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void handle_withCaptureForUnknownOrder_shouldSkipEvent() throws Exception {
+        // Given
+        when(orderService.findByPayPalIds("paypal-order-9", "capture-9")).thenReturn(Optional.empty());
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.COMPLETED", captureResource("capture-9", "paypal-order-9")));
+
+        // Then
+        verify(orderService, never()).addPaymentInfo(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void handle_withCaptureDenied_shouldCancelPendingOrder() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.PENDING);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.DENIED", captureResource("capture-1", "paypal-order-1")));
+
+        // Then
+        verify(orderService).updateOrderStatus("order-1", OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void handle_withCaptureDeniedForShippedOrder_shouldLeaveOrderUnchanged() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.SHIPPED);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+
+        // When
+        webhookHandler.handle(event("PAYMENT.CAPTURE.DENIED", captureResource("capture-1", "paypal-order-1")));
+
+        // Then
+        verify(orderService, never()).updateOrderStatus(anyString(), any(OrderStatus.class));
+    }
+
+    @Test
+    void handle_withOrderCompleted_shouldConfirmWithFirstCaptureId() throws Exception {
+        // Given
+        Order order = order("order-1", OrderStatus.PENDING);
+        when(orderService.findByPayPalIds("paypal-order-1", "capture-1")).thenReturn(Optional.of(order));
+        Map<String, Object> resource = Map.of(
+                "id", "paypal-order-1",
+                "purchase_units", List.of(Map.of("payments", Map.of("captures", List.of(Map.of("id", "capture-1", "amount", PAID))))));
+
+        // When
+        webhookHandler.handle(event("CHECKOUT.ORDER.COMPLETED", resource));
+
+        // Then
+        verify(orderService).addPaymentInfo("order-1", "capture-1", "paypal-order-1");
+    }
+
+    @Test
+    void handle_withSellerAccountStatusChange_shouldInvalidateEligibility() throws Exception {
+        // Given
+        WebhookEvent event = event("CUSTOMER.MERCHANT-INTEGRATION.CAPABILITY-UPDATED", Map.of("merchant_id", "seller-42"));
+
+        // When
+        webhookHandler.handle(event);
+
+        // Then
+        verify(payPalSellerService).invalidateMerchantEligibility("seller-42");
+    }
+
+    @Test
+    void handle_withoutEventType_shouldIgnoreEvent() throws Exception {
+        // When
+        webhookHandler.handle(new WebhookEvent("WH-1", null, "WH-1", Map.of()));
+
+        // Then
+        verifyNoInteractions(payPalSellerService);
+    }
+
+    private Map<String, Object> captureResource(String captureId, String paypalOrderId) {
+        return captureResource(captureId, paypalOrderId, PAID);
+    }
+
+    private Map<String, Object> captureResource(String captureId, String paypalOrderId, Map<String, Object> amount) {
+        return Map.of("id", captureId, "amount", amount,
+                "supplementary_data", Map.of("related_ids", Map.of("order_id", paypalOrderId)));
+    }
+
+    private Order order(String id, OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("100.00"));
+        order.setPaymentAmount(new BigDecimal("108.00"));
+        return order;
+    }
+
+    private WebhookEvent event(String eventType, Map<String, Object> resource) {
+        return new WebhookEvent("WH-1", eventType, "resource-1", Map.of("id", "WH-1", "event_type", eventType, "resource", resource));
+    }
+}
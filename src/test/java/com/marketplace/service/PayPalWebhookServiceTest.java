@@ -0,0 +1,210 @@
+package com.marketplace.service;
+
+import com.marketplace.model.WebhookEvent;
+import com.marketplace.repository.WebhookEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayPalWebhookServiceTest {
+
+    @Mock
+    private WebhookEventRepository webhookEventRepository;
+
+    @Mock
+    private PayPalWebhookHandler webhookHandler;
+
+    @Mock
+    private PayPalWebhookVerifier webhookVerifier;
+
+    @InjectMocks
+    private PayPalWebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(webhookService, "batchSize", 100);
+        ReflectionTestUtils.setField(webhookService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(webhookService, "workers", 2);
+        ReflectionTestUtils.setField(webhookService, "leaseMs", 60000L);
+        webhookService.start();
+        lenient().when(webhookVerifier.verify(any(), anyMap())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        webhookService.stop();
+    }
+
+    @Test
+    void ingest_shouldStoreEventKeyedByRelatedPayPalOrder() {
+        // Given
+        Map<String, Object> payload = Map.of(
+                "id", "WH-1",
+                "event_type", "PAYMENT.CAPTURE.COMPLETED",
+                "resource", Map.of(
+                        "id", "capture-1",
+                        "supplementary_data", Map.of("related_ids", Map.of("order_id", "paypal-order-1"))));
+        when(webhookEventRepository.insertIfAbsent(any(WebhookEvent.class))).thenReturn(true);
+        Map<String, String> transmission = Map.of("PAYPAL-TRANSMISSION-ID", "transmission-1");
+
+        // When
+        boolean stored = webhookService.ingest(payload, transmission);
+
+        // Then
+        assertTrue(stored);
+        ArgumentCaptor<WebhookEvent> event = ArgumentCaptor.forClass(WebhookEvent.class);
+        verify(webhookEventRepository).insertIfAbsent(event.capture());
+        assertEquals("WH-1", event.getValue().getId());
+        assertEquals("PAYMENT.CAPTURE.COMPLETED", event.getValue().getEventType());
+        assertEquals("paypal-order-1", event.getValue().getResourceKey());
+        assertEquals(WebhookEvent.State.PENDING, event.getValue().getState());
+        assertEquals(transmission, event.getValue().getTransmission());
+        verifyNoInteractions(webhookVerifier);
+    }
+
+    @Test
+    void ingest_withRedeliveredEvent_shouldReportDuplicate() {
+        // Given
+        when(webhookEventRepository.insertIfAbsent(any(WebhookEvent.class))).thenReturn(false);
+
+        // When
+        boolean stored = webhookService.ingest(Map.of("id", "WH-1", "event_type", "CHECKOUT.ORDER.APPROVED"), Map.of());
+
+        // Then
+        assertFalse(stored);
+        verifyNoInteractions(webhookHandler);
+    }
+
+    @Test
+    void dispatchPending_shouldProcessEventsOfAResourceInSequence() throws Exception {
+        // Given
+        WebhookEvent approved = event("WH-1", "CHECKOUT.ORDER.APPROVED", "paypal-order-1", 1);
+        WebhookEvent completed = event("WH-2", "PAYMENT.CAPTURE.COMPLETED", "paypal-order-1", 2);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(Arrays.asList(approved, completed));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+
+        // When
+        int handled = webhookService.dispatchPending();
+
+        // Then
+        assertEquals(2, handled);
+        InOrder inOrder = inOrder(webhookHandler);
+        inOrder.verify(webhookHandler).handle(approved);
+        inOrder.verify(webhookHandler).handle(completed);
+        verify(webhookEventRepository).markDone(List.of("WH-1", "WH-2"));
+    }
+
+    @Test
+    void dispatchPending_withForgedSignature_shouldDropEventWithoutHandlingIt() throws Exception {
+        // Given
+        WebhookEvent forged = event("WH-FORGED", "PAYMENT.CAPTURE.COMPLETED", "paypal-order-1", 1);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(forged));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(webhookVerifier.verify(forged.getTransmission(), forged.getPayload())).thenReturn(false);
+
+        // When
+        webhookService.dispatchPending();
+
+        // Then
+        verifyNoInteractions(webhookHandler);
+        verify(webhookEventRepository).deleteById("WH-FORGED");
+    }
+
+    @Test
+    void dispatchPending_whenVerificationUnavailable_shouldRetryLater() throws Exception {
+        // Given
+        WebhookEvent approved = event("WH-1", "CHECKOUT.ORDER.APPROVED", "paypal-order-1", 1);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(approved));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        when(webhookVerifier.verify(any(), anyMap())).thenThrow(new IllegalStateException("PayPal unavailable"));
+
+        // When
+        int handled = webhookService.dispatchPending();
+
+        // Then
+        assertEquals(0, handled);
+        verifyNoInteractions(webhookHandler);
+        verify(webhookEventRepository, never()).deleteById(any());
+        verify(webhookEventRepository).reschedule(argThat((WebhookEvent event) -> event.getState() == WebhookEvent.State.PENDING), anyString());
+    }
+
+    @Test
+    void dispatchPending_whenHandlerFails_shouldRetryWithBackoffAndHoldLaterEvents() throws Exception {
+        // Given
+        WebhookEvent approved = event("WH-1", "CHECKOUT.ORDER.APPROVED", "paypal-order-1", 1);
+        WebhookEvent completed = event("WH-2", "PAYMENT.CAPTURE.COMPLETED", "paypal-order-1", 2);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(Arrays.asList(approved, completed));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        doThrow(new RuntimeException("database down")).when(webhookHandler).handle(approved);
+
+        // When
+        int handled = webhookService.dispatchPending();
+
+        // Then
+        assertEquals(0, handled);
+        verify(webhookHandler, never()).handle(completed);
+        ArgumentCaptor<WebhookEvent> saved = ArgumentCaptor.forClass(WebhookEvent.class);
+        verify(webhookEventRepository).reschedule(saved.capture(), anyString());
+        assertEquals(1, saved.getValue().getAttempts());
+        assertEquals(WebhookEvent.State.PENDING, saved.getValue().getState());
+        assertNotNull(saved.getValue().getNextAttemptAt());
+    }
+
+    @Test
+    void dispatchPending_afterMaxAttempts_shouldDeadLetterEvent() throws Exception {
+        // Given
+        WebhookEvent approved = event("WH-1", "CHECKOUT.ORDER.APPROVED", "paypal-order-1", 1);
+        approved.setAttempts(2);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(approved));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(Collections.emptyList());
+        doThrow(new RuntimeException("still failing")).when(webhookHandler).handle(approved);
+
+        // When
+        webhookService.dispatchPending();
+
+        // Then
+        verify(webhookEventRepository).reschedule(argThat((WebhookEvent event) -> event.getState() == WebhookEvent.State.DEAD), anyString());
+    }
+
+    @Test
+    void dispatchPending_withEarlierEventLeasedByAnotherNode_shouldHoldLaterEvents() throws Exception {
+        // Given
+        WebhookEvent approved = event("WH-1", "CHECKOUT.ORDER.APPROVED", "paypal-order-1", 1);
+        WebhookEvent completed = event("WH-2", "PAYMENT.CAPTURE.COMPLETED", "paypal-order-1", 2);
+        when(webhookEventRepository.claimDueBatch(anyString(), any(LocalDateTime.class), any(LocalDateTime.class), eq(100))).thenReturn(List.of(completed));
+        when(webhookEventRepository.findBlocking(anyCollection(), anyString())).thenReturn(List.of(approved));
+
+        // When
+        int handled = webhookService.dispatchPending();
+
+        // Then
+        assertEquals(0, handled);
+        verifyNoInteractions(webhookHandler);
+        verify(webhookEventRepository).releaseClaims(anyString());
+    }
+
+    private WebhookEvent event(String id, String eventType, String resourceKey, int sequence) {
+        WebhookEvent event = new WebhookEvent(id, eventType, resourceKey, Map.of("id", id, "event_type", eventType));
+        event.setReceivedAt(LocalDateTime.now().minusSeconds(10 - sequence));
+        event.setTransmission(Map.of("PAYPAL-TRANSMISSION-ID", "transmission-" + id));
+        return event;
+    }
+}
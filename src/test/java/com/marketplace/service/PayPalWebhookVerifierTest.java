@@ -0,0 +1,109 @@
+package com.marketplace.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PayPalWebhookVerifierTest {
+
+    @Mock
+    private PayPalService payPalService;
+
+    @InjectMocks
+    private PayPalWebhookVerifier verifier;
+
+    @Captor
+    private ArgumentCaptor<Map<String, Object>> request;
+
+    private final Map<String, Object> event = Map.of("id", "WH-1", "event_type", "PAYMENT.CAPTURE.COMPLETED");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(verifier, "webhookId", "WEBHOOK-1");
+    }
+
+    @Test
+    void verify_shouldSendTransmissionHeadersAndWebhookIdToPayPal() {
+        // Given
+        when(payPalService.verifyWebhookSignatureAsync(anyMap())).thenReturn(CompletableFuture.completedFuture(true));
+
+        // When
+        boolean verified = verifier.verify(PayPalWebhookVerifier.transmissionHeaders(signedHeaders()), event);
+
+        // Then
+        assertTrue(verified);
+        verify(payPalService).verifyWebhookSignatureAsync(request.capture());
+        assertEquals("SHA256withRSA", request.getValue().get("auth_algo"));
+        assertEquals("https://api.paypal.com/v1/notifications/certs/CERT-1", request.getValue().get("cert_url"));
+        assertEquals("transmission-1", request.getValue().get("transmission_id"));
+        assertEquals("signature", request.getValue().get("transmission_sig"));
+        assertEquals("2026-10-19T10:00:00Z", request.getValue().get("transmission_time"));
+        assertEquals("WEBHOOK-1", request.getValue().get("webhook_id"));
+        assertEquals(event, request.getValue().get("webhook_event"));
+    }
+
+    @Test
+    void verify_whenPayPalRejectsSignature_shouldReturnFalse() {
+        // Given
+        when(payPalService.verifyWebhookSignatureAsync(anyMap())).thenReturn(CompletableFuture.completedFuture(false));
+
+        // When & Then
+        assertFalse(verifier.verify(PayPalWebhookVerifier.transmissionHeaders(signedHeaders()), event));
+    }
+
+    @Test
+    void verify_withoutSignatureHeaders_shouldRejectWithoutCallingPayPal() {
+        // Given
+        HttpHeaders headers = signedHeaders();
+        headers.remove("PAYPAL-TRANSMISSION-SIG");
+
+        // When & Then
+        assertFalse(verifier.verify(PayPalWebhookVerifier.transmissionHeaders(headers), event));
+        verifyNoInteractions(payPalService);
+    }
+
+    @Test
+    void verify_withoutConfiguredWebhookId_shouldRejectEverything() {
+        // Given
+        ReflectionTestUtils.setField(verifier, "webhookId", "");
+
+        // When & Then
+        assertFalse(verifier.verify(PayPalWebhookVerifier.transmissionHeaders(signedHeaders()), event));
+        verifyNoInteractions(payPalService);
+    }
+
+    @Test
+    void verify_whenPayPalUnavailable_shouldThrow() {
+        // Given
+        when(payPalService.verifyWebhookSignatureAsync(anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new PayPalUnavailableException("PayPal circuit breaker is open")));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> verifier.verify(PayPalWebhookVerifier.transmissionHeaders(signedHeaders()), event));
+    }
+
+    private static HttpHeaders signedHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("PAYPAL-AUTH-ALGO", "SHA256withRSA");
+        headers.set("PAYPAL-CERT-URL", "https://api.paypal.com/v1/notifications/certs/CERT-1");
+        headers.set("PAYPAL-TRANSMISSION-ID", "transmission-1");
+        headers.set("PAYPAL-TRANSMISSION-SIG", "signature");
+        headers.set("PAYPAL-TRANSMISSION-TIME", "2026-10-19T10:00:00Z");
+        return headers;
+    }
+}
@@ -0,0 +1,225 @@
+package com.marketplace.service;
+
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.ReconciliationCheckpoint;
+import com.marketplace.model.ReconciliationUpdate;
+import com.marketplace.repository.OrderRepository;
+import com.marketplace.repository.ReconciliationCheckpointRepository;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Capture;
+import com.paypal.orders.Money;
+import com.paypal.orders.PaymentCollection;
+import com.paypal.orders.PurchaseUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PayPalService payPalService;
+
+    @InjectMocks
+    private PaymentReconciliationService reconciliationService;
+
+    @Captor
+    private ArgumentCaptor<List<ReconciliationUpdate>> updates;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reconciliationService, "concurrency", 2);
+        ReflectionTestUtils.setField(reconciliationService, "requestsPerSecond", 1000d);
+        reconciliationService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationService.stop();
+    }
+
+    @Test
+    void reconcile_withCapturedPendingOrder_shouldConfirmItAndCheckpoint() throws Exception {
+        // Given
+        when(checkpointRepository.findById(ReconciliationCheckpoint.PAYPAL_ORDERS)).thenReturn(Optional.empty());
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+        when(orderRepository.findReconciliationBatch(isNull(), any(), any(), any(), anyInt())).thenReturn(List.of(pending));
+        when(orderRepository.findReconciliationBatch(eq("order-1"), any(), any(), any(), anyInt())).thenReturn(Collections.emptyList());
+        com.paypal.orders.Order paypalOrder = paypalOrder("COMPLETED", "capture-1", "COMPLETED");
+        when(payPalService.getOrderAsync("paypal-order-1")).thenReturn(CompletableFuture.completedFuture(paypalOrder));
+        when(orderRepository.applyReconciliation(anyList(), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        ReconciliationCheckpoint checkpoint = reconciliationService.reconcile();
+
+        // Then
+        verify(orderRepository).applyReconciliation(updates.capture(), any(LocalDateTime.class));
+        ReconciliationUpdate update = updates.getValue().get(0);
+        assertEquals(OrderStatus.PENDING, update.getObservedStatus());
+        assertEquals(OrderStatus.CONFIRMED, update.getTargetStatus());
+        assertEquals("capture-1", update.getCaptureId());
+
+        assertNull(checkpoint.getLastOrderId());
+        assertNotNull(checkpoint.getLastPassCompletedAt());
+        assertEquals(1, checkpoint.getChecked());
+        assertEquals(1, checkpoint.getUpdated());
+        verify(checkpointRepository, times(2)).save(checkpoint);
+    }
+
+    @Test
+    void reconcile_whenPayPalThrottles_shouldSkipOrderUntilNextPass() throws Exception {
+        // Given
+        when(checkpointRepository.findById(ReconciliationCheckpoint.PAYPAL_ORDERS)).thenReturn(Optional.empty());
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+        when(orderRepository.findReconciliationBatch(isNull(), any(), any(), any(), anyInt())).thenReturn(List.of(pending));
+        when(orderRepository.findReconciliationBatch(eq("order-1"), any(), any(), any(), anyInt())).thenReturn(Collections.emptyList());
+        HttpException throttled = mock(HttpException.class);
+        when(throttled.statusCode()).thenReturn(429);
+        when(payPalService.getOrderAsync("paypal-order-1")).thenReturn(CompletableFuture.failedFuture(throttled));
+
+        // When
+        reconciliationService.reconcile();
+
+        // Then
+        verify(orderRepository).applyReconciliation(eq(Collections.emptyList()), any(LocalDateTime.class));
+    }
+
+    @Test
+    void reconcile_whenCircuitBreakerIsOpen_shouldStopWithoutCheckpointing() {
+        // Given
+        when(checkpointRepository.findById(ReconciliationCheckpoint.PAYPAL_ORDERS)).thenReturn(Optional.empty());
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+        when(orderRepository.findReconciliationBatch(isNull(), any(), any(), any(), anyInt())).thenReturn(List.of(pending));
+        when(payPalService.getOrderAsync("paypal-order-1"))
+                .thenReturn(CompletableFuture.failedFuture(new PayPalUnavailableException("PayPal circuit breaker is open")));
+
+        // When / Then
+        assertThrows(PayPalUnavailableException.class, () -> reconciliationService.reconcile());
+        verify(orderRepository, never()).applyReconciliation(anyList(), any(LocalDateTime.class));
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void decide_withCaptureOfWrongAmount_shouldNotConfirm() {
+        // Given
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+        Capture capture = capture("capture-1", "COMPLETED", "1.00", "USD");
+
+        // When
+        ReconciliationUpdate update = reconciliationService.decide(pending, "COMPLETED", capture, LocalDateTime.now());
+
+        // Then
+        assertFalse(update.isChange());
+    }
+
+    @Test
+    void decide_withCaptureInOtherCurrency_shouldNotConfirm() {
+        // Given
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+        Capture capture = capture("capture-1", "COMPLETED", "108.00", "EUR");
+
+        // When
+        ReconciliationUpdate update = reconciliationService.decide(pending, "COMPLETED", capture, LocalDateTime.now());
+
+        // Then
+        assertFalse(update.isChange());
+    }
+
+    @Test
+    void decide_withRefundedCaptureOfConfirmedOrder_shouldRefund() {
+        // Given
+        Order confirmed = order("order-1", OrderStatus.CONFIRMED, "paypal-order-1", 24);
+        Capture capture = capture("capture-1", "REFUNDED");
+
+        // When
+        ReconciliationUpdate update = reconciliationService.decide(confirmed, "COMPLETED", capture, LocalDateTime.now());
+
+        // Then
+        assertEquals(OrderStatus.REFUNDED, update.getTargetStatus());
+    }
+
+    @Test
+    void decide_withUncapturedOrderPastAbandonWindow_shouldCancel() {
+        // Given
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 100);
+
+        // When
+        ReconciliationUpdate update = reconciliationService.decide(pending, "APPROVED", null, LocalDateTime.now());
+
+        // Then
+        assertEquals(OrderStatus.CANCELLED, update.getTargetStatus());
+    }
+
+    @Test
+    void decide_withRecentlyApprovedOrder_shouldLeaveOrderUnchanged() {
+        // Given
+        Order pending = order("order-1", OrderStatus.PENDING, "paypal-order-1", 2);
+
+        // When
+        ReconciliationUpdate update = reconciliationService.decide(pending, "APPROVED", null, LocalDateTime.now());
+
+        // Then
+        assertFalse(update.isChange());
+    }
+
+    private Order order(String id, OrderStatus status, String paypalOrderId, int hoursOld) {
+        Order order = new Order();
+        order.setId(id);
+        order.setStatus(status);
+        order.setPaypalPaymentId(paypalOrderId);
+        order.setCreatedAt(LocalDateTime.now().minusHours(hoursOld));
+        order.setTotalAmount(new BigDecimal("100.00"));
+        order.setPaymentAmount(new BigDecimal("108.00"));
+        return order;
+    }
+
+    private com.paypal.orders.Order paypalOrder(String status, String captureId, String captureStatus) {
+        Capture capture = capture(captureId, captureStatus, "108.00", "USD");
+        PaymentCollection payments = mock(PaymentCollection.class);
+        when(payments.captures()).thenReturn(List.of(capture));
+        PurchaseUnit unit = mock(PurchaseUnit.class);
+        when(unit.payments()).thenReturn(payments);
+        com.paypal.orders.Order paypalOrder = mock(com.paypal.orders.Order.class);
+        when(paypalOrder.status()).thenReturn(status);
+        when(paypalOrder.purchaseUnits()).thenReturn(List.of(unit));
+        return paypalOrder;
+    }
+
+    private Capture capture(String id, String status) {
+        Capture capture = mock(Capture.class);
+        lenient().when(capture.id()).thenReturn(id);
+        lenient().when(capture.status()).thenReturn(status);
+        return capture;
+    }
+
+    private Capture capture(String id, String status, String value, String currencyCode) {
+        Capture capture = capture(id, status);
+        lenient().when(capture.amount()).thenReturn(new Money().currencyCode(currencyCode).value(value));
+        return capture;
+    }
+}
@@ -16,6 +16,11 @@ import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -65,6 +70,8 @@ class ProductServiceTest {
         testProductDto.setDescription("Test DTO Description");
         testProductDto.setImageUrl("http://test.com/dto-image.jpg");
         testProductDto.setPaypalButtonId("dto-button-123");
+
+        productService.start();
     }
 
     @Test
@@ -270,4 +277,33 @@ class ProductServiceTest {
         assertEquals("test-image-url", dto.getImageUrl());
         assertEquals("test-button-id", dto.getPaypalButtonId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getProduct_concurrentReadsOfSameProduct_shouldShareOneRepositoryCall() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(productRepository.findById("1")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(testProduct);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<Optional<Product>> first = executor.submit(() -> productService.getProduct("1"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Optional<Product>> second = executor.submit(() -> productService.getProduct("1"));
+            Thread.sleep(50);
+            release.countDown();
+
+            // Then
+            assertSame(testProduct, first.get(5, TimeUnit.SECONDS).orElseThrow());
+            assertSame(testProduct, second.get(5, TimeUnit.SECONDS).orElseThrow());
+            verify(productRepository, times(1)).findById("1");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
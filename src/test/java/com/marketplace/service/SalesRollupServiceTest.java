@@ -0,0 +1,190 @@
+package com.marketplace.service;
+
+import com.marketplace.model.CartItem;
+import com.marketplace.model.Order;
+import com.marketplace.model.OrderStatus;
+import com.marketplace.model.SalesRollup;
+import com.marketplace.repository.OrderRepository;
+import com.marketplace.repository.SalesRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+
+    @InjectMocks
+    private SalesRollupService salesRollupService;
+
+    private Order testOrder;
+    private final LocalDateTime now = LocalDateTime.of(2026, 10, 19, 14, 37, 12);
+
+    @BeforeEach
+    void setUp() {
+        testOrder = new Order(
+            "user-123",
+            "test@example.com",
+            "Test User",
+            Arrays.asList(
+                new CartItem("p1", "Headphones", new BigDecimal("99.99"), "a.jpg", 2),
+                new CartItem("p2", "Mouse", new BigDecimal("29.99"), "b.jpg", 1)
+            ),
+            new BigDecimal("229.97")
+        );
+        testOrder.setId("order-123");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordStatusChange_toConfirmed_shouldIncrementTotalAndProductBuckets() {
+        // Given
+        claims(SalesRollupService.SALE);
+
+        // When
+        salesRollupService.recordStatusChange("order-123", OrderStatus.CONFIRMED, now);
+
+        // Then
+        ArgumentCaptor<Map<String, Map<String, Long>>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(salesRollupRepository).increment(eq(now), eq("order-123:SALE"), deltas.capture());
+        verify(orderRepository).markRollupApplied("order-123", SalesRollupService.SALE);
+        Map<String, Long> total = deltas.getValue().get(SalesRollup.ALL_PRODUCTS);
+        assertEquals(22997L, total.get("revenueCents"));
+        assertEquals(1L, total.get("orderCount"));
+        assertEquals(3L, total.get("unitsSold"));
+        assertEquals(19998L, deltas.getValue().get("p1").get("revenueCents"));
+        assertEquals(1L, deltas.getValue().get("p2").get("unitsSold"));
+    }
+
+    @Test
+    void recordStatusChange_whenSaleAlreadyCounted_shouldNotIncrementAgain() {
+        // Given
+        testOrder.getAppliedRollups().add(SalesRollupService.SALE);
+        claims(SalesRollupService.SALE);
+
+        // When
+        salesRollupService.recordStatusChange("order-123", OrderStatus.CONFIRMED, now);
+
+        // Then
+        verifyNoInteractions(salesRollupRepository);
+        verify(orderRepository, never()).markRollupApplied(any(), any());
+    }
+
+    @Test
+    void recordStatusChange_whenIncrementFailsOnce_shouldReapplySameContributionOnRetry() {
+        // Given
+        claims(SalesRollupService.SALE);
+        doThrow(new RuntimeException("bulk write timed out"))
+            .doNothing()
+            .when(salesRollupRepository).increment(any(), any(), any());
+
+        // When
+        assertThrows(RuntimeException.class,
+            () -> salesRollupService.recordStatusChange("order-123", OrderStatus.CONFIRMED, now));
+        salesRollupService.recordStatusChange("order-123", OrderStatus.CONFIRMED, now.plusMinutes(3));
+
+        // Then
+        verify(salesRollupRepository, times(2)).increment(eq(now), eq("order-123:SALE"), anyMap());
+        verify(orderRepository, times(1)).markRollupApplied("order-123", SalesRollupService.SALE);
+    }
+
+    @Test
+    void recordStatusChange_cancelledWithoutSale_shouldNotRecordRefund() {
+        // Given
+        claims(SalesRollupService.REVERSAL);
+
+        // When
+        salesRollupService.recordStatusChange("order-123", OrderStatus.CANCELLED, now);
+
+        // Then
+        verifyNoInteractions(salesRollupRepository);
+        verify(orderRepository).markRollupApplied("order-123", SalesRollupService.REVERSAL);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordStatusChange_refundedAfterSale_shouldRecordRefund() {
+        // Given
+        testOrder.getRollupTimes().put(SalesRollupService.SALE, now.minusDays(1));
+        testOrder.getAppliedRollups().add(SalesRollupService.SALE);
+        claims(SalesRollupService.REVERSAL);
+
+        // When
+        salesRollupService.recordStatusChange("order-123", OrderStatus.REFUNDED, now);
+
+        // Then
+        ArgumentCaptor<Map<String, Map<String, Long>>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(salesRollupRepository).increment(eq(now), eq("order-123:REVERSAL"), deltas.capture());
+        assertEquals(22997L, deltas.getValue().get(SalesRollup.ALL_PRODUCTS).get("refundedCents"));
+    }
+
+    @Test
+    void planRanges_acrossSeveralDays_shouldUseCoarsestBuckets() {
+        // When
+        List<SalesRollup.Range> ranges = SalesRollupService.planRanges(
+            LocalDateTime.of(2026, 10, 1, 22, 30), LocalDateTime.of(2026, 10, 5, 1, 15));
+
+        // Then
+        assertEquals(5, ranges.size());
+        assertRange(ranges.get(0), SalesRollup.Granularity.MINUTE, "2026-10-01T22:30", "2026-10-01T23:00");
+        assertRange(ranges.get(1), SalesRollup.Granularity.HOUR, "2026-10-01T23:00", "2026-10-02T00:00");
+        assertRange(ranges.get(2), SalesRollup.Granularity.DAY, "2026-10-02T00:00", "2026-10-05T00:00");
+        assertRange(ranges.get(3), SalesRollup.Granularity.HOUR, "2026-10-05T00:00", "2026-10-05T01:00");
+        assertRange(ranges.get(4), SalesRollup.Granularity.MINUTE, "2026-10-05T01:00", "2026-10-05T01:15");
+    }
+
+    @Test
+    void planRanges_withinOneHour_shouldUseMinuteBucketsOnly() {
+        // When
+        List<SalesRollup.Range> ranges = SalesRollupService.planRanges(
+            LocalDateTime.of(2026, 10, 1, 10, 5, 30), LocalDateTime.of(2026, 10, 1, 10, 20));
+
+        // Then
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), SalesRollup.Granularity.MINUTE, "2026-10-01T10:05", "2026-10-01T10:20");
+    }
+
+    @Test
+    void planRanges_alignedToWholeDays_shouldUseDayBucketsOnly() {
+        // When
+        List<SalesRollup.Range> ranges = SalesRollupService.planRanges(
+            LocalDateTime.of(2026, 10, 1, 0, 0), LocalDateTime.of(2026, 11, 1, 0, 0));
+
+        // Then
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), SalesRollup.Granularity.DAY, "2026-10-01T00:00", "2026-11-01T00:00");
+    }
+
+    private void assertRange(SalesRollup.Range range, SalesRollup.Granularity granularity, String start, String end) {
+        assertEquals(granularity, range.getGranularity());
+        assertEquals(LocalDateTime.parse(start), range.getStart());
+        assertEquals(LocalDateTime.parse(end), range.getEnd());
+    }
+
+    // Mirrors OrderRepository.claimRollup: the first claim records the event time, later ones keep it
+    private void claims(String contribution) {
+        when(orderRepository.claimRollup(eq("order-123"), eq(contribution), any())).thenAnswer(invocation -> {
+            testOrder.getRollupTimes().putIfAbsent(contribution, invocation.getArgument(2));
+            return testOrder;
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.marketplace.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>(Duration.ofSeconds(5));
+
+    @Test
+    void execute_concurrentCallsForSameKey_shouldRunOnce() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute("product-1", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "value";
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("product-1", () -> {
+                    calls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (singleFlight.getCoalesced() < 7) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Then
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(1, singleFlight.getExecuted());
+            assertEquals(7, singleFlight.getCoalesced());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_whenCallInFlightOutlastsMaxWait_shouldRunOnItsOwn() throws Exception {
+        // Given
+        SingleFlight<String, String> bounded = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> slow = executor.submit(() -> bounded.execute("product-1", () -> {
+                started.countDown();
+                await(release);
+                return "slow";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // When
+            String own = bounded.execute("product-1", () -> "own");
+
+            // Then
+            assertEquals("own", own);
+            assertEquals(1, bounded.getWaitTimeouts());
+            assertEquals(2, bounded.getExecuted());
+            release.countDown();
+            assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_afterCompletion_shouldRunAgain() {
+        // When
+        singleFlight.execute("product-1", () -> "first");
+        String second = singleFlight.execute("product-1", () -> "second");
+
+        // Then
+        assertEquals("second", second);
+        assertEquals(2, singleFlight.getExecuted());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void execute_whenCallFails_shouldPropagateAndForget() {
+        // When
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("product-1", () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        // Then
+        assertEquals("value", singleFlight.execute("product-1", () -> "value"));
+    }
+
+    @Test
+    void bindTo_shouldPublishCounters() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        singleFlight.bindTo(registry, "test");
+
+        // When
+        singleFlight.execute("a", () -> "value");
+
+        // Then
+        assertEquals(1.0, registry.get("singleflight.calls").tag("name", "test").tag("result", "executed").functionCounter().count());
+        assertEquals(0.0, registry.get("singleflight.calls").tag("name", "test").tag("result", "coalesced").functionCounter().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
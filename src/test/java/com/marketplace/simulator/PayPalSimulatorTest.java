@@ -0,0 +1,157 @@
+package com.marketplace.simulator;
+
+import com.marketplace.model.Product;
+import com.marketplace.service.PayPalService;
+import com.paypal.http.exceptions.HttpException;
+import com.paypal.orders.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayPalSimulatorTest {
+
+    private PayPalSimulatorSettings settings;
+    private PayPalSimulator simulator;
+    private PayPalService payPalService;
+    private Product product;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        settings = new PayPalSimulatorSettings();
+        settings.setPort(0);
+        settings.setThreads(4);
+        settings.setLatencyMedianMs(0);
+        simulator = new PayPalSimulator(settings);
+        simulator.start();
+
+        payPalService = new PayPalService("sim-client-id", "sim-client-secret", "sandbox", simulator.getBaseUrl());
+
+        product = new Product();
+        product.setId("1");
+        product.setName("Test Product");
+        product.setDescription("Test Description");
+        product.setPrice(new BigDecimal("99.99"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulator.stop();
+    }
+
+    @Test
+    void createCaptureAndGet_shouldWorkWithPayPalSdk() throws Exception {
+        // When
+        Order created = payPalService.createOrder(product, "request-1");
+        Order captured = payPalService.captureOrder(created.id());
+        Order fetched = payPalService.getOrder(created.id());
+
+        // Then
+        assertEquals("APPROVED", created.status());
+        assertTrue(created.links().stream().anyMatch(link -> "approve".equals(link.rel())));
+        assertEquals("COMPLETED", captured.status());
+        assertEquals("COMPLETED", fetched.purchaseUnits().get(0).payments().captures().get(0).status());
+        assertEquals("1", fetched.purchaseUnits().get(0).customId());
+    }
+
+    @Test
+    void createOrder_withSameRequestId_shouldReturnSameOrder() throws Exception {
+        // When
+        Order first = payPalService.createOrder(product, "request-2");
+        Order second = payPalService.createOrder(product, "request-2");
+
+        // Then
+        assertEquals(first.id(), second.id());
+        assertEquals(1L, simulator.getStats().get("orders_created"));
+    }
+
+    @Test
+    void captureOrder_twice_shouldBeRejected() throws Exception {
+        // Given
+        Order created = payPalService.createOrder(product, "request-3");
+        payPalService.captureOrder(created.id());
+
+        // When
+        HttpException error = assertThrows(HttpException.class, () -> payPalService.captureOrder(created.id()));
+
+        // Then
+        assertEquals(422, error.statusCode());
+    }
+
+    @Test
+    void createOrder_whenThrottled_shouldFailWith429() {
+        // Given
+        settings.setThrottleRate(1.0);
+
+        // When
+        HttpException error = assertThrows(HttpException.class, () -> payPalService.createOrder(product, "request-4"));
+
+        // Then
+        assertEquals(429, error.statusCode());
+        assertEquals(1L, simulator.getStats().get("throttled"));
+    }
+
+    @Test
+    void getOrder_withUnknownId_shouldFailWith404() {
+        // When
+        HttpException error = assertThrows(HttpException.class, () -> payPalService.getOrder("UNKNOWN"));
+
+        // Then
+        assertEquals(404, error.statusCode());
+    }
+
+    @Test
+    void verifyWebhookSignature_withSimulatorSignature_shouldSucceed() throws Exception {
+        // Given
+        Map<String, Object> verification = verification("WH-1", settings.getWebhookId());
+        verification.put("transmission_sig", simulator.sign("tx-1", "2024-01-01T00:00:00Z", settings.getWebhookId(), "WH-1"));
+
+        // When
+        boolean verified = payPalService.verifyWebhookSignature(verification);
+
+        // Then
+        assertTrue(verified);
+    }
+
+    @Test
+    void verifyWebhookSignature_withForgedSignature_shouldFail() throws Exception {
+        // Given
+        Map<String, Object> verification = verification("WH-1", settings.getWebhookId());
+        verification.put("transmission_sig", "forged");
+
+        // When
+        boolean verified = payPalService.verifyWebhookSignature(verification);
+
+        // Then
+        assertFalse(verified);
+    }
+
+    @Test
+    void verifyWebhookSignature_forAnotherWebhookId_shouldFail() throws Exception {
+        // Given
+        Map<String, Object> verification = verification("WH-1", "OTHER-WEBHOOK");
+        verification.put("transmission_sig", simulator.sign("tx-1", "2024-01-01T00:00:00Z", "OTHER-WEBHOOK", "WH-1"));
+
+        // When
+        boolean verified = payPalService.verifyWebhookSignature(verification);
+
+        // Then
+        assertFalse(verified);
+    }
+
+    private static Map<String, Object> verification(String eventId, String webhookId) {
+        Map<String, Object> verification = new HashMap<>();
+        verification.put("auth_algo", "SHA256withRSA");
+        verification.put("cert_url", "http://localhost/v1/notifications/certs/SIMULATOR");
+        verification.put("transmission_id", "tx-1");
+        verification.put("transmission_time", "2024-01-01T00:00:00Z");
+        verification.put("webhook_id", webhookId);
+        verification.put("webhook_event", Map.of("id", eventId, "event_type", "PAYMENT.CAPTURE.COMPLETED"));
+        return verification;
+    }
+}